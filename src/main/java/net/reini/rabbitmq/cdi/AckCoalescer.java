@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.reini.rabbitmq.cdi.ConsumerHolder.AckAction;
+
+/**
+ * Coalesces the acknowledgements of the deliveries of a single channel. Completed deliveries are
+ * acknowledged using a single {@code basicAck(tag, multiple=true)} once either the maximum number
+ * of completed deliveries is reached or the oldest of them waited for the given time window.
+ *
+ * <p>
+ * Deliveries may complete in any order, a multiple acknowledgement only ever covers delivery tags
+ * up to the oldest delivery still being consumed. Negative acknowledgements are sent immediately,
+ * after all completed deliveries before them have been acknowledged. As the broker rejects a
+ * multiple acknowledgement using an already settled delivery tag, only the tag of a completed
+ * delivery is used, never the tag of a negatively acknowledged one.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class AckCoalescer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AckCoalescer.class);
+
+  private final int batchSize;
+  private final long batchWindow;
+  private final ScheduledExecutorService scheduler;
+  private final AckActionInvoker invoker;
+  private final NavigableSet<Long> outstandingTags;
+  private final NavigableSet<Long> completedTags;
+
+  private ScheduledFuture<?> flushTask;
+
+  /**
+   * @param batchSize the maximum number of completed deliveries acknowledged at once
+   * @param batchWindow the maximum time in nanoseconds a completed delivery waits
+   * @param scheduler the scheduler used to flush after the batch window elapsed
+   * @param invoker the invoker of the acknowledge actions
+   */
+  AckCoalescer(int batchSize, long batchWindow, ScheduledExecutorService scheduler,
+      AckActionInvoker invoker) {
+    this.batchSize = batchSize;
+    this.batchWindow = batchWindow;
+    this.scheduler = scheduler;
+    this.invoker = invoker;
+    this.outstandingTags = new TreeSet<>();
+    this.completedTags = new TreeSet<>();
+  }
+
+  /**
+   * Registers a delivery before it gets consumed. Deliveries need to be registered in the order
+   * they are received from the channel.
+   *
+   * @param deliveryTag the delivery tag
+   */
+  synchronized void delivered(long deliveryTag) {
+    outstandingTags.add(Long.valueOf(deliveryTag));
+  }
+
+  /**
+   * Marks the given delivery as successfully consumed and acknowledges all completed deliveries if
+   * the batch is full.
+   *
+   * @param deliveryTag the delivery tag
+   * @throws IOException if the acknowledgement fails
+   */
+  synchronized void ack(long deliveryTag) throws IOException {
+    Long tag = Long.valueOf(deliveryTag);
+    if (outstandingTags.remove(tag)) {
+      completedTags.add(tag);
+      if (completedTags.size() >= batchSize) {
+        flush();
+      } else if (flushTask == null) {
+        scheduleFlush();
+      }
+    }
+  }
+
+  /**
+   * Acknowledges all completed deliveries before the given one, followed by the negative
+   * acknowledgement of the given delivery.
+   *
+   * @param deliveryTag the delivery tag
+   * @throws IOException if the acknowledgement fails
+   */
+  synchronized void nack(long deliveryTag) throws IOException {
+    if (outstandingTags.contains(Long.valueOf(deliveryTag))) {
+      flush();
+      outstandingTags.remove(Long.valueOf(deliveryTag));
+      invoker.invoke(channel -> {
+        channel.basicNack(deliveryTag, false, false);
+        LOGGER.debug("Not acknowledged {}", Long.valueOf(deliveryTag));
+      });
+      if (!completedTags.isEmpty() && flushTask == null) {
+        scheduleFlush();
+      }
+    }
+  }
+
+  /**
+   * Acknowledges all completed deliveries up to the oldest delivery still being consumed. Completed
+   * deliveries after it are acknowledged once the delivery before them completes.
+   *
+   * @throws IOException if the acknowledgement fails
+   */
+  synchronized void flush() throws IOException {
+    cancelFlush();
+    Long deliveryTag = acknowledgeableTag();
+    if (deliveryTag != null) {
+      completedTags.headSet(deliveryTag, true).clear();
+      invoker.invoke(channel -> {
+        channel.basicAck(deliveryTag.longValue(), true);
+        LOGGER.debug("Acknowledged deliveries up to {}", deliveryTag);
+      });
+    }
+  }
+
+  /**
+   * Flushes the completed deliveries and forgets all deliveries still being consumed, as their
+   * delivery tags are no longer valid after the channel recovered.
+   */
+  synchronized void recover() {
+    flushQuietly();
+    cancelFlush();
+    outstandingTags.clear();
+    completedTags.clear();
+  }
+
+  synchronized int getCompletedCount() {
+    return completedTags.size();
+  }
+
+  synchronized void flushQuietly() {
+    try {
+      flush();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to acknowledge completed deliveries", e);
+    }
+  }
+
+  /**
+   * @return the highest completed delivery tag before the oldest delivery still being consumed or
+   *         {@code null} if there is none
+   */
+  private Long acknowledgeableTag() {
+    NavigableSet<Long> acknowledgeable = outstandingTags.isEmpty() ? completedTags
+        : completedTags.headSet(outstandingTags.first(), false);
+    return acknowledgeable.isEmpty() ? null : acknowledgeable.last();
+  }
+
+  private void scheduleFlush() {
+    try {
+      flushTask = scheduler.schedule(this::flushQuietly, batchWindow, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Unable to schedule acknowledge flush, sent with the next full batch", e);
+    }
+  }
+
+  private void cancelFlush() {
+    if (flushTask != null) {
+      flushTask.cancel(false);
+      flushTask = null;
+    }
+  }
+
+  @FunctionalInterface
+  interface AckActionInvoker {
+    void invoke(AckAction action) throws IOException;
+  }
+}
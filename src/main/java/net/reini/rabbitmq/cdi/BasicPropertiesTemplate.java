@@ -0,0 +1,247 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+/**
+ * <p>
+ * Immutable template of the message properties of an exchange binding.
+ * </p>
+ *
+ * <p>
+ * The static properties and headers are frozen once when the template is created. Only the
+ * declared dynamic fields are filled per event. Dynamic headers are overlaid on top of the frozen
+ * static headers without copying them. If no dynamic fields are declared, the same frozen
+ * properties instance is used for all events.
+ * </p>
+ *
+ * <p>
+ * As a {@link BasicPropertiesCalculator} may modify the headers it gets, the calculator is handed
+ * a copy of the properties having mutable headers using {@link #withMutableHeaders}.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ * @param <T> the event type
+ */
+final class BasicPropertiesTemplate<T> {
+  private final BasicProperties staticProperties;
+  private final Map<String, Object> staticHeaders;
+  private final Function<? super T, String> messageIdFunction;
+  private final Function<? super T, String> correlationIdFunction;
+  private final boolean timestamp;
+  private final String[] headerNames;
+  private final Function<? super T, ?>[] headerFunctions;
+  private final boolean dynamic;
+
+  BasicPropertiesTemplate(BasicProperties properties) {
+    this(properties, null, null, false, Collections.emptyMap());
+  }
+
+  @SuppressWarnings("unchecked")
+  BasicPropertiesTemplate(BasicProperties properties, Function<? super T, String> messageIdFunction,
+      Function<? super T, String> correlationIdFunction, boolean timestamp,
+      Map<String, Function<? super T, ?>> dynamicHeaders) {
+    Map<String, Object> headers = properties.getHeaders();
+    this.staticHeaders =
+        headers == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+    this.staticProperties = create(properties, staticHeaders, properties.getMessageId(),
+        properties.getCorrelationId(), properties.getTimestamp());
+    this.messageIdFunction = messageIdFunction;
+    this.correlationIdFunction = correlationIdFunction;
+    this.timestamp = timestamp;
+    this.headerNames = dynamicHeaders.keySet().toArray(new String[0]);
+    this.headerFunctions = dynamicHeaders.values().toArray(new Function[0]);
+    this.dynamic = messageIdFunction != null || correlationIdFunction != null || timestamp
+        || headerNames.length > 0;
+  }
+
+  /**
+   * @return the frozen static properties
+   */
+  BasicProperties getStaticProperties() {
+    return staticProperties;
+  }
+
+  /**
+   * Returns the properties for the given event.
+   *
+   * @param event the event to be published
+   * @return the frozen static properties if no dynamic fields are declared, otherwise a new
+   *         properties instance containing the dynamic fields of the event
+   */
+  BasicProperties apply(T event) {
+    if (!dynamic) {
+      return staticProperties;
+    }
+    Map<String, Object> headers = staticHeaders;
+    if (headerNames.length > 0) {
+      Object[] values = new Object[headerNames.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = headerFunctions[i].apply(event);
+      }
+      headers = new HeaderOverlay(staticHeaders == null ? Collections.emptyMap() : staticHeaders,
+          headerNames, values);
+    }
+    return create(staticProperties, headers,
+        messageIdFunction == null ? staticProperties.getMessageId()
+            : messageIdFunction.apply(event),
+        correlationIdFunction == null ? staticProperties.getCorrelationId()
+            : correlationIdFunction.apply(event),
+        timestamp ? new Date() : staticProperties.getTimestamp());
+  }
+
+  /**
+   * Returns a copy of the given properties having a mutable copy of the headers, that can be
+   * modified without affecting the frozen headers shared by all events.
+   *
+   * @param properties the properties of an event
+   * @return a copy of the given properties or the given properties if they have no headers
+   */
+  static BasicProperties withMutableHeaders(BasicProperties properties) {
+    Map<String, Object> headers = properties.getHeaders();
+    if (headers == null) {
+      return properties;
+    }
+    return create(properties, new LinkedHashMap<>(headers), properties.getMessageId(),
+        properties.getCorrelationId(), properties.getTimestamp());
+  }
+
+  private static BasicProperties create(BasicProperties properties, Map<String, Object> headers,
+      String messageId, String correlationId, Date timestamp) {
+    return new BasicProperties(properties.getContentType(), properties.getContentEncoding(),
+        headers, properties.getDeliveryMode(), properties.getPriority(), correlationId,
+        properties.getReplyTo(), properties.getExpiration(), messageId, timestamp,
+        properties.getType(), properties.getUserId(), properties.getAppId(),
+        properties.getClusterId());
+  }
+
+  /**
+   * Read only view of the static headers overlaid by the dynamic headers of one event.
+   */
+  static final class HeaderOverlay extends AbstractMap<String, Object> {
+    private final Map<String, Object> base;
+    private final String[] names;
+    private final Object[] values;
+
+    HeaderOverlay(Map<String, Object> base, String[] names, Object[] values) {
+      this.base = base;
+      this.names = names;
+      this.values = values;
+    }
+
+    @Override
+    public Object get(Object key) {
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equals(key)) {
+          return values[i];
+        }
+      }
+      return base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return isOverlaid(key) || base.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new OverlayIterator();
+        }
+
+        @Override
+        public int size() {
+          int size = names.length;
+          for (String key : base.keySet()) {
+            if (!isOverlaid(key)) {
+              size++;
+            }
+          }
+          return size;
+        }
+      };
+    }
+
+    boolean isOverlaid(Object key) {
+      for (String name : names) {
+        if (name.equals(key)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    final class OverlayIterator implements Iterator<Entry<String, Object>> {
+      private final Iterator<Entry<String, Object>> baseIterator = base.entrySet().iterator();
+      private Entry<String, Object> nextBase;
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        if (nextBase != null) {
+          return true;
+        }
+        while (baseIterator.hasNext()) {
+          Entry<String, Object> entry = baseIterator.next();
+          if (!isOverlaid(entry.getKey())) {
+            nextBase = entry;
+            return true;
+          }
+        }
+        return index < names.length;
+      }
+
+      @Override
+      public Entry<String, Object> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (nextBase != null) {
+          Entry<String, Object> entry = nextBase;
+          nextBase = null;
+          return entry;
+        }
+        Entry<String, Object> entry = new SimpleImmutableEntry<>(names[index], values[index]);
+        index++;
+        return entry;
+      }
+    }
+  }
+}
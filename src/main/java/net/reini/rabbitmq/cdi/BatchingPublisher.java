@@ -0,0 +1,415 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publisher accumulating events until either the maximum batch size is reached or the batch window
+ * elapsed. The collected events are then published back-to-back on a single channel.
+ *
+ * <p>
+ * The instance is shared by all threads publishing the same event type. Publishing an event only
+ * adds it to the current batch, the batch is sent by the thread adding the last event of a full
+ * batch or by the executor once the batch window elapsed. The scheduler only hands the delayed
+ * work over to the executor, as borrowing a channel and publishing may block.
+ * </p>
+ *
+ * <p>
+ * Taken batches are queued and sent by one thread at a time in the order they were taken, so that
+ * a full batch never overtakes an earlier batch flushed by the scheduler. A batch waiting for a
+ * retry attempt or the flow control holds back the following batches until it has been sent.
+ * </p>
+ *
+ * <p>
+ * Batches are subject to the publisher spool and flow control like single events. While the
+ * executor sends a delayed batch, it does not wait for the flow control but checks again later.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class BatchingPublisher<T> implements MessagePublisher<T> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchingPublisher.class);
+
+  private final ConnectionRepository connectionRepository;
+  private final ScheduledExecutorService scheduler;
+  private final Executor executor;
+
+  private final ArrayDeque<PendingBatch<T>> flushQueue;
+
+  private List<PendingEvent<T>> batch;
+  private ScheduledFuture<?> flushTask;
+  private boolean flushing;
+  private boolean closed;
+
+  BatchingPublisher(ConnectionRepository connectionRepository, ScheduledExecutorService scheduler,
+      Executor executor) {
+    this.connectionRepository = connectionRepository;
+    this.scheduler = scheduler;
+    this.executor = executor;
+    this.flushQueue = new ArrayDeque<>();
+    this.batch = new ArrayList<>();
+  }
+
+  @Override
+  public void publish(T event, PublisherConfiguration<T> publisherConfiguration)
+      throws PublishException {
+    publishConfirmed(event, publisherConfiguration);
+  }
+
+  @Override
+  public CompletableFuture<Void> publishConfirmed(T event,
+      PublisherConfiguration<T> publisherConfiguration) throws PublishException {
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    List<PendingEvent<T>> fullBatch = null;
+    synchronized (this) {
+      if (closed) {
+        throw new PublishException("Batching publisher already closed", null);
+      }
+      batch.add(new PendingEvent<>(event, publisherConfiguration, confirmation));
+      if (batch.size() >= publisherConfiguration.getBatchSize()) {
+        fullBatch = takeBatch();
+      } else if (flushTask == null) {
+        scheduleFlush(publisherConfiguration.getBatchWindow());
+      }
+    }
+    if (fullBatch != null) {
+      flush(fullBatch, false);
+    }
+    return confirmation;
+  }
+
+  /**
+   * Publishes all pending events and rejects further events.
+   */
+  @Override
+  public void close() {
+    List<PendingEvent<T>> pending;
+    synchronized (this) {
+      closed = true;
+      pending = takeBatch();
+    }
+    flush(pending, false);
+  }
+
+  synchronized int getPendingCount() {
+    return batch.size();
+  }
+
+  void flushPending() {
+    List<PendingEvent<T>> pending;
+    synchronized (this) {
+      pending = takeBatch();
+    }
+    flush(pending, true);
+  }
+
+  /**
+   * Queues the given events for publishing and publishes the queued batches, unless another thread
+   * is already doing so.
+   *
+   * @param events the events to be published
+   * @param scheduled {@code true} if called for delayed work, which must not wait for the flow
+   *        control
+   */
+  void flush(List<PendingEvent<T>> events, boolean scheduled) {
+    if (events.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      flushQueue.add(new PendingBatch<>(events));
+      if (flushing) {
+        return;
+      }
+      flushing = true;
+    }
+    drain(scheduled);
+  }
+
+  /**
+   * Publishes the queued batches in order until the queue is empty or a batch has to wait for a
+   * retry attempt or the flow control, in which case the executor continues later.
+   */
+  private void drain(boolean scheduled) {
+    for (;;) {
+      PendingBatch<T> pending;
+      synchronized (this) {
+        pending = flushQueue.peek();
+        if (pending == null) {
+          flushing = false;
+          return;
+        }
+      }
+      if (!flush(pending, scheduled)) {
+        return;
+      }
+      synchronized (this) {
+        flushQueue.remove();
+      }
+    }
+  }
+
+  /**
+   * @return {@code true} if the batch is done, {@code false} if the rest of the batch is sent later
+   */
+  private boolean flush(PendingBatch<T> pending, boolean scheduled) {
+    LOGGER.debug("Publishing batch of {} events", Integer.valueOf(pending.events.size()));
+    List<PendingEvent<T>> remaining = spool(pending.events);
+    if (remaining.isEmpty()) {
+      return true;
+    }
+    PublisherConfiguration<T> configuration = remaining.get(0).configuration;
+    PublisherChannelPool channelPool =
+        connectionRepository.getChannelPool(configuration.getConfig());
+    PublisherFlowControl flowControl = channelPool.getFlowControl();
+    PublisherChannel channel = null;
+    int next = 0;
+    try {
+      channel = channelPool.borrowChannel(configuration.isConfirmChannelRequired());
+      channelPool.getDeclarerRepository().declareOnce(channel.getChannel(),
+          configuration.getDeclarations());
+      for (; next < remaining.size(); next++) {
+        if (scheduled ? !flowControl.tryAcquire() : !flowControl.acquire()) {
+          break;
+        }
+        publish(channel, remaining.get(next), flowControl);
+      }
+      channelPool.returnChannel(channel);
+    } catch (IOException e) {
+      channelPool.discardChannel(channel);
+      return !retry(pending, remaining.subList(next, remaining.size()), e);
+    }
+    if (next < remaining.size()) {
+      return !handleFlowControl(pending, remaining.subList(next, remaining.size()), scheduled,
+          flowControl);
+    }
+    return true;
+  }
+
+  /**
+   * Spools the events as long as the publisher spool takes them, in order to keep the publishing
+   * order while messages are waiting to be replayed.
+   *
+   * @return the events not spooled
+   */
+  private List<PendingEvent<T>> spool(List<PendingEvent<T>> events) {
+    int next = 0;
+    for (; next < events.size(); next++) {
+      PendingEvent<T> pending = events.get(next);
+      try {
+        if (!GenericPublisher.spool(connectionRepository, pending.event, pending.configuration,
+            pending.confirmation)) {
+          break;
+        }
+      } catch (EncodeException e) {
+        pending.fail(new PublishException("Unable to serialize event", e));
+      }
+    }
+    return events.subList(next, events.size());
+  }
+
+  /**
+   * Handles the events that may not be published at the moment because the connection is blocked
+   * by the broker or too many messages are in flight.
+   *
+   * @return {@code true} if the events are sent later, {@code false} if they were spooled or failed
+   */
+  private boolean handleFlowControl(PendingBatch<T> pending, List<PendingEvent<T>> remaining,
+      boolean scheduled, PublisherFlowControl flowControl) {
+    if (scheduled && flowControl.canAwait(pending.waitingSince)) {
+      pending.events = remaining;
+      if (continueLater(PublisherFlowControl.RECHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+      LOGGER.warn("Unable to schedule batch waiting for flow control");
+    }
+    for (PendingEvent<T> event : remaining) {
+      try {
+        GenericPublisher.handleFlowControl(connectionRepository, event.event, event.configuration,
+            flowControl, event.confirmation);
+      } catch (EncodeException e) {
+        event.fail(new PublishException("Unable to serialize event", e));
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return {@code true} if the events are sent later, {@code false} if they failed
+   */
+  private boolean retry(PendingBatch<T> pending, List<PendingEvent<T>> remaining,
+      IOException cause) {
+    int attempt = pending.attempt;
+    RetryPolicy retryPolicy = remaining.get(0).configuration.getRetryPolicy();
+    if (attempt < retryPolicy.getAttempts()) {
+      long delay = retryPolicy.getDelay(attempt);
+      LOGGER.debug("Attempt {} to send batch failed, retrying {} events",
+          Integer.valueOf(attempt), Integer.valueOf(remaining.size()));
+      pending.events = remaining;
+      pending.attempt = attempt + 1;
+      pending.waitingSince = System.nanoTime() + delay;
+      if (continueLater(delay, TimeUnit.NANOSECONDS)) {
+        return true;
+      }
+      LOGGER.warn("Unable to schedule attempt {} to send batch", Integer.valueOf(attempt + 1));
+    }
+    PublishException error =
+        new PublishException("Unable to send message after " + attempt + " attempts", cause);
+    remaining.forEach(event -> event.fail(error));
+    return false;
+  }
+
+  /**
+   * Lets the executor continue publishing the queued batches after the given delay. The scheduler
+   * only hands the work over to the executor.
+   *
+   * @return {@code true} if scheduled, {@code false} if the scheduler is shut down
+   */
+  private boolean continueLater(long delay, TimeUnit unit) {
+    try {
+      scheduler.schedule(() -> {
+        try {
+          executor.execute(() -> drain(true));
+        } catch (RejectedExecutionException e) {
+          failQueued(new PublishException("Unable to continue sending queued batches", e));
+        }
+      }, delay, unit);
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Fails the events of all queued batches, as there is no thread left to publish them.
+   */
+  private void failQueued(PublishException error) {
+    List<PendingBatch<T>> queued;
+    synchronized (this) {
+      queued = new ArrayList<>(flushQueue);
+      flushQueue.clear();
+      flushing = false;
+    }
+    queued.forEach(pending -> pending.events.forEach(event -> event.fail(error)));
+  }
+
+  private static <T> void publish(PublisherChannel channel, PendingEvent<T> pending,
+      PublisherFlowControl flowControl) throws IOException {
+    try {
+      pending.configuration.publish(channel, pending.event).whenComplete((result, error) -> {
+        flowControl.release();
+        pending.complete(error);
+      });
+    } catch (EncodeException e) {
+      flowControl.release();
+      pending.fail(new PublishException("Unable to serialize event", e));
+    } catch (IOException e) {
+      flowControl.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Schedules the flush of the current batch once the batch window elapsed. The scheduler only
+   * hands the flush over to the executor.
+   */
+  private void scheduleFlush(long batchWindow) {
+    try {
+      flushTask = scheduler.schedule(() -> {
+        try {
+          executor.execute(this::flushPending);
+        } catch (RejectedExecutionException e) {
+          LOGGER.warn("Unable to flush batch, batch is sent with the next full batch", e);
+        }
+      }, batchWindow, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Unable to schedule batch flush, batch is sent with the next full batch", e);
+    }
+  }
+
+  private List<PendingEvent<T>> takeBatch() {
+    if (flushTask != null) {
+      flushTask.cancel(false);
+      flushTask = null;
+    }
+    List<PendingEvent<T>> pending = batch;
+    batch = new ArrayList<>();
+    return pending;
+  }
+
+  /**
+   * A batch taken for publishing. Once first in the flush queue, the batch is only accessed by the
+   * thread publishing the queued batches. The flow control timeout counts from the time the batch
+   * was taken.
+   */
+  static final class PendingBatch<T> {
+    List<PendingEvent<T>> events;
+    int attempt;
+    long waitingSince;
+
+    PendingBatch(List<PendingEvent<T>> events) {
+      this.events = events;
+      this.attempt = 1;
+      this.waitingSince = System.nanoTime();
+    }
+  }
+
+  static final class PendingEvent<T> {
+    final T event;
+    final PublisherConfiguration<T> configuration;
+    final CompletableFuture<Void> confirmation;
+
+    PendingEvent(T event, PublisherConfiguration<T> configuration,
+        CompletableFuture<Void> confirmation) {
+      this.event = event;
+      this.configuration = configuration;
+      this.confirmation = confirmation;
+    }
+
+    void complete(Throwable error) {
+      if (error == null) {
+        confirmation.complete(null);
+      } else {
+        confirmation.completeExceptionally(error);
+      }
+    }
+
+    void fail(PublishException cause) {
+      configuration.accept(event, cause);
+      confirmation.completeExceptionally(cause);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+/**
+ * An encoder that writes the encoded message into a reusable buffer instead of allocating growing
+ * intermediate buffers for every message. The encoded message is still copied once into an exact
+ * sized byte array for publishing, as the client library only publishes whole arrays.
+ *
+ * @author Patrick Reinhart
+ * @param <T> Message type
+ */
+public interface BufferedEncoder<T> extends Encoder<T> {
+
+  /**
+   * Encode a message object of type T into the given buffer. The buffer is empty when passed to
+   * the encoder.
+   *
+   * @param object the object to be encode
+   * @param buffer the buffer the encoded object is written to
+   * @throws EncodeException If the conversion fails
+   */
+  void encode(T object, EncodeBuffer buffer) throws EncodeException;
+
+  /**
+   * Encodes the object using a new buffer.
+   *
+   * @param object the object to be encode
+   * @return the encoded object as a byte array
+   * @throws EncodeException If the conversion fails
+   */
+  @Override
+  default byte[] encode(T object) throws EncodeException {
+    EncodeBuffer buffer = new EncodeBuffer();
+    encode(object, buffer);
+    return buffer.toByteArray();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Encoder decorator compressing the encoded messages of another encoder using a
+ * {@link CompressionCodec}. Only messages reaching the configured size threshold are compressed,
+ * as compressing small messages costs more than it saves. The content encoding of compressed
+ * messages is sent along with the message properties.
+ * </p>
+ *
+ * <p>
+ * Consumers transparently decompress messages sent using one of the built-in codecs.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ * @param <T> Message type
+ */
+public final class CompressingEncoder<T> implements BufferedEncoder<T> {
+  /**
+   * The default minimal message size in bytes for compression.
+   */
+  public static final int DEFAULT_THRESHOLD = 1024;
+
+  private final Encoder<T> delegate;
+  private final CompressionCodec codec;
+  private final int threshold;
+  private final ThreadLocal<EncodeBuffer> plainBuffers;
+
+  /**
+   * Creates a compressing encoder using the {@link #DEFAULT_THRESHOLD}.
+   *
+   * @param delegate the encoder producing the uncompressed message
+   * @param codec the compression codec
+   */
+  public CompressingEncoder(Encoder<T> delegate, CompressionCodec codec) {
+    this(delegate, codec, DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * @param delegate the encoder producing the uncompressed message
+   * @param codec the compression codec
+   * @param threshold the minimal message size in bytes for messages to be compressed
+   */
+  public CompressingEncoder(Encoder<T> delegate, CompressionCodec codec, int threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("threshold must not be negative");
+    }
+    this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+    this.codec = Objects.requireNonNull(codec, "codec must not be null");
+    this.threshold = threshold;
+    this.plainBuffers = ThreadLocal.withInitial(EncodeBuffer::new);
+  }
+
+  @Override
+  public void encode(T object, EncodeBuffer buffer) throws EncodeException {
+    if (delegate instanceof BufferedEncoder) {
+      EncodeBuffer plain = plainBuffers.get();
+      plain.reset();
+      ((BufferedEncoder<T>) delegate).encode(object, plain);
+      write(plain.array(), plain.size(), buffer);
+    } else {
+      byte[] data = delegate.encode(object);
+      write(data, data.length, buffer);
+    }
+  }
+
+  @Override
+  public String contentType() {
+    return delegate.contentType();
+  }
+
+  @Override
+  public String toString() {
+    return "CompressingEncoder[" + delegate + ", " + codec.contentEncoding() + ", " + threshold
+        + "]";
+  }
+
+  private void write(byte[] data, int length, EncodeBuffer buffer) throws EncodeException {
+    if (length < threshold) {
+      buffer.write(data, 0, length);
+      return;
+    }
+    try {
+      codec.compress(data, 0, length, buffer);
+    } catch (IOException e) {
+      throw new EncodeException(e);
+    }
+    buffer.setContentEncoding(codec.contentEncoding());
+  }
+}
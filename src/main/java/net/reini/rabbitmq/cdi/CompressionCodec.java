@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ * A compression codec compresses message bodies on the publisher side and restores them on the
+ * consumer side. The codec is identified by its content encoding, that is sent along with the
+ * message in the {@code content-encoding} property.
+ * </p>
+ *
+ * <p>
+ * Implementations must be thread safe.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+public interface CompressionCodec {
+
+  /**
+   * Returns the content encoding of the compressed data such as {@code gzip} for example.
+   *
+   * @return the content encoding name
+   */
+  String contentEncoding();
+
+  /**
+   * Compresses the given data and appends the result to the target buffer.
+   *
+   * @param data the data to be compressed
+   * @param offset the start offset of the data
+   * @param length the number of bytes to be compressed
+   * @param target the buffer the compressed data is written to
+   * @throws IOException if the data could not be compressed
+   */
+  void compress(byte[] data, int offset, int length, EncodeBuffer target) throws IOException;
+
+  /**
+   * Restores the original data from the given compressed data.
+   *
+   * @param data the compressed data
+   * @return the decompressed data
+   * @throws IOException if the data is not valid compressed data or exceeds the maximum size
+   */
+  byte[] decompress(byte[] data) throws IOException;
+
+  /**
+   * @return a codec using the {@code gzip} content encoding with the default compression level
+   */
+  static CompressionCodec gzip() {
+    return gzip(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param level the compression level from 0 to 9 or -1 for the default level
+   * @return a codec using the {@code gzip} content encoding
+   */
+  static CompressionCodec gzip(int level) {
+    return new DeflaterCodec(DeflaterCodec.GZIP, level);
+  }
+
+  /**
+   * @param level the compression level from 0 to 9 or -1 for the default level
+   * @param maxDecompressedSize the maximum size in bytes of decompressed data, larger messages are
+   *        rejected (64 MiB by default)
+   * @return a codec using the {@code gzip} content encoding
+   */
+  static CompressionCodec gzip(int level, int maxDecompressedSize) {
+    return new DeflaterCodec(DeflaterCodec.GZIP, level, maxDecompressedSize);
+  }
+
+  /**
+   * @return a codec using the {@code deflate} (zlib) content encoding with the default compression
+   *         level
+   */
+  static CompressionCodec deflate() {
+    return deflate(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param level the compression level from 0 to 9 or -1 for the default level
+   * @return a codec using the {@code deflate} (zlib) content encoding
+   */
+  static CompressionCodec deflate(int level) {
+    return new DeflaterCodec(DeflaterCodec.DEFLATE, level);
+  }
+
+  /**
+   * @param level the compression level from 0 to 9 or -1 for the default level
+   * @param maxDecompressedSize the maximum size in bytes of decompressed data, larger messages are
+   *        rejected (64 MiB by default)
+   * @return a codec using the {@code deflate} (zlib) content encoding
+   */
+  static CompressionCodec deflate(int level, int maxDecompressedSize) {
+    return new DeflaterCodec(DeflaterCodec.DEFLATE, level, maxDecompressedSize);
+  }
+}
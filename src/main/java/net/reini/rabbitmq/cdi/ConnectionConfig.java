@@ -24,6 +24,8 @@
 package net.reini.rabbitmq.cdi;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 import com.rabbitmq.client.Connection;
@@ -54,4 +56,73 @@ public interface ConnectionConfig {
    * @return the wait time between consumers failed to activate will be tried to restart
    */
   long getFailedConsumerActivationRetryTime();
+
+  /**
+   * @return the maximum number of idle publisher channels kept open for reuse
+   */
+  default int getPublisherChannelPoolSize() {
+    return ConnectionConfiguration.DEFAULT_PUBLISHER_CHANNEL_POOL_SIZE;
+  }
+
+  /**
+   * @return the directory used to spool messages while no connection is available or
+   *         {@code null} if spooling is disabled
+   */
+  default Path getPublisherSpoolDirectory() {
+    return null;
+  }
+
+  /**
+   * @return the maximum size in bytes of the publisher spool
+   */
+  default long getPublisherSpoolSize() {
+    return ConnectionConfiguration.DEFAULT_PUBLISHER_SPOOL_SIZE;
+  }
+
+  /**
+   * @return the policy applied to events published while the connection is blocked or the
+   *         in-flight limit is reached
+   */
+  default FlowControlPolicy getPublisherFlowControlPolicy() {
+    return FlowControlPolicy.BLOCK;
+  }
+
+  /**
+   * @return the maximum number of unconfirmed messages per connection configuration, shared by
+   *         all of its connections, or {@code 0} if unlimited
+   */
+  default int getPublisherInFlightLimit() {
+    return 0;
+  }
+
+  /**
+   * @return the maximum time in milliseconds a publishing thread waits using
+   *         {@link FlowControlPolicy#BLOCK}
+   */
+  default long getPublisherFlowControlTimeout() {
+    return ConnectionConfiguration.DEFAULT_PUBLISHER_FLOW_CONTROL_TIMEOUT_IN_MS;
+  }
+
+  /**
+   * @return the number of connections established to the broker
+   */
+  default int getConnectionCount() {
+    return 1;
+  }
+
+  /**
+   * @return the configuration of the connections used for publishing, which is this configuration
+   *         unless publishing uses separate connections
+   */
+  default ConnectionConfig getPublisherConnectionConfig() {
+    return this;
+  }
+
+  /**
+   * @return the executor each delivery is handed off to or {@code null} if deliveries are
+   *         consumed on the consumer dispatch thread of the connection
+   */
+  default Executor getConsumerDeliveryExecutor() {
+    return null;
+  }
 }
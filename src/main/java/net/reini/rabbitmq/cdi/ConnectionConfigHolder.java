@@ -23,9 +23,13 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import java.nio.file.Path;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import com.rabbitmq.client.Address;
+import com.rabbitmq.client.impl.nio.NioParams;
 
 /**
  * Holds the configuration for a AMQP connection.
@@ -95,4 +99,71 @@ interface ConnectionConfigHolder {
    * @param waitTime time in milli seconds to wait between retries
    */
   void setFailedConsumerActivationRetryTime(long waitTime);
+
+  /**
+   * Set the maximum number of idle publisher channels kept open for reuse.
+   *
+   * @param poolSize the maximum number of pooled publisher channels
+   */
+  void setPublisherChannelPoolSize(int poolSize);
+
+  /**
+   * @param spoolDirectory the directory used to spool messages while disconnected or
+   *        {@code null} to disable spooling
+   */
+  void setPublisherSpoolDirectory(Path spoolDirectory);
+
+  /**
+   * @param spoolSize the maximum size in bytes of the publisher spool
+   */
+  void setPublisherSpoolSize(long spoolSize);
+
+  /**
+   * @param policy the policy applied to events published while the connection is blocked or the
+   *        in-flight limit is reached
+   */
+  void setPublisherFlowControlPolicy(FlowControlPolicy policy);
+
+  /**
+   * @param inFlightLimit the maximum number of unconfirmed messages or {@code 0} for no limit
+   */
+  void setPublisherInFlightLimit(int inFlightLimit);
+
+  /**
+   * @param timeout the maximum time in milliseconds a publishing thread waits
+   */
+  void setPublisherFlowControlTimeout(long timeout);
+
+  /**
+   * @param connectionCount the number of connections established to the broker
+   */
+  void setConnectionCount(int connectionCount);
+
+  /**
+   * @param separate {@code true} if publishing uses separate connections
+   */
+  void setSeparatePublisherConnection(boolean separate);
+
+  /**
+   * @param nioParams the NIO parameters used to connect or {@code null} to use blocking I/O
+   */
+  void setNioParams(NioParams nioParams);
+
+  /**
+   * @param executor the executor dispatching deliveries to the consumers of a connection or
+   *        {@code null} to use the default consumer work pool
+   */
+  void setConsumerExecutor(ExecutorService executor);
+
+  /**
+   * @param executor the executor each delivery is handed off to or {@code null} to consume on the
+   *        dispatch thread
+   */
+  void setConsumerDeliveryExecutor(Executor executor);
+
+  /**
+   * @param executor the executor created by the binder configuration, which is shut down when the
+   *        binder stops or another executor is set, or {@code null} if none
+   */
+  void setOwnedExecutor(ExecutorService executor);
 }
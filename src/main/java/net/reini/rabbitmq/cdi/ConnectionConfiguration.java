@@ -24,18 +24,23 @@
 package net.reini.rabbitmq.cdi;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 import javax.net.ssl.SSLContext;
 
 import com.rabbitmq.client.Address;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.impl.nio.NioParams;
 
 /**
  * Contains the Rabbit MQ connection configuration
@@ -47,28 +52,58 @@ final class ConnectionConfiguration implements ConnectionConfig, ConnectionConfi
   private static final int DEFAULT_CONNECT_TIMEOUT_IN_MS = 10_000;
   private static final int DEFAULT_WAIT_TIME_RETRY_CONNECT_IN_MS = 10_000;
   private static final long DEFAULT_WAIT_TIME_RETRY_ACTIVATE_CONSUMER_IN_MS = 10_000;
+  static final int DEFAULT_PUBLISHER_CHANNEL_POOL_SIZE = 8;
+  static final long DEFAULT_PUBLISHER_SPOOL_SIZE = 64L * 1024 * 1024;
+  static final long DEFAULT_PUBLISHER_FLOW_CONTROL_TIMEOUT_IN_MS = 30_000;
 
   private final List<Address> brokerHosts;
+  private final PublisherConnectionConfig publisherConnectionConfig;
+  private final Supplier<ConnectionFactory> nioConnectionFactorySupplier;
 
   private int requestedConnectionHeartbeatTimeout;
   private int connectTimeout;
   private long connectRetryWaitTime;
   private long failedConsumerActivationRetryTime;
+  private int publisherChannelPoolSize;
+  private Path publisherSpoolDirectory;
+  private long publisherSpoolSize;
+  private FlowControlPolicy publisherFlowControlPolicy;
+  private int publisherInFlightLimit;
+  private long publisherFlowControlTimeout;
+  private int connectionCount;
+  private boolean separatePublisherConnection;
   private boolean secure;
   private String username;
   private String password;
   private String virtualHost;
   private SSLContextFactory sslContextFactory;
+  private NioParams nioParams;
+  private ConnectionFactory nioConnectionFactory;
+  private ExecutorService consumerExecutor;
+  private Executor consumerDeliveryExecutor;
+  private ExecutorService ownedExecutor;
 
-  ConnectionConfiguration(SSLContextFactory sslContextFactory) {
+  ConnectionConfiguration(SSLContextFactory sslContextFactory,
+      Supplier<ConnectionFactory> nioConnectionFactorySupplier) {
     this.sslContextFactory = sslContextFactory;
+    this.nioConnectionFactorySupplier = nioConnectionFactorySupplier;
     brokerHosts = new ArrayList<>();
+    publisherConnectionConfig = new PublisherConnectionConfig(this);
     username = "guest";
     password = "guest";
     connectTimeout = DEFAULT_CONNECT_TIMEOUT_IN_MS;
     requestedConnectionHeartbeatTimeout = DEFAULT_CONNECTION_HEARTBEAT_TIMEOUT_IN_SEC;
     connectRetryWaitTime = DEFAULT_WAIT_TIME_RETRY_CONNECT_IN_MS;
     failedConsumerActivationRetryTime = DEFAULT_WAIT_TIME_RETRY_ACTIVATE_CONSUMER_IN_MS;
+    publisherChannelPoolSize = DEFAULT_PUBLISHER_CHANNEL_POOL_SIZE;
+    publisherSpoolSize = DEFAULT_PUBLISHER_SPOOL_SIZE;
+    publisherFlowControlPolicy = FlowControlPolicy.BLOCK;
+    publisherFlowControlTimeout = DEFAULT_PUBLISHER_FLOW_CONTROL_TIMEOUT_IN_MS;
+    connectionCount = 1;
+  }
+
+  ConnectionConfiguration(SSLContextFactory sslContextFactory) {
+    this(sslContextFactory, ConnectionFactory::new);
   }
 
   ConnectionConfiguration() {
@@ -124,6 +159,42 @@ final class ConnectionConfiguration implements ConnectionConfig, ConnectionConfi
   @Override
   public Connection createConnection(ConnectionFactory connectionFactory)
       throws IOException, TimeoutException {
+    ConnectionFactory factory = nioConnectionFactory();
+    if (factory == null) {
+      factory = connectionFactory;
+      configure(factory);
+    }
+    if (brokerHosts.isEmpty()) {
+      throw new IllegalArgumentException("No broker host defined");
+    }
+    if (consumerExecutor != null) {
+      return factory.newConnection(consumerExecutor, new ArrayList<>(brokerHosts));
+    }
+    return factory.newConnection(new ArrayList<>(brokerHosts));
+  }
+
+  /**
+   * Returns the connection factory shared by all connections of this configuration in NIO mode.
+   * The factory keeps its I/O loops, so all connections get multiplexed over the configured
+   * number of I/O threads instead of using a reader thread each.
+   *
+   * @return the shared NIO connection factory or {@code null} if blocking I/O is used
+   */
+  private synchronized ConnectionFactory nioConnectionFactory() {
+    if (nioParams == null) {
+      return null;
+    }
+    if (nioConnectionFactory == null) {
+      ConnectionFactory factory = nioConnectionFactorySupplier.get();
+      factory.useNio();
+      factory.setNioParams(nioParams);
+      configure(factory);
+      nioConnectionFactory = factory;
+    }
+    return nioConnectionFactory;
+  }
+
+  private void configure(ConnectionFactory connectionFactory) {
     connectionFactory.setUsername(username);
     connectionFactory.setPassword(password);
     connectionFactory.setRequestedHeartbeat(requestedConnectionHeartbeatTimeout);
@@ -140,10 +211,6 @@ final class ConnectionConfiguration implements ConnectionConfig, ConnectionConfi
     if (virtualHost != null) {
       connectionFactory.setVirtualHost(virtualHost);
     }
-    if (brokerHosts.isEmpty()) {
-      throw new IllegalArgumentException("No broker host defined");
-    }
-    return connectionFactory.newConnection(new ArrayList<>(brokerHosts));
   }
 
   @Override
@@ -151,6 +218,78 @@ final class ConnectionConfiguration implements ConnectionConfig, ConnectionConfi
     this.failedConsumerActivationRetryTime = failedConsumerActivationRetryTime;
   }
 
+  @Override
+  public void setPublisherChannelPoolSize(int poolSize) {
+    this.publisherChannelPoolSize = poolSize;
+  }
+
+  @Override
+  public void setPublisherSpoolDirectory(Path spoolDirectory) {
+    this.publisherSpoolDirectory = spoolDirectory;
+  }
+
+  @Override
+  public void setPublisherSpoolSize(long spoolSize) {
+    this.publisherSpoolSize = spoolSize;
+  }
+
+  @Override
+  public void setPublisherFlowControlPolicy(FlowControlPolicy policy) {
+    this.publisherFlowControlPolicy = policy;
+  }
+
+  @Override
+  public void setPublisherInFlightLimit(int inFlightLimit) {
+    this.publisherInFlightLimit = inFlightLimit;
+  }
+
+  @Override
+  public void setPublisherFlowControlTimeout(long timeout) {
+    this.publisherFlowControlTimeout = timeout;
+  }
+
+  @Override
+  public void setConnectionCount(int connectionCount) {
+    this.connectionCount = connectionCount;
+  }
+
+  @Override
+  public void setSeparatePublisherConnection(boolean separate) {
+    this.separatePublisherConnection = separate;
+  }
+
+  @Override
+  public synchronized void setNioParams(NioParams nioParams) {
+    this.nioParams = nioParams;
+    this.nioConnectionFactory = null;
+  }
+
+  @Override
+  public void setConsumerExecutor(ExecutorService executor) {
+    this.consumerExecutor = executor;
+  }
+
+  @Override
+  public void setConsumerDeliveryExecutor(Executor executor) {
+    this.consumerDeliveryExecutor = executor;
+  }
+
+  @Override
+  public synchronized void setOwnedExecutor(ExecutorService executor) {
+    shutdownOwnedExecutor();
+    this.ownedExecutor = executor;
+  }
+
+  /**
+   * Shuts down the executor created by the binder configuration, if any.
+   */
+  synchronized void shutdownOwnedExecutor() {
+    if (ownedExecutor != null) {
+      ownedExecutor.shutdown();
+      ownedExecutor = null;
+    }
+  }
+
   @Override
   public String toString() {
     return String.format("broker hosts: %s, connect user: %s", brokerHosts, username);
@@ -183,4 +322,49 @@ final class ConnectionConfiguration implements ConnectionConfig, ConnectionConfi
   public long getFailedConsumerActivationRetryTime() {
     return failedConsumerActivationRetryTime;
   }
+
+  @Override
+  public int getPublisherChannelPoolSize() {
+    return publisherChannelPoolSize;
+  }
+
+  @Override
+  public Path getPublisherSpoolDirectory() {
+    return publisherSpoolDirectory;
+  }
+
+  @Override
+  public long getPublisherSpoolSize() {
+    return publisherSpoolSize;
+  }
+
+  @Override
+  public FlowControlPolicy getPublisherFlowControlPolicy() {
+    return publisherFlowControlPolicy;
+  }
+
+  @Override
+  public int getPublisherInFlightLimit() {
+    return publisherInFlightLimit;
+  }
+
+  @Override
+  public long getPublisherFlowControlTimeout() {
+    return publisherFlowControlTimeout;
+  }
+
+  @Override
+  public int getConnectionCount() {
+    return connectionCount;
+  }
+
+  @Override
+  public Executor getConsumerDeliveryExecutor() {
+    return consumerDeliveryExecutor;
+  }
+
+  @Override
+  public ConnectionConfig getPublisherConnectionConfig() {
+    return separatePublisherConnection ? publisherConnectionConfig : this;
+  }
 }
@@ -0,0 +1,181 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+/**
+ * <p>
+ * Group of connections to the same broker using one connection configuration. Each connection is
+ * held by its own {@link ConnectionManager} and therefore reestablished independently of the
+ * others.
+ * </p>
+ *
+ * <p>
+ * Channels are created on the established connection having the least channels open, that were
+ * created through this group. Connection listeners are notified about the state changes of every
+ * connection of the group.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class ConnectionGroup {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionGroup.class);
+
+  private final ConnectionManager[] managers;
+  private final AtomicInteger[] channelCounts;
+
+  ConnectionGroup(ConnectionConfig config,
+      Function<ConnectionConfig, ConnectionManager> connectionManagerFactoryFunction) {
+    int connectionCount = Math.max(1, config.getConnectionCount());
+    managers = new ConnectionManager[connectionCount];
+    channelCounts = new AtomicInteger[connectionCount];
+    for (int i = 0; i < connectionCount; i++) {
+      managers[i] = connectionManagerFactoryFunction.apply(config);
+      channelCounts[i] = new AtomicInteger();
+    }
+  }
+
+  /**
+   * Returns the established connection having the least open channels.
+   *
+   * @return the connection
+   * @throws IOException if no connection is available
+   */
+  Connection getConnection() throws IOException {
+    int index = leastLoaded();
+    return managers[index < 0 ? 0 : index].getConnection();
+  }
+
+  /**
+   * Creates a new channel on the established connection having the least open channels.
+   *
+   * @return the new channel
+   * @throws IOException if no connection is available or the channel creation fails
+   */
+  Channel createChannel() throws IOException {
+    int index = leastLoaded();
+    Connection connection = managers[index < 0 ? 0 : index].getConnection();
+    Channel channel = connection.createChannel();
+    if (channel == null) {
+      throw new IOException("No free channel available on " + connection);
+    }
+    if (index >= 0) {
+      AtomicInteger channelCount = channelCounts[index];
+      AtomicBoolean released = new AtomicBoolean();
+      channelCount.incrementAndGet();
+      channel.addShutdownListener(cause -> {
+        if (released.compareAndSet(false, true)) {
+          channelCount.decrementAndGet();
+        }
+      });
+      LOGGER.debug("Created channel on connection {} of {}", Integer.valueOf(index),
+          Integer.valueOf(managers.length));
+    }
+    return channel;
+  }
+
+  /**
+   * @return {@code true} if at least one connection of the group is established
+   */
+  boolean isConnected() {
+    return leastLoaded() >= 0;
+  }
+
+  /**
+   * @return the number of connections of this group
+   */
+  int size() {
+    return managers.length;
+  }
+
+  /**
+   * @param index the connection index
+   * @return the number of open channels of the given connection created through this group
+   */
+  int getChannelCount(int index) {
+    return channelCounts[index].get();
+  }
+
+  void connect() {
+    for (ConnectionManager manager : managers) {
+      manager.connect();
+    }
+  }
+
+  void close() {
+    for (ConnectionManager manager : managers) {
+      manager.close();
+    }
+  }
+
+  void addListener(ConnectionListener listener) {
+    for (ConnectionManager manager : managers) {
+      manager.addListener(listener);
+    }
+  }
+
+  void removeListener(ConnectionListener listener) {
+    for (ConnectionManager manager : managers) {
+      manager.removeListener(listener);
+    }
+  }
+
+  boolean containsListener(ConnectionListener listener) {
+    for (ConnectionManager manager : managers) {
+      if (!manager.containsListener(listener)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the index of the established connection having the least open channels or {@code -1}
+   *         if no connection is established
+   */
+  private int leastLoaded() {
+    int index = -1;
+    int minimum = Integer.MAX_VALUE;
+    for (int i = 0; i < managers.length; i++) {
+      if (managers[i].getState() == ConnectionState.CONNECTED) {
+        int channelCount = channelCounts[i].get();
+        if (channelCount < minimum) {
+          index = i;
+          minimum = channelCount;
+        }
+      }
+    }
+    return index;
+  }
+}
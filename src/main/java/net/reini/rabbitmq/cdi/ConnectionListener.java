@@ -58,4 +58,22 @@ public interface ConnectionListener extends EventListener {
    */
   void onConnectionClosed(Connection connection);
 
+  /**
+   * Called when the broker blocked the connection because of a resource alarm. Messages published
+   * on a blocked connection are not processed until the connection is unblocked.
+   *
+   * @param connection The blocked connection
+   * @param reason The reason given by the broker
+   */
+  default void onConnectionBlocked(Connection connection, String reason) {
+  }
+
+  /**
+   * Called when the broker unblocked a previously blocked connection.
+   *
+   * @param connection The unblocked connection
+   */
+  default void onConnectionUnblocked(Connection connection) {
+  }
+
 }
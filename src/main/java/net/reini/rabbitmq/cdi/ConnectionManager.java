@@ -54,6 +54,7 @@ class ConnectionManager {
 
   private ResourceCloser resourceCloser = new ResourceCloser();
   private ConnectionShutdownListener shutdownListener;
+  private ConnectionBlockedListener blockedListener;
 
   private volatile Connection connection;
   private volatile ConnectionState state = ConnectionState.NEVER_CONNECTED;
@@ -64,6 +65,7 @@ class ConnectionManager {
     this.connectionManagerLock = new ReentrantLock();
     this.noConnectionCondition = connectionManagerLock.newCondition();
     this.shutdownListener = new ConnectionShutdownListener(this, this.connectionManagerLock);
+    this.blockedListener = new ConnectionBlockedListener(this);
     this.connectThread = new ConnectionManagerWatcherThread(connectionManagerLock,
         noConnectionCondition, this, config.getConnectRetryWaitTime());
   }
@@ -77,6 +79,7 @@ class ConnectionManager {
     this.config = config;
     this.connectionManagerLock = connectionManagerLock;
     this.noConnectionCondition = noConnectionCondition;
+    this.blockedListener = new ConnectionBlockedListener(this);
   }
 
   void connect() {
@@ -167,6 +170,7 @@ class ConnectionManager {
       stopConnectThread();
       if (connection != null) {
         connection.removeShutdownListener(this.shutdownListener);
+        connection.removeBlockedListener(this.blockedListener);
         resourceCloser.closeResource(connection, "Unable to close current connection");
         connection = null;
       }
@@ -187,6 +191,7 @@ class ConnectionManager {
     LOGGER.debug("Trying to establish connection using {}", config);
     connection = config.createConnection(connectionFactory);
     connection.addShutdownListener(this.shutdownListener);
+    connection.addBlockedListener(this.blockedListener);
     LOGGER.debug("Established connection successfully");
     changeState(ConnectionState.CONNECTED);
     return connection;
@@ -218,6 +223,36 @@ class ConnectionManager {
     }
   }
 
+  /**
+   * Notifies all connection listener about the connection being blocked by the broker.
+   *
+   * @param reason The reason given by the broker
+   */
+  void notifyListenersOnBlocked(String reason) {
+    LOGGER.warn("Connection blocked by broker: {}", reason);
+    for (ConnectionListener listener : listeners) {
+      try {
+        listener.onConnectionBlocked(connection, reason);
+      } catch (RuntimeException e) {
+        LOGGER.warn("connection listener throw an exception while informing about blocking", e);
+      }
+    }
+  }
+
+  /**
+   * Notifies all connection listener about the connection being unblocked by the broker.
+   */
+  void notifyListenersOnUnblocked() {
+    LOGGER.info("Connection unblocked by broker");
+    for (ConnectionListener listener : listeners) {
+      try {
+        listener.onConnectionUnblocked(connection);
+      } catch (RuntimeException e) {
+        LOGGER.warn("connection listener throw an exception while informing about unblocking", e);
+      }
+    }
+  }
+
   private synchronized void startConnectThread() {
     connectThread.start();
   }
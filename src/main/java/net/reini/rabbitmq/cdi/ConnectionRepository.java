@@ -31,20 +31,30 @@ import java.util.function.Function;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 
 /**
- * Repository to hold one single connection to each broker
+ * Repository to hold the connections to each broker
  *
  * <p>
  * It is recommended by the RabbitMQ documentation (v2.7) to use one single connection within a
- * client and to use one channel for every client thread.
+ * client and to use one channel for every client thread. Applications being limited by the single
+ * I/O thread of a connection may configure more connections per broker, see
+ * {@link ConnectionConfig#getConnectionCount()}.
  *
  * @author Patrick Reinhart
  */
 @ApplicationScoped
 public class ConnectionRepository {
-  private final Map<ConnectionConfig, ConnectionManager> connectionManagers;
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionRepository.class);
+
+  private final Map<ConnectionConfig, ConnectionGroup> connectionGroups;
+  private final Map<ConnectionConfig, PublisherChannelPool> channelPools;
+  private final Map<ConnectionConfig, PublisherSpool> publisherSpools;
   private Function<ConnectionConfig, ConnectionManager> connectionManagerFactoryFunction;
 
   public ConnectionRepository() {
@@ -53,13 +63,16 @@ public class ConnectionRepository {
 
   ConnectionRepository(
       Function<ConnectionConfig, ConnectionManager> connectionManagerFactoryFunction) {
-    connectionManagers = new ConcurrentHashMap<>();
+    connectionGroups = new ConcurrentHashMap<>();
+    channelPools = new ConcurrentHashMap<>();
+    publisherSpools = new ConcurrentHashMap<>();
     this.connectionManagerFactoryFunction = connectionManagerFactoryFunction;
   }
 
   /**
    * <p>
-   * Gets a connection for the broker config.
+   * Gets a connection for the broker config. If multiple connections are configured, the
+   * established connection having the least open channels is returned.
    * </p>
    *
    * <p>
@@ -71,8 +84,66 @@ public class ConnectionRepository {
    * @throws IOException if the connection is not yet available
    */
   public Connection getConnection(ConnectionConfig config) throws IOException {
-    return connectionManagers.computeIfAbsent(config, connectionManagerFactoryFunction)
-        .getConnection();
+    return connectionGroup(config).getConnection();
+  }
+
+  /**
+   * Creates a new channel on the established connection of the broker config having the least
+   * open channels.
+   *
+   * @param config the connection configuration
+   * @return The new channel
+   * @throws IOException if no connection is available or the channel creation fails
+   */
+  Channel createChannel(ConnectionConfig config) throws IOException {
+    return connectionGroup(config).createChannel();
+  }
+
+  /**
+   * <p>
+   * Gets the publisher channel pool for the broker config.
+   * </p>
+   *
+   * <p>
+   * The pool is created on first access. The pooled channels of a connection get invalidated on
+   * any state change of that connection.
+   * </p>
+   *
+   * @param config the connection configuration
+   * @return the publisher channel pool
+   */
+  PublisherChannelPool getChannelPool(ConnectionConfig config) {
+    return channelPools.computeIfAbsent(config, this::createChannelPool);
+  }
+
+  /**
+   * <p>
+   * Gets the publisher spool for the broker config.
+   * </p>
+   *
+   * <p>
+   * The spool is created on first access if a spool directory is configured and replays its
+   * messages each time the connection is established.
+   * </p>
+   *
+   * @param config the connection configuration
+   * @return the publisher spool or {@code null} if spooling is disabled or not available
+   */
+  PublisherSpool getPublisherSpool(ConnectionConfig config) {
+    if (config.getPublisherSpoolDirectory() == null) {
+      return null;
+    }
+    return publisherSpools.computeIfAbsent(config, this::createPublisherSpool);
+  }
+
+  /**
+   * Checks if there is currently an established connection for the broker config.
+   *
+   * @param config the connection configuration
+   * @return {@code true} if at least one connection is established, otherwise {@code false}
+   */
+  boolean isConnected(ConnectionConfig config) {
+    return connectionGroup(config).isConnected();
   }
 
   /**
@@ -84,7 +155,7 @@ public class ConnectionRepository {
    * @param config the broker connection configuration
    */
   public void connect(ConnectionConfig config) {
-    connectionManagers.computeIfAbsent(config, connectionManagerFactoryFunction).connect();
+    connectionGroup(config).connect();
   }
 
 
@@ -100,19 +171,21 @@ public class ConnectionRepository {
    */
   @PreDestroy
   public void close() {
-    connectionManagers.values().forEach(ConnectionManager::close);
+    channelPools.values().forEach(PublisherChannelPool::close);
+    publisherSpools.values().forEach(PublisherSpool::close);
+    connectionGroups.values().forEach(ConnectionGroup::close);
   }
 
   /**
    * Registers a connection listener at the factory which is notified about changes of connection
-   * states.
+   * states. If multiple connections are configured, the listener is notified about the state
+   * changes of each connection.
    *
    * @param config the connection configuration
    * @param listener The connection listener
    */
   public void registerConnectionListener(ConnectionConfig config, ConnectionListener listener) {
-    connectionManagers.computeIfAbsent(config, connectionManagerFactoryFunction)
-        .addListener(listener);
+    connectionGroup(config).addListener(listener);
   }
 
   /**
@@ -122,8 +195,7 @@ public class ConnectionRepository {
    * @param listener The connection listener
    */
   public void removeConnectionListener(ConnectionConfig config, ConnectionListener listener) {
-    connectionManagers.computeIfAbsent(config, connectionManagerFactoryFunction)
-        .removeListener(listener);
+    connectionGroup(config).removeListener(listener);
   }
 
 
@@ -136,7 +208,29 @@ public class ConnectionRepository {
    */
   public boolean containsConnectionListener(ConnectionConfig config, ConnectionListener listener)
   {
-    return connectionManagers.computeIfAbsent(config, connectionManagerFactoryFunction)
-            .containsListener(listener);
+    return connectionGroup(config).containsListener(listener);
+  }
+
+  private ConnectionGroup connectionGroup(ConnectionConfig config) {
+    return connectionGroups.computeIfAbsent(config,
+        c -> new ConnectionGroup(c, connectionManagerFactoryFunction));
+  }
+
+  private PublisherChannelPool createChannelPool(ConnectionConfig config) {
+    PublisherChannelPool channelPool = new PublisherChannelPool(this, config);
+    registerConnectionListener(config, channelPool);
+    return channelPool;
+  }
+
+  private PublisherSpool createPublisherSpool(ConnectionConfig config) {
+    try {
+      PublisherSpool spool = new PublisherSpool(this, config);
+      registerConnectionListener(config, spool);
+      getChannelPool(config).getFlowControl().setReleaseListener(spool::onInFlightReleased);
+      return spool;
+    } catch (IOException e) {
+      LOGGER.error("Unable to open publisher spool {}", config.getPublisherSpoolDirectory(), e);
+      return null;
+    }
   }
 }
@@ -28,7 +28,6 @@ import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.RecoverableChannel;
 
 class ConsumerChannelFactory {
@@ -50,8 +49,7 @@ class ConsumerChannelFactory {
    */
   protected RecoverableChannel createChannel() throws IOException {
     LOGGER.debug("Creating channel");
-    Connection connection = connectionRepository.getConnection(config);
-    RecoverableChannel channel = (RecoverableChannel) connection.createChannel();
+    RecoverableChannel channel = (RecoverableChannel) connectionRepository.createChannel(config);
     LOGGER.debug("Created channel");
     return channel;
   }
@@ -25,12 +25,21 @@ package net.reini.rabbitmq.cdi;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rabbitmq.client.Connection;
+
+import net.reini.rabbitmq.cdi.AckCoalescer.AckActionInvoker;
+
 class ConsumerContainer {
   private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerContainer.class);
 
@@ -44,6 +53,10 @@ class ConsumerContainer {
   private ConsumerContainerWatcherThread consumerWatcherThread;
   private ConsumerHolderFactory consumerHolderFactory;
 
+  private ScheduledExecutorService scheduler;
+  private ExecutorService batchExecutor;
+  private ExecutorService activationExecutor;
+
   private volatile boolean connectionAvailable = false;
 
   ConsumerContainer(ConnectionConfig config, ConnectionRepository connectionRepository,
@@ -64,11 +77,77 @@ class ConsumerContainer {
     this.declarerRepository = declarerRepository;
   }
 
-  public void addConsumer(EventConsumer<?> consumer, String queue, boolean autoAck,
+  public ConsumerHolder addConsumer(EventConsumer<?> consumer, String queue, boolean autoAck,
       int prefetchCount, List<Declaration> declarations) {
+    return addConsumer(consumer, queue, autoAck, prefetchCount, 0, 0, declarations);
+  }
+
+  /**
+   * Adds a consumer coalescing the acknowledgements of its deliveries, if the given acknowledge
+   * batch size is greater than zero. Consumers having batching enabled deliver their events as
+   * {@link EventBatch} instead.
+   *
+   * @param consumer the event consumer
+   * @param queue the queue name
+   * @param autoAck {@code true} if messages are acknowledged automatically
+   * @param prefetchCount the prefetch count
+   * @param ackBatchSize the maximum number of deliveries acknowledged at once or {@code 0}
+   * @param ackBatchWindow the maximum time in nanoseconds a delivery waits for its acknowledgement
+   * @param declarations the declarations applied to the consumer channel
+   * @return the added consumer holder
+   */
+  public ConsumerHolder addConsumer(EventConsumer<?> consumer, String queue, boolean autoAck,
+      int prefetchCount, int ackBatchSize, long ackBatchWindow, List<Declaration> declarations) {
+    Function<AckActionInvoker, AckCoalescer> ackCoalescerFactory = null;
+    if (ackBatchSize > 0) {
+      ScheduledExecutorService scheduler = scheduler();
+      ackCoalescerFactory =
+          invoker -> new AckCoalescer(ackBatchSize, ackBatchWindow, scheduler, invoker);
+    }
+    Function<AckActionInvoker, EventBatcher<?>> eventBatcherFactory = null;
+    if (consumer.getBatchSize() > 0) {
+      ScheduledExecutorService scheduler = scheduler();
+      ExecutorService flushExecutor = batchExecutor();
+      eventBatcherFactory =
+          invoker -> new EventBatcher<>(consumer, scheduler, flushExecutor, invoker);
+    }
     ConsumerHolder consumerHolder = consumerHolderFactory.createConsumerHolder(consumer, queue,
-        autoAck, prefetchCount, connectionRepository, config, declarations, declarerRepository);
+        autoAck, prefetchCount, connectionRepository, config, declarations, declarerRepository,
+        ackCoalescerFactory, eventBatcherFactory);
     consumerHolders.add(consumerHolder);
+    return consumerHolder;
+  }
+
+  /**
+   * Scales the number of active consumers of the given consumer holders between the minimum and
+   * their total number depending on the load.
+   *
+   * @param scaledConsumerHolders the consumer holders of the same queue
+   * @param minConsumers the minimum number of active consumers
+   * @see ConsumerScaler
+   */
+  void scaleConsumers(List<ConsumerHolder> scaledConsumerHolders, int minConsumers) {
+    ConsumerScaler scaler =
+        new ConsumerScaler(scaledConsumerHolders, minConsumers, activationExecutor());
+    scheduler().scheduleAtFixedRate(scaler, ConsumerScaler.CHECK_INTERVAL,
+        ConsumerScaler.CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Tunes the prefetch count of the given consumer holders between the given bounds depending on
+   * their consumption time and network round trip time.
+   *
+   * @param tunedConsumerHolders the consumer holders of the same queue
+   * @param minPrefetchCount the minimum prefetch count
+   * @param maxPrefetchCount the maximum prefetch count
+   * @see PrefetchTuner
+   */
+  void tunePrefetch(List<ConsumerHolder> tunedConsumerHolders, int minPrefetchCount,
+      int maxPrefetchCount) {
+    PrefetchTuner tuner =
+        new PrefetchTuner(tunedConsumerHolders, minPrefetchCount, maxPrefetchCount);
+    scheduler().scheduleAtFixedRate(tuner, PrefetchTuner.CHECK_INTERVAL,
+        PrefetchTuner.CHECK_INTERVAL, TimeUnit.MILLISECONDS);
   }
 
   public void start() {
@@ -82,15 +161,62 @@ class ConsumerContainer {
 
   public void stop() {
     consumerWatcherThread.stopThread();
+    synchronized (this) {
+      if (scheduler != null) {
+        scheduler.shutdown();
+      }
+      if (batchExecutor != null) {
+        batchExecutor.shutdown();
+      }
+      if (activationExecutor != null) {
+        activationExecutor.shutdown();
+      }
+    }
   }
 
   public void setConnectionAvailable(boolean connectionAvailable) {
     this.connectionAvailable = connectionAvailable;
   }
 
+  private synchronized ScheduledExecutorService scheduler() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rabbitmq-cdi-consumer-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return scheduler;
+  }
+
+  private synchronized ExecutorService batchExecutor() {
+    if (batchExecutor == null) {
+      batchExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "rabbitmq-cdi-batch-flush");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return batchExecutor;
+  }
+
+  private synchronized ExecutorService activationExecutor() {
+    if (activationExecutor == null) {
+      activationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rabbitmq-cdi-consumer-activation");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return activationExecutor;
+  }
+
   boolean ensureConsumersAreActive() {
     boolean allConsumersActive = true;
     for (ConsumerHolder consumerHolder : consumerHolders) {
+      if (consumerHolder.isSuspended()) {
+        continue;
+      }
       try {
         consumerHolder.activate();
       } catch (Exception e) {
@@ -101,6 +227,13 @@ class ConsumerContainer {
     return allConsumersActive;
   }
 
+  /**
+   * @return {@code true} if at least one connection to the broker is established
+   */
+  boolean isAnyConnectionEstablished() {
+    return connectionRepository.isConnected(config);
+  }
+
   boolean isConnectionAvailable() {
     return connectionAvailable;
   }
@@ -108,4 +241,17 @@ class ConsumerContainer {
   void deactivateAllConsumer() {
     consumerHolders.forEach(consumer -> consumer.deactivate());
   }
+
+  /**
+   * Deactivates all consumers using a channel of the given connection.
+   *
+   * @param connection the lost connection
+   */
+  void deactivateConsumers(Connection connection) {
+    consumerHolders.forEach(consumer -> {
+      if (consumer.isUsing(connection)) {
+        consumer.deactivate();
+      }
+    });
+  }
 }
@@ -27,10 +27,17 @@ import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DeliverCallback;
 import com.rabbitmq.client.Delivery;
 import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.Recoverable;
@@ -38,10 +45,11 @@ import com.rabbitmq.client.RecoverableChannel;
 import com.rabbitmq.client.RecoveryListener;
 import com.rabbitmq.client.ShutdownSignalException;
 
+import net.reini.rabbitmq.cdi.AckCoalescer.AckActionInvoker;
+
 class ConsumerHolder implements RecoveryListener {
   private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerHolder.class);
 
-  private final int prefetchCount;
   private final boolean autoAck;
   private final String queueName;
   private final EventConsumer<?> consumer;
@@ -50,15 +58,50 @@ class ConsumerHolder implements RecoveryListener {
   private final DeclarerRepository declarerRepository;
   private final List<Declaration> declarations;
   private final Queue<AckAction> pendingAckActions;
+  private final Executor deliveryExecutor;
+  private final Function<AckActionInvoker, AckCoalescer> ackCoalescerFactory;
+  private final Function<AckActionInvoker, EventBatcher<?>> eventBatcherFactory;
+  private final AtomicLong deliveryCount;
+  private final AtomicLong processedCount;
+  private final LongAdder processingTime;
+  private final AtomicInteger dispatchedCount;
 
-  private RecoverableChannel channel;
+  private volatile RecoverableChannel channel;
+  private volatile String consumerTag;
+  private volatile AckCoalescer ackCoalescer;
+  private volatile EventBatcher<?> eventBatcher;
+  private volatile int prefetchCount;
+  private volatile boolean adaptivePrefetch;
+  private volatile long roundTripTime;
 
   private volatile boolean active;
+  private volatile boolean suspended;
   private volatile boolean recoverRunning;
 
   ConsumerHolder(EventConsumer<?> consumer, String queueName, boolean autoAck, int prefetchCount,
       ConsumerChannelFactory consumerChannelFactory, List<Declaration> declarations,
       DeclarerRepository declarerRepository) {
+    this(consumer, queueName, autoAck, prefetchCount, consumerChannelFactory, declarations,
+        declarerRepository, null, null);
+  }
+
+  ConsumerHolder(EventConsumer<?> consumer, String queueName, boolean autoAck, int prefetchCount,
+      ConsumerChannelFactory consumerChannelFactory, List<Declaration> declarations,
+      DeclarerRepository declarerRepository, Executor deliveryExecutor,
+      Function<AckActionInvoker, AckCoalescer> ackCoalescerFactory) {
+    this(consumer, queueName, autoAck, prefetchCount, consumerChannelFactory, declarations,
+        declarerRepository, deliveryExecutor, ackCoalescerFactory, null);
+  }
+
+  /**
+   * @param eventBatcherFactory the factory of the event batcher used to deliver the events as
+   *        batches or {@code null} to deliver them one by one
+   */
+  ConsumerHolder(EventConsumer<?> consumer, String queueName, boolean autoAck, int prefetchCount,
+      ConsumerChannelFactory consumerChannelFactory, List<Declaration> declarations,
+      DeclarerRepository declarerRepository, Executor deliveryExecutor,
+      Function<AckActionInvoker, AckCoalescer> ackCoalescerFactory,
+      Function<AckActionInvoker, EventBatcher<?>> eventBatcherFactory) {
     this.consumer = consumer;
     this.queueName = queueName;
     this.autoAck = autoAck;
@@ -68,9 +111,30 @@ class ConsumerHolder implements RecoveryListener {
     this.declarerRepository = declarerRepository;
     this.resourceCloser = new ResourceCloser();
     this.pendingAckActions = new ArrayDeque<>();
+    this.deliveryExecutor = deliveryExecutor;
+    this.ackCoalescerFactory = autoAck || eventBatcherFactory != null ? null : ackCoalescerFactory;
+    this.eventBatcherFactory = eventBatcherFactory;
+    this.deliveryCount = new AtomicLong();
+    this.processedCount = new AtomicLong();
+    this.processingTime = new LongAdder();
+    this.dispatchedCount = new AtomicInteger();
   }
 
   void deactivate() {
+    AckCoalescer coalescer = ackCoalescer;
+    if (active && coalescer != null) {
+      coalescer.flushQuietly();
+    }
+    EventBatcher<?> batcher = eventBatcher;
+    if (active && batcher != null) {
+      RecoverableChannel activeChannel = channel;
+      if (activeChannel != null && activeChannel.isOpen()) {
+        batcher.flushQuietly();
+      } else {
+        // the batch can no longer be acknowledged and gets redelivered
+        batcher.recover();
+      }
+    }
     synchronized (pendingAckActions) {
       if (active) {
         LOGGER.debug("Deactivating consumer of class {}", consumer.getClass());
@@ -89,11 +153,39 @@ class ConsumerHolder implements RecoveryListener {
         // Start the consumer
         try {
           channel = this.consumerChannelFactory.createChannel();
+          // acknowledge on the channel of the delivery, even if consumed on another thread
+          RecoverableChannel consumerChannel = channel;
+          if (ackCoalescerFactory != null) {
+            // a coalescer still used by in-flight deliveries must not ack on a new channel
+            ackCoalescer = ackCoalescerFactory
+                .apply(action -> invokeAckAction(consumerChannel, action));
+          }
+          if (eventBatcherFactory != null) {
+            eventBatcher = eventBatcherFactory.apply(
+                autoAck ? null : action -> invokeAckAction(consumerChannel, action));
+          }
           channel.addRecoveryListener(this);
-          channel.basicQos(this.prefetchCount);
+          roundTripTime = basicQos(channel, prefetchCount, adaptivePrefetch);
           declarerRepository.declare(channel, declarations);
-          channel.basicConsume(queueName, autoAck,
-              autoAck ? this::deliverNoAck : this::deliverWithAck, this::handleShutdownSignal);
+          DeliverCallback deliverCallback = autoAck ? this::deliverNoAck
+              : (tag, message) -> deliverWithAck(consumerChannel, tag, message);
+          if (eventBatcher != null) {
+            // batches rely on deliveries being added in order
+            deliverCallback = this::deliverToBatch;
+          } else if (deliveryExecutor != null) {
+            DeliverCallback consumingCallback = deliverCallback;
+            deliverCallback = (tag, message) -> dispatch(consumingCallback, tag, message);
+          }
+          if (ackCoalescer != null) {
+            AckCoalescer coalescer = ackCoalescer;
+            DeliverCallback consumingCallback = deliverCallback;
+            deliverCallback = (tag, message) -> {
+              coalescer.delivered(message.getEnvelope().getDeliveryTag());
+              consumingCallback.handle(tag, message);
+            };
+          }
+          consumerTag = channel.basicConsume(queueName, autoAck, deliverCallback,
+              this::handleShutdownSignal);
           LOGGER.info("Activated consumer of class {}", consumer.getClass());
           active = true;
         } catch (Exception e) {
@@ -105,23 +197,161 @@ class ConsumerHolder implements RecoveryListener {
     }
   }
 
+  /**
+   * Hands off the consumption of a delivery to the delivery executor. The number of deliveries
+   * consumed concurrently is limited by the prefetch count of the channel and the delivery
+   * executor itself.
+   *
+   * @param callback the callback consuming the delivery
+   * @param consumerTag the consumer tag
+   * @param message the delivered message
+   */
+  void dispatch(DeliverCallback callback, String consumerTag, Delivery message) {
+    // counted as in flight while waiting for the delivery executor
+    dispatchedCount.incrementAndGet();
+    try {
+      deliveryExecutor.execute(() -> {
+        try {
+          callback.handle(consumerTag, message);
+        } catch (IOException | RuntimeException e) {
+          LOGGER.error("Failed to consume message {} for consumer tag {}", message.getEnvelope(),
+              consumerTag, e);
+        } finally {
+          dispatchedCount.decrementAndGet();
+        }
+      });
+    } catch (RuntimeException e) {
+      dispatchedCount.decrementAndGet();
+      throw e;
+    }
+  }
+
   void deliverNoAck(String consumerTag, Delivery message) throws IOException {
     Envelope envelope = message.getEnvelope();
+    deliveryCount.incrementAndGet();
     LOGGER.debug("Consuming message {} for consumer tag {}", envelope, consumerTag);
-    consumer.consume(consumerTag, envelope, message.getProperties(), message.getBody());
+    long start = System.nanoTime();
+    if (consumer.isAsyncDelivery()) {
+      consumer.consumeAsync(consumerTag, envelope, message.getProperties(), message.getBody())
+          .whenComplete((consumed, error) -> processed(start));
+    } else {
+      try {
+        consumer.consume(consumerTag, envelope, message.getProperties(), message.getBody());
+      } finally {
+        processed(start);
+      }
+    }
   }
 
   void deliverWithAck(String consumerTag, Delivery message) throws IOException {
+    deliverWithAck(channel, consumerTag, message);
+  }
+
+  /**
+   * Consumes the delivery and acknowledges it on the channel it was received on.
+   *
+   * @param deliveryChannel the channel the message was delivered on
+   * @param consumerTag the consumer tag
+   * @param message the delivered message
+   * @throws IOException if the acknowledgement fails
+   */
+  void deliverWithAck(RecoverableChannel deliveryChannel, String consumerTag, Delivery message)
+      throws IOException {
     Envelope envelope = message.getEnvelope();
-    long deliveryTag = envelope.getDeliveryTag();
+    deliveryCount.incrementAndGet();
     LOGGER.debug("Consuming message {} for consumer tag {}", envelope, consumerTag);
-    if (consumer.consume(consumerTag, envelope, message.getProperties(), message.getBody())) {
-      invokeAckAction(ch -> {
+    AckCoalescer coalescer = ackCoalescer;
+    long start = System.nanoTime();
+    if (consumer.isAsyncDelivery()) {
+      consumer.consumeAsync(consumerTag, envelope, message.getProperties(), message.getBody())
+          .whenComplete((consumed, error) -> {
+            processed(start);
+            try {
+              acknowledge(deliveryChannel, coalescer, envelope, Boolean.TRUE.equals(consumed));
+            } catch (IOException | RuntimeException e) {
+              LOGGER.error("Failed to acknowledge message {}", envelope, e);
+            }
+          });
+    } else {
+      boolean consumed;
+      try {
+        consumed =
+            consumer.consume(consumerTag, envelope, message.getProperties(), message.getBody());
+      } finally {
+        processed(start);
+      }
+      acknowledge(deliveryChannel, coalescer, envelope, consumed);
+    }
+  }
+
+  void deliverToBatch(String consumerTag, Delivery message) throws IOException {
+    Envelope envelope = message.getEnvelope();
+    deliveryCount.incrementAndGet();
+    LOGGER.debug("Batching message {} for consumer tag {}", envelope, consumerTag);
+    long start = System.nanoTime();
+    eventBatcher.add(envelope.getDeliveryTag(), message.getProperties(), message.getBody());
+    processed(start);
+  }
+
+  private void processed(long start) {
+    processingTime.add(System.nanoTime() - start);
+    processedCount.incrementAndGet();
+  }
+
+  /**
+   * Sets the prefetch count of the consumer and re-issues the {@code basicQos} request on its
+   * channel if active, measuring the round trip time of the request. The prefetch count is also
+   * used whenever the consumer gets activated again.
+   *
+   * <p>
+   * The broker applies a changed per-consumer prefetch count to consumers started afterwards only,
+   * the prefetch count of a running consumer therefore only takes effect if the consumer was
+   * activated using {@link #setAdaptivePrefetch(boolean) adaptive prefetch}.
+   * </p>
+   *
+   * @param prefetchCount the new prefetch count
+   * @throws IOException if the {@code basicQos} request fails
+   */
+  void updatePrefetchCount(int prefetchCount) throws IOException {
+    this.prefetchCount = prefetchCount;
+    RecoverableChannel activeChannel = channel;
+    if (active && !recoverRunning && activeChannel != null) {
+      roundTripTime = basicQos(activeChannel, prefetchCount, adaptivePrefetch);
+    }
+  }
+
+  /**
+   * Applies the prefetch count to the whole channel, if adaptive. As the consumer is the only one
+   * of its channel, this has the same effect as the per-consumer prefetch count, while a changed
+   * channel prefetch count also applies to the running consumer.
+   */
+  private static long basicQos(RecoverableChannel channel, int prefetchCount, boolean global)
+      throws IOException {
+    long start = System.nanoTime();
+    if (global) {
+      channel.basicQos(prefetchCount, true);
+    } else {
+      channel.basicQos(prefetchCount);
+    }
+    return System.nanoTime() - start;
+  }
+
+  void acknowledge(RecoverableChannel deliveryChannel, AckCoalescer coalescer, Envelope envelope,
+      boolean consumed) throws IOException {
+    long deliveryTag = envelope.getDeliveryTag();
+    if (coalescer != null) {
+      if (consumed) {
+        coalescer.ack(deliveryTag);
+      } else {
+        coalescer.nack(deliveryTag);
+      }
+    } else if (consumed) {
+      invokeAckAction(deliveryChannel, ch -> {
         ch.basicAck(deliveryTag, false);
-        LOGGER.debug("Acknowledged {}", message);
+        LOGGER.debug("Acknowledged {}", envelope);
       });
     } else {
-      invokeAckAction(ch -> {
+      invokeAckAction(deliveryChannel, ch -> {
         ch.basicNack(deliveryTag, false, false);
         LOGGER.debug("Not acknowledged {}", envelope);
       });
@@ -129,13 +359,30 @@ class ConsumerHolder implements RecoveryListener {
   }
 
   void invokeAckAction(AckAction action) throws IOException {
-    if (recoverRunning) {
+    invokeAckAction(channel, action);
+  }
+
+  /**
+   * Invokes the acknowledge action on the channel the delivery was received on. Actions of a
+   * channel that has since been closed or replaced are dropped, as their delivery tags are unknown
+   * to any other channel and the broker redelivers the unacknowledged messages anyway.
+   *
+   * @param deliveryChannel the channel the message was delivered on
+   * @param action the acknowledge action
+   * @throws IOException if the acknowledge action fails
+   */
+  void invokeAckAction(RecoverableChannel deliveryChannel, AckAction action) throws IOException {
+    if (deliveryChannel == null || deliveryChannel != channel) {
+      LOGGER.debug("Dropping acknowledge action of a replaced channel");
+    } else if (recoverRunning) {
       synchronized (pendingAckActions) {
         LOGGER.debug("Queueing acknowledge action due to active recovery...");
         pendingAckActions.add(action);
       }
+    } else if (!deliveryChannel.isOpen()) {
+      LOGGER.debug("Dropping acknowledge action of a closed channel");
     } else {
-      action.apply(channel);
+      action.apply(deliveryChannel);
     }
   }
 
@@ -149,9 +396,118 @@ class ConsumerHolder implements RecoveryListener {
         resourceCloser.closeResource(channel, "Closing channel failed");
         channel = null;
       }
+      consumerTag = null;
+    }
+  }
+
+  /**
+   * Cancels the consumer at the broker, keeping its channel open for the messages in flight to be
+   * consumed and acknowledged. The consumer needs to be {@link #deactivate() deactivated} once
+   * {@link #getInFlightCount()} dropped to zero.
+   *
+   * @return {@code true} if the consumer was cancelled, {@code false} if it is not consuming
+   * @throws IOException if the cancellation fails
+   */
+  boolean cancel() throws IOException {
+    synchronized (pendingAckActions) {
+      String activeConsumerTag = consumerTag;
+      if (!active || recoverRunning || activeConsumerTag == null) {
+        return false;
+      }
+      LOGGER.debug("Cancelling consumer of class {}", consumer.getClass());
+      channel.basicCancel(activeConsumerTag);
+      consumerTag = null;
+      return true;
+    }
+  }
+
+  /**
+   * @param connection the connection
+   * @return {@code true} if the consumer is active on a channel of the given connection
+   */
+  boolean isUsing(Connection connection) {
+    synchronized (pendingAckActions) {
+      return channel != null && channel.getConnection() == connection;
     }
   }
 
+  /**
+   * @return {@code true} if the consumer is activated on a channel
+   */
+  boolean isActive() {
+    return active;
+  }
+
+  /**
+   * @return {@code true} if the consumer is kept deactivated while scaled down
+   */
+  boolean isSuspended() {
+    return suspended;
+  }
+
+  /**
+   * @param suspended {@code true} to keep the consumer deactivated while scaled down
+   */
+  void setSuspended(boolean suspended) {
+    this.suspended = suspended;
+  }
+
+  /**
+   * @return the number of messages delivered to the consumer so far
+   */
+  long getDeliveryCount() {
+    return deliveryCount.get();
+  }
+
+  /**
+   * @return the number of messages consumed so far
+   */
+  long getProcessedCount() {
+    return processedCount.get();
+  }
+
+  /**
+   * @return the number of messages received but not yet consumed
+   */
+  long getInFlightCount() {
+    return dispatchedCount.get() + deliveryCount.get() - processedCount.get();
+  }
+
+  /**
+   * @return the total time in nanoseconds spent consuming messages so far
+   */
+  long getProcessingTime() {
+    return processingTime.sum();
+  }
+
+  /**
+   * @return the round trip time in nanoseconds of the last {@code basicQos} request
+   */
+  long getRoundTripTime() {
+    return roundTripTime;
+  }
+
+  int getPrefetchCount() {
+    return prefetchCount;
+  }
+
+  /**
+   * @return {@code true} if the prefetch count gets adjusted while the consumer is active
+   */
+  boolean isAdaptivePrefetch() {
+    return adaptivePrefetch;
+  }
+
+  /**
+   * Needs to be set before the consumer gets activated, in order to apply an updated prefetch
+   * count to the running consumer.
+   *
+   * @param adaptivePrefetch {@code true} if the prefetch count gets adjusted while active
+   */
+  void setAdaptivePrefetch(boolean adaptivePrefetch) {
+    this.adaptivePrefetch = adaptivePrefetch;
+  }
+
   boolean isAutoAck() {
     return autoAck;
   }
@@ -188,6 +544,14 @@ class ConsumerHolder implements RecoveryListener {
     LOGGER.debug("Handle recovery started");
     if (recoverable != null && recoverable.equals(channel)) {
       recoverRunning = true;
+      AckCoalescer coalescer = ackCoalescer;
+      if (coalescer != null) {
+        coalescer.recover();
+      }
+      EventBatcher<?> batcher = eventBatcher;
+      if (batcher != null) {
+        batcher.recover();
+      }
     }
   }
 
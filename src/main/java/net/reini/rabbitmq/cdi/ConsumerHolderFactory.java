@@ -24,15 +24,20 @@
 package net.reini.rabbitmq.cdi;
 
 import java.util.List;
+import java.util.function.Function;
+
+import net.reini.rabbitmq.cdi.AckCoalescer.AckActionInvoker;
 
 class ConsumerHolderFactory {
   ConsumerHolder createConsumerHolder(EventConsumer<?> consumer, String queue, boolean autoAck,
       int prefetchCount, ConnectionRepository connectionRepository, ConnectionConfig config,
-      List<Declaration> declarations,
-      DeclarerRepository declarerRepository) {
+      List<Declaration> declarations, DeclarerRepository declarerRepository,
+      Function<AckActionInvoker, AckCoalescer> ackCoalescerFactory,
+      Function<AckActionInvoker, EventBatcher<?>> eventBatcherFactory) {
     ConsumerChannelFactory consumerChannelFactory =
         new ConsumerChannelFactory(connectionRepository, config);
     return new ConsumerHolder(consumer, queue, autoAck, prefetchCount, consumerChannelFactory,
-        declarations, declarerRepository);
+        declarations, declarerRepository, config.getConsumerDeliveryExecutor(),
+        ackCoalescerFactory, eventBatcherFactory);
   }
 }
@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scales the number of active consumers of a queue between a minimum and a maximum number. The
+ * scaler is run periodically, each run checks whether the consumers not being suspended received
+ * messages since the previous run or are still consuming messages received before.
+ *
+ * <p>
+ * If all running consumers are busy, the next suspended consumer is activated. If at least one of
+ * them stayed idle for {@link #IDLE_CHECKS} consecutive runs, the last running consumer is
+ * suspended again, unless the minimum number of consumers is reached. The suspended consumer is
+ * cancelled at the broker first and deactivated once the messages in flight are consumed. Messages
+ * still being consumed after another {@link #IDLE_CHECKS} runs get redelivered by the broker.
+ * </p>
+ *
+ * <p>
+ * Activating a consumer creates its channel and starts it at the broker. This is handed over to
+ * the activation executor, so that the scheduler running the scaler is not blocked by it. A
+ * consumer being activated counts as running but idle.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class ConsumerScaler implements Runnable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerScaler.class);
+
+  static final long CHECK_INTERVAL = 1_000;
+  static final int IDLE_CHECKS = 10;
+
+  private final List<ConsumerHolder> consumerHolders;
+  private final int minConsumers;
+  private final Executor activationExecutor;
+  private final long[] deliveryCounts;
+  private final int[] idleChecks;
+
+  /**
+   * @param consumerHolders the consumer holders of the same queue
+   * @param minConsumers the minimum number of running consumers
+   * @param activationExecutor the executor activating additional consumers
+   */
+  ConsumerScaler(List<ConsumerHolder> consumerHolders, int minConsumers,
+      Executor activationExecutor) {
+    this.consumerHolders = consumerHolders;
+    this.minConsumers = minConsumers;
+    this.activationExecutor = activationExecutor;
+    this.deliveryCounts = new long[consumerHolders.size()];
+    this.idleChecks = new int[consumerHolders.size()];
+    for (int i = minConsumers; i < consumerHolders.size(); i++) {
+      consumerHolders.get(i).setSuspended(true);
+    }
+  }
+
+  @Override
+  public void run() {
+    int runningConsumers = 0;
+    boolean idle = false;
+    boolean scaleDown = false;
+    for (int i = 0; i < consumerHolders.size(); i++) {
+      ConsumerHolder consumerHolder = consumerHolders.get(i);
+      long deliveryCount = consumerHolder.getDeliveryCount();
+      boolean busy = consumerHolder.isActive() && (deliveryCount != deliveryCounts[i]
+          || consumerHolder.getInFlightCount() > 0);
+      deliveryCounts[i] = deliveryCount;
+      if (consumerHolder.isSuspended()) {
+        drain(consumerHolder, i);
+      } else {
+        runningConsumers++;
+        idle |= !busy;
+        idleChecks[i] = busy ? 0 : idleChecks[i] + 1;
+        scaleDown |= idleChecks[i] >= IDLE_CHECKS;
+      }
+    }
+    if (!idle && runningConsumers < consumerHolders.size()) {
+      ConsumerHolder consumerHolder = consumerHolders.get(runningConsumers);
+      if (!consumerHolder.isActive()) {
+        start(consumerHolder, runningConsumers);
+      }
+    } else if (scaleDown && runningConsumers > minConsumers) {
+      Arrays.fill(idleChecks, 0, runningConsumers, 0);
+      stop(consumerHolders.get(runningConsumers - 1), runningConsumers - 1);
+    }
+  }
+
+  int getRunningConsumers() {
+    return (int) consumerHolders.stream()
+        .filter(consumerHolder -> !consumerHolder.isSuspended()).count();
+  }
+
+  private void start(ConsumerHolder consumerHolder, int index) {
+    LOGGER.debug("Scaling up consumers of queue {}", consumerHolder.getQueueName());
+    idleChecks[index] = 0;
+    consumerHolder.setSuspended(false);
+    try {
+      activationExecutor.execute(() -> activate(consumerHolder));
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Unable to activate additional consumer of queue {}",
+          consumerHolder.getQueueName(), e);
+      consumerHolder.setSuspended(true);
+    }
+  }
+
+  private static void activate(ConsumerHolder consumerHolder) {
+    try {
+      consumerHolder.activate();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to activate additional consumer of queue {}",
+          consumerHolder.getQueueName(), e);
+      consumerHolder.setSuspended(true);
+    }
+  }
+
+  private void stop(ConsumerHolder consumerHolder, int index) {
+    LOGGER.debug("Scaling down consumers of queue {}", consumerHolder.getQueueName());
+    consumerHolder.setSuspended(true);
+    try {
+      if (consumerHolder.cancel()) {
+        // deactivated by a later run, once the messages in flight are consumed
+        idleChecks[index] = 0;
+        return;
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to cancel consumer of queue {}", consumerHolder.getQueueName(), e);
+    }
+    consumerHolder.deactivate();
+  }
+
+  private void drain(ConsumerHolder consumerHolder, int index) {
+    if (!consumerHolder.isActive()) {
+      return;
+    }
+    if (consumerHolder.getInFlightCount() <= 0) {
+      consumerHolder.deactivate();
+    } else if (++idleChecks[index] >= IDLE_CHECKS) {
+      LOGGER.warn("Deactivating consumer of queue {} with {} messages in flight",
+          consumerHolder.getQueueName(), Long.valueOf(consumerHolder.getInFlightCount()));
+      consumerHolder.deactivate();
+    }
+  }
+}
@@ -61,9 +61,15 @@ final class ContainerConnectionListener implements ConnectionListener {
   public void onConnectionLost(Connection con) {
     try {
       lock.lock();
-      this.consumerContainer.setConnectionAvailable(false);
-      LOGGER.warn("Connection lost. Deactivating consumers");
-      this.consumerContainer.deactivateAllConsumer();
+      if (consumerContainer.isAnyConnectionEstablished()) {
+        LOGGER.warn("Connection {} lost. Moving its consumers to the remaining connections", con);
+        consumerContainer.deactivateConsumers(con);
+        connectionAvailableCondition.signalAll();
+      } else {
+        this.consumerContainer.setConnectionAvailable(false);
+        LOGGER.warn("Connection lost. Deactivating consumers");
+        this.consumerContainer.deactivateAllConsumer();
+      }
     } finally {
       lock.unlock();
     }
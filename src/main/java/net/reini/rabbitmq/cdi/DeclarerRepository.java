@@ -24,20 +24,27 @@
 package net.reini.rabbitmq.cdi;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
 
-class DeclarerRepository {
+class DeclarerRepository implements ConnectionListener {
     private final Map<Class<?>, Declarer<? extends Declaration>> declarerMap;
+    private final Map<Connection, Set<Declaration>> appliedDeclarations;
 
   DeclarerRepository() {
     this.declarerMap = new HashMap<>();
     this.declarerMap.put(ExchangeDeclaration.class, new ExchangeDeclarer());
     this.declarerMap.put(QueueDeclaration.class, new QueueDeclarer());
     this.declarerMap.put(BindingDeclaration.class, new BindingDeclarer());
+    this.appliedDeclarations = Collections.synchronizedMap(new WeakHashMap<>());
   }
 
   @SuppressWarnings("unchecked")
@@ -50,4 +57,51 @@ class DeclarerRepository {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * Declares the given declarations unless they already have been applied successfully on the
+   * connection of the given channel. The remembered declarations of a connection are dropped as
+   * soon as its state changes.
+   *
+   * @param channel the channel used for declaring
+   * @param declarations the declarations to be applied
+   * @throws IOException if a declaration failed
+   */
+  void declareOnce(Channel channel, List<? extends Declaration> declarations) throws IOException {
+    Connection connection = channel.getConnection();
+    if (connection == null) {
+      declare(channel, declarations);
+      return;
+    }
+    Set<Declaration> applied = appliedDeclarations.computeIfAbsent(connection,
+        key -> ConcurrentHashMap.newKeySet());
+    for (Declaration declaration : declarations) {
+      if (!applied.contains(declaration)) {
+        declare(channel, Collections.singletonList(declaration));
+        applied.add(declaration);
+      }
+    }
+  }
+
+  @Override
+  public void onConnectionEstablished(Connection connection) {
+    forget(connection);
+  }
+
+  @Override
+  public void onConnectionLost(Connection connection) {
+    forget(connection);
+  }
+
+  @Override
+  public void onConnectionClosed(Connection connection) {
+    forget(connection);
+  }
+
+  private void forget(Connection connection) {
+    if (connection == null) {
+      appliedDeclarations.clear();
+    } else {
+      appliedDeclarations.remove(connection);
+    }
+  }
+}
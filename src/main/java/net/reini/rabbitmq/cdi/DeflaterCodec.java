@@ -0,0 +1,282 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * Compression codec based on the JDK {@link Deflater} and {@link Inflater} supporting the
+ * {@code gzip} and {@code deflate} content encodings.
+ * </p>
+ *
+ * <p>
+ * The deflater and inflater instances hold native memory and are expensive to create. They are
+ * therefore kept in bounded pools and reset after every message instead of being allocated per
+ * message. Instances not fitting into a full pool are ended immediately, so that threads used only
+ * once do not leak native memory.
+ * </p>
+ *
+ * <p>
+ * Decompressed data larger than the configured maximum size is rejected, protecting consumers
+ * from messages that inflate to a multiple of their size.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class DeflaterCodec implements CompressionCodec {
+  static final String GZIP = "gzip";
+  static final String DEFLATE = "deflate";
+  static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 64 * 1024 * 1024;
+  static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  private static final int CHUNK_SIZE = 8192;
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int GZIP_TRAILER_SIZE = 8;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  private static final byte[] GZIP_HEADER =
+      {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, -1};
+
+  private final String contentEncoding;
+  private final int level;
+  private final int maxDecompressedSize;
+  private final boolean gzip;
+  private final BlockingQueue<Deflater> deflaters;
+  private final BlockingQueue<Inflater> inflaters;
+
+  DeflaterCodec(String contentEncoding, int level) {
+    this(contentEncoding, level, DEFAULT_MAX_DECOMPRESSED_SIZE);
+  }
+
+  DeflaterCodec(String contentEncoding, int level, int maxDecompressedSize) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    if (maxDecompressedSize <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid maximum decompressed size: " + maxDecompressedSize);
+    }
+    this.contentEncoding = contentEncoding;
+    this.level = level;
+    this.maxDecompressedSize = maxDecompressedSize;
+    this.gzip = GZIP.equals(contentEncoding);
+    this.deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    this.inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+  }
+
+  /**
+   * @return the codecs supported by default on the consumer side by content encoding
+   */
+  static Map<String, CompressionCodec> defaultCodecs() {
+    Map<String, CompressionCodec> codecs = new HashMap<>();
+    codecs.put(GZIP, new DeflaterCodec(GZIP, Deflater.DEFAULT_COMPRESSION));
+    codecs.put(DEFLATE, new DeflaterCodec(DEFLATE, Deflater.DEFAULT_COMPRESSION));
+    return codecs;
+  }
+
+  /**
+   * @return the normalized lookup key of the given content encoding
+   */
+  static String key(String contentEncoding) {
+    return contentEncoding.trim().toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  public String contentEncoding() {
+    return contentEncoding;
+  }
+
+  @Override
+  public void compress(byte[] data, int offset, int length, EncodeBuffer target) {
+    if (gzip) {
+      target.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+    }
+    Deflater deflater = borrowDeflater();
+    byte[] chunk = new byte[CHUNK_SIZE];
+    try {
+      deflater.setInput(data, offset, length);
+      deflater.finish();
+      while (!deflater.finished()) {
+        target.write(chunk, 0, deflater.deflate(chunk));
+      }
+    } finally {
+      returnDeflater(deflater);
+    }
+    if (gzip) {
+      CRC32 checksum = new CRC32();
+      checksum.update(data, offset, length);
+      writeInt(target, (int) checksum.getValue());
+      writeInt(target, length);
+    }
+  }
+
+  @Override
+  public byte[] decompress(byte[] data) throws IOException {
+    int offset = gzip ? readGzipHeader(data) : 0;
+    Inflater inflater = borrowInflater();
+    EncodeBuffer output = new EncodeBuffer((int) Math.min(maxDecompressedSize, data.length * 4L));
+    byte[] chunk = new byte[CHUNK_SIZE];
+    try {
+      inflater.setInput(data, offset, data.length - offset);
+      while (!inflater.finished()) {
+        int length = inflater.inflate(chunk);
+        if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Unexpected end of " + contentEncoding + " data");
+        }
+        if (length > maxDecompressedSize - output.size()) {
+          throw new IOException("Decompressed " + contentEncoding + " data exceeds maximum size of "
+              + maxDecompressedSize + " bytes");
+        }
+        output.write(chunk, 0, length);
+      }
+      if (gzip) {
+        checkGzipTrailer(data, data.length - inflater.getRemaining(), output);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Invalid " + contentEncoding + " data", e);
+    } finally {
+      returnInflater(inflater);
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * @return the maximum size in bytes of decompressed data
+   */
+  int getMaxDecompressedSize() {
+    return maxDecompressedSize;
+  }
+
+  /**
+   * @return the number of idle deflater and inflater instances kept in the pools
+   */
+  int getPooledCount() {
+    return deflaters.size() + inflaters.size();
+  }
+
+  private Deflater borrowDeflater() {
+    Deflater deflater = deflaters.poll();
+    return deflater == null ? new Deflater(level, gzip) : deflater;
+  }
+
+  private void returnDeflater(Deflater deflater) {
+    deflater.reset();
+    if (!deflaters.offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  private Inflater borrowInflater() {
+    Inflater inflater = inflaters.poll();
+    return inflater == null ? new Inflater(gzip) : inflater;
+  }
+
+  private void returnInflater(Inflater inflater) {
+    inflater.reset();
+    if (!inflaters.offer(inflater)) {
+      inflater.end();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "DeflaterCodec[" + contentEncoding + "]";
+  }
+
+  private static int readGzipHeader(byte[] data) throws IOException {
+    if (data.length < GZIP_HEADER.length + GZIP_TRAILER_SIZE || readShort(data, 0) != GZIP_MAGIC
+        || data[2] != Deflater.DEFLATED) {
+      throw new IOException("Not in gzip format");
+    }
+    int flags = data[3] & 0xff;
+    int offset = GZIP_HEADER.length;
+    if ((flags & FEXTRA) != 0) {
+      offset += 2 + readShort(data, offset);
+    }
+    if ((flags & FNAME) != 0) {
+      offset = skipZeroTerminated(data, offset);
+    }
+    if ((flags & FCOMMENT) != 0) {
+      offset = skipZeroTerminated(data, offset);
+    }
+    if ((flags & FHCRC) != 0) {
+      offset += 2;
+    }
+    if (offset > data.length) {
+      throw new IOException("Corrupt gzip header");
+    }
+    return offset;
+  }
+
+  private static void checkGzipTrailer(byte[] data, int offset, EncodeBuffer output) throws IOException {
+    if (data.length - offset < GZIP_TRAILER_SIZE) {
+      throw new IOException("Corrupt gzip trailer");
+    }
+    CRC32 checksum = new CRC32();
+    checksum.update(output.array(), 0, output.size());
+    if (readInt(data, offset) != (int) checksum.getValue()
+        || readInt(data, offset + 4) != output.size()) {
+      throw new IOException("Corrupt gzip trailer");
+    }
+  }
+
+  private static int skipZeroTerminated(byte[] data, int offset) throws IOException {
+    for (int i = offset; i < data.length; i++) {
+      if (data[i] == 0) {
+        return i + 1;
+      }
+    }
+    throw new IOException("Corrupt gzip header");
+  }
+
+  private static int readShort(byte[] data, int offset) throws IOException {
+    if (offset + 2 > data.length) {
+      throw new IOException("Corrupt gzip header");
+    }
+    return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+  }
+
+  private static int readInt(byte[] data, int offset) throws IOException {
+    return readShort(data, offset) | readShort(data, offset + 2) << 16;
+  }
+
+  private static void writeInt(EncodeBuffer target, int value) {
+    target.write(value);
+    target.write(value >>> 8);
+    target.write(value >>> 16);
+    target.write(value >>> 24);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Growable byte buffer a {@link BufferedEncoder} writes the encoded message to. Buffers are reused
+ * for subsequent messages, the content is therefore only valid until the buffer is reset.
+ * </p>
+ *
+ * <p>
+ * A buffer is not thread safe and is owned by a single publishing thread at a time.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+public final class EncodeBuffer extends OutputStream {
+  static final int INITIAL_CAPACITY = 1024;
+  static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+  private byte[] data;
+  private int size;
+  private String contentEncoding;
+
+  public EncodeBuffer() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param capacity the initial capacity in bytes
+   */
+  public EncodeBuffer(int capacity) {
+    data = new byte[Math.max(16, capacity)];
+  }
+
+  @Override
+  public void write(int value) {
+    ensureCapacity(size + 1);
+    data[size++] = (byte) value;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    ensureCapacity(size + length);
+    System.arraycopy(bytes, offset, data, size, length);
+    size += length;
+  }
+
+  /**
+   * @return the number of bytes written since the last reset
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the current capacity of this buffer
+   */
+  public int capacity() {
+    return data.length;
+  }
+
+  /**
+   * Discards the content and content encoding of this buffer. Buffers that have grown beyond 1 MiB
+   * are shrunk again, so that a single huge message does not keep its memory allocated.
+   */
+  public void reset() {
+    size = 0;
+    contentEncoding = null;
+    if (data.length > MAX_RETAINED_CAPACITY) {
+      data = new byte[INITIAL_CAPACITY];
+    }
+  }
+
+  /**
+   * Sets the content encoding of the written bytes, if the encoder has compressed them for
+   * example.
+   *
+   * @param contentEncoding the content encoding or {@code null}
+   */
+  public void setContentEncoding(String contentEncoding) {
+    this.contentEncoding = contentEncoding;
+  }
+
+  /**
+   * @return the content encoding of the written bytes or {@code null} if not encoded
+   */
+  public String getContentEncoding() {
+    return contentEncoding;
+  }
+
+  /**
+   * @return a copy of the written bytes
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(data, size);
+  }
+
+  /**
+   * @return the internal array holding the written bytes from index 0 to {@link #size()}
+   */
+  byte[] array() {
+    return data;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new OutOfMemoryError("Encoded message too large");
+    }
+    if (capacity > data.length) {
+      int newCapacity = Math.max(capacity, data.length << 1);
+      data = Arrays.copyOf(data, newCapacity < 0 ? Integer.MAX_VALUE - 8 : newCapacity);
+    }
+  }
+}
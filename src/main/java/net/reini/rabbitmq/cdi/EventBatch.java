@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of events consumed from a queue bound using
+ * {@link EventBinder.QueueBinding#asBatch asBatch}. The messages of all events are acknowledged
+ * at once after all observers of the batch have been notified successfully.
+ *
+ * @param <T> the event type
+ * @author Patrick Reinhart
+ */
+public final class EventBatch<T> {
+  private final List<T> events;
+
+  EventBatch(List<T> events) {
+    this.events = Collections.unmodifiableList(events);
+  }
+
+  /**
+   * @return the events of the batch in the order their messages have been delivered
+   */
+  public List<T> getEvents() {
+    return events;
+  }
+
+  /**
+   * @return the number of events in the batch
+   */
+  public int size() {
+    return events.size();
+  }
+
+  @Override
+  public String toString() {
+    return "EventBatch[size=" + events.size() + "]";
+  }
+}
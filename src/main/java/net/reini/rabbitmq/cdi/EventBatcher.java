@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+import net.reini.rabbitmq.cdi.AckCoalescer.AckActionInvoker;
+
+/**
+ * Accumulates the decoded events of the deliveries of a single channel and fires them as a single
+ * {@link EventBatch} once either the maximum batch size is reached or the oldest event waited for
+ * the batch window.
+ *
+ * <p>
+ * All deliveries of a successfully consumed batch are acknowledged using a single
+ * {@code basicAck(tag, multiple=true)}, otherwise each of them is rejected individually.
+ * Deliveries that cannot be decoded are rejected immediately. Deliveries need to be added in the
+ * order they are received from the channel, so that a multiple acknowledgement never covers a
+ * delivery that is not yet part of a fired batch.
+ * </p>
+ *
+ * @param <T> the event type
+ * @author Patrick Reinhart
+ */
+final class EventBatcher<T> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(EventBatcher.class);
+
+  private final EventConsumer<T> consumer;
+  private final ScheduledExecutorService scheduler;
+  private final Executor flushExecutor;
+  private final AckActionInvoker invoker;
+  private final List<T> events;
+  private final List<Long> deliveryTags;
+
+  private ScheduledFuture<?> flushTask;
+
+  /**
+   * @param consumer the event consumer decoding and firing the events
+   * @param scheduler the scheduler used to flush after the batch window elapsed
+   * @param flushExecutor the executor firing the batches flushed after the batch window elapsed,
+   *        keeping slow observers off the scheduler
+   * @param invoker the invoker of the acknowledge actions or {@code null} if messages are
+   *        acknowledged automatically
+   */
+  EventBatcher(EventConsumer<T> consumer, ScheduledExecutorService scheduler,
+      Executor flushExecutor, AckActionInvoker invoker) {
+    this.consumer = consumer;
+    this.scheduler = scheduler;
+    this.flushExecutor = flushExecutor;
+    this.invoker = invoker;
+    this.events = new ArrayList<>();
+    this.deliveryTags = new ArrayList<>();
+  }
+
+  /**
+   * Decodes the message of the given delivery and adds the event to the current batch, which is
+   * fired if it is full.
+   *
+   * @param deliveryTag the delivery tag
+   * @param properties the message properties
+   * @param body the message body
+   * @throws IOException if an acknowledgement fails
+   */
+  synchronized void add(long deliveryTag, BasicProperties properties, byte[] body)
+      throws IOException {
+    T event = consumer.decodeEvent(properties, body);
+    if (event == null) {
+      reject(deliveryTag);
+      return;
+    }
+    events.add(event);
+    deliveryTags.add(Long.valueOf(deliveryTag));
+    if (events.size() >= consumer.getBatchSize()) {
+      flush();
+    } else if (flushTask == null) {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Fires the current batch and acknowledges its deliveries depending on the outcome.
+   *
+   * @throws IOException if an acknowledgement fails
+   */
+  synchronized void flush() throws IOException {
+    cancelFlush();
+    if (events.isEmpty()) {
+      return;
+    }
+    List<T> batch = new ArrayList<>(events);
+    List<Long> batchTags = new ArrayList<>(deliveryTags);
+    events.clear();
+    deliveryTags.clear();
+    boolean consumed = consumer.fireEventBatch(batch);
+    if (invoker == null) {
+      return;
+    }
+    if (consumed) {
+      long deliveryTag = batchTags.get(batchTags.size() - 1).longValue();
+      invoker.invoke(channel -> {
+        channel.basicAck(deliveryTag, true);
+        LOGGER.debug("Acknowledged batch of {} deliveries up to {}",
+            Integer.valueOf(batchTags.size()), Long.valueOf(deliveryTag));
+      });
+    } else {
+      for (Long deliveryTag : batchTags) {
+        reject(deliveryTag.longValue());
+      }
+    }
+  }
+
+  /**
+   * Forgets the current batch, as its delivery tags are no longer valid after the channel
+   * recovered and the messages get redelivered. Automatically acknowledged events are fired
+   * instead.
+   */
+  synchronized void recover() {
+    if (invoker == null) {
+      flushQuietly();
+    } else {
+      cancelFlush();
+      events.clear();
+      deliveryTags.clear();
+    }
+  }
+
+  synchronized int getPendingCount() {
+    return events.size();
+  }
+
+  synchronized void flushQuietly() {
+    try {
+      flush();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to acknowledge batch deliveries", e);
+    }
+  }
+
+  private void reject(long deliveryTag) throws IOException {
+    if (invoker != null) {
+      invoker.invoke(channel -> {
+        channel.basicNack(deliveryTag, false, false);
+        LOGGER.debug("Not acknowledged {}", Long.valueOf(deliveryTag));
+      });
+    }
+  }
+
+  private void scheduleFlush() {
+    try {
+      flushTask = scheduler.schedule(this::timedFlush, consumer.getBatchWindow(),
+          TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Unable to schedule batch flush, fired with the next full batch", e);
+    }
+  }
+
+  private void timedFlush() {
+    try {
+      flushExecutor.execute(this::flushQuietly);
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Unable to flush batch, fired with the next full batch", e);
+    }
+  }
+
+  private void cancelFlush() {
+    if (flushTask != null) {
+      flushTask.cancel(false);
+      flushTask = null;
+    }
+  }
+}
@@ -26,14 +26,20 @@ package net.reini.rabbitmq.cdi;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLDecoder;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -42,7 +48,9 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.Dependent;
 import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
 import jakarta.enterprise.event.TransactionPhase;
+import jakarta.enterprise.util.TypeLiteral;
 import jakarta.inject.Inject;
 
 import org.slf4j.Logger;
@@ -53,6 +61,9 @@ import com.rabbitmq.client.AMQP.BasicProperties.Builder;
 import com.rabbitmq.client.Address;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.MessageProperties;
+import com.rabbitmq.client.impl.nio.NioParams;
+
+import net.reini.rabbitmq.cdi.PublisherConfiguration.Destination;
 
 /**
  * <p>
@@ -161,6 +172,18 @@ public abstract class EventBinder {
     return new BinderConfiguration(configuration);
   }
 
+  /**
+   * Returns the number of messages published using the mandatory flag that were returned by the
+   * broker, because they could not be routed to any queue.
+   *
+   * @return the returned message counts keyed by {@code exchange/routingKey}
+   * @see ExchangeBinding#mandatory()
+   */
+  public Map<String, Long> getReturnedMessageCounts() {
+    return connectionRepository.getChannelPool(configuration.getPublisherConnectionConfig())
+        .getReturnedMessages().snapshot();
+  }
+
   /**
    * Returns the DeclarerFactory which can be used to declare exchanges, queues and binding between
    * exchanges and queues. The declaration can later be added to an event binding bia bind()
@@ -202,6 +225,10 @@ public abstract class EventBinder {
     processExchangeBindings();
     processQueueBindings();
     consumerContainer.start();
+    ConnectionConfig publisherConfiguration = configuration.getPublisherConnectionConfig();
+    if (publisherConfiguration != configuration) {
+      connectionRepository.connect(publisherConfiguration);
+    }
   }
 
 
@@ -218,6 +245,11 @@ public abstract class EventBinder {
     if (!connectionRepository.containsConnectionListener(configuration, connectionListener)) {
       connectionRepository.registerConnectionListener(configuration, connectionListener);
     }
+    ConnectionConfig publisherConfiguration = configuration.getPublisherConnectionConfig();
+    if (publisherConfiguration != configuration && !connectionRepository
+        .containsConnectionListener(publisherConfiguration, connectionListener)) {
+      connectionRepository.registerConnectionListener(publisherConfiguration, connectionListener);
+    }
   }
 
   /**
@@ -227,6 +259,10 @@ public abstract class EventBinder {
    */
   public void removeConnectionListener(ConnectionListener connectionListener) {
     connectionRepository.removeConnectionListener(configuration, connectionListener);
+    ConnectionConfig publisherConfiguration = configuration.getPublisherConnectionConfig();
+    if (publisherConfiguration != configuration) {
+      connectionRepository.removeConnectionListener(publisherConfiguration, connectionListener);
+    }
   }
 
   @PostConstruct
@@ -238,11 +274,12 @@ public abstract class EventBinder {
 
   @PreDestroy
   void shutdownConsumerContainer() {
-    consumerContainer.stop();
+    stop();
   }
 
   void stop() {
     consumerContainer.stop();
+    configuration.shutdownOwnedExecutor();
   }
 
   void processExchangeBindings() {
@@ -260,10 +297,34 @@ public abstract class EventBinder {
     QueueBinding<Object> binding = (QueueBinding<Object>) queueBinding;
     Class<Object> eventType = binding.getEventType();
     Decoder<Object> decoder = binding.getDecoder();
-    EventConsumer<Object> consumer = new EventConsumer<>(eventType, decoder, eventSinkBase);
+    Executor asyncDeliveryExecutor = binding.getAsyncDeliveryExecutor();
+    EventConsumer<Object> consumer = new EventConsumer<>(eventType, decoder, eventSinkBase,
+        binding.getCompressionCodecs(), binding.isAsyncDelivery(), asyncDeliveryExecutor == null
+            ? null
+            : NotificationOptions.ofExecutor(asyncDeliveryExecutor));
+    if (binding.getBatchType() != null) {
+      consumer.withBatching(binding.getBatchType(), binding.getBatchSize(),
+          binding.getBatchWindow());
+    }
     String queue = binding.getQueue();
-    consumerContainer.addConsumer(consumer, queue, binding.isAutoAck(), binding.getPrefetchCount(),
-        binding.getAllDeclarations());
+    int prefetchCount = binding.getPrefetchCount();
+    if (binding.getMaxPrefetchCount() > 0) {
+      prefetchCount = Math.max(binding.getMinPrefetchCount(),
+          Math.min(binding.getMaxPrefetchCount(), prefetchCount));
+    }
+    List<ConsumerHolder> consumerHolders = new ArrayList<>();
+    for (int i = 0; i < binding.getMaxConcurrency(); i++) {
+      consumerHolders.add(consumerContainer.addConsumer(consumer, queue, binding.isAutoAck(),
+          prefetchCount, binding.getAckBatchSize(), binding.getAckBatchWindow(),
+          binding.getAllDeclarations()));
+    }
+    if (binding.getMinConcurrency() < binding.getMaxConcurrency()) {
+      consumerContainer.scaleConsumers(consumerHolders, binding.getMinConcurrency());
+    }
+    if (binding.getMaxPrefetchCount() > 0) {
+      consumerContainer.tunePrefetch(consumerHolders, binding.getMinPrefetchCount(),
+          binding.getMaxPrefetchCount());
+    }
     LOGGER.info("Binding between queue {} and event type {} activated", queue, eventType.getName());
   }
 
@@ -271,10 +332,44 @@ public abstract class EventBinder {
     Class<T> eventType = exchangeBinding.getEventType();
     BiConsumer<T, PublishException> errorHandler = exchangeBinding.getErrorHandler();
     Encoder<T> encoder = exchangeBinding.getEncoder();
+    if (exchangeBinding.getCompressionCodec() != null) {
+      encoder = new CompressingEncoder<>(encoder, exchangeBinding.getCompressionCodec(),
+          exchangeBinding.getCompressionThreshold());
+    }
     String exchange = exchangeBinding.getExchange();
-    PublisherConfiguration<T> cfg = new PublisherConfiguration<T>(configuration, exchange,
+    PublisherConfiguration<T> cfg = new PublisherConfiguration<T>(
+        configuration.getPublisherConnectionConfig(), exchange,
         exchangeBinding.routingKeyFunction, exchangeBinding.getBasicPropertiesBuilder(), exchangeBinding.basicPropertiesCalculator, encoder, errorHandler,
         exchangeBinding.getAllDeclarations());
+    if (exchangeBinding.isPublisherConfirms()) {
+      cfg.withPublisherConfirms(exchangeBinding.getConfirmTimeout());
+    }
+    if (exchangeBinding.isBatching()) {
+      cfg.withBatching(exchangeBinding.getBatchSize(), exchangeBinding.getBatchWindow());
+    }
+    cfg.withRetryPolicy(exchangeBinding.getRetryPolicy());
+    if (exchangeBinding.isMandatory()) {
+      cfg.withMandatory();
+    }
+    exchangeBinding.getDestinations().forEach(cfg::withDestination);
+    PublisherSpool spool = connectionRepository.getPublisherSpool(cfg.getConfig());
+    if (spool != null) {
+      // needed to replay messages spooled before a restart
+      cfg.registerDeclarations(spool);
+    }
+    if (exchangeBinding.hasDynamicFields()) {
+      cfg.withDynamicFields(exchangeBinding.getMessageIdFunction(),
+          exchangeBinding.getCorrelationIdFunction(), exchangeBinding.isTimestamp(),
+          exchangeBinding.getDynamicHeaders());
+    }
+    if (exchangeBinding.isTransactionBatching()) {
+      if (exchangeBinding.getTransactionPhase() == TransactionPhase.AFTER_SUCCESS) {
+        cfg.withTransactionBatching();
+      } else {
+        LOGGER.warn("Transaction batching ignored for event type {} not bound to phase {}",
+            eventType.getName(), TransactionPhase.AFTER_SUCCESS);
+      }
+    }
     eventPublisher.addEvent(EventKey.of(eventType, exchangeBinding.getTransactionPhase()), cfg);
     LOGGER.info("Binding between exchange {} and event type {} activated", exchange,
         eventType.getName());
@@ -407,14 +502,30 @@ public abstract class EventBinder {
     private final String queue;
 
     private boolean autoAck;
+    private final Map<String, CompressionCodec> compressionCodecs;
+
     private Decoder<T> decoder;
     private int prefetchCount;
+    private int minPrefetchCount;
+    private int maxPrefetchCount;
+    private int ackBatchSize;
+    private long ackBatchWindow;
+    private int minConcurrency;
+    private int maxConcurrency;
+    private boolean asyncDelivery;
+    private Executor asyncDeliveryExecutor;
+    private TypeLiteral<EventBatch<T>> batchType;
+    private int batchSize;
+    private long batchWindow;
 
     QueueBinding(Class<T> eventType, String queue) {
       this.eventType = eventType;
       this.queue = queue;
+      this.compressionCodecs = DeflaterCodec.defaultCodecs();
       this.decoder = new JsonDecoder<>(eventType);
       this.prefetchCount = 0;
+      this.minConcurrency = 1;
+      this.maxConcurrency = 1;
       LOGGER.info("Binding created between queue {} and event type {}", queue,
           eventType.getSimpleName());
     }
@@ -439,6 +550,57 @@ public abstract class EventBinder {
       return prefetchCount;
     }
 
+    int getMinPrefetchCount() {
+      return minPrefetchCount;
+    }
+
+    /**
+     * @return the maximum prefetch count or {@code 0} if the prefetch count is not tuned
+     */
+    int getMaxPrefetchCount() {
+      return maxPrefetchCount;
+    }
+
+    int getAckBatchSize() {
+      return ackBatchSize;
+    }
+
+    long getAckBatchWindow() {
+      return ackBatchWindow;
+    }
+
+    boolean isAsyncDelivery() {
+      return asyncDelivery;
+    }
+
+    Executor getAsyncDeliveryExecutor() {
+      return asyncDeliveryExecutor;
+    }
+
+    TypeLiteral<EventBatch<T>> getBatchType() {
+      return batchType;
+    }
+
+    int getBatchSize() {
+      return batchSize;
+    }
+
+    long getBatchWindow() {
+      return batchWindow;
+    }
+
+    int getMinConcurrency() {
+      return minConcurrency;
+    }
+
+    int getMaxConcurrency() {
+      return maxConcurrency;
+    }
+
+    Map<String, CompressionCodec> getCompressionCodecs() {
+      return compressionCodecs;
+    }
+
     /**
      * <p>
      * Sets the acknowledgement mode to be used for consuming message to automatic acknowledges
@@ -472,6 +634,23 @@ public abstract class EventBinder {
       return this;
     }
 
+    /**
+     * Adds a compression codec used to decompress messages having the content encoding of the
+     * codec. Messages compressed using {@code gzip} or {@code deflate} are decompressed by default,
+     * as long as the decompressed data does not exceed 64 MiB. Use
+     * {@link CompressionCodec#gzip(int, int)} for example to change this limit.
+     *
+     * @param codec The compression codec instance
+     * @return the queue binding
+     */
+    public QueueBinding<T> withCompressionCodec(CompressionCodec codec) {
+      Objects.requireNonNull(codec, "codec must not be null");
+      compressionCodecs.put(DeflaterCodec.key(codec.contentEncoding()), codec);
+      LOGGER.info("Compression codec {} added for event type {}", codec.contentEncoding(),
+          eventType.getSimpleName());
+      return this;
+    }
+
     /**
      * Adds a queue declaration to this QueueBinding The declaration is automatically applied to the
      * publisher channel
@@ -525,6 +704,213 @@ public abstract class EventBinder {
       return this;
     }
 
+    /**
+     * <p>
+     * Enables the automatic tuning of the prefetch count between the given bounds. Every second,
+     * the prefetch count of each consumer is adjusted to the number of messages needed to keep the
+     * consumer busy, based on the measured time to consume a message and the network round trip
+     * time of the channel. The prefetch count set using {@link #withPrefetchCount(int)} is used
+     * initially, if within the bounds.
+     * </p>
+     *
+     * <p>
+     * The maximum prefetch count limits the number of messages held in memory by each consumer.
+     * Adaptive prefetch cannot be used for {@link #asBatch batch delivery}, as the time to consume
+     * a batch is not known per message.
+     * </p>
+     *
+     * @param minPrefetchCount the minimum prefetch count
+     * @param maxPrefetchCount the maximum prefetch count
+     * @return the queue binding
+     * @throws IllegalStateException if batch delivery is enabled
+     * @see #withPrefetchCount(int)
+     */
+    public QueueBinding<T> withAdaptivePrefetch(int minPrefetchCount, int maxPrefetchCount) {
+      if (minPrefetchCount <= 0) {
+        throw new IllegalArgumentException("minPrefetchCount must be greater than zero");
+      }
+      if (maxPrefetchCount < minPrefetchCount) {
+        throw new IllegalArgumentException(
+            "maxPrefetchCount must not be less than minPrefetchCount");
+      }
+      if (batchType != null) {
+        throw new IllegalStateException("adaptive prefetch cannot be used for batch delivery");
+      }
+      this.minPrefetchCount = minPrefetchCount;
+      this.maxPrefetchCount = maxPrefetchCount;
+      LOGGER.info("Adaptive prefetch count of {} to {} set for event type {}",
+          Integer.valueOf(minPrefetchCount), Integer.valueOf(maxPrefetchCount),
+          eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * <p>
+     * Enables the asynchronous delivery of the events using {@link Event#fireAsync(Object)}, which
+     * notifies the observers of the event using {@code @ObservesAsync}. A message is acknowledged
+     * once all observers have been notified, or rejected if one of them failed.
+     * </p>
+     *
+     * <p>
+     * The consumer does not wait for the observers, which allows up to prefetch count messages
+     * to be consumed concurrently on a single channel. A prefetch count should therefore be set
+     * for this binding.
+     * </p>
+     *
+     * @return the queue binding
+     * @see #withPrefetchCount(int)
+     */
+    public QueueBinding<T> withAsyncDelivery() {
+      this.asyncDelivery = true;
+      LOGGER.info("Asynchronous delivery enabled for event type {}", eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * Enables the asynchronous delivery of the events, notifying the observers using the given
+     * executor instead of the default executor of the CDI container.
+     *
+     * @param executor the executor used to notify the asynchronous observers
+     * @return the queue binding
+     * @see #withAsyncDelivery()
+     * @see NotificationOptions#ofExecutor(Executor)
+     */
+    public QueueBinding<T> withAsyncDelivery(Executor executor) {
+      this.asyncDeliveryExecutor = Objects.requireNonNull(executor, "executor must not be null");
+      return withAsyncDelivery();
+    }
+
+    /**
+     * Sets a fixed number of concurrent consumers of the queue. Each consumer uses its own channel
+     * and prefetch count, allowing a slow event observer not to block the other messages of the
+     * queue. The default is a single consumer.
+     *
+     * @param consumers the number of consumers
+     * @return the queue binding
+     */
+    public QueueBinding<T> withConcurrency(int consumers) {
+      return withConcurrency(consumers, consumers);
+    }
+
+    /**
+     * <p>
+     * Sets the number of concurrent consumers of the queue, scaled depending on the load. Each
+     * consumer uses its own channel and prefetch count. Initially, the minimum number of consumers
+     * is started.
+     * </p>
+     *
+     * <p>
+     * Every second, an additional consumer is started if all running consumers received messages
+     * since the last check, until the maximum number is reached. A consumer is stopped again after
+     * one of the consumers stayed idle for ten seconds. Messages being consumed by a stopped
+     * consumer get redelivered.
+     * </p>
+     *
+     * @param minConsumers the minimum number of consumers
+     * @param maxConsumers the maximum number of consumers
+     * @return the queue binding
+     */
+    public QueueBinding<T> withConcurrency(int minConsumers, int maxConsumers) {
+      if (minConsumers <= 0) {
+        throw new IllegalArgumentException("minConsumers must be greater than zero");
+      }
+      if (maxConsumers < minConsumers) {
+        throw new IllegalArgumentException("maxConsumers must not be less than minConsumers");
+      }
+      this.minConcurrency = minConsumers;
+      this.maxConcurrency = maxConsumers;
+      LOGGER.info("Concurrency of {} to {} consumers set for event type {}",
+          Integer.valueOf(minConsumers), Integer.valueOf(maxConsumers), eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * <p>
+     * Enables batching of the message acknowledgements. Successfully consumed messages are
+     * acknowledged at once using a single multiple acknowledge, when either the given maximum
+     * number of messages is reached or the oldest of them waited for the given time window.
+     * Negatively acknowledged messages are still rejected immediately.
+     * </p>
+     *
+     * <p>
+     * This reduces the number of frames sent on the channel at the cost of messages being
+     * redelivered after a connection loss, even though they have already been consumed. It
+     * should therefore only be used for idempotent event observers. The maximum number of
+     * messages should be less than the prefetch count, otherwise acknowledgements are only sent
+     * after the time window elapsed.
+     * </p>
+     *
+     * @param maxMessages the maximum number of messages acknowledged at once
+     * @param window the maximum time a consumed message waits for its acknowledgement
+     * @param unit the time unit of the window
+     * @return the queue binding
+     * @see #withPrefetchCount(int)
+     */
+    public QueueBinding<T> withAckBatching(int maxMessages, long window, TimeUnit unit) {
+      if (maxMessages <= 0) {
+        throw new IllegalArgumentException("maxMessages must be greater than zero");
+      }
+      if (window <= 0) {
+        throw new IllegalArgumentException("window must be greater than zero");
+      }
+      this.ackBatchSize = maxMessages;
+      this.ackBatchWindow = unit.toNanos(window);
+      LOGGER.info("Acknowledge batching of {} messages within {} {} enabled for event type {}",
+          Integer.valueOf(maxMessages), Long.valueOf(window), unit, eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * <p>
+     * Delivers the events as {@link EventBatch} of the given batch type, allowing the observers to
+     * process many events at once. A batch is fired when either the given maximum number of
+     * events is reached or the oldest event waited for the given time. The batch type is required
+     * for the CDI container to resolve the observers of the batch:
+     * </p>
+     *
+     * <pre>
+     * bind(MyEvent.class).toQueue("my.queue").withPrefetchCount(100)
+     *     .asBatch(new TypeLiteral&lt;EventBatch&lt;MyEvent&gt;&gt;() {}, 100, 50, MILLISECONDS);
+     *
+     * void onBatch(&#64;Observes EventBatch&lt;MyEvent&gt; batch) { ... }
+     * </pre>
+     *
+     * <p>
+     * The messages of a batch are acknowledged using a single multiple acknowledge once all
+     * observers have been notified successfully, otherwise each of them is rejected. Messages that
+     * cannot be decoded are rejected immediately. The prefetch count should not be less than the
+     * maximum batch size, otherwise batches are only fired after the time elapsed.
+     * Acknowledge batching, asynchronous delivery and the consumer delivery executor are not used
+     * for batches.
+     * </p>
+     *
+     * @param batchType the type of the fired event batch
+     * @param maxSize the maximum number of events in a batch
+     * @param maxWait the maximum time an event waits for its batch to be fired
+     * @param unit the time unit of the maximum wait time
+     * @return the queue binding
+     * @throws IllegalStateException if adaptive prefetch is enabled
+     * @see #withPrefetchCount(int)
+     */
+    public QueueBinding<T> asBatch(TypeLiteral<EventBatch<T>> batchType, int maxSize,
+        long maxWait, TimeUnit unit) {
+      if (maxSize <= 0) {
+        throw new IllegalArgumentException("maxSize must be greater than zero");
+      }
+      if (maxWait <= 0) {
+        throw new IllegalArgumentException("maxWait must be greater than zero");
+      }
+      if (maxPrefetchCount > 0) {
+        throw new IllegalStateException("batch delivery cannot be used with adaptive prefetch");
+      }
+      this.batchType = Objects.requireNonNull(batchType, "batchType must not be null");
+      this.batchSize = maxSize;
+      this.batchWindow = unit.toNanos(maxWait);
+      LOGGER.info("Batch delivery of {} events within {} {} enabled for event type {}",
+          Integer.valueOf(maxSize), Long.valueOf(maxWait), unit, eventType.getSimpleName());
+      return this;
+    }
+
     @Override
     public int hashCode() {
       return Objects.hash(eventType, queue);
@@ -551,9 +937,13 @@ public abstract class EventBinder {
    * Configures and stores the binding between an event class and an exchange.
    */
   public static final class ExchangeBinding<T> extends DeclarationCollector {
+    static final long DEFAULT_CONFIRM_TIMEOUT = 30_000;
+
     private final Class<T> eventType;
     private final String exchange;
     private final Map<String, Object> headers;
+    private final Map<String, Function<? super T, ?>> dynamicHeaders;
+    private final List<Destination<T>> destinations;
 
     private Function<T, String> routingKeyFunction;
     private Encoder<T> encoder;
@@ -561,15 +951,30 @@ public abstract class EventBinder {
     private TransactionPhase transactionPhase;
     private BiConsumer<T, PublishException> errorHandler;
     private BasicPropertiesCalculator<T> basicPropertiesCalculator;
+    private boolean publisherConfirms;
+    private long confirmTimeout;
+    private int batchSize;
+    private long batchWindow;
+    private RetryPolicy retryPolicy;
+    private boolean transactionBatching;
+    private boolean mandatory;
+    private CompressionCodec compressionCodec;
+    private int compressionThreshold;
+    private Function<? super T, String> messageIdFunction;
+    private Function<? super T, String> correlationIdFunction;
+    private boolean timestamp;
 
     ExchangeBinding(Class<T> eventType, String exchange) {
       this.eventType = eventType;
       this.exchange = exchange;
       this.headers = new HashMap<>();
+      this.dynamicHeaders = new LinkedHashMap<>();
+      this.destinations = new ArrayList<>();
       this.encoder = new JsonEncoder<>();
       routingKeyFunction = e -> "";
       transactionPhase = TransactionPhase.IN_PROGRESS;
       errorHandler = nop();
+      retryPolicy = RetryPolicy.DEFAULT;
       basicPropertiesBuilder = MessageProperties.BASIC.builder().headers(headers);
       LOGGER.info("Binding created between exchange {} and event type {}", exchange,
           eventType.getSimpleName());
@@ -607,6 +1012,71 @@ public abstract class EventBinder {
       return basicPropertiesCalculator;
     }
 
+    boolean isPublisherConfirms() {
+      return publisherConfirms;
+    }
+
+    long getConfirmTimeout() {
+      return confirmTimeout;
+    }
+
+    boolean isBatching() {
+      return batchSize > 0;
+    }
+
+    int getBatchSize() {
+      return batchSize;
+    }
+
+    long getBatchWindow() {
+      return batchWindow;
+    }
+
+    RetryPolicy getRetryPolicy() {
+      return retryPolicy;
+    }
+
+    boolean isTransactionBatching() {
+      return transactionBatching;
+    }
+
+    boolean isMandatory() {
+      return mandatory;
+    }
+
+    List<Destination<T>> getDestinations() {
+      return destinations;
+    }
+
+    CompressionCodec getCompressionCodec() {
+      return compressionCodec;
+    }
+
+    int getCompressionThreshold() {
+      return compressionThreshold;
+    }
+
+    Function<? super T, String> getMessageIdFunction() {
+      return messageIdFunction;
+    }
+
+    Function<? super T, String> getCorrelationIdFunction() {
+      return correlationIdFunction;
+    }
+
+    boolean isTimestamp() {
+      return timestamp;
+    }
+
+    Map<String, Function<? super T, ?>> getDynamicHeaders() {
+      return dynamicHeaders;
+    }
+
+    boolean hasDynamicFields() {
+      return messageIdFunction != null || correlationIdFunction != null || timestamp
+          || !dynamicHeaders.isEmpty();
+    }
+
     /**
      * Sets the routing key to be used for message publishing.
      *
@@ -631,6 +1101,45 @@ public abstract class EventBinder {
       return this;
     }
 
+    /**
+     * Adds a further exchange the events are published to using the given routing key.
+     *
+     * @param destinationExchange The exchange name
+     * @param key The routing key
+     * @return the exchange binding
+     * @see #withDestination(String, Function)
+     */
+    public ExchangeBinding<T> withDestination(String destinationExchange, String key) {
+      Objects.requireNonNull(key, "key must not be null");
+      return withDestination(destinationExchange, e -> key);
+    }
+
+    /**
+     * <p>
+     * Adds a further exchange the events are published to using the given routing key function.
+     * The event is encoded only once and the same message is published to the exchange of this
+     * binding and all further destinations on the same channel.
+     * </p>
+     *
+     * <p>
+     * If publishing to one of the destinations fails, the event is retried for all destinations
+     * and therefore may be delivered more than once to the others.
+     * </p>
+     *
+     * @param destinationExchange The exchange name
+     * @param keyFunction The routing key function
+     * @return the exchange binding
+     */
+    public ExchangeBinding<T> withDestination(String destinationExchange,
+        Function<T, String> keyFunction) {
+      Objects.requireNonNull(destinationExchange, "exchange must not be null");
+      Objects.requireNonNull(keyFunction, "keyFunction must not be null");
+      destinations.add(new Destination<>(destinationExchange, keyFunction));
+      LOGGER.info("Destination exchange {} added for event type {}", destinationExchange,
+          eventType.getSimpleName());
+      return this;
+    }
+
     /**
      * Sets the message encoder to be used for message encoding.
      *
@@ -657,6 +1166,58 @@ public abstract class EventBinder {
       return this;
     }
 
+    /**
+     * Sets the message header to the value calculated by the given function for each message. The
+     * static headers and properties are prepared only once, only the dynamic values are filled per
+     * message.
+     *
+     * @param header the header name
+     * @param headerValueFunction the function calculating the header value of an event
+     * @return the exchange binding
+     * @see #withHeader(String, Object)
+     */
+    public ExchangeBinding<T> withDynamicHeader(String header,
+        Function<? super T, ?> headerValueFunction) {
+      dynamicHeaders.put(Objects.requireNonNull(header, "header must not be null"),
+          Objects.requireNonNull(headerValueFunction, "headerValueFunction must not be null"));
+      return this;
+    }
+
+    /**
+     * Sets the message id of each message to the value calculated by the given function.
+     *
+     * @param messageIdFunction the function calculating the message id of an event
+     * @return the exchange binding
+     */
+    public ExchangeBinding<T> withMessageId(Function<? super T, String> messageIdFunction) {
+      this.messageIdFunction =
+          Objects.requireNonNull(messageIdFunction, "messageIdFunction must not be null");
+      return this;
+    }
+
+    /**
+     * Sets the correlation id of each message to the value calculated by the given function.
+     *
+     * @param correlationIdFunction the function calculating the correlation id of an event
+     * @return the exchange binding
+     */
+    public ExchangeBinding<T> withCorrelationId(
+        Function<? super T, String> correlationIdFunction) {
+      this.correlationIdFunction =
+          Objects.requireNonNull(correlationIdFunction, "correlationIdFunction must not be null");
+      return this;
+    }
+
+    /**
+     * Sets the timestamp of each message to the time it is published.
+     *
+     * @return the exchange binding
+     */
+    public ExchangeBinding<T> withTimestamp() {
+      this.timestamp = true;
+      return this;
+    }
+
     /**
      * Sets a function to calculate dynamic properties
      *
@@ -714,6 +1275,169 @@ public abstract class EventBinder {
     }
 
 
+    /**
+     * Enables publisher confirms using a confirm timeout of 30 seconds.
+     *
+     * @return the exchange binding
+     * @see #withPublisherConfirms(long)
+     */
+    public ExchangeBinding<T> withPublisherConfirms() {
+      return withPublisherConfirms(DEFAULT_CONFIRM_TIMEOUT);
+    }
+
+    /**
+     * <p>
+     * Enables publisher confirms for all events published by this binding.
+     * </p>
+     *
+     * <p>
+     * Messages are published on channels in confirm mode and the publishing thread does not wait
+     * for the broker confirms. If the broker rejects a message or its confirm does not arrive
+     * within the given timeout, the error handler of this binding is called asynchronously.
+     * </p>
+     *
+     * @param timeout the maximum time in milliseconds to wait for a broker confirm
+     * @return the exchange binding
+     * @see <a href="https://www.rabbitmq.com/confirms.html#publisher-confirms">Publisher
+     *      Confirms</a>
+     */
+    public ExchangeBinding<T> withPublisherConfirms(long timeout) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("timeout must be greater than zero");
+      }
+      this.publisherConfirms = true;
+      this.confirmTimeout = timeout;
+      LOGGER.info("Publisher confirms enabled for event type {}", eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * <p>
+     * Publishes all events using the mandatory flag. The broker returns messages that cannot be
+     * routed to any queue instead of silently dropping them. Returned messages are reported to the
+     * error handler of this binding using a {@link MessageReturnedException} and are counted per
+     * exchange and routing key.
+     * </p>
+     *
+     * <p>
+     * Mandatory messages are published on channels in confirm mode in order to correlate returns
+     * with their events, the publishing thread does not wait for the broker.
+     * </p>
+     *
+     * @return the exchange binding
+     * @see EventBinder#getReturnedMessageCounts()
+     */
+    public ExchangeBinding<T> mandatory() {
+      this.mandatory = true;
+      LOGGER.info("Mandatory publishing enabled for event type {}", eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * Compresses published messages of at least {@link CompressingEncoder#DEFAULT_THRESHOLD} bytes
+     * using the given codec.
+     *
+     * @param codec The compression codec instance
+     * @return the exchange binding
+     * @see #withCompression(CompressionCodec, int)
+     */
+    public ExchangeBinding<T> withCompression(CompressionCodec codec) {
+      return withCompression(codec, CompressingEncoder.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * <p>
+     * Compresses published messages of at least the given size using the given codec. The content
+     * encoding of the codec is set on compressed messages, smaller messages are sent uncompressed.
+     * </p>
+     *
+     * <p>
+     * Compression is applied on top of the configured encoder.
+     * </p>
+     *
+     * @param codec The compression codec instance
+     * @param threshold The minimal message size in bytes for messages to be compressed
+     * @return the exchange binding
+     */
+    public ExchangeBinding<T> withCompression(CompressionCodec codec, int threshold) {
+      if (threshold < 0) {
+        throw new IllegalArgumentException("threshold must not be negative");
+      }
+      this.compressionCodec = Objects.requireNonNull(codec, "codec must not be null");
+      this.compressionThreshold = threshold;
+      LOGGER.info("Compression using {} above {} bytes enabled for event type {}",
+          codec.contentEncoding(), Integer.valueOf(threshold), eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * <p>
+     * Enables batching of the published events. Events are collected until either the given
+     * maximum number of events is reached or the oldest event waited for the given time window.
+     * The collected events are then published back-to-back on a single channel.
+     * </p>
+     *
+     * <p>
+     * Publishing an event only adds it to the current batch, errors are therefore reported
+     * asynchronously to the error handler of this binding. Combined with
+     * {@link #withPublisherConfirms()} a whole batch is usually confirmed by the broker at once.
+     * </p>
+     *
+     * @param maxMessages the maximum number of events per batch
+     * @param window the maximum time an event waits for its batch to be sent
+     * @param unit the time unit of the window
+     * @return the exchange binding
+     */
+    public ExchangeBinding<T> withBatching(int maxMessages, long window, TimeUnit unit) {
+      if (maxMessages <= 0) {
+        throw new IllegalArgumentException("maxMessages must be greater than zero");
+      }
+      if (window <= 0) {
+        throw new IllegalArgumentException("window must be greater than zero");
+      }
+      this.batchSize = maxMessages;
+      this.batchWindow = unit.toNanos(window);
+      LOGGER.info("Batching of {} events within {} {} enabled for event type {}",
+          Integer.valueOf(maxMessages), Long.valueOf(window), unit, eventType.getSimpleName());
+      return this;
+    }
+
+    /**
+     * Sets the retry policy used when sending an event failed. Retries are scheduled without
+     * blocking the publishing thread. If not set, {@link RetryPolicy#DEFAULT} is used.
+     *
+     * @param policy the retry policy
+     * @return the exchange binding
+     */
+    public ExchangeBinding<T> withRetryPolicy(RetryPolicy policy) {
+      this.retryPolicy = Objects.requireNonNull(policy, "policy must not be null");
+      LOGGER.info("Retry policy for event type {} set to {}", eventType.getSimpleName(), policy);
+      return this;
+    }
+
+    /**
+     * <p>
+     * Enables collecting all events of a JTA transaction in order to publish them together after
+     * the transaction has been committed successfully. The events are published back-to-back
+     * followed by a single wait for all broker confirms instead of publishing each event on its own
+     * as the after success observers are notified.
+     * </p>
+     *
+     * <p>
+     * This option requires the binding to be in the {@link TransactionPhase#AFTER_SUCCESS} phase
+     * and the {@code TransactionSynchronizationRegistry} to be available using JNDI. Events fired
+     * without an active transaction are published immediately as usual.
+     * </p>
+     *
+     * @return the exchange binding
+     * @see #inPhase(TransactionPhase)
+     */
+    public ExchangeBinding<T> withTransactionBatching() {
+      this.transactionBatching = true;
+      LOGGER.info("Transaction batching enabled for event type {}", eventType.getSimpleName());
+      return this;
+    }
+
     /**
      * Adds a queue declaration to this ExchangeBinding The declaration is automatically applied to
      * the consumer channel
@@ -774,6 +1498,11 @@ public abstract class EventBinder {
   }
 
   public final static class BinderConfiguration {
+    /**
+     * The maximum number of deliveries consumed concurrently on virtual threads by default.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_DELIVERIES = 256;
+
     private final ConnectionConfigHolder config;
 
     BinderConfiguration(ConnectionConfigHolder config) {
@@ -960,5 +1689,261 @@ public abstract class EventBinder {
       return this;
     }
 
+    /**
+     * Set the maximum number of idle publisher channels kept open per connection. Channels are
+     * reused for subsequent publish operations instead of opening a new channel for each event.
+     *
+     * @param poolSize the maximum number of pooled publisher channels
+     * @return the binder configuration object
+     */
+    public BinderConfiguration setPublisherChannelPoolSize(int poolSize) {
+      config.setPublisherChannelPoolSize(poolSize);
+      return this;
+    }
+
+    /**
+     * Set the directory used to spool published messages while no broker connection is
+     * available. Spooled messages are published in order as soon as the connection is
+     * established again. Spooling is disabled by default.
+     *
+     * @param spoolDirectory the spool directory or {@code null} to disable spooling
+     * @return the binder configuration object
+     */
+    public BinderConfiguration setPublisherSpoolDirectory(Path spoolDirectory) {
+      config.setPublisherSpoolDirectory(spoolDirectory);
+      return this;
+    }
+
+    /**
+     * Set the maximum size in bytes the publisher spool may use on disk. Messages published while
+     * the spool is full are handled as failed publish attempts.
+     *
+     * @param spoolSize the maximum spool size in bytes
+     * @return the binder configuration object
+     */
+    public BinderConfiguration setPublisherSpoolSize(long spoolSize) {
+      if (spoolSize <= 0) {
+        throw new IllegalArgumentException("spool size must be greater than zero");
+      }
+      config.setPublisherSpoolSize(spoolSize);
+      return this;
+    }
+
+    /**
+     * <p>
+     * Set the policy applied to events published while the broker blocks the connection because
+     * of a resource alarm or while the maximum number of messages in flight is reached. The
+     * default is {@link FlowControlPolicy#BLOCK}.
+     * </p>
+     *
+     * @param policy the flow control policy
+     * @return the binder configuration object
+     * @see #setPublisherInFlightLimit(int)
+     * @see #setPublisherFlowControlTimeout(long)
+     */
+    public BinderConfiguration setPublisherFlowControlPolicy(FlowControlPolicy policy) {
+      Objects.requireNonNull(policy, "policy must not be null");
+      config.setPublisherFlowControlPolicy(policy);
+      return this;
+    }
+
+    /**
+     * Set the maximum number of messages in flight per connection configuration, shared by all of
+     * its connections. A message is in flight until it is confirmed by the broker, or until it was
+     * sent if publisher confirms are not used. The number is not limited by default.
+     *
+     * @param inFlightLimit the maximum number of messages in flight or {@code 0} for no limit
+     * @return the binder configuration object
+     */
+    public BinderConfiguration setPublisherInFlightLimit(int inFlightLimit) {
+      if (inFlightLimit < 0) {
+        throw new IllegalArgumentException("inFlightLimit must not be negative");
+      }
+      config.setPublisherInFlightLimit(inFlightLimit);
+      return this;
+    }
+
+    /**
+     * Set the maximum time a publishing thread waits using {@link FlowControlPolicy#BLOCK} before
+     * the event is handed to the error handler. The default is 30 seconds.
+     *
+     * @param timeout the timeout in milliseconds
+     * @return the binder configuration object
+     */
+    public BinderConfiguration setPublisherFlowControlTimeout(long timeout) {
+      if (timeout < 0) {
+        throw new IllegalArgumentException("timeout must not be negative");
+      }
+      config.setPublisherFlowControlTimeout(timeout);
+      return this;
+    }
+
+    /**
+     * <p>
+     * Set the number of connections established to the broker. A single connection is served by
+     * a single I/O thread, which may limit the throughput of applications publishing or consuming
+     * a large number of messages. The default is one connection.
+     * </p>
+     *
+     * <p>
+     * Publisher and consumer channels are created on the connection having the least channels
+     * open. Each connection is reestablished independently of the others.
+     * </p>
+     *
+     * @param connectionCount the number of connections
+     * @return the binder configuration object
+     */
+    public BinderConfiguration setConnectionCount(int connectionCount) {
+      if (connectionCount < 1) {
+        throw new IllegalArgumentException("connectionCount must be at least 1");
+      }
+      config.setConnectionCount(connectionCount);
+      return this;
+    }
+
+    /**
+     * <p>
+     * Set whether events are published using connections separate from the ones used for
+     * consuming. The broker applies TCP back-pressure to connections publishing faster than it can
+     * handle, which would otherwise also slow down the delivery and acknowledgement of consumed
+     * messages. By default, the same connections are used.
+     * </p>
+     *
+     * <p>
+     * The separate connections are established and reestablished the same way as the consumer
+     * connections, using the same number of connections.
+     * </p>
+     *
+     * @param separate {@code true} to publish using separate connections
+     * @return the binder configuration object
+     * @see #setConnectionCount(int)
+     */
+    public BinderConfiguration setSeparatePublisherConnection(boolean separate) {
+      config.setSeparatePublisherConnection(separate);
+      return this;
+    }
+
+    /**
+     * <p>
+     * Use NIO with the default parameters for the connections to the broker.
+     * </p>
+     *
+     * @return the binder configuration object
+     * @see #useNio(NioParams)
+     */
+    public BinderConfiguration useNio() {
+      return useNio(new NioParams());
+    }
+
+    /**
+     * <p>
+     * Use NIO with the given parameters for the connections to the broker. By default, blocking
+     * I/O is used, where every connection needs a dedicated reader thread.
+     * </p>
+     *
+     * <p>
+     * In NIO mode all connections of this configuration are multiplexed over
+     * {@link NioParams#getNbIoThreads()} I/O threads, using the given read and write buffer
+     * sizes. Deployments using many configurations can share a fixed pool of I/O threads by
+     * passing parameters with the same {@link NioParams#getNioExecutor() NIO executor}, which
+     * then needs at least one thread per I/O thread of each configuration.
+     * </p>
+     *
+     * @param nioParams the NIO parameters
+     * @return the binder configuration object
+     */
+    public BinderConfiguration useNio(NioParams nioParams) {
+      config.setNioParams(Objects.requireNonNull(nioParams, "nioParams must not be null"));
+      return this;
+    }
+
+    /**
+     * <p>
+     * Set the executor used to dispatch deliveries to the consumers. By default, the consumer work
+     * pool of the client library is used, which is sized by the number of available processors.
+     * Deliveries of a channel are consumed one after the other, keeping their order.
+     * </p>
+     *
+     * <p>
+     * The executor is not shut down by the event binder.
+     * </p>
+     *
+     * @param executor the consumer dispatch executor
+     * @return the binder configuration object
+     */
+    public BinderConfiguration setConsumerExecutor(ExecutorService executor) {
+      config.setConsumerExecutor(Objects.requireNonNull(executor, "executor must not be null"));
+      config.setConsumerDeliveryExecutor(null);
+      config.setOwnedExecutor(null);
+      return this;
+    }
+
+    /**
+     * <p>
+     * Consume deliveries on virtual threads, allowing event observers doing blocking I/O to scale
+     * without occupying platform threads.
+     * </p>
+     *
+     * <p>
+     * If {@code ordered} is {@code true}, the deliveries of a channel are consumed one after the
+     * other in their order of arrival. Otherwise, each delivery is consumed on its own virtual
+     * thread and the number of deliveries consumed concurrently per queue binding is limited by its
+     * prefetch count, but never exceeds {@value #DEFAULT_MAX_CONCURRENT_DELIVERIES} for all
+     * connections of this configuration.
+     * </p>
+     *
+     * <p>
+     * The executor is shut down when the event binder stops.
+     * </p>
+     *
+     * @param ordered {@code true} to keep the order of the deliveries of a channel
+     * @return the binder configuration object
+     * @see QueueBinding#withPrefetchCount(int)
+     * @see #useVirtualThreadConsumers(int)
+     */
+    public BinderConfiguration useVirtualThreadConsumers(boolean ordered) {
+      if (!ordered) {
+        return useVirtualThreadConsumers(DEFAULT_MAX_CONCURRENT_DELIVERIES);
+      }
+      ExecutorService executor = newVirtualThreadExecutor();
+      config.setConsumerExecutor(executor);
+      config.setConsumerDeliveryExecutor(null);
+      return this;
+    }
+
+    /**
+     * <p>
+     * Consume each delivery on its own virtual thread, not keeping the order of the deliveries of
+     * a channel. Once the given number of deliveries are consumed concurrently for all connections
+     * of this configuration, further deliveries wait for one of them to complete. This also bounds
+     * the number of virtual threads for messages acknowledged automatically or without a prefetch
+     * count.
+     * </p>
+     *
+     * <p>
+     * The executor is shut down when the event binder stops.
+     * </p>
+     *
+     * @param maxConcurrentDeliveries the maximum number of deliveries consumed concurrently
+     * @return the binder configuration object
+     * @see #useVirtualThreadConsumers(boolean)
+     */
+    public BinderConfiguration useVirtualThreadConsumers(int maxConcurrentDeliveries) {
+      if (maxConcurrentDeliveries <= 0) {
+        throw new IllegalArgumentException("maxConcurrentDeliveries must be greater than zero");
+      }
+      ExecutorService executor = newVirtualThreadExecutor();
+      config.setConsumerExecutor(null);
+      config.setConsumerDeliveryExecutor(new BoundedExecutor(executor, maxConcurrentDeliveries));
+      return this;
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+      ExecutorService executor = Executors.newThreadPerTaskExecutor(
+          Thread.ofVirtual().name("rabbitmq-cdi-consumer-", 0).factory());
+      config.setOwnedExecutor(executor);
+      return executor;
+    }
+
   }
 }
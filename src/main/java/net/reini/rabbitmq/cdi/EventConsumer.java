@@ -24,8 +24,14 @@
 package net.reini.rabbitmq.cdi;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,11 +45,99 @@ class EventConsumer<T extends Object> implements EnvelopeConsumer {
   private final Class<T> eventType;
   private final Decoder<T> decoder;
   private final Event<Object> eventControl;
+  private final Map<String, CompressionCodec> compressionCodecs;
+  private final boolean asyncDelivery;
+  private final NotificationOptions notificationOptions;
+
+  private TypeLiteral<EventBatch<T>> batchType;
+  private int batchSize;
+  private long batchWindow;
 
   EventConsumer(Class<T> eventType, Decoder<T> decoder, Event<Object> eventControl) {
+    this(eventType, decoder, eventControl, DeflaterCodec.defaultCodecs());
+  }
+
+  /**
+   * @param compressionCodecs the codecs used to decompress messages by normalized content encoding
+   */
+  EventConsumer(Class<T> eventType, Decoder<T> decoder, Event<Object> eventControl,
+      Map<String, CompressionCodec> compressionCodecs) {
+    this(eventType, decoder, eventControl, compressionCodecs, false, null);
+  }
+
+  /**
+   * @param compressionCodecs the codecs used to decompress messages by normalized content encoding
+   * @param asyncDelivery {@code true} if events are fired asynchronously
+   * @param notificationOptions the options used to fire events asynchronously or {@code null} to
+   *        use the container defaults
+   */
+  EventConsumer(Class<T> eventType, Decoder<T> decoder, Event<Object> eventControl,
+      Map<String, CompressionCodec> compressionCodecs, boolean asyncDelivery,
+      NotificationOptions notificationOptions) {
     this.eventType = eventType;
     this.decoder = decoder;
     this.eventControl = eventControl;
+    this.compressionCodecs = compressionCodecs;
+    this.asyncDelivery = asyncDelivery;
+    this.notificationOptions = notificationOptions;
+  }
+
+  /**
+   * Enables the delivery of the events as {@link EventBatch} using {@link #fireEventBatch(List)}.
+   *
+   * @param batchType the type of the fired event batch
+   * @param batchSize the maximum number of events in a batch
+   * @param batchWindow the maximum time in nanoseconds an event waits for its batch to be fired
+   * @return the event consumer
+   */
+  EventConsumer<T> withBatching(TypeLiteral<EventBatch<T>> batchType, int batchSize,
+      long batchWindow) {
+    this.batchType = batchType;
+    this.batchSize = batchSize;
+    this.batchWindow = batchWindow;
+    return this;
+  }
+
+  /**
+   * @return the maximum number of events in a batch or {@code 0} if batching is disabled
+   */
+  int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return the maximum time in nanoseconds an event waits for its batch to be fired
+   */
+  long getBatchWindow() {
+    return batchWindow;
+  }
+
+  /**
+   * @return {@code true} if events are fired asynchronously using {@link #consumeAsync}
+   */
+  boolean isAsyncDelivery() {
+    return asyncDelivery;
+  }
+
+  /**
+   * Restores the original message body if the message has been compressed using one of the known
+   * compression codecs. Bodies having an unknown content encoding are passed to the decoder as is.
+   *
+   * @param contentEncoding the content encoding of the message or {@code null}
+   * @param messageBody the message body
+   * @return the decompressed message body
+   * @throws IOException if the message body could not be decompressed
+   */
+  byte[] decompress(String contentEncoding, byte[] messageBody) throws IOException {
+    if (contentEncoding == null) {
+      return messageBody;
+    }
+    CompressionCodec codec = compressionCodecs.get(DeflaterCodec.key(contentEncoding));
+    if (codec == null) {
+      LOGGER.debug("No compression codec found for content encoding: {}", contentEncoding);
+      return messageBody;
+    }
+    return codec.decompress(messageBody);
   }
 
   /**
@@ -75,17 +169,92 @@ class EventConsumer<T extends Object> implements EnvelopeConsumer {
     return false;
   }
 
+  /**
+   * Fires the given event to the asynchronous observers.
+   *
+   * @param event the event or {@code null} if the message could not be decoded
+   * @return the stage completed with {@code true} once all observers were notified successfully
+   */
+  CompletionStage<Boolean> fireEventAsync(T event) {
+    if (event != null) {
+      try {
+        Event<T> eventSink = eventControl.select(eventType);
+        CompletionStage<T> notification = notificationOptions == null
+            ? eventSink.fireAsync(event)
+            : eventSink.fireAsync(event, notificationOptions);
+        return notification.handle((result, error) -> {
+          if (error != null) {
+            LOGGER.error("Failed to fire event: {}", event, error);
+            return Boolean.FALSE;
+          }
+          LOGGER.trace("successfully fired event: {}", event);
+          return Boolean.TRUE;
+        });
+      } catch (Exception e) {
+        LOGGER.error("Failed to fire event: {}", event, e);
+      }
+    }
+    return CompletableFuture.completedFuture(Boolean.FALSE);
+  }
+
+  /**
+   * Fires the given events as a single {@link EventBatch}.
+   *
+   * @param events the decoded events
+   * @return {@code true} if all observers of the batch were notified successfully
+   */
+  boolean fireEventBatch(List<T> events) {
+    EventBatch<T> batch = new EventBatch<>(events);
+    try {
+      eventControl.select(batchType).fire(batch);
+      LOGGER.trace("successfully fired event batch: {}", batch);
+      return true;
+    } catch (Exception e) {
+      LOGGER.error("Failed to fire event batch: {}", batch, e);
+    }
+    return false;
+  }
+
   @Override
   public boolean consume(String consumerTag, Envelope envelope, BasicProperties properties,
       byte[] body) throws IOException {
     LOGGER.debug("Handle delivery: consumerTag: {}, envelope: {}, properties: {}", consumerTag,
         envelope, properties);
+    return fireEvent(decodeEvent(properties, body));
+  }
+
+  /**
+   * Decodes the message and fires the event to the asynchronous observers. The returned stage is
+   * completed once all observers were notified.
+   *
+   * @param consumerTag the consumer tag
+   * @param envelope the message envelope
+   * @param properties the message properties
+   * @param body the message body
+   * @return the stage completed with {@code true} if the message was consumed successfully
+   */
+  CompletionStage<Boolean> consumeAsync(String consumerTag, Envelope envelope,
+      BasicProperties properties, byte[] body) {
+    LOGGER.debug("Handle async delivery: consumerTag: {}, envelope: {}, properties: {}",
+        consumerTag, envelope, properties);
+    return fireEventAsync(decodeEvent(properties, body));
+  }
+
+  T decodeEvent(BasicProperties properties, byte[] body) {
     String contentType = properties.getContentType();
     if (decoder.willDecode(contentType)) {
-      return fireEvent(buildEvent(body));
+      byte[] messageBody;
+      try {
+        messageBody = decompress(properties.getContentEncoding(), body);
+      } catch (IOException e) {
+        LOGGER.error("Unable to decompress message with content encoding: {}",
+            properties.getContentEncoding(), e);
+        return null;
+      }
+      return buildEvent(messageBody);
     } else {
       LOGGER.error("Unable to process unknown message content type: {}", contentType);
-      return false;
+      return null;
     }
   }
 }
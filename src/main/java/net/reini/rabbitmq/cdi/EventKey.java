@@ -48,7 +48,7 @@ final class EventKey<T> {
 
   @Override
   public int hashCode() {
-    return type.hashCode();
+    return 31 * type.hashCode() + phase.hashCode();
   }
 
   @Override
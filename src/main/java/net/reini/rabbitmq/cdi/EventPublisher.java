@@ -29,8 +29,20 @@ import static jakarta.enterprise.event.TransactionPhase.AFTER_SUCCESS;
 import static jakarta.enterprise.event.TransactionPhase.BEFORE_COMPLETION;
 import static jakarta.enterprise.event.TransactionPhase.IN_PROGRESS;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.event.ObserverException;
@@ -42,6 +54,8 @@ import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.reini.rabbitmq.cdi.PublisherRoutingTable.Route;
+
 /**
  * Publishes events to exchanges of a broker.
  *
@@ -51,28 +65,59 @@ import org.slf4j.LoggerFactory;
 public class EventPublisher {
   private static final Logger LOGGER = LoggerFactory.getLogger(EventPublisher.class);
 
+  static final int PUBLISH_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
   private final ConnectionRepository connectionRepository;
-  private final Map<EventKey<?>, PublisherConfiguration<?>> publisherConfigurations;
-  private final ThreadLocal<Map<EventKey<Object>, MessagePublisher<Object>>> publishers;
+  private final Map<EventKey<Object>, MessagePublisher<Object>> publishers;
+  private final Function<EventKey<Object>, MessagePublisher<Object>> publisherFactory;
+  private final ExecutorService publishExecutor;
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService retryExecutor;
+  private final Function<Set<Object>, TransactionBatcher> transactionBatcherFactory;
+  private final Set<Object> batchedEvents;
+
+  private volatile PublisherRoutingTable routingTable;
+  private volatile TransactionBatcher transactionBatcher;
 
   @Inject
   public EventPublisher(ConnectionRepository connectionRepository) {
+    this(connectionRepository, JtaTransactionBatcher::createIfAvailable);
+  }
+
+  /**
+   * @param transactionBatcherFactory the factory of the transaction batcher, called once the first
+   *        event of a binding having transaction batching enabled is fired
+   */
+  EventPublisher(ConnectionRepository connectionRepository,
+      Function<Set<Object>, TransactionBatcher> transactionBatcherFactory) {
     this.connectionRepository = connectionRepository;
-    this.publisherConfigurations = new HashMap<>();
-    this.publishers = ThreadLocal.withInitial(HashMap::new);
+    this.transactionBatcherFactory = transactionBatcherFactory;
+    this.batchedEvents =
+        Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    this.publishers = new ConcurrentHashMap<>();
+    this.publisherFactory = this::createPublisher;
+    this.routingTable = PublisherRoutingTable.EMPTY;
+    this.publishExecutor = Executors.newFixedThreadPool(PUBLISH_THREADS,
+        new PublishThreadFactory("rabbitmq-cdi-publisher-"));
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(
+        new PublishThreadFactory("rabbitmq-cdi-publish-scheduler-"));
+    this.retryExecutor = Executors.newFixedThreadPool(GenericPublisher.RETRY_THREADS,
+        new PublishThreadFactory("rabbitmq-cdi-publish-retry-"));
   }
 
   /**
    * Adds events of the given type to the CDI events to which the event publisher listens in order
    * to publish them. The publisher configuration is used to decide where to and how to publish
-   * messages.
+   * messages. Events of sub types of the given type are published using the same configuration,
+   * unless a more specific type is bound as well.
    *
    * @param eventKey The event key
    * @param configuration The configuration used when publishing and event
    * @param <T> The event type
    */
-  public <T> void addEvent(EventKey<T> eventKey, PublisherConfiguration<T> configuration) {
-    publisherConfigurations.put(eventKey, configuration);
+  public synchronized <T> void addEvent(EventKey<T> eventKey,
+      PublisherConfiguration<T> configuration) {
+    routingTable = routingTable.with(eventKey, configuration);
   }
 
   /**
@@ -82,6 +127,7 @@ public class EventPublisher {
    */
   public void onEventInProgress(@Observes(during = IN_PROGRESS) Object event) {
     publishEvent(event, IN_PROGRESS);
+    batchEvent(event);
   }
 
   /**
@@ -118,24 +164,105 @@ public class EventPublisher {
    * @throws ObserverException if the event could not be delivered to RabbitMQ
    */
   public void onEventAfterSuccess(@Observes(during = AFTER_SUCCESS) Object event) {
-    publishEvent(event, AFTER_SUCCESS);
+    if (batchedEvents.remove(event)) {
+      LOGGER.trace("Event {} is published by its transaction batch", event);
+    } else {
+      publishEvent(event, AFTER_SUCCESS);
+    }
+  }
+
+  /**
+   * Publishes the given event asynchronously using the exchange binding of the
+   * {@link TransactionPhase#IN_PROGRESS} phase.
+   *
+   * @param event The event to publish
+   * @return the completion stage of the publishing
+   * @see #publishAsync(Object, TransactionPhase)
+   */
+  public CompletionStage<Void> publishAsync(Object event) {
+    return publishAsync(event, IN_PROGRESS);
+  }
+
+  /**
+   * <p>
+   * Publishes the given event asynchronously using the exchange binding of the given transaction
+   * phase. The calling thread only hands off the event, encoding, sending and retrying is done by
+   * the publisher threads.
+   * </p>
+   *
+   * <p>
+   * The returned stage completes as soon as the broker has confirmed the message, if publisher
+   * confirms are enabled for the binding, or as soon as the message has been sent otherwise. It
+   * completes exceptionally with a {@link PublishException} if the event could not be published.
+   * In this case the error handler of the binding is called as well.
+   * </p>
+   *
+   * @param event The event to publish
+   * @param transactionPhase The transaction phase of the binding to be used
+   * @return the completion stage of the publishing
+   */
+  public CompletionStage<Void> publishAsync(Object event, TransactionPhase transactionPhase) {
+    Route<Object> route = routingTable.resolve(event.getClass(), transactionPhase);
+    if (route == null) {
+      return CompletableFuture.failedFuture(
+          new PublishException("No publisher configured for event " + event, null));
+    }
+    try {
+      return CompletableFuture.supplyAsync(() -> doPublishAsync(event,
+          providePublisher(route.getEventKey(), transactionPhase), route.getConfiguration()),
+          publishExecutor).thenCompose(Function.identity());
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture
+          .failedFuture(new PublishException("Event publisher already shut down", e));
+    }
   }
 
   void publishEvent(Object event, TransactionPhase transactionPhase) {
-    @SuppressWarnings("unchecked")
-    EventKey<Object> eventKey =  (EventKey<Object>) EventKey.of(event.getClass(), transactionPhase);
-    @SuppressWarnings("unchecked")
-    PublisherConfiguration<Object> configuration = (PublisherConfiguration<Object>) publisherConfigurations.get(eventKey);
-    if (configuration == null) {
+    Route<Object> route = routingTable.resolve(event.getClass(), transactionPhase);
+    if (route == null) {
       LOGGER.trace("No publisher configured for event {}", event);
     } else {
-      doPublish(event, providePublisher(eventKey, transactionPhase), configuration);
+      doPublish(event, providePublisher(route.getEventKey(), transactionPhase),
+          route.getConfiguration());
     }
   }
 
+  /**
+   * Adds the given event to the batch of the current transaction, if it is bound to the
+   * {@link TransactionPhase#AFTER_SUCCESS} phase having transaction batching enabled.
+   *
+   * @param event The event to be batched
+   */
+  void batchEvent(Object event) {
+    Route<Object> route = routingTable.resolve(event.getClass(), AFTER_SUCCESS);
+    if (route == null || !route.getConfiguration().isTransactionBatching()) {
+      return;
+    }
+    transactionBatcher().add(event, providePublisher(route.getEventKey(), AFTER_SUCCESS),
+        route.getConfiguration());
+  }
+
+  private TransactionBatcher transactionBatcher() {
+    TransactionBatcher batcher = transactionBatcher;
+    if (batcher == null) {
+      synchronized (this) {
+        batcher = transactionBatcher;
+        if (batcher == null) {
+          batcher = transactionBatcherFactory.apply(batchedEvents);
+          transactionBatcher = batcher;
+        }
+      }
+    }
+    return batcher;
+  }
+
   @PreDestroy
   public void cleanUp() {
-    publishers.get().values().forEach(MessagePublisher::close);
+    publishers.values().forEach(MessagePublisher::close);
+    publishers.clear();
+    scheduler.shutdown();
+    retryExecutor.shutdown();
+    publishExecutor.shutdown();
   }
 
   <T> void doPublish(T event, MessagePublisher<T> publisher,
@@ -150,9 +277,22 @@ public class EventPublisher {
     }
   }
 
+  <T> CompletableFuture<Void> doPublishAsync(T event, MessagePublisher<T> publisher,
+      PublisherConfiguration<T> configuration) {
+    try {
+      LOGGER.debug("Start publishing event {} asynchronously ({})...", event, configuration);
+      return publisher.publishConfirmed(event, configuration).toCompletableFuture();
+    } catch (PublishException e) {
+      LOGGER.debug("Published event failed");
+      configuration.accept(event, e);
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   /**
-   * Provides a publisher with the specified reliability. Within the same thread, the same producer
-   * instance is provided for the given event type.
+   * Provides a publisher with the specified reliability. The same publisher instance is shared by
+   * all threads publishing the given event type. Publishers are only created for configured event
+   * types, the number of publishers is therefore bound by the number of exchange bindings.
    *
    * @param eventKey The event key
    * @param transactionPhase The actual transaction phase of the event
@@ -160,8 +300,31 @@ public class EventPublisher {
    */
   MessagePublisher<Object> providePublisher(EventKey<Object> eventKey,
       TransactionPhase transactionPhase) {
-    Map<EventKey<Object>, MessagePublisher<Object>> localPublishers = publishers.get();
-    return localPublishers.computeIfAbsent(eventKey,
-        key -> new GenericPublisher<>(connectionRepository));
+    return publishers.computeIfAbsent(eventKey, publisherFactory);
+  }
+
+  private MessagePublisher<Object> createPublisher(EventKey<Object> eventKey) {
+    PublisherConfiguration<?> configuration = routingTable.getConfiguration(eventKey);
+    if (configuration != null && configuration.isBatching()) {
+      return new BatchingPublisher<>(connectionRepository, scheduler, retryExecutor);
+    }
+    return new GenericPublisher<>(connectionRepository, scheduler, retryExecutor);
+  }
+
+  static final class PublishThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final AtomicInteger threadNumber;
+
+    PublishThreadFactory(String namePrefix) {
+      this.namePrefix = namePrefix;
+      this.threadNumber = new AtomicInteger();
+    }
+
+    @Override
+    public Thread newThread(Runnable task) {
+      Thread thread = new Thread(task, namePrefix + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
   }
 }
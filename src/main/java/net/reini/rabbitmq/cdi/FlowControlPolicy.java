@@ -0,0 +1,48 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+/**
+ * Defines how events are handled that are published while the broker blocks the connection or the
+ * maximum number of unconfirmed messages is reached.
+ *
+ * @author Patrick Reinhart
+ */
+public enum FlowControlPolicy {
+  /**
+   * The publishing thread waits until the message can be sent or the flow control timeout
+   * elapses. On timeout the error handler of the binding is called.
+   */
+  BLOCK,
+  /**
+   * The error handler of the binding is called immediately.
+   */
+  FAIL,
+  /**
+   * The message is appended to the publisher spool and published as soon as the connection is
+   * available again. If no spool is configured or the spool is full, the error handler of the
+   * binding is called immediately.
+   */
+  SPILL
+}
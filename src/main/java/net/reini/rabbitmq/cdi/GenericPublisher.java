@@ -25,35 +25,63 @@ package net.reini.rabbitmq.cdi;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.rabbitmq.client.Channel;
-
 public class GenericPublisher<T> implements MessagePublisher<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(GenericPublisher.class);
 
   public static final int DEFAULT_RETRY_ATTEMPTS = 3;
   public static final int DEFAULT_RETRY_INTERVAL = 1000;
-  private final DeclarerRepository declarerRepository;
+  static final int RETRY_THREADS = 2;
+
   private final ConnectionRepository connectionRepository;
+  private final ScheduledExecutorService retryScheduler;
+  private final Executor retryExecutor;
 
+  /**
+   * Creates a publisher retrying failed attempts using executors shared by all publishers created
+   * this way.
+   *
+   * @param connectionRepository the connection repository
+   */
   public GenericPublisher(ConnectionRepository connectionRepository) {
+    this(connectionRepository, DefaultRetryExecutors.SCHEDULER, DefaultRetryExecutors.EXECUTOR);
+  }
+
+  /**
+   * @param retryScheduler the scheduler only used to wait for the next attempt
+   * @param retryExecutor the executor running the retry attempts, keeping the blocking channel I/O
+   *        off the scheduler
+   */
+  GenericPublisher(ConnectionRepository connectionRepository,
+      ScheduledExecutorService retryScheduler, Executor retryExecutor) {
     this.connectionRepository = connectionRepository;
-    this.declarerRepository = new DeclarerRepository();
+    this.retryScheduler = retryScheduler;
+    this.retryExecutor = retryExecutor;
   }
 
   /**
-   * Handles an exception depending on the already used attempts to send a message. Also performs a
-   * soft reset of the currently used channel.
+   * Handles an exception depending on the already used attempts to send a message.
    *
    * @param attempt Current attempt count
    * @param cause The thrown exception
    *
    * @throws PublishException if the maximum amount of attempts is exceeded
+   * @deprecated failed attempts are retried asynchronously according to the
+   *             {@link RetryPolicy} of the publisher configuration, this method is no longer
+   *             called by the publisher
    */
+  @Deprecated
   protected void handleIoException(int attempt, Throwable cause) throws PublishException {
     if (attempt == DEFAULT_RETRY_ATTEMPTS) {
       throw new PublishException("Unable to send message after " + attempt + " attempts", cause);
@@ -61,6 +89,11 @@ public class GenericPublisher<T> implements MessagePublisher<T> {
     sleepBeforeRetry();
   }
 
+  /**
+   * @deprecated the delay between attempts is defined by the {@link RetryPolicy} of the publisher
+   *             configuration, this method is no longer called by the publisher
+   */
+  @Deprecated
   protected void sleepBeforeRetry() {
     try {
       Thread.sleep(DEFAULT_RETRY_INTERVAL);
@@ -69,25 +102,55 @@ public class GenericPublisher<T> implements MessagePublisher<T> {
     }
   }
 
+  /**
+   * Handles an exception depending on the already used attempts to send a message. If the retry
+   * policy allows further attempts, the next attempt is scheduled without blocking the current
+   * thread. Otherwise the error handler is called and the confirmation fails.
+   *
+   * @param event the event to be published
+   * @param publisherConfiguration the publisher configuration
+   * @param attempt current attempt count
+   * @param cause the thrown exception
+   * @param confirmation the confirmation of the event
+   */
+  void handleIoException(T event, PublisherConfiguration<T> publisherConfiguration, int attempt,
+      Throwable cause, CompletableFuture<Void> confirmation) {
+    RetryPolicy retryPolicy = publisherConfiguration.getRetryPolicy();
+    if (attempt >= retryPolicy.getAttempts()) {
+      fail(event, publisherConfiguration, confirmation,
+          new PublishException("Unable to send message after " + attempt + " attempts", cause));
+      return;
+    }
+    long delay = retryPolicy.getDelay(attempt);
+    LOGGER.debug("Attempt {} to send message failed, retrying in {} ms", Integer.valueOf(attempt),
+        Long.valueOf(TimeUnit.NANOSECONDS.toMillis(delay)));
+    scheduleRetry(event, publisherConfiguration, attempt + 1, confirmation, cause,
+        System.nanoTime(), delay, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Publishes the given event. The first attempt is done by the calling thread, failed attempts
+   * are retried asynchronously according to the retry policy of the configuration. If all attempts
+   * fail, the error handler of the configuration is called.
+   *
+   * @throws PublishException if the event could not be encoded
+   */
   @Override
   public void publish(T event, PublisherConfiguration<T> publisherConfiguration)
       throws PublishException {
-    for (int attempt = 1; attempt <= DEFAULT_RETRY_ATTEMPTS; attempt++) {
-      if (attempt > 1) {
-        LOGGER.debug("Attempt {} to send message", Integer.valueOf(attempt));
-      }
-      try (Channel channel =
-          connectionRepository.getConnection(publisherConfiguration.getConfig()).createChannel()) {
-        List<Declaration> declarations = publisherConfiguration.getDeclarations();
-        declarerRepository.declare(channel,declarations);
-        publisherConfiguration.publish(channel, event);
-        return;
-      } catch (EncodeException e) {
-        throw new PublishException("Unable to serialize event", e);
-      } catch (IOException | TimeoutException e) {
-        handleIoException(attempt, e);
-      }
+    publishConfirmed(event, publisherConfiguration);
+  }
+
+  @Override
+  public CompletableFuture<Void> publishConfirmed(T event,
+      PublisherConfiguration<T> publisherConfiguration) throws PublishException {
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    try {
+      attempt(event, publisherConfiguration, 1, confirmation, false, 0);
+    } catch (EncodeException e) {
+      throw new PublishException("Unable to serialize event", e);
     }
+    return confirmation;
   }
 
   /**
@@ -96,4 +159,195 @@ public class GenericPublisher<T> implements MessagePublisher<T> {
   @Override
   public void close() {
   }
+
+  /**
+   * Retries to publish the event on the retry executor. As the executor is shared, a flow control
+   * that does not permit publishing is checked again later instead of being waited for.
+   *
+   * @param waitingSince the {@link System#nanoTime()} the attempt started waiting for the flow
+   *        control
+   */
+  void retry(T event, PublisherConfiguration<T> publisherConfiguration, int attempt,
+      CompletableFuture<Void> confirmation, long waitingSince) {
+    LOGGER.debug("Attempt {} to send message", Integer.valueOf(attempt));
+    try {
+      attempt(event, publisherConfiguration, attempt, confirmation, true, waitingSince);
+    } catch (EncodeException e) {
+      fail(event, publisherConfiguration, confirmation,
+          new PublishException("Unable to serialize event", e));
+    }
+  }
+
+  private void attempt(T event, PublisherConfiguration<T> publisherConfiguration, int attempt,
+      CompletableFuture<Void> confirmation, boolean scheduled, long waitingSince)
+      throws EncodeException {
+    if (spool(connectionRepository, event, publisherConfiguration, confirmation)) {
+      return;
+    }
+    PublisherChannelPool channelPool =
+        connectionRepository.getChannelPool(publisherConfiguration.getConfig());
+    PublisherFlowControl flowControl = channelPool.getFlowControl();
+    if (scheduled ? !flowControl.tryAcquire() : !flowControl.acquire()) {
+      if (scheduled && flowControl.canAwait(waitingSince)) {
+        awaitFlowControl(event, publisherConfiguration, attempt, confirmation, waitingSince);
+      } else {
+        handleFlowControl(connectionRepository, event, publisherConfiguration, flowControl,
+            confirmation);
+      }
+      return;
+    }
+    PublisherChannel channel = null;
+    try {
+      channel = channelPool.borrowChannel(publisherConfiguration.isConfirmChannelRequired());
+      List<Declaration> declarations = publisherConfiguration.getDeclarations();
+      channelPool.getDeclarerRepository().declareOnce(channel.getChannel(), declarations);
+      publisherConfiguration.publish(channel, event).whenComplete((result, error) -> {
+        flowControl.release();
+        if (error == null) {
+          confirmation.complete(null);
+        } else {
+          confirmation.completeExceptionally(error);
+        }
+      });
+      channelPool.returnChannel(channel);
+    } catch (EncodeException e) {
+      flowControl.release();
+      channelPool.returnChannel(channel);
+      throw e;
+    } catch (IOException e) {
+      flowControl.release();
+      channelPool.discardChannel(channel);
+      handleIoException(event, publisherConfiguration, attempt, e, confirmation);
+    }
+  }
+
+  private void awaitFlowControl(T event, PublisherConfiguration<T> publisherConfiguration,
+      int attempt, CompletableFuture<Void> confirmation, long waitingSince) {
+    scheduleRetry(event, publisherConfiguration, attempt, confirmation, null, waitingSince,
+        PublisherFlowControl.RECHECK_INTERVAL, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Schedules the given attempt after the delay. The scheduler only hands the attempt over to the
+   * retry executor, as borrowing a channel and publishing may block.
+   */
+  private void scheduleRetry(T event, PublisherConfiguration<T> publisherConfiguration,
+      int attempt, CompletableFuture<Void> confirmation, Throwable cause, long waitingSince,
+      long delay, TimeUnit unit) {
+    Runnable retry =
+        () -> retry(event, publisherConfiguration, attempt, confirmation, waitingSince);
+    try {
+      retryScheduler.schedule(() -> {
+        try {
+          retryExecutor.execute(retry);
+        } catch (RejectedExecutionException e) {
+          fail(event, publisherConfiguration, confirmation,
+              new PublishException("Unable to execute attempt " + attempt, e));
+        }
+      }, delay, unit);
+    } catch (RejectedExecutionException e) {
+      fail(event, publisherConfiguration, confirmation, new PublishException(
+          "Unable to schedule attempt " + attempt, cause == null ? e : cause));
+    }
+  }
+
+  /**
+   * Handles an event that may not be published at the moment because the connection is blocked by
+   * the broker or too many messages are in flight.
+   */
+  static <T> void handleFlowControl(ConnectionRepository connectionRepository, T event,
+      PublisherConfiguration<T> publisherConfiguration, PublisherFlowControl flowControl,
+      CompletableFuture<Void> confirmation) throws EncodeException {
+    if (flowControl.getPolicy() == FlowControlPolicy.SPILL) {
+      PublisherSpool spool =
+          connectionRepository.getPublisherSpool(publisherConfiguration.getConfig());
+      try {
+        CompletableFuture<Void> replayed =
+            spool == null ? null : publisherConfiguration.spool(spool, event);
+        if (replayed != null) {
+          if (!flowControl.isBlocked()
+              && connectionRepository.isConnected(publisherConfiguration.getConfig())) {
+            // spooled due to the in-flight limit, resumed as soon as slots get released
+            spool.replayAsync();
+          }
+          confirmWhenReplayed(event, publisherConfiguration, replayed, confirmation);
+          return;
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Unable to spool message", e);
+      }
+    }
+    fail(event, publisherConfiguration, confirmation, new PublishException(
+        flowControl.isBlocked() ? "Connection blocked by broker" : "Too many messages in flight",
+        null));
+  }
+
+  /**
+   * Spools the event if a publisher spool is configured and either no connection is available or
+   * there are still spooled messages waiting, in order to keep the publishing order. The
+   * confirmation of a spooled event completes once it was replayed.
+   */
+  static <T> boolean spool(ConnectionRepository connectionRepository, T event,
+      PublisherConfiguration<T> publisherConfiguration, CompletableFuture<Void> confirmation)
+      throws EncodeException {
+    ConnectionConfig config = publisherConfiguration.getConfig();
+    PublisherSpool spool = connectionRepository.getPublisherSpool(config);
+    if (spool == null) {
+      return false;
+    }
+    boolean connected = connectionRepository.isConnected(config);
+    if (connected && spool.isEmpty()) {
+      return false;
+    }
+    CompletableFuture<Void> replayed;
+    try {
+      replayed = publisherConfiguration.spool(spool, event);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to spool message", e);
+      return false;
+    }
+    if (replayed == null) {
+      return false;
+    }
+    if (connected) {
+      spool.replayAsync();
+    }
+    confirmWhenReplayed(event, publisherConfiguration, replayed, confirmation);
+    return true;
+  }
+
+  /**
+   * Completes the confirmation once the spooled event was replayed, or calls the error handler if
+   * the spool gave up replaying it.
+   */
+  private static <T> void confirmWhenReplayed(T event,
+      PublisherConfiguration<T> publisherConfiguration, CompletableFuture<Void> replayed,
+      CompletableFuture<Void> confirmation) {
+    replayed.whenComplete((result, error) -> {
+      if (error == null) {
+        confirmation.complete(null);
+        return;
+      }
+      Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+      fail(event, publisherConfiguration, confirmation, cause instanceof PublishException
+          ? (PublishException) cause
+          : new PublishException("Unable to replay spooled message", cause));
+    });
+  }
+
+  static <T> void fail(T event, PublisherConfiguration<T> publisherConfiguration,
+      CompletableFuture<Void> confirmation, PublishException cause) {
+    publisherConfiguration.accept(event, cause);
+    confirmation.completeExceptionally(cause);
+  }
+
+  /**
+   * Executors used by publishers created without explicit executors, created on first use.
+   */
+  private static final class DefaultRetryExecutors {
+    static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        new EventPublisher.PublishThreadFactory("rabbitmq-cdi-retry-scheduler-"));
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(RETRY_THREADS,
+        new EventPublisher.PublishThreadFactory("rabbitmq-cdi-retry-"));
+  }
 }
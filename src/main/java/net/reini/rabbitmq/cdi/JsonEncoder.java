@@ -23,6 +23,8 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import java.io.IOException;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -32,7 +34,7 @@ import com.fasterxml.jackson.databind.SerializationFeature;
  * 
  * @author André Ignacio
  */
-public final class JsonEncoder<T> implements Encoder<T> {
+public final class JsonEncoder<T> implements BufferedEncoder<T> {
   private static final String CONTENT_TYPE = "application/json";
   private final ObjectMapper mapper;
 
@@ -49,6 +51,15 @@ public final class JsonEncoder<T> implements Encoder<T> {
     }
   }
 
+  @Override
+  public void encode(T object, EncodeBuffer buffer) throws EncodeException {
+    try {
+      mapper.writeValue(buffer, object);
+    } catch (IOException e) {
+      throw new EncodeException(e);
+    }
+  }
+
   @Override
   public String contentType() {
     return CONTENT_TYPE;
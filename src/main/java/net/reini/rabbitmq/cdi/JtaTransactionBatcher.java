@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batches events using the {@link TransactionSynchronizationRegistry} looked up once from JNDI.
+ * This class must only be loaded if JTA is available.
+ *
+ * @author Patrick Reinhart
+ */
+final class JtaTransactionBatcher implements TransactionBatcher {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JtaTransactionBatcher.class);
+
+  static final String TRANSACTION_REGISTRY_NAME = "java:comp/TransactionSynchronizationRegistry";
+  static final String TRANSACTION_REGISTRY_CLASS =
+      "jakarta.transaction.TransactionSynchronizationRegistry";
+
+  private static final Object TRANSACTION_BATCH_KEY = TransactionBatch.class;
+
+  private final Supplier<TransactionSynchronizationRegistry> transactionRegistry;
+  private final Set<Object> batchedEvents;
+
+  /**
+   * @param batchedEvents the events batched by any active transaction
+   */
+  JtaTransactionBatcher(Set<Object> batchedEvents) {
+    this(new TransactionRegistryLookup(), batchedEvents);
+  }
+
+  JtaTransactionBatcher(Supplier<TransactionSynchronizationRegistry> transactionRegistry,
+      Set<Object> batchedEvents) {
+    this.transactionRegistry = transactionRegistry;
+    this.batchedEvents = batchedEvents;
+  }
+
+  /**
+   * Creates the JTA based batcher if JTA is available, without loading any JTA class otherwise.
+   *
+   * @param batchedEvents the events batched by any active transaction
+   * @return the transaction batcher or {@link TransactionBatcher#NONE}
+   */
+  static TransactionBatcher createIfAvailable(Set<Object> batchedEvents) {
+    try {
+      Class.forName(TRANSACTION_REGISTRY_CLASS, false,
+          JtaTransactionBatcher.class.getClassLoader());
+      return new JtaTransactionBatcher(batchedEvents);
+    } catch (ClassNotFoundException | LinkageError e) {
+      LOGGER.info("JTA not available, transaction batching disabled");
+      return NONE;
+    }
+  }
+
+  @Override
+  public boolean add(Object event, MessagePublisher<Object> publisher,
+      PublisherConfiguration<Object> configuration) {
+    TransactionSynchronizationRegistry registry = transactionRegistry.get();
+    if (registry == null || registry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+      return false;
+    }
+    TransactionBatch batch = (TransactionBatch) registry.getResource(TRANSACTION_BATCH_KEY);
+    if (batch == null) {
+      batch = new TransactionBatch(batchedEvents);
+      registry.putResource(TRANSACTION_BATCH_KEY, batch);
+      registry.registerInterposedSynchronization(batch);
+    }
+    batch.add(event, publisher, configuration);
+    return true;
+  }
+
+  static final class TransactionRegistryLookup
+      implements Supplier<TransactionSynchronizationRegistry> {
+    private volatile boolean resolved;
+    private volatile TransactionSynchronizationRegistry registry;
+
+    @Override
+    public TransactionSynchronizationRegistry get() {
+      if (!resolved) {
+        synchronized (this) {
+          if (!resolved) {
+            registry = lookup();
+            resolved = true;
+          }
+        }
+      }
+      return registry;
+    }
+
+    private static TransactionSynchronizationRegistry lookup() {
+      try {
+        return (TransactionSynchronizationRegistry) new InitialContext()
+            .lookup(TRANSACTION_REGISTRY_NAME);
+      } catch (NamingException | LinkageError e) {
+        LOGGER.warn("Transaction registry not available, transaction batching disabled", e);
+        return null;
+      }
+    }
+  }
+}
@@ -23,6 +23,9 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 public interface MessagePublisher<T> {
 
   /**
@@ -35,6 +38,22 @@ public interface MessagePublisher<T> {
   void publish(T event, PublisherConfiguration<T> publisherConfiguration)
       throws PublishException;
 
+  /**
+   * Publishes the given event using the given publisher configuration template and returns the
+   * broker confirmation of the message. Without publisher confirms the returned confirmation is
+   * completed as soon as the message has been sent.
+   *
+   * @param event the event being published to RabbitMQ
+   * @param publisherConfiguration the default publisher configuration
+   * @return the confirmation of the published message
+   * @throws PublishException if the event could not be delivered to RabbitMQ
+   */
+  default CompletionStage<Void> publishConfirmed(T event,
+      PublisherConfiguration<T> publisherConfiguration) throws PublishException {
+    publish(event, publisherConfiguration);
+    return CompletableFuture.completedFuture(null);
+  }
+
   /**
    * Closes the publisher by closing its underlying channel.
    */
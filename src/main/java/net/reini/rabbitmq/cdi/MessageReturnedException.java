@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+/**
+ * Signals that a message published using the mandatory flag could not be routed to any queue and
+ * was returned by the broker.
+ *
+ * @author Patrick Reinhart
+ */
+public class MessageReturnedException extends PublishException {
+  private static final long serialVersionUID = 1L;
+
+  private final int replyCode;
+  private final String replyText;
+  private final String exchange;
+  private final String routingKey;
+
+  public MessageReturnedException(int replyCode, String replyText, String exchange,
+      String routingKey) {
+    super(String.format("Message returned by the broker: %d %s (exchange: '%s', routing key: '%s')",
+        Integer.valueOf(replyCode), replyText, exchange, routingKey), null);
+    this.replyCode = replyCode;
+    this.replyText = replyText;
+    this.exchange = exchange;
+    this.routingKey = routingKey;
+  }
+
+  /**
+   * @return the AMQP reply code, such as {@code 312} for {@code NO_ROUTE}
+   */
+  public int getReplyCode() {
+    return replyCode;
+  }
+
+  /**
+   * @return the reply text given by the broker
+   */
+  public String getReplyText() {
+    return replyText;
+  }
+
+  /**
+   * @return the exchange the message was published to
+   */
+  public String getExchange() {
+    return exchange;
+  }
+
+  /**
+   * @return the routing key used to publish the message
+   */
+  public String getRoutingKey() {
+    return routingKey;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adjusts the prefetch count of the consumers of a queue to the bandwidth-delay product of their
+ * channel, bounded by a minimum and a maximum prefetch count. The tuner is run periodically, each
+ * run uses the messages consumed since the previous run.
+ *
+ * <p>
+ * While a message is consumed, its acknowledgement and the next delivery need one network round
+ * trip. To keep a consumer busy, the number of unacknowledged messages therefore needs to cover
+ * its average number of messages being consumed concurrently for the duration of consuming a
+ * message plus the round trip time. The round trip time is measured using the synchronous
+ * {@code basicQos} request, which is issued when the consumer is activated and re-issued only if
+ * the prefetch count changes, so that a run keeping the prefetch count sends no request.
+ * </p>
+ *
+ * <p>
+ * The tuned consumers apply their prefetch count to their whole channel, as the broker does not
+ * change the per-consumer prefetch count of a running consumer.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class PrefetchTuner implements Runnable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchTuner.class);
+
+  static final long CHECK_INTERVAL = 1_000;
+
+  private final List<ConsumerHolder> consumerHolders;
+  private final int minPrefetchCount;
+  private final int maxPrefetchCount;
+  private final long[] processedCounts;
+  private final long[] processingTimes;
+
+  /**
+   * @param consumerHolders the consumer holders of the same queue
+   * @param minPrefetchCount the minimum prefetch count
+   * @param maxPrefetchCount the maximum prefetch count
+   */
+  PrefetchTuner(List<ConsumerHolder> consumerHolders, int minPrefetchCount,
+      int maxPrefetchCount) {
+    this.consumerHolders = consumerHolders;
+    this.minPrefetchCount = minPrefetchCount;
+    this.maxPrefetchCount = maxPrefetchCount;
+    this.processedCounts = new long[consumerHolders.size()];
+    this.processingTimes = new long[consumerHolders.size()];
+    consumerHolders.forEach(holder -> holder.setAdaptivePrefetch(true));
+  }
+
+  @Override
+  public void run() {
+    for (int i = 0; i < consumerHolders.size(); i++) {
+      ConsumerHolder consumerHolder = consumerHolders.get(i);
+      long processedCount = consumerHolder.getProcessedCount();
+      long processingTime = consumerHolder.getProcessingTime();
+      long processed = processedCount - processedCounts[i];
+      long elapsed = processingTime - processingTimes[i];
+      processedCounts[i] = processedCount;
+      processingTimes[i] = processingTime;
+      if (processed > 0 && consumerHolder.isActive()) {
+        tune(consumerHolder, processed, elapsed);
+      }
+    }
+  }
+
+  /**
+   * @param consumerHolder the consumer holder
+   * @param processed the number of messages consumed since the previous run
+   * @param processingTime the total time in nanoseconds spent consuming these messages
+   * @return the prefetch count covering the bandwidth-delay product of the consumer
+   */
+  int targetPrefetchCount(ConsumerHolder consumerHolder, long processed, long processingTime) {
+    double averageProcessingTime = Math.max(1.0, (double) processingTime / processed);
+    double concurrency =
+        Math.max(1.0, processingTime / (double) TimeUnit.MILLISECONDS.toNanos(CHECK_INTERVAL));
+    double inFlight = concurrency
+        * (1.0 + consumerHolder.getRoundTripTime() / averageProcessingTime);
+    long target = (long) Math.ceil(inFlight);
+    return (int) Math.max(minPrefetchCount, Math.min(maxPrefetchCount, target));
+  }
+
+  private void tune(ConsumerHolder consumerHolder, long processed, long processingTime) {
+    int prefetchCount = targetPrefetchCount(consumerHolder, processed, processingTime);
+    if (prefetchCount == consumerHolder.getPrefetchCount()) {
+      return;
+    }
+    LOGGER.debug("Adjusting prefetch count of consumer of queue {} from {} to {}",
+        consumerHolder.getQueueName(), Integer.valueOf(consumerHolder.getPrefetchCount()),
+        Integer.valueOf(prefetchCount));
+    try {
+      consumerHolder.updatePrefetchCount(prefetchCount);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Unable to update prefetch count of consumer of queue {}",
+          consumerHolder.getQueueName(), e);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+/**
+ * A channel handed out by the {@link PublisherChannelPool}. Besides the actual channel it remembers
+ * the generation of its connection it was created in, so that channels of an outdated connection
+ * are never returned to the pool.
+ *
+ * @author Patrick Reinhart
+ */
+final class PublisherChannel implements AutoCloseable {
+  private static final CompletableFuture<Void> UNCONFIRMED = CompletableFuture.completedFuture(null);
+
+  private final Channel channel;
+  private final long generation;
+  private final EncodeBuffer encodeBuffer;
+  private final ReturnedMessageCounter returnedMessages;
+
+  private PublisherConfirmListener confirmListener;
+
+  PublisherChannel(Channel channel, long generation) {
+    this(channel, generation, new ReturnedMessageCounter());
+  }
+
+  PublisherChannel(Channel channel, long generation, ReturnedMessageCounter returnedMessages) {
+    this.channel = channel;
+    this.generation = generation;
+    this.returnedMessages = returnedMessages;
+    this.encodeBuffer = new EncodeBuffer();
+  }
+
+  /**
+   * Returns the encode buffer of this channel. The buffer is used by the thread currently having
+   * borrowed this channel only.
+   *
+   * @return the empty encode buffer
+   */
+  EncodeBuffer getEncodeBuffer() {
+    encodeBuffer.reset();
+    return encodeBuffer;
+  }
+
+  /**
+   * @return the underlying broker channel
+   */
+  Channel getChannel() {
+    return channel;
+  }
+
+  /**
+   * @return the connection of the underlying broker channel
+   */
+  Connection getConnection() {
+    return channel.getConnection();
+  }
+
+  /**
+   * @return the generation of the connection this channel was created in
+   */
+  long getGeneration() {
+    return generation;
+  }
+
+  boolean isOpen() {
+    return channel.isOpen();
+  }
+
+  /**
+   * @return {@code true} if publisher confirms are enabled on this channel, {@code false} otherwise
+   */
+  boolean isConfirmMode() {
+    return confirmListener != null;
+  }
+
+  /**
+   * Puts the channel into confirm mode, if not already done.
+   *
+   * @throws IOException if the channel could not be put into confirm mode
+   */
+  void enablePublisherConfirms() throws IOException {
+    if (confirmListener == null) {
+      channel.confirmSelect();
+      PublisherConfirmListener listener = new PublisherConfirmListener(returnedMessages);
+      channel.addConfirmListener(listener);
+      channel.addReturnListener(listener);
+      confirmListener = listener;
+    }
+  }
+
+  /**
+   * Publishes a message. If the channel is in confirm mode, the returned confirmation completes as
+   * soon as the broker confirmed the message, otherwise an already completed confirmation is
+   * returned.
+   *
+   * @param exchange the exchange to publish the message to
+   * @param routingKey the routing key
+   * @param properties the message properties
+   * @param body the message body
+   * @param confirmTimeout the maximum time in milliseconds to wait for the broker confirm
+   * @return the confirmation of the message
+   * @throws IOException if the message could not be sent
+   */
+  CompletableFuture<Void> publish(String exchange, String routingKey, BasicProperties properties,
+      byte[] body, long confirmTimeout) throws IOException {
+    return publish(exchange, routingKey, false, properties, body, confirmTimeout);
+  }
+
+  /**
+   * Publishes a message. If the channel is in confirm mode, the returned confirmation completes as
+   * soon as the broker confirmed the message, otherwise an already completed confirmation is
+   * returned. A mandatory message returned by the broker fails the confirmation using a
+   * {@link MessageReturnedException}, if the channel is in confirm mode.
+   *
+   * @param exchange the exchange to publish the message to
+   * @param routingKey the routing key
+   * @param mandatory {@code true} if the broker has to return the message if unroutable
+   * @param properties the message properties
+   * @param body the message body
+   * @param confirmTimeout the maximum time in milliseconds to wait for the broker confirm
+   * @return the confirmation of the message
+   * @throws IOException if the message could not be sent
+   */
+  CompletableFuture<Void> publish(String exchange, String routingKey, boolean mandatory,
+      BasicProperties properties, byte[] body, long confirmTimeout) throws IOException {
+    if (confirmListener == null) {
+      if (mandatory) {
+        channel.basicPublish(exchange, routingKey, true, properties, body);
+      } else {
+        channel.basicPublish(exchange, routingKey, properties, body);
+      }
+      return UNCONFIRMED;
+    }
+    long sequenceNumber = channel.getNextPublishSeqNo();
+    CompletableFuture<Void> confirmation = mandatory
+        ? confirmListener.registerMandatory(sequenceNumber, confirmTimeout, exchange, routingKey,
+            properties)
+        : confirmListener.register(sequenceNumber, confirmTimeout);
+    try {
+      if (mandatory) {
+        channel.basicPublish(exchange, routingKey, true, properties, body);
+      } else {
+        channel.basicPublish(exchange, routingKey, properties, body);
+      }
+    } catch (IOException | RuntimeException e) {
+      confirmListener.cancel(sequenceNumber);
+      throw e;
+    }
+    return confirmation;
+  }
+
+  @Override
+  public void close() throws IOException, TimeoutException {
+    try {
+      channel.close();
+    } finally {
+      if (confirmListener != null) {
+        confirmListener
+            .failAll(new PublishException("Channel closed before the broker confirm arrived", null));
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PublisherChannel[channel=%s, generation=%d]", channel,
+        Long.valueOf(generation));
+  }
+}
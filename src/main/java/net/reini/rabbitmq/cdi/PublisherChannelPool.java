@@ -0,0 +1,265 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+/**
+ * Bounded pool of publisher channels for one connection configuration.
+ *
+ * <p>
+ * Channels are checked out for a single publish operation and returned afterwards, so that steady
+ * state publishing does not need to open and close a channel for every message.
+ * </p>
+ *
+ * <p>
+ * The pool serves all connections of the configuration. Each channel remembers the generation of
+ * its connection, which changes whenever the connection is established or lost. Only the pooled
+ * channels of that connection are discarded then, the channels of the other connections are kept.
+ * The pool is closed once all connections of the configuration are closed.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class PublisherChannelPool implements ConnectionListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PublisherChannelPool.class);
+
+  private final ConnectionRepository connectionRepository;
+  private final ConnectionConfig config;
+  private final BlockingQueue<PublisherChannel> idleChannels;
+  private final BlockingQueue<PublisherChannel> idleConfirmChannels;
+  private final Map<Connection, Long> generations;
+  private final int connectionCount;
+  private final AtomicInteger closedConnections;
+  private final ResourceCloser resourceCloser;
+  private final DeclarerRepository declarerRepository;
+  private final PublisherFlowControl flowControl;
+  private final ReturnedMessageCounter returnedMessages;
+
+  private volatile boolean closed;
+  private long nextGeneration;
+
+  PublisherChannelPool(ConnectionRepository connectionRepository, ConnectionConfig config) {
+    this.connectionRepository = connectionRepository;
+    this.config = config;
+    int poolSize = Math.max(1, config.getPublisherChannelPoolSize());
+    this.idleChannels = new ArrayBlockingQueue<>(poolSize);
+    this.idleConfirmChannels = new ArrayBlockingQueue<>(poolSize);
+    this.generations = new HashMap<>();
+    this.connectionCount = Math.max(1, config.getConnectionCount());
+    this.closedConnections = new AtomicInteger();
+    this.resourceCloser = new ResourceCloser();
+    this.declarerRepository = new DeclarerRepository();
+    this.flowControl = new PublisherFlowControl(config);
+    this.returnedMessages = new ReturnedMessageCounter();
+  }
+
+  /**
+   * @return the declarer repository remembering the declarations applied on the pooled channels
+   */
+  DeclarerRepository getDeclarerRepository() {
+    return declarerRepository;
+  }
+
+  /**
+   * @return the flow control of the publishers using this pool
+   */
+  PublisherFlowControl getFlowControl() {
+    return flowControl;
+  }
+
+  /**
+   * @return the counter of the mandatory messages returned by the broker
+   */
+  ReturnedMessageCounter getReturnedMessages() {
+    return returnedMessages;
+  }
+
+  /**
+   * Checks out a channel from the pool. A new channel is created if no idle channel is available.
+   *
+   * @param publisherConfirms {@code true} if a channel in confirm mode is required
+   * @return an open publisher channel
+   * @throws IOException if no connection is available or the channel creation fails
+   */
+  PublisherChannel borrowChannel(boolean publisherConfirms) throws IOException {
+    if (closed) {
+      throw new IOException("Attempt to retrieve a channel from a closed channel pool");
+    }
+    BlockingQueue<PublisherChannel> idle = publisherConfirms ? idleConfirmChannels : idleChannels;
+    PublisherChannel channel;
+    while ((channel = idle.poll()) != null) {
+      if (isReusable(channel)) {
+        return channel;
+      }
+      discardChannel(channel);
+    }
+    LOGGER.debug("Creating publisher channel (confirms: {})", Boolean.valueOf(publisherConfirms));
+    Channel brokerChannel = connectionRepository.createChannel(config);
+    channel = new PublisherChannel(brokerChannel, generationOf(brokerChannel.getConnection()),
+        returnedMessages);
+    if (publisherConfirms) {
+      try {
+        channel.enablePublisherConfirms();
+      } catch (IOException e) {
+        discardChannel(channel);
+        throw e;
+      }
+    }
+    return channel;
+  }
+
+  /**
+   * Returns a previously borrowed channel to the pool. The channel gets closed instead, if it
+   * belongs to an outdated connection or the pool is already full.
+   *
+   * @param channel the channel to be returned
+   */
+  void returnChannel(PublisherChannel channel) {
+    if (channel != null && (!isReusable(channel) || !idleQueueOf(channel).offer(channel))) {
+      discardChannel(channel);
+    }
+  }
+
+  /**
+   * Closes the given channel without returning it to the pool. This is used for channels that
+   * failed during a publish operation and may therefore be in an undefined state.
+   *
+   * @param channel the channel to be discarded
+   */
+  void discardChannel(PublisherChannel channel) {
+    if (channel != null) {
+      LOGGER.debug("Discarding publisher channel {}", channel);
+      resourceCloser.closeResource(channel, "Unable to close publisher channel");
+    }
+  }
+
+  /**
+   * Closes the idle channels of the given connection and marks its currently borrowed channels as
+   * outdated.
+   *
+   * @param connection the connection or {@code null} for all connections
+   */
+  void invalidate(Connection connection) {
+    synchronized (generations) {
+      if (connection == null) {
+        generations.clear();
+      } else {
+        generations.remove(connection);
+      }
+    }
+    discardAll(idleChannels, connection);
+    discardAll(idleConfirmChannels, connection);
+  }
+
+  /**
+   * Closes the pool and all of its idle channels.
+   */
+  void close() {
+    closed = true;
+    invalidate(null);
+  }
+
+  int getIdleCount() {
+    return idleChannels.size() + idleConfirmChannels.size();
+  }
+
+  @Override
+  public void onConnectionEstablished(Connection connection) {
+    LOGGER.debug("Connection established, invalidating its publisher channels of {}", config);
+    invalidate(connection);
+    declarerRepository.onConnectionEstablished(connection);
+    flowControl.onConnectionEstablished(connection);
+  }
+
+  @Override
+  public void onConnectionLost(Connection connection) {
+    LOGGER.debug("Connection lost, invalidating its publisher channels of {}", config);
+    invalidate(connection);
+    declarerRepository.onConnectionLost(connection);
+    flowControl.onConnectionLost(connection);
+  }
+
+  @Override
+  public void onConnectionClosed(Connection connection) {
+    if (closedConnections.incrementAndGet() >= connectionCount) {
+      close();
+    }
+    declarerRepository.onConnectionClosed(connection);
+    flowControl.onConnectionClosed(connection);
+  }
+
+  @Override
+  public void onConnectionBlocked(Connection connection, String reason) {
+    flowControl.onConnectionBlocked(connection, reason);
+  }
+
+  @Override
+  public void onConnectionUnblocked(Connection connection) {
+    flowControl.onConnectionUnblocked(connection);
+  }
+
+  private BlockingQueue<PublisherChannel> idleQueueOf(PublisherChannel channel) {
+    return channel.isConfirmMode() ? idleConfirmChannels : idleChannels;
+  }
+
+  private void discardAll(BlockingQueue<PublisherChannel> idle, Connection connection) {
+    for (PublisherChannel channel : idle) {
+      if ((connection == null || channel.getConnection() == connection) && idle.remove(channel)) {
+        discardChannel(channel);
+      }
+    }
+  }
+
+  /**
+   * @return the current generation of the given connection
+   */
+  private long generationOf(Connection connection) {
+    synchronized (generations) {
+      return generations.computeIfAbsent(connection, key -> Long.valueOf(nextGeneration++))
+          .longValue();
+    }
+  }
+
+  private boolean isReusable(PublisherChannel channel) {
+    if (closed || !channel.isOpen()) {
+      return false;
+    }
+    synchronized (generations) {
+      Long current = generations.get(channel.getConnection());
+      return current != null && current.longValue() == channel.getGeneration();
+    }
+  }
+}
@@ -24,13 +24,15 @@
 package net.reini.rabbitmq.cdi;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.AMQP.BasicProperties.Builder;
-import com.rabbitmq.client.Channel;
 
 /**
  * A publisher configuration stores all important settings and options used for publishing and
@@ -39,22 +41,32 @@ import com.rabbitmq.client.Channel;
  * @author Patrick Reinhart
  */
 final class PublisherConfiguration<T> implements BiConsumer<T, PublishException> {
+  static final long DEFAULT_RETURN_TIMEOUT = 30_000;
+
   private final ConnectionConfig config;
-  private final BasicProperties basicProperties;
   private final Encoder<T> messageEncoder;
-  private final String exchange;
-  private final Function<T, String> routingKeyFunction;
+  private final List<Destination<T>> destinations;
   private final BiConsumer<T, PublishException> errorHandler;
   private final List<Declaration> declarations;
   private final BasicPropertiesCalculator<T> basicPropertiesCalculator;
 
+  private BasicPropertiesTemplate<T> propertiesTemplate;
+
+  private boolean publisherConfirms;
+  private boolean mandatory;
+  private long confirmTimeout;
+  private int batchSize;
+  private long batchWindow;
+  private RetryPolicy retryPolicy;
+  private boolean transactionBatching;
+
   PublisherConfiguration(ConnectionConfig config, String exchange,
       Function<T, String> routingKeyFunction,
       Builder basicPropertiesBuilder, BasicPropertiesCalculator<T> basicPropertiesCalculator, Encoder<T> encoder,
       BiConsumer<T, PublishException> errorHandler, List<Declaration> declarations) {
     this.config = config;
-    this.exchange = exchange;
-    this.routingKeyFunction = routingKeyFunction;
+    this.destinations = new ArrayList<>(1);
+    this.destinations.add(new Destination<>(exchange, routingKeyFunction));
     this.messageEncoder = encoder;
     this.errorHandler = errorHandler;
     this.declarations = declarations;
@@ -62,8 +74,9 @@ final class PublisherConfiguration<T> implements BiConsumer<T, PublishException>
     if (contentType != null) {
       basicPropertiesBuilder.contentType(contentType);
     }
-    basicProperties = basicPropertiesBuilder.build();
+    propertiesTemplate = new BasicPropertiesTemplate<>(basicPropertiesBuilder.build());
     this.basicPropertiesCalculator = basicPropertiesCalculator;
+    this.retryPolicy = RetryPolicy.DEFAULT;
   }
 
   /**
@@ -77,22 +90,331 @@ final class PublisherConfiguration<T> implements BiConsumer<T, PublishException>
     return declarations;
   }
 
+  /**
+   * Adds a further destination the events are published to. The event is encoded once and the
+   * same message is published to all destinations on the same channel.
+   *
+   * @param destination the exchange and routing key function
+   * @return this publisher configuration
+   */
+  PublisherConfiguration<T> withDestination(Destination<T> destination) {
+    destinations.add(destination);
+    return this;
+  }
+
+  List<Destination<T>> getDestinations() {
+    return destinations;
+  }
+
+  /**
+   * Enables publisher confirms for all events published using this configuration.
+   *
+   * @param timeout the maximum time in milliseconds to wait for a broker confirm
+   * @return this publisher configuration
+   */
+  PublisherConfiguration<T> withPublisherConfirms(long timeout) {
+    this.publisherConfirms = true;
+    this.confirmTimeout = timeout;
+    return this;
+  }
+
+  /**
+   * @return {@code true} if events are published using publisher confirms
+   */
+  boolean isPublisherConfirms() {
+    return publisherConfirms;
+  }
+
+  /**
+   * Enables publishing using the mandatory flag. Mandatory messages are published on channels in
+   * confirm mode in order to correlate returned messages with their events.
+   *
+   * @return this publisher configuration
+   */
+  PublisherConfiguration<T> withMandatory() {
+    this.mandatory = true;
+    if (confirmTimeout <= 0) {
+      confirmTimeout = DEFAULT_RETURN_TIMEOUT;
+    }
+    return this;
+  }
+
+  /**
+   * @return {@code true} if events are published using the mandatory flag
+   */
+  boolean isMandatory() {
+    return mandatory;
+  }
+
+  /**
+   * @return {@code true} if a channel in confirm mode is required for publishing
+   */
+  boolean isConfirmChannelRequired() {
+    return publisherConfirms || mandatory;
+  }
+
+  /**
+   * Enables batching of the events published using this configuration.
+   *
+   * @param size the maximum number of events per batch
+   * @param window the maximum time in nanoseconds an event waits for its batch to be sent
+   * @return this publisher configuration
+   */
+  PublisherConfiguration<T> withBatching(int size, long window) {
+    this.batchSize = size;
+    this.batchWindow = window;
+    return this;
+  }
+
+  /**
+   * @return {@code true} if events are published in batches
+   */
+  boolean isBatching() {
+    return batchSize > 0;
+  }
+
+  int getBatchSize() {
+    return batchSize;
+  }
+
+  long getBatchWindow() {
+    return batchWindow;
+  }
+
+  /**
+   * Sets the retry policy used when publishing an event failed.
+   *
+   * @param policy the retry policy
+   * @return this publisher configuration
+   */
+  PublisherConfiguration<T> withRetryPolicy(RetryPolicy policy) {
+    this.retryPolicy = policy;
+    return this;
+  }
+
+  RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Enables collecting the events of a transaction in order to publish them together after a
+   * successful commit.
+   *
+   * @return this publisher configuration
+   */
+  PublisherConfiguration<T> withTransactionBatching() {
+    this.transactionBatching = true;
+    return this;
+  }
+
+  /**
+   * @return {@code true} if the events of a transaction are published together after commit
+   */
+  boolean isTransactionBatching() {
+    return transactionBatching;
+  }
+
   @Override
   public String toString() {
     return config.toString();
   }
 
-  void publish(Channel channel, T event) throws EncodeException, IOException {
-    byte[] data = messageEncoder.encode(event);
-    BasicProperties basicPropertiesToSend = basicProperties;
-    if (basicPropertiesCalculator != null) {
-      basicPropertiesToSend = this.basicPropertiesCalculator.calculateBasicProperties(this.basicProperties, event);
+  /**
+   * Publishes the given event to all destinations using the given channel. In case of publisher
+   * confirms, the error handler is called asynchronously once as soon as the broker rejects the
+   * message for any of the destinations or a confirm does not arrive in time.
+   *
+   * @param channel the publisher channel
+   * @param event the event to be published
+   * @return the confirmation completing when the broker confirmed the message or failing with a
+   *         {@link PublishException}
+   * @throws EncodeException if the event could not be encoded
+   * @throws IOException if the message could not be sent
+   */
+  CompletableFuture<Void> publish(PublisherChannel channel, T event)
+      throws EncodeException, IOException {
+    EncodeBuffer buffer = channel.getEncodeBuffer();
+    byte[] data = encode(buffer, event);
+    BasicProperties basicPropertiesToSend =
+        calculateProperties(event, buffer.getContentEncoding());
+    CompletableFuture<Void> confirmation;
+    if (destinations.size() == 1) {
+      confirmation = send(channel, destinations.get(0), event, basicPropertiesToSend, data);
+    } else {
+      CompletableFuture<?>[] confirmations = new CompletableFuture<?>[destinations.size()];
+      for (int i = 0; i < confirmations.length; i++) {
+        confirmations[i] = send(channel, destinations.get(i), event, basicPropertiesToSend, data);
+      }
+      confirmation = CompletableFuture.allOf(confirmations);
+    }
+    if (!publisherConfirms && !mandatory) {
+      return confirmation;
+    }
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    confirmation.whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(null);
+      } else {
+        PublishException publishError = PublisherConfirmListener.toPublishException(error);
+        accept(event, publishError);
+        result.completeExceptionally(publishError);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Publishes the message to a single destination. Without publisher confirms, only a returned
+   * mandatory message fails the confirmation.
+   */
+  private CompletableFuture<Void> send(PublisherChannel channel, Destination<T> destination,
+      T event, BasicProperties properties, byte[] data) throws IOException {
+    CompletableFuture<Void> confirmation = channel.publish(destination.getExchange(),
+        destination.getRoutingKey(event), mandatory, properties, data, confirmTimeout);
+    if (publisherConfirms || !mandatory) {
+      return confirmation;
+    }
+    CompletableFuture<Void> returned = new CompletableFuture<>();
+    confirmation.whenComplete((value, error) -> {
+      if (error instanceof MessageReturnedException) {
+        returned.completeExceptionally(error);
+      } else {
+        returned.complete(null);
+      }
+    });
+    return returned;
+  }
+
+  /**
+   * Declares the message properties filled per event on top of the static properties.
+   *
+   * @param messageIdFunction the function providing the message id or {@code null}
+   * @param correlationIdFunction the function providing the correlation id or {@code null}
+   * @param timestamp {@code true} if the current time is set as message timestamp
+   * @param dynamicHeaders the functions providing the dynamic header values by header name
+   * @return this publisher configuration
+   */
+  PublisherConfiguration<T> withDynamicFields(Function<? super T, String> messageIdFunction,
+      Function<? super T, String> correlationIdFunction, boolean timestamp,
+      Map<String, Function<? super T, ?>> dynamicHeaders) {
+    this.propertiesTemplate =
+        new BasicPropertiesTemplate<>(propertiesTemplate.getStaticProperties(), messageIdFunction,
+            correlationIdFunction, timestamp, dynamicHeaders);
+    return this;
+  }
+
+  /**
+   * Returns the message properties of the given event. The template provides the static and
+   * declared dynamic fields including the content encoding of a compressed message, a properties
+   * calculator may replace them afterwards. The calculator gets its own copy of the headers, as it
+   * may modify them.
+   */
+  private BasicProperties calculateProperties(T event, String contentEncoding) {
+    BasicProperties basicProperties = propertiesTemplate.apply(event);
+    if (contentEncoding != null) {
+      basicProperties = basicProperties.builder().contentEncoding(contentEncoding).build();
+    }
+    if (basicPropertiesCalculator == null) {
+      return basicProperties;
+    }
+    return basicPropertiesCalculator.calculateBasicProperties(
+        BasicPropertiesTemplate.withMutableHeaders(basicProperties), event);
+  }
+
+  /**
+   * Encodes the given event using the given encode buffer, if supported by the encoder. The result
+   * still needs to be copied into an exact sized array, as {@code Channel.basicPublish} only
+   * accepts a whole {@code byte[]} body and no offset and length.
+   */
+  private byte[] encode(EncodeBuffer buffer, T event) throws EncodeException {
+    if (messageEncoder instanceof BufferedEncoder) {
+      ((BufferedEncoder<T>) messageEncoder).encode(event, buffer);
+      return buffer.toByteArray();
     }
-    channel.basicPublish(exchange, routingKeyFunction.apply(event), basicPropertiesToSend, data);
+    return messageEncoder.encode(event);
+  }
+
+  /**
+   * Registers the declarations of this configuration at the given spool, to be applied before
+   * replaying the messages spooled for its destinations.
+   *
+   * @param spool the publisher spool
+   */
+  void registerDeclarations(PublisherSpool spool) {
+    for (Destination<T> destination : destinations) {
+      spool.registerDeclarations(destination.getExchange(), declarations);
+    }
+  }
+
+  /**
+   * Encodes the given event and appends a message for each destination to the given spool to be
+   * published later. The messages of all destinations are spooled together or not at all.
+   *
+   * @param spool the publisher spool
+   * @param event the event to be spooled
+   * @return the confirmation completed once all messages of the event have been replayed or
+   *         {@code null} if the spool is full
+   * @throws EncodeException if the event could not be encoded
+   * @throws IOException if the spooled message could not be written
+   */
+  CompletableFuture<Void> spool(PublisherSpool spool, T event)
+      throws EncodeException, IOException {
+    EncodeBuffer buffer = new EncodeBuffer();
+    byte[] data = encode(buffer, event);
+    BasicProperties basicPropertiesToSend =
+        calculateProperties(event, buffer.getContentEncoding());
+    registerDeclarations(spool);
+    if (destinations.size() == 1) {
+      Destination<T> destination = destinations.get(0);
+      CompletableFuture<Void> confirmation = new CompletableFuture<>();
+      return spool.offer(new SpooledMessage(destination.getExchange(),
+          destination.getRoutingKey(event), basicPropertiesToSend, data), confirmation)
+              ? confirmation
+              : null;
+    }
+    List<SpooledMessage> messages = new ArrayList<>(destinations.size());
+    List<CompletableFuture<Void>> confirmations = new ArrayList<>(destinations.size());
+    for (Destination<T> destination : destinations) {
+      messages.add(new SpooledMessage(destination.getExchange(), destination.getRoutingKey(event),
+          basicPropertiesToSend, data));
+      confirmations.add(new CompletableFuture<>());
+    }
+    if (!spool.offerAll(messages, confirmations)) {
+      return null;
+    }
+    return CompletableFuture.allOf(confirmations.toArray(new CompletableFuture<?>[0]));
   }
 
   @Override
   public void accept(T event, PublishException publishError) {
     errorHandler.accept(event, publishError);
   }
+
+  /**
+   * An exchange and routing key function an event is published to.
+   */
+  static final class Destination<T> {
+    private final String exchange;
+    private final Function<T, String> routingKeyFunction;
+
+    Destination(String exchange, Function<T, String> routingKeyFunction) {
+      this.exchange = exchange;
+      this.routingKeyFunction = routingKeyFunction;
+    }
+
+    /**
+     * @return the exchange name
+     */
+    String getExchange() {
+      return exchange;
+    }
+
+    /**
+     * @param event the event to be published
+     * @return the routing key of the given event
+     */
+    String getRoutingKey(T event) {
+      return routingKeyFunction.apply(event);
+    }
+  }
 }
@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ReturnListener;
+
+/**
+ * Tracks the outstanding publisher confirms of one channel in confirm mode.
+ *
+ * <p>
+ * Every published message is registered using its publish sequence number before it is sent to the
+ * broker. The returned confirmation completes normally when the broker acknowledges the message and
+ * exceptionally when the broker rejects it, the confirm timeout elapses or the channel gets closed
+ * before the confirm was received.
+ * </p>
+ *
+ * <p>
+ * Messages published using the mandatory flag are additionally registered by their exchange,
+ * routing key and message id, or correlation id if no message id is set. The broker sends a return
+ * for an unroutable message before its acknowledge, which allows to fail the confirmation of the
+ * oldest outstanding message matching the returned one. Messages having neither id are matched by
+ * exchange and routing key only.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class PublisherConfirmListener implements ConfirmListener, ReturnListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PublisherConfirmListener.class);
+
+  private final ConcurrentNavigableMap<Long, CompletableFuture<Void>> pendingConfirms;
+  private final Map<ReturnKey, ArrayDeque<Long>> mandatoryMessages;
+  private final ReturnedMessageCounter returnedMessages;
+
+  PublisherConfirmListener() {
+    this(new ReturnedMessageCounter());
+  }
+
+  PublisherConfirmListener(ReturnedMessageCounter returnedMessages) {
+    this.pendingConfirms = new ConcurrentSkipListMap<>();
+    this.mandatoryMessages = new HashMap<>();
+    this.returnedMessages = returnedMessages;
+  }
+
+  /**
+   * Registers a message about to be published with the given sequence number.
+   *
+   * @param sequenceNumber the publish sequence number of the message
+   * @param timeout the maximum time in milliseconds to wait for the broker confirm
+   * @return the confirmation of the message
+   */
+  CompletableFuture<Void> register(long sequenceNumber, long timeout) {
+    Long key = Long.valueOf(sequenceNumber);
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    pendingConfirms.put(key, confirmation);
+    confirmation.orTimeout(timeout, TimeUnit.MILLISECONDS)
+        .whenComplete((result, error) -> pendingConfirms.remove(key, confirmation));
+    return confirmation;
+  }
+
+  /**
+   * Registers a message about to be published using the mandatory flag with the given sequence
+   * number, so that a return of the message fails its confirmation.
+   *
+   * @param sequenceNumber the publish sequence number of the message
+   * @param timeout the maximum time in milliseconds to wait for the broker confirm
+   * @param exchange the exchange the message is published to
+   * @param routingKey the routing key of the message
+   * @param properties the message properties
+   * @return the confirmation of the message
+   */
+  CompletableFuture<Void> registerMandatory(long sequenceNumber, long timeout, String exchange,
+      String routingKey, BasicProperties properties) {
+    Long key = Long.valueOf(sequenceNumber);
+    ReturnKey returnKey = ReturnKey.of(exchange, routingKey, properties);
+    synchronized (mandatoryMessages) {
+      mandatoryMessages.computeIfAbsent(returnKey, k -> new ArrayDeque<>()).add(key);
+    }
+    CompletableFuture<Void> confirmation = register(sequenceNumber, timeout);
+    confirmation.whenComplete((result, error) -> removeMandatory(returnKey, key));
+    return confirmation;
+  }
+
+  /**
+   * Removes a registered message that could not be sent to the broker at all.
+   *
+   * @param sequenceNumber the publish sequence number of the message
+   */
+  void cancel(long sequenceNumber) {
+    CompletableFuture<Void> confirmation = pendingConfirms.remove(Long.valueOf(sequenceNumber));
+    if (confirmation != null) {
+      confirmation.cancel(false);
+    }
+  }
+
+  /**
+   * Fails all outstanding confirmations using the given cause.
+   *
+   * @param cause the failure reason
+   */
+  void failAll(Throwable cause) {
+    Entry<Long, CompletableFuture<Void>> entry;
+    while ((entry = pendingConfirms.pollFirstEntry()) != null) {
+      entry.getValue().completeExceptionally(cause);
+    }
+  }
+
+  int getPendingCount() {
+    return pendingConfirms.size();
+  }
+
+  int getMandatoryCount() {
+    synchronized (mandatoryMessages) {
+      return mandatoryMessages.values().stream().mapToInt(ArrayDeque::size).sum();
+    }
+  }
+
+  @Override
+  public void handleAck(long deliveryTag, boolean multiple) {
+    LOGGER.trace("Received ack for {} (multiple: {})", Long.valueOf(deliveryTag),
+        Boolean.valueOf(multiple));
+    if (multiple) {
+      confirmUpTo(deliveryTag, null);
+    } else {
+      confirm(pendingConfirms.remove(Long.valueOf(deliveryTag)), null);
+    }
+  }
+
+  @Override
+  public void handleNack(long deliveryTag, boolean multiple) {
+    LOGGER.debug("Received nack for {} (multiple: {})", Long.valueOf(deliveryTag),
+        Boolean.valueOf(multiple));
+    PublishException cause = new PublishException("Message rejected by the broker", null);
+    if (multiple) {
+      confirmUpTo(deliveryTag, cause);
+    } else {
+      confirm(pendingConfirms.remove(Long.valueOf(deliveryTag)), cause);
+    }
+  }
+
+  @Override
+  public void handleReturn(int replyCode, String replyText, String exchange, String routingKey,
+      BasicProperties properties, byte[] body) {
+    LOGGER.debug("Message returned by the broker: {} {} (exchange: {}, routing key: {})",
+        Integer.valueOf(replyCode), replyText, exchange, routingKey);
+    returnedMessages.increment(exchange, routingKey);
+    Long sequenceNumber;
+    synchronized (mandatoryMessages) {
+      ArrayDeque<Long> sequenceNumbers =
+          mandatoryMessages.get(ReturnKey.of(exchange, routingKey, properties));
+      sequenceNumber = sequenceNumbers == null ? null : sequenceNumbers.peekFirst();
+    }
+    if (sequenceNumber != null) {
+      confirm(pendingConfirms.remove(sequenceNumber),
+          new MessageReturnedException(replyCode, replyText, exchange, routingKey));
+    }
+  }
+
+  static PublishException toPublishException(Throwable cause) {
+    if (cause instanceof PublishException) {
+      return (PublishException) cause;
+    } else if (cause instanceof CompletionException && cause.getCause() != null) {
+      return toPublishException(cause.getCause());
+    } else if (cause instanceof TimeoutException) {
+      return new PublishException("No broker confirm received in time", cause);
+    }
+    return new PublishException("Message not confirmed by the broker", cause);
+  }
+
+  private void confirmUpTo(long deliveryTag, PublishException cause) {
+    Entry<Long, CompletableFuture<Void>> entry;
+    while ((entry = pendingConfirms.firstEntry()) != null
+        && entry.getKey().longValue() <= deliveryTag) {
+      if (pendingConfirms.remove(entry.getKey(), entry.getValue())) {
+        confirm(entry.getValue(), cause);
+      }
+    }
+  }
+
+  private void removeMandatory(ReturnKey returnKey, Long sequenceNumber) {
+    synchronized (mandatoryMessages) {
+      ArrayDeque<Long> sequenceNumbers = mandatoryMessages.get(returnKey);
+      if (sequenceNumbers != null && sequenceNumbers.remove(sequenceNumber)
+          && sequenceNumbers.isEmpty()) {
+        mandatoryMessages.remove(returnKey);
+      }
+    }
+  }
+
+  private static void confirm(CompletableFuture<Void> confirmation, PublishException cause) {
+    if (confirmation != null) {
+      if (cause == null) {
+        confirmation.complete(null);
+      } else {
+        confirmation.completeExceptionally(cause);
+      }
+    }
+  }
+
+  /**
+   * Identifies the returned message by exchange, routing key and message or correlation id.
+   */
+  private static final class ReturnKey {
+    private final String exchange;
+    private final String routingKey;
+    private final String id;
+
+    private ReturnKey(String exchange, String routingKey, String id) {
+      this.exchange = exchange;
+      this.routingKey = routingKey;
+      this.id = id;
+    }
+
+    static ReturnKey of(String exchange, String routingKey, BasicProperties properties) {
+      String id = null;
+      if (properties != null) {
+        id = properties.getMessageId();
+        if (id == null) {
+          id = properties.getCorrelationId();
+        }
+      }
+      return new ReturnKey(exchange, routingKey, id);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(exchange, routingKey, id);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ReturnKey)) {
+        return false;
+      }
+      ReturnKey other = (ReturnKey) obj;
+      return Objects.equals(exchange, other.exchange)
+          && Objects.equals(routingKey, other.routingKey) && Objects.equals(id, other.id);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * <p>
+ * View of a connection configuration used for the connections dedicated to publishing. The view
+ * shares all settings with its connection configuration, but is not equal to it. The
+ * {@link ConnectionRepository} therefore manages and recovers separate connections for it.
+ * </p>
+ *
+ * <p>
+ * Using separate connections prevents the broker from throttling the delivery and
+ * acknowledgement of consumed messages, when it applies TCP back-pressure to heavy publishers.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class PublisherConnectionConfig implements ConnectionConfig {
+  private final ConnectionConfig delegate;
+
+  PublisherConnectionConfig(ConnectionConfig delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Connection createConnection(ConnectionFactory connectionFactory)
+      throws IOException, TimeoutException {
+    return delegate.createConnection(connectionFactory);
+  }
+
+  @Override
+  public long getConnectRetryWaitTime() {
+    return delegate.getConnectRetryWaitTime();
+  }
+
+  @Override
+  public long getFailedConsumerActivationRetryTime() {
+    return delegate.getFailedConsumerActivationRetryTime();
+  }
+
+  @Override
+  public int getPublisherChannelPoolSize() {
+    return delegate.getPublisherChannelPoolSize();
+  }
+
+  @Override
+  public Path getPublisherSpoolDirectory() {
+    return delegate.getPublisherSpoolDirectory();
+  }
+
+  @Override
+  public long getPublisherSpoolSize() {
+    return delegate.getPublisherSpoolSize();
+  }
+
+  @Override
+  public FlowControlPolicy getPublisherFlowControlPolicy() {
+    return delegate.getPublisherFlowControlPolicy();
+  }
+
+  @Override
+  public int getPublisherInFlightLimit() {
+    return delegate.getPublisherInFlightLimit();
+  }
+
+  @Override
+  public long getPublisherFlowControlTimeout() {
+    return delegate.getPublisherFlowControlTimeout();
+  }
+
+  @Override
+  public int getConnectionCount() {
+    return delegate.getConnectionCount();
+  }
+
+  @Override
+  public Executor getConsumerDeliveryExecutor() {
+    return delegate.getConsumerDeliveryExecutor();
+  }
+
+  @Override
+  public ConnectionConfig getPublisherConnectionConfig() {
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "publisher " + delegate;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * delegate.hashCode() + 1;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (!(obj instanceof PublisherConnectionConfig)) {
+      return false;
+    }
+    return delegate.equals(((PublisherConnectionConfig) obj).delegate);
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Connection;
+
+/**
+ * <p>
+ * Limits the publishing of messages for one connection configuration while the broker blocks any
+ * of its connections and bounds the number of messages in flight. The in-flight limit is shared by
+ * all connections of the configuration, see {@link ConnectionConfig#getConnectionCount()}.
+ * </p>
+ *
+ * <p>
+ * A message is in flight from the time it is handed to the channel until the broker confirmed it,
+ * or until it was sent if publisher confirms are not used.
+ * </p>
+ *
+ * <p>
+ * Threads that must not wait, like the scheduler retrying messages, use {@link #tryAcquire()} and
+ * check again after {@link #RECHECK_INTERVAL} as long as {@link #canAwait(long)} allows.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class PublisherFlowControl implements ConnectionListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PublisherFlowControl.class);
+
+  static final long RECHECK_INTERVAL = 100;
+
+  private final FlowControlPolicy policy;
+  private final long timeout;
+  private final Semaphore inFlight;
+  private final ReentrantLock lock;
+  private final Condition unblocked;
+  private final Set<Connection> blockedConnections;
+
+  private volatile boolean blocked;
+  private volatile Runnable releaseListener;
+
+  PublisherFlowControl(ConnectionConfig config) {
+    FlowControlPolicy configuredPolicy = config.getPublisherFlowControlPolicy();
+    this.policy = configuredPolicy == null ? FlowControlPolicy.BLOCK : configuredPolicy;
+    this.timeout = TimeUnit.MILLISECONDS.toNanos(config.getPublisherFlowControlTimeout());
+    int inFlightLimit = config.getPublisherInFlightLimit();
+    this.inFlight = inFlightLimit > 0 ? new Semaphore(inFlightLimit) : null;
+    this.lock = new ReentrantLock();
+    this.unblocked = lock.newCondition();
+    this.blockedConnections = new HashSet<>();
+  }
+
+  FlowControlPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * @return {@code true} if the broker currently blocks the connection
+   */
+  boolean isBlocked() {
+    return blocked;
+  }
+
+  /**
+   * Acquires the permission to publish one message. Depending on the policy, the calling thread
+   * waits for the connection to be unblocked and a free in-flight slot up to the flow control
+   * timeout or returns immediately.
+   *
+   * @return {@code true} if the message may be published, otherwise {@code false}
+   */
+  boolean acquire() {
+    if (policy != FlowControlPolicy.BLOCK) {
+      return tryAcquire();
+    }
+    long deadline = System.nanoTime() + timeout;
+    try {
+      if (blocked && !awaitUnblocked(deadline)) {
+        return false;
+      }
+      return inFlight == null
+          || inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Acquires the permission to publish one message without waiting, regardless of the policy.
+   *
+   * @return {@code true} if the message may be published, otherwise {@code false}
+   */
+  boolean tryAcquire() {
+    return !blocked && (inFlight == null || inFlight.tryAcquire());
+  }
+
+  /**
+   * Checks whether a message not acquired using {@link #tryAcquire()} may be acquired again later,
+   * instead of being handled according to the policy immediately.
+   *
+   * @param waitingSince the {@link System#nanoTime()} the message started waiting
+   * @return {@code true} if the policy waits and the flow control timeout did not yet elapse
+   */
+  boolean canAwait(long waitingSince) {
+    return policy == FlowControlPolicy.BLOCK && System.nanoTime() - waitingSince < timeout;
+  }
+
+  /**
+   * Sets the listener to be notified each time an in-flight slot is released, used to resume the
+   * replay of the publisher spool.
+   *
+   * @param listener the listener or {@code null}
+   */
+  void setReleaseListener(Runnable listener) {
+    this.releaseListener = listener;
+  }
+
+  /**
+   * Releases the in-flight slot acquired by {@link #acquire()} or {@link #tryAcquire()}.
+   */
+  void release() {
+    if (inFlight != null) {
+      inFlight.release();
+      Runnable listener = releaseListener;
+      if (listener != null) {
+        listener.run();
+      }
+    }
+  }
+
+  /**
+   * @return the number of free in-flight slots or {@link Integer#MAX_VALUE} if not limited
+   */
+  int getAvailable() {
+    return inFlight == null ? Integer.MAX_VALUE : inFlight.availablePermits();
+  }
+
+  @Override
+  public void onConnectionEstablished(Connection connection) {
+    unblock(connection);
+  }
+
+  @Override
+  public void onConnectionLost(Connection connection) {
+    unblock(connection);
+  }
+
+  @Override
+  public void onConnectionClosed(Connection connection) {
+    lock.lock();
+    try {
+      blockedConnections.clear();
+      blocked = false;
+      unblocked.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void onConnectionBlocked(Connection connection, String reason) {
+    LOGGER.debug("Publishing blocked using policy {}", policy);
+    lock.lock();
+    try {
+      blockedConnections.add(connection);
+      blocked = true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void onConnectionUnblocked(Connection connection) {
+    unblock(connection);
+  }
+
+  private boolean awaitUnblocked(long deadline) throws InterruptedException {
+    lock.lock();
+    try {
+      while (blocked) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        unblocked.awaitNanos(remaining);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the block of the given connection. Publishing stays blocked as long as any other
+   * connection is blocked by the broker.
+   */
+  private void unblock(Connection connection) {
+    lock.lock();
+    try {
+      blockedConnections.remove(connection);
+      blocked = !blockedConnections.isEmpty();
+      if (!blocked) {
+        unblocked.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}
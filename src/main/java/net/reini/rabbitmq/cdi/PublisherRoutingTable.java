@@ -0,0 +1,171 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.enterprise.event.TransactionPhase;
+
+/**
+ * Immutable table resolving the publisher configuration of an event type within a transaction
+ * phase.
+ *
+ * <p>
+ * An event type is resolved to the binding of the type itself or if not bound, to the binding of
+ * its nearest super class or otherwise to the binding of the first bound interface found breadth
+ * first. Resolved routes, including the absence of any binding, are cached per event class and
+ * phase so that resolving the route of an event does not allocate once the cache is warm.
+ * </p>
+ *
+ * <p>
+ * Instances are never changed after creation, adding a binding creates a new table.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class PublisherRoutingTable {
+  static final PublisherRoutingTable EMPTY = new PublisherRoutingTable(Collections.emptyMap());
+
+  private static final TransactionPhase[] PHASES = TransactionPhase.values();
+  private static final Route<?> NO_ROUTE = new Route<>(null, null);
+
+  private final Map<EventKey<?>, PublisherConfiguration<?>> configurations;
+  private final ClassValue<?>[] routes;
+
+  private PublisherRoutingTable(Map<EventKey<?>, PublisherConfiguration<?>> configurations) {
+    this.configurations = configurations;
+    this.routes = new ClassValue<?>[PHASES.length];
+    for (TransactionPhase phase : PHASES) {
+      routes[phase.ordinal()] = new ClassValue<Route<?>>() {
+        @Override
+        protected Route<?> computeValue(Class<?> type) {
+          return findRoute(type, phase);
+        }
+      };
+    }
+  }
+
+  /**
+   * Creates a new table containing all bindings of this table and the given one. An existing
+   * binding of the same event key is replaced.
+   *
+   * @param eventKey the event key
+   * @param configuration the publisher configuration of the event key
+   * @return the new routing table
+   */
+  <T> PublisherRoutingTable with(EventKey<T> eventKey, PublisherConfiguration<T> configuration) {
+    Map<EventKey<?>, PublisherConfiguration<?>> newConfigurations = new HashMap<>(configurations);
+    newConfigurations.put(eventKey, configuration);
+    return new PublisherRoutingTable(Collections.unmodifiableMap(newConfigurations));
+  }
+
+  /**
+   * Returns the configuration bound exactly to the given event key.
+   *
+   * @param eventKey the event key
+   * @return the configuration or {@code null} if not bound
+   */
+  PublisherConfiguration<?> getConfiguration(EventKey<?> eventKey) {
+    return configurations.get(eventKey);
+  }
+
+  /**
+   * Resolves the route of the given event type within the given transaction phase.
+   *
+   * @param type the event type
+   * @param phase the transaction phase
+   * @return the route or {@code null} if the event type is not published in the given phase
+   */
+  @SuppressWarnings("unchecked")
+  Route<Object> resolve(Class<?> type, TransactionPhase phase) {
+    Route<?> route = (Route<?>) routes[phase.ordinal()].get(type);
+    return route == NO_ROUTE ? null : (Route<Object>) route;
+  }
+
+  private Route<?> findRoute(Class<?> type, TransactionPhase phase) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      Route<?> route = routeOf(current, phase);
+      if (route != null) {
+        return route;
+      }
+    }
+    Set<Class<?>> visited = new HashSet<>();
+    Deque<Class<?>> pending = new ArrayDeque<>();
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      Collections.addAll(pending, current.getInterfaces());
+    }
+    while (!pending.isEmpty()) {
+      Class<?> current = pending.removeFirst();
+      if (visited.add(current)) {
+        Route<?> route = routeOf(current, phase);
+        if (route != null) {
+          return route;
+        }
+        Collections.addAll(pending, current.getInterfaces());
+      }
+    }
+    return NO_ROUTE;
+  }
+
+  private <T> Route<T> routeOf(Class<T> type, TransactionPhase phase) {
+    EventKey<T> eventKey = EventKey.of(type, phase);
+    @SuppressWarnings("unchecked")
+    PublisherConfiguration<T> configuration =
+        (PublisherConfiguration<T>) configurations.get(eventKey);
+    return configuration == null ? null : new Route<>(eventKey, configuration);
+  }
+
+  /**
+   * The resolved binding of an event type.
+   */
+  static final class Route<T> {
+    private final EventKey<T> eventKey;
+    private final PublisherConfiguration<T> configuration;
+
+    Route(EventKey<T> eventKey, PublisherConfiguration<T> configuration) {
+      this.eventKey = eventKey;
+      this.configuration = configuration;
+    }
+
+    /**
+     * @return the event key of the binding
+     */
+    EventKey<T> getEventKey() {
+      return eventKey;
+    }
+
+    /**
+     * @return the publisher configuration of the binding
+     */
+    PublisherConfiguration<T> getConfiguration() {
+      return configuration;
+    }
+  }
+}
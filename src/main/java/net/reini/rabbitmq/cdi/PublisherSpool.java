@@ -0,0 +1,669 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Connection;
+
+/**
+ * <p>
+ * Disk backed spool keeping encoded messages that could not be sent because no broker connection
+ * was available. The spool is replayed in order as soon as the connection is established again.
+ * </p>
+ *
+ * <p>
+ * Messages are appended sequentially to memory mapped segment files of a fixed size within the
+ * spool directory. Each segment starts with a header containing the position up to which its
+ * messages have been replayed already, followed by the messages each prefixed by its length. The
+ * length of a message is written after its content, so that a partly written message is never
+ * visible. Fully replayed segments are deleted. The spool accepts no more messages once the
+ * configured maximum number of segments is in use.
+ * </p>
+ *
+ * <p>
+ * Messages are replayed using publisher confirms, the replay position is only advanced after the
+ * broker confirmed the replayed messages. Messages are therefore replayed at least once. The
+ * declarations registered for the exchange of a message are applied before it is replayed. A
+ * message that fails to be declared or confirmed {@link #MAX_REPLAY_ATTEMPTS} times in a row is
+ * dropped, in order to not block the messages spooled after it.
+ * </p>
+ *
+ * <p>
+ * Replayed messages count towards the in-flight limit of the connection configuration. The replay
+ * is suspended as long as no in-flight slot is free and resumed once one is released.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class PublisherSpool implements ConnectionListener, AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PublisherSpool.class);
+
+  static final int MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+  static final int HEADER_SIZE = 8;
+  static final long REPLAY_CONFIRM_TIMEOUT = 30_000;
+  static final int MAX_REPLAY_ATTEMPTS = 3;
+
+  private static final int MAGIC = 0x52435350;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".spool";
+  private static final int REPLAY_CHUNK_SIZE = 256;
+
+  private final ConnectionRepository connectionRepository;
+  private final ConnectionConfig config;
+  private final Path directory;
+  private final int segmentSize;
+  private final int maxSegments;
+  private final Deque<Segment> segments;
+  private final ExecutorService replayExecutor;
+  private final AtomicBoolean replayScheduled;
+  private final Map<String, Set<Declaration>> declarations;
+  private final Map<Long, CompletableFuture<Void>> confirmations;
+
+  private long nextSequence;
+  private boolean closed;
+  private long failedMessage;
+  private int failedAttempts;
+
+  PublisherSpool(ConnectionRepository connectionRepository, ConnectionConfig config)
+      throws IOException {
+    this.connectionRepository = connectionRepository;
+    this.config = config;
+    this.directory = config.getPublisherSpoolDirectory();
+    long maxSize = Math.max(HEADER_SIZE + 8, config.getPublisherSpoolSize());
+    this.segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, maxSize);
+    this.maxSegments = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxSize / segmentSize));
+    this.segments = new ArrayDeque<>();
+    this.replayScheduled = new AtomicBoolean();
+    this.declarations = new ConcurrentHashMap<>();
+    this.confirmations = new HashMap<>();
+    this.replayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rabbitmq-cdi-spool-replay");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Files.createDirectories(directory);
+    recover();
+  }
+
+  /**
+   * Registers the declarations to be applied before replaying the messages of the given exchange.
+   * The declarations are kept in memory only and need to be registered again after a restart.
+   *
+   * @param exchange the exchange of the spooled messages
+   * @param exchangeDeclarations the declarations needed to publish to the exchange
+   */
+  void registerDeclarations(String exchange, List<Declaration> exchangeDeclarations) {
+    if (!exchangeDeclarations.isEmpty()) {
+      declarations.computeIfAbsent(exchange, key -> new CopyOnWriteArraySet<>())
+          .addAll(exchangeDeclarations);
+    }
+  }
+
+  /**
+   * Appends the given message to the spool.
+   *
+   * @param message the message to be appended
+   * @return {@code true} if the message was spooled, {@code false} if the spool is full
+   * @throws IOException if the message could not be written
+   */
+  boolean offer(SpooledMessage message) throws IOException {
+    return offer(message, null);
+  }
+
+  /**
+   * Appends the given message to the spool. The given confirmation is completed once the message
+   * was replayed and confirmed by the broker, or completed exceptionally with a
+   * {@link PublishException} if the message is dropped or the spool is closed before.
+   *
+   * @param message the message to be appended
+   * @param confirmation the confirmation of the message or {@code null}
+   * @return {@code true} if the message was spooled, {@code false} if the spool is full
+   * @throws IOException if the message could not be written
+   */
+  boolean offer(SpooledMessage message, CompletableFuture<Void> confirmation)
+      throws IOException {
+    return offerAll(Collections.singletonList(message),
+        Collections.singletonList(confirmation));
+  }
+
+  /**
+   * Appends either all of the given messages to the spool or none of them, if there is not enough
+   * space left for all of them. The space needed is reserved before any message is written, so
+   * that the messages of an event published to several destinations are never spooled partially.
+   *
+   * @param messages the messages to be appended
+   * @param messageConfirmations the confirmation of each message, elements may be {@code null}
+   * @return {@code true} if the messages were spooled, {@code false} if the spool is full
+   * @throws IOException if the messages could not be written
+   */
+  synchronized boolean offerAll(List<SpooledMessage> messages,
+      List<CompletableFuture<Void>> messageConfirmations) throws IOException {
+    if (closed) {
+      return false;
+    }
+    byte[][] records = new byte[messages.size()][];
+    int[] targets = new int[records.length];
+    Segment current = segments.peekLast();
+    int remaining = current == null ? 0 : current.remaining();
+    int newSegments = 0;
+    for (int i = 0; i < records.length; i++) {
+      records[i] = messages.get(i).toBytes();
+      int recordSize = Integer.BYTES + records[i].length;
+      if (recordSize > segmentSize - HEADER_SIZE) {
+        LOGGER.warn("Message of {} bytes exceeds the spool segment size",
+            Integer.valueOf(records[i].length));
+        return false;
+      }
+      if (remaining < recordSize) {
+        newSegments++;
+        remaining = segmentSize - HEADER_SIZE;
+      }
+      remaining -= recordSize;
+      targets[i] = newSegments;
+    }
+    if (segments.size() + newSegments > maxSegments) {
+      LOGGER.warn("Publisher spool {} is full", directory);
+      return false;
+    }
+    List<Segment> targetSegments = new ArrayList<>(newSegments + 1);
+    targetSegments.add(current);
+    for (int i = 0; i < newSegments; i++) {
+      targetSegments.add(createSegment());
+    }
+    for (int i = 0; i < records.length; i++) {
+      Segment segment = targetSegments.get(targets[i]);
+      int position = segment.writePosition;
+      segment.append(records[i]);
+      CompletableFuture<Void> confirmation = messageConfirmations.get(i);
+      if (confirmation != null) {
+        confirmations.put(key(segment, position), confirmation);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} if there are no messages waiting to be replayed
+   */
+  synchronized boolean isEmpty() {
+    for (Segment segment : segments) {
+      if (segment.readPosition < segment.writePosition) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Triggers an asynchronous replay of all spooled messages, unless a replay is waiting to be
+   * started already.
+   */
+  void replayAsync() {
+    if (!replayScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      replayExecutor.execute(() -> {
+        replayScheduled.set(false);
+        replay();
+      });
+    } catch (RejectedExecutionException e) {
+      replayScheduled.set(false);
+      LOGGER.debug("Spool already closed, replay skipped");
+    }
+  }
+
+  /**
+   * Triggers an asynchronous replay if messages are waiting to be replayed, as an in-flight slot
+   * of the connection configuration got released.
+   */
+  void onInFlightReleased() {
+    if (!isEmpty()) {
+      replayAsync();
+    }
+  }
+
+  /**
+   * Replays all spooled messages in order until the spool is empty, publishing fails or the
+   * in-flight limit is reached. A message failing to be declared or confirmed is retried
+   * immediately, until dropped after {@link #MAX_REPLAY_ATTEMPTS} attempts.
+   *
+   * @return {@code true} if all messages have been replayed
+   */
+  boolean replay() {
+    PublisherChannelPool channelPool = connectionRepository.getChannelPool(config);
+    PublisherFlowControl flowControl = channelPool.getFlowControl();
+    Chunk chunk;
+    while ((chunk = nextChunk()) != null) {
+      if (flowControl.isBlocked()) {
+        LOGGER.debug("Connection blocked, replay of spooled messages suspended");
+        return false;
+      }
+      List<CompletableFuture<Void>> published = new ArrayList<>(chunk.messages.size());
+      Exception failure = null;
+      PublisherChannel channel = null;
+      try {
+        channel = channelPool.borrowChannel(true);
+        failure = publish(channelPool, flowControl, channel, chunk, published);
+        if (failure == null) {
+          channelPool.returnChannel(channel);
+        } else {
+          // a failed declaration closes the channel
+          channelPool.discardChannel(channel);
+        }
+      } catch (IOException e) {
+        channelPool.discardChannel(channel);
+        LOGGER.warn("Replaying spooled messages failed, retrying on next connect", e);
+        return false;
+      }
+      try {
+        int confirmed = 0;
+        for (CompletableFuture<Void> confirmation : published) {
+          try {
+            confirmation.get(REPLAY_CONFIRM_TIMEOUT, TimeUnit.MILLISECONDS);
+          } catch (ExecutionException e) {
+            failure = e;
+            break;
+          }
+          confirmed++;
+        }
+        commit(chunk, confirmed);
+        if (failure != null) {
+          failed(chunk, confirmed, failure);
+        } else if (confirmed < chunk.messages.size()) {
+          LOGGER.debug("In-flight limit reached, replay of spooled messages suspended");
+          return false;
+        }
+      } catch (TimeoutException e) {
+        LOGGER.warn("Spooled messages not confirmed, retrying on next connect", e);
+        return false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Publishes the messages of the given chunk, applying the declarations registered for their
+   * exchange first. Publishing stops at the first message for which no in-flight slot is free.
+   *
+   * @return the failure of the declarations of the first message not published or {@code null}
+   */
+  private Exception publish(PublisherChannelPool channelPool, PublisherFlowControl flowControl,
+      PublisherChannel channel, Chunk chunk, List<CompletableFuture<Void>> published)
+      throws IOException {
+    DeclarerRepository declarerRepository = channelPool.getDeclarerRepository();
+    for (SpooledMessage message : chunk.messages) {
+      if (!flowControl.tryAcquire()) {
+        return null;
+      }
+      Set<Declaration> exchangeDeclarations = declarations.get(message.getExchange());
+      if (exchangeDeclarations != null) {
+        try {
+          declarerRepository.declareOnce(channel.getChannel(),
+              new ArrayList<>(exchangeDeclarations));
+        } catch (IOException e) {
+          flowControl.release();
+          return e;
+        }
+      }
+      CompletableFuture<Void> confirmation;
+      try {
+        confirmation = channel.publish(message.getExchange(), message.getRoutingKey(),
+            message.getProperties(), message.getBody(), REPLAY_CONFIRM_TIMEOUT);
+      } catch (IOException e) {
+        flowControl.release();
+        throw e;
+      }
+      published.add(confirmation.whenComplete((result, error) -> flowControl.release()));
+    }
+    return null;
+  }
+
+  /**
+   * Counts a failed attempt to replay the given message of the chunk, which is the first message
+   * not yet replayed. The message is dropped once it failed too often.
+   */
+  private void failed(Chunk chunk, int index, Exception cause) {
+    long key = key(chunk.segment, chunk.positions[index]);
+    if (key != failedMessage) {
+      failedMessage = key;
+      failedAttempts = 0;
+    }
+    SpooledMessage message = chunk.messages.get(index);
+    if (++failedAttempts < MAX_REPLAY_ATTEMPTS) {
+      LOGGER.warn("Replaying spooled message to exchange {} failed, retrying",
+          message.getExchange(), cause);
+      return;
+    }
+    LOGGER.error("Dropping spooled message to exchange {} with routing key {} after {} attempts",
+        message.getExchange(), message.getRoutingKey(), Integer.valueOf(failedAttempts), cause);
+    failedAttempts = 0;
+    CompletableFuture<Void> confirmation = drop(chunk, index);
+    if (confirmation != null) {
+      confirmation.completeExceptionally(new PublishException(
+          "Unable to replay spooled message after " + MAX_REPLAY_ATTEMPTS + " attempts", cause));
+    }
+  }
+
+  @Override
+  public void onConnectionEstablished(Connection connection) {
+    if (!isEmpty()) {
+      LOGGER.info("Connection established, replaying spooled messages of {}", directory);
+      replayAsync();
+    }
+  }
+
+  @Override
+  public void onConnectionLost(Connection connection) {
+    // nothing to do
+  }
+
+  @Override
+  public void onConnectionUnblocked(Connection connection) {
+    if (!isEmpty()) {
+      LOGGER.info("Connection unblocked, replaying spooled messages of {}", directory);
+      replayAsync();
+    }
+  }
+
+  @Override
+  public void onConnectionClosed(Connection connection) {
+    close();
+  }
+
+  @Override
+  public void close() {
+    List<CompletableFuture<Void>> pending;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      segments.forEach(Segment::close);
+      pending = new ArrayList<>(confirmations.values());
+      confirmations.clear();
+    }
+    replayExecutor.shutdown();
+    PublishException closedException =
+        new PublishException("Publisher spool closed before the message was replayed", null);
+    pending.forEach(confirmation -> confirmation.completeExceptionally(closedException));
+  }
+
+  private synchronized Chunk nextChunk() {
+    while (!closed && !segments.isEmpty()) {
+      Segment segment = segments.peekFirst();
+      if (segment.readPosition < segment.writePosition) {
+        return segment.read(REPLAY_CHUNK_SIZE);
+      }
+      if (segments.size() == 1) {
+        return null;
+      }
+      removeFirstSegment();
+    }
+    return null;
+  }
+
+  /**
+   * Advances the replay position past the given number of confirmed messages of the chunk and
+   * completes their confirmations.
+   */
+  private void commit(Chunk chunk, int confirmed) {
+    List<CompletableFuture<Void>> replayed = new ArrayList<>(confirmed);
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      for (int i = 0; i < confirmed; i++) {
+        CompletableFuture<Void> confirmation =
+            confirmations.remove(key(chunk.segment, chunk.positions[i]));
+        if (confirmation != null) {
+          replayed.add(confirmation);
+        }
+      }
+      advance(chunk.segment, confirmed < chunk.messages.size() ? chunk.positions[confirmed]
+          : chunk.endPosition);
+    }
+    replayed.forEach(confirmation -> confirmation.complete(null));
+  }
+
+  /**
+   * Advances the replay position past the given message of the chunk.
+   *
+   * @return the confirmation of the dropped message or {@code null}
+   */
+  private synchronized CompletableFuture<Void> drop(Chunk chunk, int index) {
+    if (closed) {
+      return null;
+    }
+    advance(chunk.segment, index + 1 < chunk.positions.length ? chunk.positions[index + 1]
+        : chunk.endPosition);
+    return confirmations.remove(key(chunk.segment, chunk.positions[index]));
+  }
+
+  private void advance(Segment segment, int position) {
+    segment.setReadPosition(position);
+    if (segment.readPosition == segment.writePosition && segments.size() == 1) {
+      removeFirstSegment();
+    }
+  }
+
+  private static long key(Segment segment, int position) {
+    return segment.sequence << 32 | position;
+  }
+
+  private void removeFirstSegment() {
+    Segment segment = segments.removeFirst();
+    segment.close();
+    try {
+      Files.deleteIfExists(segment.file);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to delete spool segment {}", segment.file, e);
+    }
+  }
+
+  private Segment createSegment() throws IOException {
+    long sequence = nextSequence++;
+    Path file = directory.resolve(
+        String.format("%s%020d%s", SEGMENT_PREFIX, Long.valueOf(sequence), SEGMENT_SUFFIX));
+    Segment segment = Segment.open(file, sequence, segmentSize);
+    segment.initialize();
+    segments.addLast(segment);
+    return segment;
+  }
+
+  private void recover() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      stream.forEach(files::add);
+    }
+    files.sort(null);
+    for (Path file : files) {
+      String name = file.getFileName().toString();
+      long sequence = Long.parseLong(
+          name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+      Segment segment = Segment.open(file, sequence, segmentSize);
+      if (segment.recover()) {
+        segments.addLast(segment);
+      } else {
+        LOGGER.warn("Ignoring invalid spool segment {}", file);
+        segment.close();
+      }
+      nextSequence = Math.max(nextSequence, sequence + 1);
+    }
+    if (!segments.isEmpty()) {
+      LOGGER.info("Recovered {} spool segments from {}", Integer.valueOf(segments.size()),
+          directory);
+    }
+  }
+
+  static final class Chunk {
+    final Segment segment;
+    final List<SpooledMessage> messages;
+    final int[] positions;
+    final int endPosition;
+
+    Chunk(Segment segment, List<SpooledMessage> messages, int[] positions, int endPosition) {
+      this.segment = segment;
+      this.messages = messages;
+      this.positions = positions;
+      this.endPosition = endPosition;
+    }
+  }
+
+  static final class Segment {
+    final Path file;
+    final long sequence;
+    private final FileChannel fileChannel;
+    private final MappedByteBuffer buffer;
+
+    int readPosition;
+    int writePosition;
+
+    private Segment(Path file, long sequence, FileChannel fileChannel, MappedByteBuffer buffer) {
+      this.file = file;
+      this.sequence = sequence;
+      this.fileChannel = fileChannel;
+      this.buffer = buffer;
+    }
+
+    static Segment open(Path file, long sequence, int size) throws IOException {
+      FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        int mappedSize = (int) Math.max(size, fileChannel.size());
+        return new Segment(file, sequence, fileChannel,
+            fileChannel.map(MapMode.READ_WRITE, 0, mappedSize));
+      } catch (IOException | RuntimeException e) {
+        fileChannel.close();
+        throw e;
+      }
+    }
+
+    void initialize() {
+      buffer.putInt(0, MAGIC);
+      setReadPosition(HEADER_SIZE);
+      writePosition = HEADER_SIZE;
+      buffer.putInt(HEADER_SIZE, 0);
+    }
+
+    boolean recover() {
+      if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+        return false;
+      }
+      int position = HEADER_SIZE;
+      while (position + Integer.BYTES <= buffer.capacity()) {
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + Integer.BYTES + length > buffer.capacity()) {
+          break;
+        }
+        position += Integer.BYTES + length;
+      }
+      writePosition = position;
+      readPosition = Math.min(Math.max(HEADER_SIZE, buffer.getInt(4)), writePosition);
+      return true;
+    }
+
+    int remaining() {
+      return buffer.capacity() - writePosition;
+    }
+
+    void append(byte[] data) {
+      int position = writePosition;
+      int next = position + Integer.BYTES + data.length;
+      buffer.put(position + Integer.BYTES, data);
+      if (next + Integer.BYTES <= buffer.capacity()) {
+        buffer.putInt(next, 0);
+      }
+      buffer.putInt(position, data.length);
+      writePosition = next;
+    }
+
+    Chunk read(int maxMessages) {
+      List<SpooledMessage> messages = new ArrayList<>();
+      int[] positions = new int[maxMessages];
+      int position = readPosition;
+      while (position < writePosition && messages.size() < maxMessages) {
+        byte[] data = new byte[buffer.getInt(position)];
+        buffer.get(position + Integer.BYTES, data);
+        try {
+          SpooledMessage message = SpooledMessage.fromBytes(data);
+          positions[messages.size()] = position;
+          messages.add(message);
+        } catch (IOException e) {
+          LOGGER.error("Skipping corrupt spooled message in {}", file, e);
+        }
+        position += Integer.BYTES + data.length;
+      }
+      return new Chunk(this, messages, Arrays.copyOf(positions, messages.size()), position);
+    }
+
+    void setReadPosition(int position) {
+      readPosition = position;
+      buffer.putInt(4, position);
+    }
+
+    void close() {
+      buffer.force();
+      try {
+        fileChannel.close();
+      } catch (IOException e) {
+        LOGGER.warn("Unable to close spool segment {}", file, e);
+      }
+    }
+  }
+}
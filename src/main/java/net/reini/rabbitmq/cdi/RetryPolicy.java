@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes how often and with which delays publishing an event is retried after a failed attempt.
+ *
+ * <p>
+ * The delay before a retry doubles with every failed attempt starting with the base delay until the
+ * maximum delay is reached. Using jitter, each delay is randomly reduced by up to the given
+ * fraction, so that several clients do not retry all at the same time after a broker restart.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+public final class RetryPolicy {
+  /**
+   * The default policy using {@value GenericPublisher#DEFAULT_RETRY_ATTEMPTS} attempts with a fixed
+   * delay of {@value GenericPublisher#DEFAULT_RETRY_INTERVAL} milliseconds.
+   */
+  public static final RetryPolicy DEFAULT = of(GenericPublisher.DEFAULT_RETRY_ATTEMPTS,
+      GenericPublisher.DEFAULT_RETRY_INTERVAL, GenericPublisher.DEFAULT_RETRY_INTERVAL,
+      TimeUnit.MILLISECONDS);
+
+  private final int attempts;
+  private final long baseDelay;
+  private final long maxDelay;
+  private final double jitter;
+
+  private RetryPolicy(int attempts, long baseDelay, long maxDelay, double jitter) {
+    this.attempts = attempts;
+    this.baseDelay = baseDelay;
+    this.maxDelay = maxDelay;
+    this.jitter = jitter;
+  }
+
+  /**
+   * Creates a retry policy without jitter.
+   *
+   * @param attempts the maximum number of attempts including the first one
+   * @param baseDelay the delay before the first retry
+   * @param maxDelay the maximum delay before a retry
+   * @param unit the time unit of the delays
+   * @return the retry policy
+   */
+  public static RetryPolicy of(int attempts, long baseDelay, long maxDelay, TimeUnit unit) {
+    if (attempts < 1) {
+      throw new IllegalArgumentException("attempts must be at least one");
+    }
+    if (baseDelay < 0) {
+      throw new IllegalArgumentException("baseDelay must not be negative");
+    }
+    if (maxDelay < baseDelay) {
+      throw new IllegalArgumentException("maxDelay must not be less than baseDelay");
+    }
+    return new RetryPolicy(attempts, unit.toNanos(baseDelay), unit.toNanos(maxDelay), 0);
+  }
+
+  /**
+   * Returns a copy of this policy using the given jitter.
+   *
+   * @param jitter the fraction between {@code 0.0} and {@code 1.0} by which a delay is randomly
+   *        reduced
+   * @return the new retry policy
+   */
+  public RetryPolicy withJitter(double jitter) {
+    if (jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("jitter must be between 0.0 and 1.0");
+    }
+    return new RetryPolicy(attempts, baseDelay, maxDelay, jitter);
+  }
+
+  int getAttempts() {
+    return attempts;
+  }
+
+  long getBaseDelay() {
+    return baseDelay;
+  }
+
+  long getMaxDelay() {
+    return maxDelay;
+  }
+
+  double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * Calculates the delay in nanoseconds before the next attempt after the given failed attempt.
+   *
+   * @param failedAttempt the number of the failed attempt starting with one
+   * @return the delay in nanoseconds
+   */
+  long getDelay(int failedAttempt) {
+    long delay = baseDelay;
+    for (int attempt = 1; attempt < failedAttempt && delay < maxDelay; attempt++) {
+      delay = delay > maxDelay / 2 ? maxDelay : delay * 2;
+    }
+    delay = Math.min(delay, maxDelay);
+    if (jitter > 0 && delay > 0) {
+      delay -= (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+    return delay;
+  }
+
+  @Override
+  public String toString() {
+    return "retry policy for attempts=" + attempts + ", baseDelay=" + baseDelay + "ns, maxDelay="
+        + maxDelay + "ns, jitter=" + jitter;
+  }
+}
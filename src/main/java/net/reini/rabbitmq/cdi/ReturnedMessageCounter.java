@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages returned by the broker per exchange and routing key.
+ *
+ * @author Patrick Reinhart
+ */
+final class ReturnedMessageCounter {
+  private final Map<String, LongAdder> counts;
+
+  ReturnedMessageCounter() {
+    counts = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Counts a returned message.
+   *
+   * @param exchange the exchange the message was published to
+   * @param routingKey the routing key of the message
+   */
+  void increment(String exchange, String routingKey) {
+    counts.computeIfAbsent(key(exchange, routingKey), k -> new LongAdder()).increment();
+  }
+
+  /**
+   * @param exchange the exchange
+   * @param routingKey the routing key
+   * @return the number of returned messages of the given exchange and routing key
+   */
+  long getCount(String exchange, String routingKey) {
+    LongAdder count = counts.get(key(exchange, routingKey));
+    return count == null ? 0 : count.sum();
+  }
+
+  /**
+   * @return the current counts keyed by {@code exchange/routingKey}
+   */
+  Map<String, Long> snapshot() {
+    Map<String, Long> snapshot = new TreeMap<>();
+    counts.forEach((key, count) -> snapshot.put(key, Long.valueOf(count.sum())));
+    return Collections.unmodifiableMap(snapshot);
+  }
+
+  static String key(String exchange, String routingKey) {
+    return exchange + '/' + routingKey;
+  }
+}
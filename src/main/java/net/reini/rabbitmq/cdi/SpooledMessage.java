@@ -0,0 +1,322 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+/**
+ * An encoded message as stored in the {@link PublisherSpool}.
+ *
+ * @author Patrick Reinhart
+ */
+final class SpooledMessage {
+  private static final int TYPE_NULL = 0;
+  private static final int TYPE_STRING = 1;
+  private static final int TYPE_INTEGER = 2;
+  private static final int TYPE_LONG = 3;
+  private static final int TYPE_BOOLEAN = 4;
+  private static final int TYPE_DOUBLE = 5;
+  private static final int TYPE_FLOAT = 6;
+  private static final int TYPE_SHORT = 7;
+  private static final int TYPE_BYTE = 8;
+  private static final int TYPE_DATE = 9;
+  private static final int TYPE_BYTES = 10;
+  private static final int TYPE_MAP = 11;
+  private static final int TYPE_LIST = 12;
+  private static final int TYPE_DECIMAL = 13;
+
+  private final String exchange;
+  private final String routingKey;
+  private final BasicProperties properties;
+  private final byte[] body;
+
+  SpooledMessage(String exchange, String routingKey, BasicProperties properties, byte[] body) {
+    this.exchange = exchange;
+    this.routingKey = routingKey;
+    this.properties = properties;
+    this.body = body;
+  }
+
+  String getExchange() {
+    return exchange;
+  }
+
+  String getRoutingKey() {
+    return routingKey;
+  }
+
+  BasicProperties getProperties() {
+    return properties;
+  }
+
+  byte[] getBody() {
+    return body;
+  }
+
+  /**
+   * @return the binary representation of this message
+   * @throws IOException if the message properties could not be written
+   */
+  byte[] toBytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeString(out, exchange);
+      writeString(out, routingKey);
+      writeProperties(out, properties);
+      out.writeInt(body.length);
+      out.write(body);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Reads a message from its binary representation.
+   *
+   * @param data the binary representation
+   * @return the message
+   * @throws IOException if the data is not a valid message
+   */
+  static SpooledMessage fromBytes(byte[] data) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      String exchange = readString(in);
+      String routingKey = readString(in);
+      BasicProperties properties = readProperties(in);
+      byte[] body = new byte[in.readInt()];
+      in.readFully(body);
+      return new SpooledMessage(exchange, routingKey, properties, body);
+    }
+  }
+
+  private static void writeProperties(DataOutput out, BasicProperties properties)
+      throws IOException {
+    out.writeBoolean(properties != null);
+    if (properties == null) {
+      return;
+    }
+    writeString(out, properties.getContentType());
+    writeString(out, properties.getContentEncoding());
+    writeMap(out, properties.getHeaders());
+    writeInteger(out, properties.getDeliveryMode());
+    writeInteger(out, properties.getPriority());
+    writeString(out, properties.getCorrelationId());
+    writeString(out, properties.getReplyTo());
+    writeString(out, properties.getExpiration());
+    writeString(out, properties.getMessageId());
+    Date timestamp = properties.getTimestamp();
+    out.writeLong(timestamp == null ? Long.MIN_VALUE : timestamp.getTime());
+    writeString(out, properties.getType());
+    writeString(out, properties.getUserId());
+    writeString(out, properties.getAppId());
+    writeString(out, properties.getClusterId());
+  }
+
+  private static BasicProperties readProperties(DataInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    BasicProperties.Builder builder = new BasicProperties.Builder();
+    builder.contentType(readString(in));
+    builder.contentEncoding(readString(in));
+    builder.headers(readMap(in));
+    builder.deliveryMode(readInteger(in));
+    builder.priority(readInteger(in));
+    builder.correlationId(readString(in));
+    builder.replyTo(readString(in));
+    builder.expiration(readString(in));
+    builder.messageId(readString(in));
+    long timestamp = in.readLong();
+    builder.timestamp(timestamp == Long.MIN_VALUE ? null : new Date(timestamp));
+    builder.type(readString(in));
+    builder.userId(readString(in));
+    builder.appId(readString(in));
+    builder.clusterId(readString(in));
+    return builder.build();
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeInteger(DataOutput out, Integer value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value.intValue());
+    }
+  }
+
+  private static Integer readInteger(DataInput in) throws IOException {
+    return in.readBoolean() ? Integer.valueOf(in.readInt()) : null;
+  }
+
+  private static void writeMap(DataOutput out, Map<String, Object> map) throws IOException {
+    if (map == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(map.size());
+    for (Entry<String, Object> entry : map.entrySet()) {
+      writeString(out, entry.getKey());
+      writeValue(out, entry.getValue());
+    }
+  }
+
+  private static Map<String, Object> readMap(DataInput in) throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(readString(in), readValue(in));
+    }
+    return map;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void writeValue(DataOutput out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(TYPE_NULL);
+    } else if (value instanceof Integer) {
+      out.writeByte(TYPE_INTEGER);
+      out.writeInt(((Integer) value).intValue());
+    } else if (value instanceof Long) {
+      out.writeByte(TYPE_LONG);
+      out.writeLong(((Long) value).longValue());
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeBoolean(((Boolean) value).booleanValue());
+    } else if (value instanceof Double) {
+      out.writeByte(TYPE_DOUBLE);
+      out.writeDouble(((Double) value).doubleValue());
+    } else if (value instanceof Float) {
+      out.writeByte(TYPE_FLOAT);
+      out.writeFloat(((Float) value).floatValue());
+    } else if (value instanceof Short) {
+      out.writeByte(TYPE_SHORT);
+      out.writeShort(((Short) value).shortValue());
+    } else if (value instanceof Byte) {
+      out.writeByte(TYPE_BYTE);
+      out.writeByte(((Byte) value).byteValue());
+    } else if (value instanceof Date) {
+      out.writeByte(TYPE_DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      out.writeByte(TYPE_BYTES);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } else if (value instanceof Map) {
+      out.writeByte(TYPE_MAP);
+      writeMap(out, (Map<String, Object>) value);
+    } else if (value instanceof List) {
+      List<Object> list = (List<Object>) value;
+      out.writeByte(TYPE_LIST);
+      out.writeInt(list.size());
+      for (Object element : list) {
+        writeValue(out, element);
+      }
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(TYPE_DECIMAL);
+      writeString(out, value.toString());
+    } else {
+      out.writeByte(TYPE_STRING);
+      writeString(out, value.toString());
+    }
+  }
+
+  private static Object readValue(DataInput in) throws IOException {
+    int type = in.readByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_STRING:
+        return readString(in);
+      case TYPE_INTEGER:
+        return Integer.valueOf(in.readInt());
+      case TYPE_LONG:
+        return Long.valueOf(in.readLong());
+      case TYPE_BOOLEAN:
+        return Boolean.valueOf(in.readBoolean());
+      case TYPE_DOUBLE:
+        return Double.valueOf(in.readDouble());
+      case TYPE_FLOAT:
+        return Float.valueOf(in.readFloat());
+      case TYPE_SHORT:
+        return Short.valueOf(in.readShort());
+      case TYPE_BYTE:
+        return Byte.valueOf(in.readByte());
+      case TYPE_DATE:
+        return new Date(in.readLong());
+      case TYPE_BYTES:
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+      case TYPE_MAP:
+        return readMap(in);
+      case TYPE_LIST:
+        int size = in.readInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in));
+        }
+        return list;
+      case TYPE_DECIMAL:
+        return new BigDecimal(readString(in));
+      default:
+        throw new IOException("Unknown header value type " + type);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Collects the events of a single transaction that are published in the
+ * {@link jakarta.enterprise.event.TransactionPhase#AFTER_SUCCESS} phase of a binding having
+ * transaction batching enabled.
+ * </p>
+ *
+ * <p>
+ * After a successful commit all collected events are published back-to-back. The committing thread
+ * does not wait for their confirmations, failures are reported to the error handler of the
+ * binding. If the transaction does not commit, the events are dropped.
+ * </p>
+ *
+ * @author Patrick Reinhart
+ */
+final class TransactionBatch implements Synchronization {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransactionBatch.class);
+
+  private final Set<Object> batchedEvents;
+  private final List<PendingEvent<?>> pendingEvents;
+
+  /**
+   * @param batchedEvents the events batched by any active transaction, used to suppress the
+   *        individual publishing by the regular after success observer
+   */
+  TransactionBatch(Set<Object> batchedEvents) {
+    this.batchedEvents = batchedEvents;
+    this.pendingEvents = new ArrayList<>();
+  }
+
+  /**
+   * Adds the given event to this batch.
+   *
+   * @param event the event to be published after commit
+   * @param publisher the publisher used to publish the event
+   * @param configuration the publisher configuration
+   * @param <T> the event type
+   */
+  synchronized <T> void add(T event, MessagePublisher<T> publisher,
+      PublisherConfiguration<T> configuration) {
+    batchedEvents.add(event);
+    pendingEvents.add(new PendingEvent<>(event, publisher, configuration));
+  }
+
+  synchronized int size() {
+    return pendingEvents.size();
+  }
+
+  @Override
+  public void beforeCompletion() {
+    // nothing to do
+  }
+
+  @Override
+  public void afterCompletion(int status) {
+    List<PendingEvent<?>> events;
+    synchronized (this) {
+      events = new ArrayList<>(pendingEvents);
+      pendingEvents.clear();
+    }
+    if (status != Status.STATUS_COMMITTED) {
+      LOGGER.debug("Transaction not committed, dropping {} batched events",
+          Integer.valueOf(events.size()));
+      events.forEach(pendingEvent -> batchedEvents.remove(pendingEvent.event));
+      return;
+    }
+    LOGGER.debug("Publishing {} events of committed transaction", Integer.valueOf(events.size()));
+    List<CompletableFuture<Void>> confirmations = new ArrayList<>(events.size());
+    for (PendingEvent<?> pendingEvent : events) {
+      confirmations.add(pendingEvent.publish());
+    }
+    CompletableFuture.allOf(confirmations.toArray(new CompletableFuture<?>[0]))
+        .whenComplete((result, error) -> LOGGER.debug(
+            "Published events of committed transaction, all confirmed: {}",
+            Boolean.valueOf(error == null)));
+  }
+
+  static final class PendingEvent<T> {
+    final T event;
+    final MessagePublisher<T> publisher;
+    final PublisherConfiguration<T> configuration;
+
+    PendingEvent(T event, MessagePublisher<T> publisher, PublisherConfiguration<T> configuration) {
+      this.event = event;
+      this.publisher = publisher;
+      this.configuration = configuration;
+    }
+
+    CompletableFuture<Void> publish() {
+      try {
+        return publisher.publishConfirmed(event, configuration).toCompletableFuture();
+      } catch (PublishException e) {
+        configuration.accept(event, e);
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+/**
+ * Adds events to the batch of the transaction active on the calling thread. Transaction batching
+ * is optional, the JTA based implementation is only loaded if JTA is available.
+ *
+ * @author Patrick Reinhart
+ */
+@FunctionalInterface
+interface TransactionBatcher {
+  /**
+   * Batcher used if no JTA implementation is available, never batching any event.
+   */
+  TransactionBatcher NONE = (event, publisher, configuration) -> false;
+
+  /**
+   * Adds the given event to the batch of the active transaction, to be published after a
+   * successful commit.
+   *
+   * @param event the event to be published
+   * @param publisher the publisher used to publish the event
+   * @param configuration the publisher configuration
+   * @return {@code true} if the event was batched, {@code false} if no transaction is active
+   */
+  boolean add(Object event, MessagePublisher<Object> publisher,
+      PublisherConfiguration<Object> configuration);
+}
@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rabbitmq.client.RecoverableChannel;
+
+/**
+ * Tests the {@link AckCoalescer} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class AckCoalescerTest {
+  private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+  @Mock
+  private ScheduledExecutorService scheduler;
+  @Mock
+  private ScheduledFuture<?> flushTask;
+  @Mock
+  private RecoverableChannel channel;
+
+  private AckCoalescer sut;
+
+  @BeforeEach
+  void prepare() {
+    lenient().doReturn(flushTask).when(scheduler).schedule(any(Runnable.class), anyLong(),
+        eq(TimeUnit.NANOSECONDS));
+    sut = new AckCoalescer(3, WINDOW, scheduler, action -> action.apply(channel));
+  }
+
+  @Test
+  void testAckFullBatch() throws IOException {
+    deliver(1, 4);
+
+    sut.ack(1);
+    sut.ack(2);
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    assertEquals(2, sut.getCompletedCount());
+
+    sut.ack(3);
+    verify(channel).basicAck(3, true);
+    verify(scheduler).schedule(any(Runnable.class), eq(WINDOW), eq(TimeUnit.NANOSECONDS));
+    verify(flushTask).cancel(false);
+    assertEquals(0, sut.getCompletedCount());
+  }
+
+  @Test
+  void testAckOutOfOrder() throws IOException {
+    deliver(1, 3);
+
+    sut.ack(2);
+    sut.ack(3);
+    sut.flush();
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+    sut.ack(1);
+    verify(channel).basicAck(3, true);
+  }
+
+  @Test
+  void testFlushAfterWindow() throws IOException {
+    ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+    deliver(1, 2);
+
+    sut.ack(1);
+    verify(scheduler).schedule(taskCaptor.capture(), eq(WINDOW), eq(TimeUnit.NANOSECONDS));
+    taskCaptor.getValue().run();
+
+    verify(channel).basicAck(1, true);
+  }
+
+  @Test
+  void testNackFlushesCompleted() throws IOException {
+    deliver(1, 3);
+
+    sut.ack(1);
+    sut.nack(2);
+    sut.ack(3);
+    sut.flush();
+
+    InOrder inOrder = inOrder(channel);
+    inOrder.verify(channel).basicAck(1, true);
+    inOrder.verify(channel).basicNack(2, false, false);
+    inOrder.verify(channel).basicAck(3, true);
+  }
+
+  @Test
+  void testNackBeforeAck() throws IOException {
+    deliver(1, 3);
+
+    sut.nack(2);
+    sut.ack(1);
+    sut.flush();
+
+    InOrder inOrder = inOrder(channel);
+    inOrder.verify(channel).basicNack(2, false, false);
+    inOrder.verify(channel).basicAck(1, true);
+    verify(channel, never()).basicAck(2, true);
+
+    sut.ack(3);
+    sut.flush();
+    verify(channel).basicAck(3, true);
+  }
+
+  @Test
+  void testNackLastBeforeAck() throws IOException {
+    deliver(1, 2);
+
+    sut.nack(2);
+    sut.ack(1);
+    sut.flush();
+
+    verify(channel).basicNack(2, false, false);
+    verify(channel).basicAck(1, true);
+    verify(channel, never()).basicAck(2, true);
+    assertEquals(0, sut.getCompletedCount());
+  }
+
+  @Test
+  void testNackOnlyDelivery() throws IOException {
+    deliver(1, 1);
+
+    sut.nack(1);
+    sut.flush();
+
+    verify(channel).basicNack(1, false, false);
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+  }
+
+  @Test
+  void testNackFailed() throws IOException {
+    deliver(1, 1);
+    doThrow(new IOException("channel closed")).when(channel).basicNack(1, false, false);
+
+    assertThrows(IOException.class, () -> sut.nack(1));
+  }
+
+  @Test
+  void testRecoverForgetsOutstanding() throws IOException {
+    deliver(1, 2);
+
+    sut.ack(1);
+    sut.recover();
+    sut.ack(2);
+    sut.flush();
+
+    verify(channel).basicAck(1, true);
+    verify(channel, never()).basicAck(2, true);
+    assertEquals(0, sut.getCompletedCount());
+  }
+
+  @Test
+  void testFlushQuietly() throws IOException {
+    deliver(1, 1);
+    sut.ack(1);
+    doThrow(new IOException("channel closed")).when(channel).basicAck(1, true);
+
+    sut.flushQuietly();
+
+    verify(channel).basicAck(1, true);
+  }
+
+  private void deliver(long firstTag, long lastTag) {
+    for (long tag = firstTag; tag <= lastTag; tag++) {
+      sut.delivered(tag);
+    }
+  }
+}
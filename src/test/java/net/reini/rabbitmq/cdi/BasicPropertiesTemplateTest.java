@@ -0,0 +1,151 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+/**
+ * Tests the {@link BasicPropertiesTemplate} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+class BasicPropertiesTemplateTest {
+  private Map<String, Object> headers;
+  private BasicProperties properties;
+  private TestEvent event;
+
+  @BeforeEach
+  void setUp() {
+    headers = new HashMap<>();
+    headers.put("static", "value");
+    headers.put("overlaid", "static");
+    properties = new BasicProperties.Builder().contentType("application/json")
+        .deliveryMode(Integer.valueOf(2)).headers(headers).build();
+    event = new TestEvent();
+    event.setId("theId");
+  }
+
+  @Test
+  void testStaticOnly() {
+    BasicPropertiesTemplate<TestEvent> sut = new BasicPropertiesTemplate<>(properties);
+
+    BasicProperties result = sut.apply(event);
+
+    assertSame(result, sut.apply(new TestEvent()));
+    assertEquals("application/json", result.getContentType());
+    assertEquals(Integer.valueOf(2), result.getDeliveryMode());
+    assertEquals(headers, result.getHeaders());
+  }
+
+  @Test
+  void testStaticHeadersFrozen() {
+    BasicPropertiesTemplate<TestEvent> sut = new BasicPropertiesTemplate<>(properties);
+
+    headers.put("added", "later");
+
+    assertEquals(2, sut.apply(event).getHeaders().size());
+    assertThrows(UnsupportedOperationException.class,
+        () -> sut.apply(event).getHeaders().put("other", "value"));
+  }
+
+  @Test
+  void testDynamicFields() {
+    Map<String, Function<? super TestEvent, ?>> dynamicHeaders = new LinkedHashMap<>();
+    dynamicHeaders.put("overlaid", TestEvent::getId);
+    dynamicHeaders.put("dynamic", e -> Boolean.valueOf(e.isBooleanValue()));
+    BasicPropertiesTemplate<TestEvent> sut = new BasicPropertiesTemplate<>(properties,
+        TestEvent::getId, e -> "correlation", true, dynamicHeaders);
+
+    BasicProperties result = sut.apply(event);
+
+    assertNotSame(result, sut.apply(event));
+    assertEquals("application/json", result.getContentType());
+    assertEquals("theId", result.getMessageId());
+    assertEquals("correlation", result.getCorrelationId());
+    assertNotNull(result.getTimestamp());
+    Map<String, Object> expectedHeaders = new HashMap<>();
+    expectedHeaders.put("static", "value");
+    expectedHeaders.put("overlaid", "theId");
+    expectedHeaders.put("dynamic", Boolean.FALSE);
+    assertEquals(expectedHeaders, result.getHeaders());
+    assertEquals(3, result.getHeaders().size());
+    assertTrue(result.getHeaders().containsKey("dynamic"));
+  }
+
+  @Test
+  void testDynamicHeadersWithoutStaticHeaders() {
+    BasicPropertiesTemplate<TestEvent> sut = new BasicPropertiesTemplate<>(
+        new BasicProperties.Builder().build(), null, null, false,
+        Collections.singletonMap("id", TestEvent::getId));
+
+    BasicProperties result = sut.apply(event);
+
+    assertEquals(Collections.singletonMap("id", "theId"), result.getHeaders());
+    assertNull(result.getMessageId());
+    assertNull(result.getTimestamp());
+  }
+
+  @Test
+  void testWithMutableHeaders() {
+    Map<String, Function<? super TestEvent, ?>> dynamicHeaders = new LinkedHashMap<>();
+    dynamicHeaders.put("overlaid", TestEvent::getId);
+    BasicPropertiesTemplate<TestEvent> sut = new BasicPropertiesTemplate<>(properties,
+        TestEvent::getId, null, false, dynamicHeaders);
+
+    BasicProperties result = BasicPropertiesTemplate.withMutableHeaders(sut.apply(event));
+    result.getHeaders().put("calculated", "value");
+    result.getHeaders().remove("static");
+
+    assertEquals("theId", result.getMessageId());
+    assertEquals("application/json", result.getContentType());
+    assertEquals("theId", result.getHeaders().get("overlaid"));
+    assertEquals(2, result.getHeaders().size());
+    assertEquals(2, sut.apply(event).getHeaders().size());
+    assertEquals("value", sut.apply(event).getHeaders().get("static"));
+  }
+
+  @Test
+  void testWithMutableHeadersWithoutHeaders() {
+    BasicProperties withoutHeaders = new BasicProperties.Builder().build();
+
+    assertSame(withoutHeaders, BasicPropertiesTemplate.withMutableHeaders(withoutHeaders));
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rabbitmq.client.AMQP.BasicProperties.Builder;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+/**
+ * Tests the {@link BatchingPublisher} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class BatchingPublisherTest {
+  @Mock
+  private ConnectionRepository connectionRepository;
+  @Mock
+  private ConnectionConfig config;
+  @Mock
+  private Connection connection;
+  @Mock
+  private Channel channel;
+  @Mock
+  private BiConsumer<TestEvent, PublishException> errorHandler;
+  @Mock
+  private PublisherSpool spool;
+
+  private ScheduledExecutorService scheduler;
+  private ExecutorService executor;
+  private BatchingPublisher<TestEvent> publisher;
+
+  @BeforeEach
+  void prepare() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    executor = Executors.newSingleThreadExecutor();
+    lenient().when(connectionRepository.getChannelPool(config))
+        .thenReturn(new PublisherChannelPool(connectionRepository, config));
+    publisher = new BatchingPublisher<>(connectionRepository, scheduler, executor);
+  }
+
+  @AfterEach
+  void tearDown() {
+    scheduler.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testPublishFullBatch() throws Exception {
+    PublisherConfiguration<TestEvent> configuration = configuration(2, TimeUnit.HOURS.toNanos(1));
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    CompletableFuture<Void> first = publisher.publishConfirmed(new TestEvent(), configuration);
+    assertFalse(first.isDone());
+    assertEquals(1, publisher.getPendingCount());
+    CompletableFuture<Void> second = publisher.publishConfirmed(new TestEvent(), configuration);
+
+    assertTrue(first.isDone());
+    assertTrue(second.isDone());
+    assertEquals(0, publisher.getPendingCount());
+    verify(connectionRepository).createChannel(config);
+    verify(channel, times(2)).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  void testPublishBatchWindowElapsed() throws Exception {
+    PublisherConfiguration<TestEvent> configuration =
+        configuration(100, TimeUnit.MILLISECONDS.toNanos(10));
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.publish(new TestEvent(), configuration);
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(new TestEvent(), configuration);
+
+    confirmation.get(5, TimeUnit.SECONDS);
+    verify(channel, times(2)).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  void testBatchWindowFlushedByExecutor() throws Exception {
+    PublisherConfiguration<TestEvent> configuration =
+        configuration(100, TimeUnit.MILLISECONDS.toNanos(10));
+    AtomicReference<Thread> publishingThread = new AtomicReference<>();
+    when(connectionRepository.createChannel(config)).thenAnswer(invocation -> {
+      publishingThread.set(Thread.currentThread());
+      return channel;
+    });
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(new TestEvent(), configuration);
+
+    confirmation.get(5, TimeUnit.SECONDS);
+    Thread schedulerThread = scheduler.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+    assertNotSame(schedulerThread, publishingThread.get());
+  }
+
+  @Test
+  void testClose() throws Exception {
+    PublisherConfiguration<TestEvent> configuration = configuration(100, TimeUnit.HOURS.toNanos(1));
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(new TestEvent(), configuration);
+    publisher.close();
+
+    assertTrue(confirmation.isDone());
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+    assertThrows(PublishException.class,
+        () -> publisher.publish(new TestEvent(), configuration));
+  }
+
+  @Test
+  void testFlushWithError() throws Exception {
+    PublisherConfiguration<TestEvent> configuration = configuration(1, TimeUnit.HOURS.toNanos(1));
+    TestEvent event = new TestEvent();
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    doThrow(new IOException()).when(channel).basicPublish(eq("exchange"), eq("routingKey"), any(),
+        any());
+
+    configuration.withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS));
+
+    CompletableFuture<Void> confirmation = publisher.publishConfirmed(event, configuration);
+
+    assertThrows(ExecutionException.class, () -> confirmation.get(5, TimeUnit.SECONDS));
+    verify(connectionRepository, times(3)).createChannel(config);
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
+  }
+
+  @Test
+  void testScheduledFlushAwaitsFlowControl() throws Exception {
+    when(config.getPublisherFlowControlTimeout()).thenReturn(Long.valueOf(5_000));
+    PublisherChannelPool channelPool = new PublisherChannelPool(connectionRepository, config);
+    when(connectionRepository.getChannelPool(config)).thenReturn(channelPool);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    PublisherConfiguration<TestEvent> configuration =
+        configuration(100, TimeUnit.MILLISECONDS.toNanos(10));
+    channelPool.onConnectionBlocked(connection, "low on memory");
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(new TestEvent(), configuration);
+
+    // the scheduler stays available while the batch waits
+    scheduler.schedule(() -> null, 50, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS);
+    assertFalse(confirmation.isDone());
+
+    channelPool.onConnectionUnblocked(connection);
+    confirmation.get(5, TimeUnit.SECONDS);
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  void testFullBatchDoesNotOvertakeScheduledFlush() throws Exception {
+    when(config.getPublisherFlowControlTimeout()).thenReturn(Long.valueOf(5_000));
+    PublisherChannelPool channelPool = new PublisherChannelPool(connectionRepository, config);
+    when(connectionRepository.getChannelPool(config)).thenReturn(channelPool);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    PublisherConfiguration<TestEvent> configuration =
+        configuration(2, TimeUnit.MILLISECONDS.toNanos(10));
+    channelPool.onConnectionBlocked(connection, "low on memory");
+
+    CompletableFuture<Void> first = publisher.publishConfirmed(event("first"), configuration);
+    // let the scheduled flush of the first event wait for the flow control
+    scheduler.schedule(() -> null, 50, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS);
+    CompletableFuture<Void> second = publisher.publishConfirmed(event("second"), configuration);
+    CompletableFuture<Void> third = publisher.publishConfirmed(event("third"), configuration);
+
+    assertFalse(third.isDone());
+    channelPool.onConnectionUnblocked(connection);
+    CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+
+    ArgumentCaptor<byte[]> bodies = ArgumentCaptor.forClass(byte[].class);
+    verify(channel, times(3)).basicPublish(eq("exchange"), eq("routingKey"), any(),
+        bodies.capture());
+    List<String> published = new ArrayList<>();
+    bodies.getAllValues().forEach(body -> published.add(new String(body, UTF_8)));
+    assertEquals(List.of("{\"id\":\"first\",\"booleanValue\":false}",
+        "{\"id\":\"second\",\"booleanValue\":false}",
+        "{\"id\":\"third\",\"booleanValue\":false}"), published);
+  }
+
+  @Test
+  void testFlushSpooledWhileDisconnected() throws Exception {
+    PublisherConfiguration<TestEvent> configuration = configuration(2, TimeUnit.HOURS.toNanos(1));
+    ArgumentCaptor<CompletableFuture<Void>> replayedCaptor = ArgumentCaptor.captor();
+    when(connectionRepository.getPublisherSpool(config)).thenReturn(spool);
+    when(spool.offer(any(), replayedCaptor.capture())).thenReturn(true);
+
+    CompletableFuture<Void> first = publisher.publishConfirmed(new TestEvent(), configuration);
+    CompletableFuture<Void> second = publisher.publishConfirmed(new TestEvent(), configuration);
+    replayedCaptor.getAllValues().forEach(replayed -> replayed.complete(null));
+
+    assertTrue(first.isDone());
+    assertTrue(second.isDone());
+    verify(spool, times(2)).offer(any(), any());
+    verify(connectionRepository, never()).createChannel(config);
+  }
+
+  @Test
+  void testFlushEmptyBatch() {
+    publisher.flush(new ArrayList<>(), false);
+  }
+
+  private static TestEvent event(String id) {
+    TestEvent event = new TestEvent();
+    event.setId(id);
+    return event;
+  }
+
+  private PublisherConfiguration<TestEvent> configuration(int batchSize, long batchWindow) {
+    List<Declaration> declarations = new ArrayList<>();
+    return new PublisherConfiguration<>(config, "exchange", e -> "routingKey", new Builder(), null,
+        new JsonEncoder<>(), errorHandler, declarations).withBatching(batchSize, batchWindow);
+  }
+}
@@ -26,10 +26,15 @@ package net.reini.rabbitmq.cdi;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -38,6 +43,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.rabbitmq.client.Address;
+import com.rabbitmq.client.impl.nio.NioParams;
 
 import net.reini.rabbitmq.cdi.EventBinder.BinderConfiguration;
 
@@ -263,4 +269,109 @@ public class BinderConfigurationTest {
     assertSame(binderConfig, binderConfig.setFailedConsumerActivationRetryTime(4000));
     verify(config).setFailedConsumerActivationRetryTime(4000);
   }
+
+  @Test
+  public void testSetPublisherChannelPoolSize() {
+    assertSame(binderConfig, binderConfig.setPublisherChannelPoolSize(4));
+    verify(config).setPublisherChannelPoolSize(4);
+  }
+
+  @Test
+  public void testSetPublisherSpoolDirectory() {
+    Path spoolDirectory = Paths.get("spool");
+    assertSame(binderConfig, binderConfig.setPublisherSpoolDirectory(spoolDirectory));
+    verify(config).setPublisherSpoolDirectory(spoolDirectory);
+  }
+
+  @Test
+  public void testSetPublisherSpoolSize() {
+    assertSame(binderConfig, binderConfig.setPublisherSpoolSize(4096));
+    verify(config).setPublisherSpoolSize(4096);
+  }
+
+  @Test
+  public void testSetPublisherFlowControlPolicy() {
+    assertSame(binderConfig, binderConfig.setPublisherFlowControlPolicy(FlowControlPolicy.FAIL));
+    verify(config).setPublisherFlowControlPolicy(FlowControlPolicy.FAIL);
+    assertThrows(NullPointerException.class,
+        () -> binderConfig.setPublisherFlowControlPolicy(null));
+  }
+
+  @Test
+  public void testSetConnectionCount() {
+    assertSame(binderConfig, binderConfig.setConnectionCount(4));
+    verify(config).setConnectionCount(4);
+    assertThrows(IllegalArgumentException.class, () -> binderConfig.setConnectionCount(0));
+  }
+
+  @Test
+  public void testSetSeparatePublisherConnection() {
+    assertSame(binderConfig, binderConfig.setSeparatePublisherConnection(true));
+    verify(config).setSeparatePublisherConnection(true);
+  }
+
+  @Test
+  public void testUseNio() {
+    NioParams nioParams = new NioParams();
+    assertSame(binderConfig, binderConfig.useNio(nioParams));
+    verify(config).setNioParams(nioParams);
+    assertSame(binderConfig, binderConfig.useNio());
+    verify(config).setNioParams(any(NioParams.class));
+    assertThrows(NullPointerException.class, () -> binderConfig.useNio(null));
+  }
+
+  @Test
+  public void testSetConsumerExecutor() {
+    ExecutorService executor = mock(ExecutorService.class);
+    assertSame(binderConfig, binderConfig.setConsumerExecutor(executor));
+    verify(config).setConsumerExecutor(executor);
+    verify(config).setConsumerDeliveryExecutor(null);
+    verify(config).setOwnedExecutor(null);
+    assertThrows(NullPointerException.class, () -> binderConfig.setConsumerExecutor(null));
+  }
+
+  @Test
+  public void testUseVirtualThreadConsumersOrdered() {
+    assertSame(binderConfig, binderConfig.useVirtualThreadConsumers(true));
+    verify(config).setConsumerExecutor(any(ExecutorService.class));
+    verify(config).setConsumerDeliveryExecutor(null);
+    verify(config).setOwnedExecutor(any(ExecutorService.class));
+  }
+
+  @Test
+  public void testUseVirtualThreadConsumersUnordered() {
+    assertSame(binderConfig, binderConfig.useVirtualThreadConsumers(false));
+    verify(config).setConsumerExecutor(null);
+    verify(config).setConsumerDeliveryExecutor(any(BoundedExecutor.class));
+    verify(config).setOwnedExecutor(any(ExecutorService.class));
+  }
+
+  @Test
+  public void testUseVirtualThreadConsumersBounded() {
+    assertSame(binderConfig, binderConfig.useVirtualThreadConsumers(10));
+    verify(config).setConsumerExecutor(null);
+    verify(config).setConsumerDeliveryExecutor(any(BoundedExecutor.class));
+    assertThrows(IllegalArgumentException.class, () -> binderConfig.useVirtualThreadConsumers(0));
+  }
+
+  @Test
+  public void testSetPublisherInFlightLimit() {
+    assertSame(binderConfig, binderConfig.setPublisherInFlightLimit(500));
+    verify(config).setPublisherInFlightLimit(500);
+    assertThrows(IllegalArgumentException.class,
+        () -> binderConfig.setPublisherInFlightLimit(-1));
+  }
+
+  @Test
+  public void testSetPublisherFlowControlTimeout() {
+    assertSame(binderConfig, binderConfig.setPublisherFlowControlTimeout(1000));
+    verify(config).setPublisherFlowControlTimeout(1000);
+    assertThrows(IllegalArgumentException.class,
+        () -> binderConfig.setPublisherFlowControlTimeout(-1));
+  }
+
+  @Test
+  public void testSetPublisherSpoolSize_invalid() {
+    assertThrows(IllegalArgumentException.class, () -> binderConfig.setPublisherSpoolSize(0));
+  }
 }
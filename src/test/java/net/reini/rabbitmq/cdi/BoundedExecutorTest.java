@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Tests the {@link BoundedExecutor} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class BoundedExecutorTest {
+  @Mock
+  private Executor delegate;
+  @Mock
+  private Runnable task;
+
+  @Test
+  void testExecute() {
+    ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+    BoundedExecutor sut = new BoundedExecutor(delegate, 2);
+
+    sut.execute(task);
+    assertEquals(1, sut.getAvailablePermits());
+    verify(delegate).execute(taskCaptor.capture());
+    verify(task, never()).run();
+
+    taskCaptor.getValue().run();
+    verify(task).run();
+    assertEquals(2, sut.getAvailablePermits());
+  }
+
+  @Test
+  void testExecuteRejected() {
+    BoundedExecutor sut = new BoundedExecutor(delegate, 1);
+    doThrow(new RejectedExecutionException()).when(delegate).execute(any(Runnable.class));
+
+    assertThrows(RejectedExecutionException.class, () -> sut.execute(task));
+    assertEquals(1, sut.getAvailablePermits());
+  }
+
+  @Test
+  void testExecuteInterrupted() {
+    BoundedExecutor sut = new BoundedExecutor(delegate, 1);
+    sut.execute(task);
+
+    Thread.currentThread().interrupt();
+    assertThrows(RejectedExecutionException.class, () -> sut.execute(task));
+    assertTrue(Thread.interrupted());
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Tests the {@link CompressingEncoder} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class CompressingEncoderTest {
+  @Mock
+  private Encoder<String> encoder;
+
+  @Test
+  void testInvalidArguments() {
+    CompressionCodec codec = CompressionCodec.gzip();
+
+    assertThrows(NullPointerException.class, () -> new CompressingEncoder<>(null, codec));
+    assertThrows(NullPointerException.class, () -> new CompressingEncoder<>(encoder, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CompressingEncoder<>(encoder, codec, -1));
+  }
+
+  @Test
+  void testContentType() {
+    when(encoder.contentType()).thenReturn("text/plain");
+
+    assertEquals("text/plain",
+        new CompressingEncoder<>(encoder, CompressionCodec.gzip()).contentType());
+  }
+
+  @Test
+  void testBelowThreshold() throws EncodeException {
+    when(encoder.encode("small")).thenReturn("small".getBytes(StandardCharsets.UTF_8));
+    CompressingEncoder<String> sut = new CompressingEncoder<>(encoder, CompressionCodec.gzip());
+    EncodeBuffer buffer = new EncodeBuffer();
+
+    sut.encode("small", buffer);
+
+    assertArrayEquals("small".getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+    assertNull(buffer.getContentEncoding());
+  }
+
+  @Test
+  void testAboveThreshold() throws Exception {
+    byte[] data = new byte[2000];
+    Arrays.fill(data, (byte) 'x');
+    when(encoder.encode("large")).thenReturn(data);
+    CompressionCodec codec = CompressionCodec.gzip();
+    CompressingEncoder<String> sut = new CompressingEncoder<>(encoder, codec, 1000);
+    EncodeBuffer buffer = new EncodeBuffer();
+
+    sut.encode("large", buffer);
+
+    assertEquals("gzip", buffer.getContentEncoding());
+    assertArrayEquals(data, codec.decompress(buffer.toByteArray()));
+  }
+
+  @Test
+  void testBufferedDelegate() throws Exception {
+    CompressionCodec codec = CompressionCodec.deflate();
+    CompressingEncoder<Object> sut = new CompressingEncoder<>(new JsonEncoder<>(), codec, 0);
+    EncodeBuffer buffer = new EncodeBuffer();
+
+    for (int i = 0; i < 2; i++) {
+      buffer.reset();
+      sut.encode(new TestEvent(), buffer);
+
+      assertEquals("deflate", buffer.getContentEncoding());
+      assertArrayEquals(new JsonEncoder<>().encode(new TestEvent()),
+          codec.decompress(buffer.toByteArray()));
+    }
+  }
+}
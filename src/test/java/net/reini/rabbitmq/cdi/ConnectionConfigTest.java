@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * Tests the default methods of {@link ConnectionConfig} used by implementations not aware of them.
+ *
+ * @author Patrick Reinhart
+ */
+class ConnectionConfigTest {
+  private ConnectionConfig config;
+
+  @BeforeEach
+  void prepare() {
+    config = new ConnectionConfig() {
+      @Override
+      public Connection createConnection(ConnectionFactory connectionFactory) {
+        return null;
+      }
+
+      @Override
+      public long getConnectRetryWaitTime() {
+        return 0;
+      }
+
+      @Override
+      public long getFailedConsumerActivationRetryTime() {
+        return 0;
+      }
+    };
+  }
+
+  @Test
+  void testGetPublisherChannelPoolSize() {
+    assertEquals(8, config.getPublisherChannelPoolSize());
+  }
+
+  @Test
+  void testPublisherSpoolDisabled() {
+    assertNull(config.getPublisherSpoolDirectory());
+    assertEquals(64L * 1024 * 1024, config.getPublisherSpoolSize());
+  }
+
+  @Test
+  void testPublisherFlowControl() {
+    assertEquals(FlowControlPolicy.BLOCK, config.getPublisherFlowControlPolicy());
+    assertEquals(0, config.getPublisherInFlightLimit());
+    assertEquals(30_000, config.getPublisherFlowControlTimeout());
+  }
+
+  @Test
+  void testGetConnectionCount() {
+    assertEquals(1, config.getConnectionCount());
+  }
+
+  @Test
+  void testGetPublisherConnectionConfig() {
+    assertSame(config, config.getPublisherConnectionConfig());
+  }
+
+  @Test
+  void testGetConsumerDeliveryExecutor() {
+    assertNull(config.getConsumerDeliveryExecutor());
+  }
+}
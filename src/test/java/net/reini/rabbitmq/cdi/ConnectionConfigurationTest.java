@@ -25,16 +25,27 @@ package net.reini.rabbitmq.cdi;
 
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
 import javax.net.ssl.SSLContext;
@@ -47,8 +58,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.rabbitmq.client.Address;
+import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.SslContextFactory;
+import com.rabbitmq.client.impl.nio.NioParams;
 
 /**
  * Tests the {@link ConnectionConfiguration} implementation.
@@ -146,6 +159,55 @@ public class ConnectionConfigurationTest {
     assertEquals(300, configuration.getFailedConsumerActivationRetryTime());
   }
 
+  @Test
+  public void testSetPublisherChannelPoolSize() throws Exception {
+    assertEquals(8, configuration.getPublisherChannelPoolSize());
+    configuration.setPublisherChannelPoolSize(3);
+    assertEquals(3, configuration.getPublisherChannelPoolSize());
+  }
+
+  @Test
+  public void testSetPublisherSpool() throws Exception {
+    assertNull(configuration.getPublisherSpoolDirectory());
+    assertEquals(64L * 1024 * 1024, configuration.getPublisherSpoolSize());
+    configuration.setPublisherSpoolDirectory(Paths.get("spool"));
+    configuration.setPublisherSpoolSize(1024);
+    assertEquals(Paths.get("spool"), configuration.getPublisherSpoolDirectory());
+    assertEquals(1024, configuration.getPublisherSpoolSize());
+  }
+
+  @Test
+  public void testSetPublisherFlowControl() throws Exception {
+    assertEquals(FlowControlPolicy.BLOCK, configuration.getPublisherFlowControlPolicy());
+    assertEquals(0, configuration.getPublisherInFlightLimit());
+    assertEquals(30_000, configuration.getPublisherFlowControlTimeout());
+    configuration.setPublisherFlowControlPolicy(FlowControlPolicy.SPILL);
+    configuration.setPublisherInFlightLimit(100);
+    configuration.setPublisherFlowControlTimeout(500);
+    assertEquals(FlowControlPolicy.SPILL, configuration.getPublisherFlowControlPolicy());
+    assertEquals(100, configuration.getPublisherInFlightLimit());
+    assertEquals(500, configuration.getPublisherFlowControlTimeout());
+  }
+
+  @Test
+  public void testSetConnectionCount() throws Exception {
+    assertEquals(1, configuration.getConnectionCount());
+    configuration.setConnectionCount(3);
+    assertEquals(3, configuration.getConnectionCount());
+  }
+
+  @Test
+  public void testSetSeparatePublisherConnection() throws Exception {
+    assertSame(configuration, configuration.getPublisherConnectionConfig());
+    configuration.setSeparatePublisherConnection(true);
+    ConnectionConfig publisherConfig = configuration.getPublisherConnectionConfig();
+    assertInstanceOf(PublisherConnectionConfig.class, publisherConfig);
+    assertNotEquals(configuration, publisherConfig);
+    assertSame(publisherConfig, configuration.getPublisherConnectionConfig());
+    configuration.setSeparatePublisherConnection(false);
+    assertSame(configuration, configuration.getPublisherConnectionConfig());
+  }
+
   /**
    * Test method for {@link ConnectionConfiguration#setSecure(boolean)}.
    */
@@ -253,6 +315,70 @@ public class ConnectionConfigurationTest {
   }
 
 
+  @Test
+  public void testCreateConnection_nio() throws Exception {
+    ConnectionFactory nioConnectionFactory = mock(ConnectionFactory.class);
+    Connection connection = mock(Connection.class);
+    NioParams nioParams = new NioParams();
+    configuration = new ConnectionConfiguration(sslContextFactoryMock, () -> nioConnectionFactory);
+    configuration.addHost(expectedAddress);
+    configuration.setNioParams(nioParams);
+    when(nioConnectionFactory.newConnection(asList(expectedAddress))).thenReturn(connection);
+
+    assertSame(connection, configuration.createConnection(connectionFactory));
+    assertSame(connection, configuration.createConnection(connectionFactory));
+
+    verify(nioConnectionFactory).useNio();
+    verify(nioConnectionFactory).setNioParams(nioParams);
+    verify(nioConnectionFactory).setUsername("guest");
+    verify(nioConnectionFactory, times(2)).newConnection(asList(expectedAddress));
+    verifyNoInteractions(connectionFactory);
+  }
+
+  @Test
+  public void testSetConsumerExecutor() throws Exception {
+    ExecutorService executor = mock(ExecutorService.class);
+    configuration.addHost(expectedAddress);
+    configuration.setConsumerExecutor(executor);
+
+    configuration.createConnection(connectionFactory);
+
+    verify(connectionFactory).newConnection(executor, asList(expectedAddress));
+  }
+
+  @Test
+  public void testSetConsumerDeliveryExecutor() {
+    Executor executor = mock(Executor.class);
+    assertNull(configuration.getConsumerDeliveryExecutor());
+    configuration.setConsumerDeliveryExecutor(executor);
+    assertSame(executor, configuration.getConsumerDeliveryExecutor());
+  }
+
+  @Test
+  public void testShutdownOwnedExecutor() {
+    ExecutorService executor = mock(ExecutorService.class);
+    ExecutorService otherExecutor = mock(ExecutorService.class);
+    configuration.setOwnedExecutor(executor);
+    configuration.setOwnedExecutor(otherExecutor);
+    verify(executor).shutdown();
+
+    configuration.shutdownOwnedExecutor();
+    configuration.shutdownOwnedExecutor();
+    verify(otherExecutor).shutdown();
+  }
+
+  @Test
+  public void testSetNioParams_null_value() throws Exception {
+    configuration.setNioParams(new NioParams());
+    configuration.setNioParams(null);
+    configuration.addHost(expectedAddress);
+
+    configuration.createConnection(connectionFactory);
+
+    verify(connectionFactory, never()).useNio();
+    verify(connectionFactory).newConnection(asList(expectedAddress));
+  }
+
   @Test
   public void testProblemWithSSLContextInitialisation() throws Exception {
     doThrow(new NoSuchAlgorithmException()).when(sslContextFactoryMock).createSSLContext();
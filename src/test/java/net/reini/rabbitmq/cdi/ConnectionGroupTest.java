@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ShutdownListener;
+
+/**
+ * Tests the {@link ConnectionGroup} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class ConnectionGroupTest {
+  @Mock
+  private ConnectionConfig config;
+  @Mock
+  private ConnectionManager firstManager;
+  @Mock
+  private ConnectionManager secondManager;
+  @Mock
+  private Connection firstConnection;
+  @Mock
+  private Connection secondConnection;
+  @Mock
+  private Channel channel;
+  @Mock
+  private Channel otherChannel;
+  @Mock
+  private ConnectionListener listener;
+
+  private ConnectionGroup sut;
+
+  @BeforeEach
+  void prepare() throws IOException {
+    when(config.getConnectionCount()).thenReturn(2);
+    ConnectionManager[] managers = {firstManager, secondManager};
+    int[] index = {0};
+    sut = new ConnectionGroup(config, c -> managers[index[0]++]);
+    lenient().when(firstManager.getConnection()).thenReturn(firstConnection);
+    lenient().when(secondManager.getConnection()).thenReturn(secondConnection);
+  }
+
+  @Test
+  void testSize() {
+    assertEquals(2, sut.size());
+  }
+
+  @Test
+  void testCreateChannelLeastLoaded() throws IOException {
+    when(firstManager.getState()).thenReturn(ConnectionState.CONNECTED);
+    when(secondManager.getState()).thenReturn(ConnectionState.CONNECTED);
+    when(firstConnection.createChannel()).thenReturn(channel);
+    when(secondConnection.createChannel()).thenReturn(otherChannel);
+
+    assertSame(channel, sut.createChannel());
+    assertSame(otherChannel, sut.createChannel());
+
+    assertEquals(1, sut.getChannelCount(0));
+    assertEquals(1, sut.getChannelCount(1));
+  }
+
+  @Test
+  void testCreateChannelSkipsLostConnection() throws IOException {
+    when(firstManager.getState()).thenReturn(ConnectionState.CONNECTING);
+    when(secondManager.getState()).thenReturn(ConnectionState.CONNECTED);
+    when(secondConnection.createChannel()).thenReturn(otherChannel);
+
+    assertSame(otherChannel, sut.createChannel());
+    assertSame(secondConnection, sut.getConnection());
+    assertTrue(sut.isConnected());
+  }
+
+  @Test
+  void testChannelShutdownReleasesLoad() throws IOException {
+    when(firstManager.getState()).thenReturn(ConnectionState.CONNECTED);
+    when(secondManager.getState()).thenReturn(ConnectionState.CONNECTING);
+    when(firstConnection.createChannel()).thenReturn(channel);
+
+    sut.createChannel();
+    ArgumentCaptor<ShutdownListener> shutdownListener =
+        ArgumentCaptor.forClass(ShutdownListener.class);
+    verify(channel).addShutdownListener(shutdownListener.capture());
+    assertEquals(1, sut.getChannelCount(0));
+    shutdownListener.getValue().shutdownCompleted(null);
+    shutdownListener.getValue().shutdownCompleted(null);
+
+    assertEquals(0, sut.getChannelCount(0));
+  }
+
+  @Test
+  void testCreateChannelNotConnected() throws IOException {
+    when(firstManager.getConnection()).thenThrow(new IOException("not connected"));
+
+    assertThrows(IOException.class, () -> sut.createChannel());
+    assertFalse(sut.isConnected());
+    verify(secondManager, never()).getConnection();
+  }
+
+  @Test
+  void testCreateChannelNoneAvailable() throws IOException {
+    when(firstManager.getState()).thenReturn(ConnectionState.CONNECTED);
+
+    assertThrows(IOException.class, () -> sut.createChannel());
+  }
+
+  @Test
+  void testConnectAndClose() {
+    sut.connect();
+    sut.close();
+
+    verify(firstManager).connect();
+    verify(secondManager).connect();
+    verify(firstManager).close();
+    verify(secondManager).close();
+  }
+
+  @Test
+  void testListeners() {
+    when(firstManager.containsListener(listener)).thenReturn(true);
+    when(secondManager.containsListener(listener)).thenReturn(true, false);
+
+    sut.addListener(listener);
+    assertTrue(sut.containsListener(listener));
+    sut.removeListener(listener);
+    assertFalse(sut.containsListener(listener));
+
+    verify(firstManager).addListener(listener);
+    verify(secondManager).addListener(listener);
+    verify(firstManager).removeListener(listener);
+    verify(secondManager).removeListener(listener);
+  }
+}
@@ -41,10 +41,12 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.rabbitmq.client.BlockedListener;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 
@@ -228,6 +230,23 @@ class ConnectionManagerTest {
     verify(watcherThreadMock).stopThread();
   }
 
+  @Test
+  public void testConnectionBlocked() throws TimeoutException, IOException {
+    ArgumentCaptor<BlockedListener> blockedListener =
+        ArgumentCaptor.forClass(BlockedListener.class);
+    when(configMock.createConnection(connectionFactoryMock)).thenReturn(connectionMock);
+    sut.tryToEstablishConnection();
+    verify(connectionMock).addBlockedListener(blockedListener.capture());
+
+    blockedListener.getValue().handleBlocked("low on memory");
+    verify(listener).onConnectionBlocked(connectionMock, "low on memory");
+    blockedListener.getValue().handleUnblocked();
+    verify(listener).onConnectionUnblocked(connectionMock);
+
+    sut.close();
+    verify(connectionMock).removeBlockedListener(blockedListener.getValue());
+  }
+
   @Test
   public void testMultipleClose() {
     sut.close();
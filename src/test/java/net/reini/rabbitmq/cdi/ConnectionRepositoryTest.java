@@ -23,9 +23,12 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.function.Function;
@@ -38,6 +41,9 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
 @ExtendWith(MockitoExtension.class)
 public class ConnectionRepositoryTest {
 
@@ -48,6 +54,10 @@ public class ConnectionRepositoryTest {
 
   @Mock
   private ConnectionManager connectionManagerMock;
+  @Mock
+  private Connection connectionMock;
+  @Mock
+  private Channel channelMock;
 
   @Mock
   private Function<ConnectionConfig, ConnectionManager> factoryFunctionMock;
@@ -110,6 +120,24 @@ public class ConnectionRepositoryTest {
 
   }
 
+  @Test
+  void testCreateChannel() throws IOException {
+    when(connectionManagerMock.getState()).thenReturn(ConnectionState.CONNECTED);
+    when(connectionManagerMock.getConnection()).thenReturn(connectionMock);
+    when(connectionMock.createChannel()).thenReturn(channelMock);
+
+    assertSame(channelMock, sut.createChannel(configMock));
+    assertTrue(sut.isConnected(configMock));
+  }
+
+  @Test
+  void testGetChannelPool() {
+    PublisherChannelPool channelPool = sut.getChannelPool(configMock);
+
+    assertSame(channelPool, sut.getChannelPool(configMock));
+    verify(connectionManagerMock).addListener(channelPool);
+  }
+
   @Test
   void testConstructor() {
     ConnectionRepository connectionRepository = new ConnectionRepository();
@@ -36,7 +36,6 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.RecoverableChannel;
 
 @ExtendWith(MockitoExtension.class)
@@ -47,8 +46,6 @@ public class ConsumerChannelFactoryTest {
   @Mock
   private ConnectionConfig configMock;
   @Mock
-  private Connection connectionMock;
-  @Mock
   private RecoverableChannel channelMock;
 
   @BeforeEach
@@ -58,8 +55,7 @@ public class ConsumerChannelFactoryTest {
 
   @Test
   void createChannel() throws IOException {
-    when(connectionRepositoryMock.getConnection(configMock)).thenReturn(connectionMock);
-    when(connectionMock.createChannel()).thenReturn(channelMock);
+    when(connectionRepositoryMock.createChannel(configMock)).thenReturn(channelMock);
 
     Channel channel = sut.createChannel();
     assertSame(channel, channelMock);
@@ -67,7 +63,7 @@ public class ConsumerChannelFactoryTest {
 
   @Test
   void createChannelFailed() throws IOException {
-    when(connectionRepositoryMock.getConnection(configMock)).thenThrow(new IOException("failed"));
+    when(connectionRepositoryMock.createChannel(configMock)).thenThrow(new IOException("failed"));
     assertThrows(IOException.class, () -> {
       sut.createChannel();
     });
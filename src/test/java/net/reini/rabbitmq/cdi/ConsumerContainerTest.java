@@ -27,7 +27,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -42,6 +46,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.rabbitmq.client.Connection;
+
 @ExtendWith(MockitoExtension.class)
 class ConsumerContainerTest {
   private static final String EXPECTED_QUEUE_NAME = "queue";
@@ -65,6 +71,8 @@ class ConsumerContainerTest {
   private ReentrantLock lockMock;
   @Mock
   private DeclarerRepository declarerRepositoryMock;
+  @Mock
+  private Connection connectionMock;
 
   private List<Declaration> declarations = new ArrayList<>();
 
@@ -77,7 +85,7 @@ class ConsumerContainerTest {
         declarerRepositoryMock, consumerHolders, consumerHolderFactoryMock, lockMock);
     when(consumerHolderFactoryMock.createConsumerHolder(consumerMock, EXPECTED_QUEUE_NAME,
         EXPECTED_AUTOACK, 0, connectionRepositoryMock, connectionConfigMock, declarations,
-        declarerRepositoryMock)).thenReturn(consumerHolderMock);
+        declarerRepositoryMock, null, null)).thenReturn(consumerHolderMock);
     sut.addConsumer(consumerMock, EXPECTED_QUEUE_NAME, EXPECTED_AUTOACK, 0, declarations);
 
     assertEquals(1, consumerHolders.size());
@@ -85,6 +93,37 @@ class ConsumerContainerTest {
     assertSame(consumerHolderMock, consumerHolder);
   }
 
+  @Test
+  void testAddConsumerHolderWithAckBatching() {
+    List<ConsumerHolder> consumerHolders = new ArrayList<>();
+    ConsumerContainer sut = new ConsumerContainer(connectionConfigMock, connectionRepositoryMock,
+        declarerRepositoryMock, consumerHolders, consumerHolderFactoryMock, lockMock);
+    when(consumerHolderFactoryMock.createConsumerHolder(eq(consumerMock), eq(EXPECTED_QUEUE_NAME),
+        eq(false), eq(10), eq(connectionRepositoryMock), eq(connectionConfigMock),
+        eq(declarations), eq(declarerRepositoryMock), notNull(), isNull()))
+        .thenReturn(consumerHolderMock);
+    sut.addConsumer(consumerMock, EXPECTED_QUEUE_NAME, false, 10, 5, 1000, declarations);
+
+    assertEquals(1, consumerHolders.size());
+    assertSame(consumerHolderMock, consumerHolders.get(0));
+  }
+
+  @Test
+  void testAddConsumerHolderAsBatch() {
+    List<ConsumerHolder> consumerHolders = new ArrayList<>();
+    ConsumerContainer sut = new ConsumerContainer(connectionConfigMock, connectionRepositoryMock,
+        declarerRepositoryMock, consumerHolders, consumerHolderFactoryMock, lockMock);
+    when(consumerMock.getBatchSize()).thenReturn(10);
+    when(consumerHolderFactoryMock.createConsumerHolder(eq(consumerMock), eq(EXPECTED_QUEUE_NAME),
+        eq(false), eq(10), eq(connectionRepositoryMock), eq(connectionConfigMock),
+        eq(declarations), eq(declarerRepositoryMock), isNull(), notNull()))
+        .thenReturn(consumerHolderMock);
+    sut.addConsumer(consumerMock, EXPECTED_QUEUE_NAME, false, 10, declarations);
+
+    assertEquals(1, consumerHolders.size());
+    assertSame(consumerHolderMock, consumerHolders.get(0));
+  }
+
   @Test
   void testEnsureAllConsumerAreActive() throws IOException {
     List<ConsumerHolder> consumerHolders = new ArrayList<>();
@@ -97,6 +136,19 @@ class ConsumerContainerTest {
 
   }
 
+  @Test
+  void testEnsureConsumersAreActiveSkipsSuspended() throws IOException {
+    List<ConsumerHolder> consumerHolders = new ArrayList<>();
+    consumerHolders.add(consumerHolderMock);
+    consumerHolders.add(consumerHolderMock2);
+    when(consumerHolderMock2.isSuspended()).thenReturn(true);
+    ConsumerContainer sut =
+        new ConsumerContainer(null, null, declarerRepositoryMock, consumerHolders, null, lockMock);
+    assertTrue(sut.ensureConsumersAreActive());
+    verify(consumerHolderMock).activate();
+    verify(consumerHolderMock2, never()).activate();
+  }
+
   @Test
   void testEnsureAllConsumerAreActiveWith2ConsumerAndOneFailing() throws IOException {
     List<ConsumerHolder> consumerHolders = new ArrayList<>();
@@ -121,6 +173,19 @@ class ConsumerContainerTest {
     verify(consumerHolderMock).deactivate();
   }
 
+  @Test
+  void testDeactivateConsumersOfConnection() {
+    List<ConsumerHolder> consumerHolders = new ArrayList<>();
+    consumerHolders.add(consumerHolderMock);
+    consumerHolders.add(consumerHolderMock2);
+    when(consumerHolderMock.isUsing(connectionMock)).thenReturn(true);
+    ConsumerContainer sut =
+        new ConsumerContainer(null, null, declarerRepositoryMock, consumerHolders, null, lockMock);
+    sut.deactivateConsumers(connectionMock);
+    verify(consumerHolderMock).deactivate();
+    verify(consumerHolderMock2, never()).deactivate();
+  }
+
 
   @Test
   void testStartAndStopConsumerContainer() {
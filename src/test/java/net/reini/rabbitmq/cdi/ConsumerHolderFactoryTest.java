@@ -51,7 +51,8 @@ class ConsumerHolderFactoryTest {
     ConsumerHolderFactory consumerHolderFactory = new ConsumerHolderFactory();
     ConsumerHolder consumerHolder =
         consumerHolderFactory.createConsumerHolder(eventConsumerMock, "queue", true, 0,
-            connectionRepositoryMock, configMock, declarations, declarerRepositoryMock);
+            connectionRepositoryMock, configMock, declarations, declarerRepositoryMock, null,
+            null);
     assertNotNull(consumerHolder);
   }
 }
@@ -28,22 +28,31 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -57,6 +66,7 @@ import com.rabbitmq.client.MessageProperties;
 import com.rabbitmq.client.RecoverableChannel;
 import com.rabbitmq.client.ShutdownSignalException;
 
+import net.reini.rabbitmq.cdi.AckCoalescer.AckActionInvoker;
 import net.reini.rabbitmq.cdi.ConsumerHolder.AckAction;
 
 @ExtendWith(MockitoExtension.class)
@@ -69,12 +79,20 @@ class ConsumerHolderTest {
   @Mock
   private RecoverableChannel channelMock;
   @Mock
+  private RecoverableChannel otherChannelMock;
+  @Mock
   private List<Declaration> declarationsListMock;
   @Mock
   private DeclarerRepository declarerRepositoryMock;
 
   private ConsumerHolder sut;
 
+  @BeforeEach
+  void prepare() {
+    lenient().when(channelMock.isOpen()).thenReturn(true);
+    lenient().when(otherChannelMock.isOpen()).thenReturn(true);
+  }
+
   @Test
   void activateAndDeactivate() throws IOException, TimeoutException {
     sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
@@ -192,6 +210,323 @@ class ConsumerHolderTest {
     verify(channelMock).basicNack(123L, false, false);
   }
 
+  @Test
+  void deliverWithAckUsingDeliveryExecutor() throws IOException {
+    Executor deliveryExecutor = mock(Executor.class);
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock,
+        deliveryExecutor, null);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    Delivery message = new Delivery(envelope, properties, body);
+    ArgumentCaptor<DeliverCallback> callbackCaptor = ArgumentCaptor.forClass(DeliverCallback.class);
+    ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+    when(eventConsumerMock.consume("consumerTag", envelope, properties, body)).thenReturn(true);
+
+    sut.activate();
+    verify(channelMock).basicConsume(eq("queue"), eq(false), callbackCaptor.capture(),
+        isA(ConsumerShutdownSignalCallback.class));
+    callbackCaptor.getValue().handle("consumerTag", message);
+
+    verify(eventConsumerMock, never()).consume("consumerTag", envelope, properties, body);
+    verify(deliveryExecutor).execute(taskCaptor.capture());
+    taskCaptor.getValue().run();
+    verify(channelMock).basicAck(123L, false);
+  }
+
+  @Test
+  void deactivateBatchAfterConnectionLoss() throws IOException {
+    EventBatcher<?> eventBatcher = mock(EventBatcher.class);
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock, null, null,
+        invoker -> eventBatcher);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+    when(channelMock.isOpen()).thenReturn(false);
+
+    sut.activate();
+    sut.deactivate();
+
+    verify(eventBatcher).recover();
+    verify(eventBatcher, never()).flushQuietly();
+  }
+
+  @Test
+  void updatePrefetchCount() throws IOException {
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    ArgumentCaptor<DeliverCallback> callbackCaptor = ArgumentCaptor.forClass(DeliverCallback.class);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+    when(eventConsumerMock.consume("consumerTag", envelope, properties, body)).thenReturn(true);
+
+    sut.updatePrefetchCount(10);
+    verify(channelMock, never()).basicQos(10);
+    assertEquals(10, sut.getPrefetchCount());
+
+    sut.activate();
+    verify(channelMock).basicConsume(eq("queue"), eq(false), callbackCaptor.capture(),
+        isA(ConsumerShutdownSignalCallback.class));
+    callbackCaptor.getValue().handle("consumerTag", new Delivery(envelope, properties, body));
+    sut.updatePrefetchCount(20);
+
+    verify(channelMock).basicQos(10);
+    verify(channelMock).basicQos(20);
+    assertEquals(1, sut.getProcessedCount());
+    assertTrue(sut.getProcessingTime() >= 0);
+    assertTrue(sut.getRoundTripTime() >= 0);
+  }
+
+  @Test
+  void cancelDrainsMessagesInFlight() throws IOException {
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    CompletableFuture<Boolean> consumed = new CompletableFuture<>();
+
+    assertFalse(sut.cancel());
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+    when(channelMock.basicConsume(eq("queue"), eq(false), any(DeliverCallback.class),
+        isA(ConsumerShutdownSignalCallback.class))).thenReturn("consumerTag");
+    when(eventConsumerMock.isAsyncDelivery()).thenReturn(true);
+    when(eventConsumerMock.consumeAsync("consumerTag", envelope, properties, body))
+        .thenReturn(consumed);
+
+    sut.activate();
+    sut.deliverWithAck("consumerTag", new Delivery(envelope, properties, body));
+    assertEquals(1, sut.getInFlightCount());
+
+    assertTrue(sut.cancel());
+    assertFalse(sut.cancel());
+    verify(channelMock).basicCancel("consumerTag");
+    assertTrue(sut.isActive());
+
+    consumed.complete(Boolean.TRUE);
+    assertEquals(0, sut.getInFlightCount());
+    verify(channelMock).basicAck(123L, false);
+  }
+
+  @Test
+  void updateAdaptivePrefetchCount() throws IOException {
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock);
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+
+    sut.setAdaptivePrefetch(true);
+    assertTrue(sut.isAdaptivePrefetch());
+    sut.activate();
+    sut.updatePrefetchCount(20);
+
+    InOrder inOrder = inOrder(channelMock);
+    inOrder.verify(channelMock).basicQos(PREFETCH_COUNT, true);
+    inOrder.verify(channelMock).basicConsume(eq("queue"), eq(false), any(DeliverCallback.class),
+        isA(ConsumerShutdownSignalCallback.class));
+    inOrder.verify(channelMock).basicQos(20, true);
+    verify(channelMock, never()).basicQos(anyInt());
+  }
+
+  @Test
+  void deliverUsingDeliveryExecutorAfterReactivation() throws IOException {
+    Executor deliveryExecutor = mock(Executor.class);
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock,
+        deliveryExecutor, null);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    ArgumentCaptor<DeliverCallback> callbackCaptor = ArgumentCaptor.forClass(DeliverCallback.class);
+    ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock, otherChannelMock);
+    when(eventConsumerMock.consume("consumerTag", envelope, properties, body)).thenReturn(true);
+
+    sut.activate();
+    verify(channelMock).basicConsume(eq("queue"), eq(false), callbackCaptor.capture(),
+        isA(ConsumerShutdownSignalCallback.class));
+    callbackCaptor.getValue().handle("consumerTag", new Delivery(envelope, properties, body));
+    sut.deactivate();
+    sut.activate();
+    verify(deliveryExecutor).execute(taskCaptor.capture());
+    taskCaptor.getValue().run();
+
+    verify(channelMock, never()).basicAck(123L, false);
+    verify(otherChannelMock, never()).basicAck(123L, false);
+  }
+
+  @Test
+  void deliverWithAckCoalescing() throws IOException {
+    AckCoalescer ackCoalescer = mock(AckCoalescer.class);
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock, null,
+        invoker -> ackCoalescer);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    Envelope otherEnvelope = new Envelope(124L, false, "exchange", "routingKey");
+    ArgumentCaptor<DeliverCallback> callbackCaptor = ArgumentCaptor.forClass(DeliverCallback.class);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+    when(eventConsumerMock.consume("consumerTag", envelope, properties, body)).thenReturn(true);
+
+    sut.activate();
+    verify(channelMock).basicConsume(eq("queue"), eq(false), callbackCaptor.capture(),
+        isA(ConsumerShutdownSignalCallback.class));
+    callbackCaptor.getValue().handle("consumerTag", new Delivery(envelope, properties, body));
+    callbackCaptor.getValue().handle("consumerTag", new Delivery(otherEnvelope, properties, body));
+    sut.handleRecoveryStarted(channelMock);
+    sut.deactivate();
+
+    InOrder inOrder = inOrder(ackCoalescer);
+    inOrder.verify(ackCoalescer).delivered(123L);
+    inOrder.verify(ackCoalescer).ack(123L);
+    inOrder.verify(ackCoalescer).delivered(124L);
+    inOrder.verify(ackCoalescer).nack(124L);
+    inOrder.verify(ackCoalescer).recover();
+    inOrder.verify(ackCoalescer).flushQuietly();
+    verify(channelMock, never()).basicAck(123L, false);
+  }
+
+  @Test
+  void deliverToBatch() throws IOException {
+    EventBatcher<?> eventBatcher = mock(EventBatcher.class);
+    AckCoalescer ackCoalescer = mock(AckCoalescer.class);
+    Executor deliveryExecutor = mock(Executor.class);
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock,
+        deliveryExecutor, invoker -> ackCoalescer, invoker -> eventBatcher);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    ArgumentCaptor<DeliverCallback> callbackCaptor = ArgumentCaptor.forClass(DeliverCallback.class);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+
+    sut.activate();
+    verify(channelMock).basicConsume(eq("queue"), eq(false), callbackCaptor.capture(),
+        isA(ConsumerShutdownSignalCallback.class));
+    callbackCaptor.getValue().handle("consumerTag", new Delivery(envelope, properties, body));
+    sut.handleRecoveryStarted(channelMock);
+    sut.deactivate();
+
+    InOrder inOrder = inOrder(eventBatcher);
+    inOrder.verify(eventBatcher).add(123L, properties, body);
+    inOrder.verify(eventBatcher).recover();
+    inOrder.verify(eventBatcher).flushQuietly();
+    assertEquals(1, sut.getDeliveryCount());
+    verifyNoInteractions(ackCoalescer, deliveryExecutor);
+  }
+
+  @Test
+  void ackCoalescerBoundToChannel() throws IOException {
+    List<AckActionInvoker> invokers = new ArrayList<>();
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock, null,
+        invoker -> {
+          invokers.add(invoker);
+          return mock(AckCoalescer.class);
+        });
+    AckAction action = mock(AckAction.class);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock, otherChannelMock);
+
+    sut.activate();
+    sut.deactivate();
+    sut.activate();
+    invokers.get(0).invoke(action);
+    verifyNoInteractions(action);
+
+    invokers.get(1).invoke(action);
+    verify(action).apply(otherChannelMock);
+  }
+
+  @Test
+  void deliverWithAckAsync() throws IOException {
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    Delivery message = new Delivery(envelope, properties, body);
+    CompletableFuture<Boolean> consumed = new CompletableFuture<>();
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+    when(eventConsumerMock.isAsyncDelivery()).thenReturn(true);
+    when(eventConsumerMock.consumeAsync("consumerTag", envelope, properties, body))
+        .thenReturn(consumed);
+
+    sut.activate();
+    sut.deliverWithAck("consumerTag", message);
+    verify(channelMock, never()).basicAck(123L, false);
+
+    consumed.complete(Boolean.FALSE);
+    verify(channelMock).basicNack(123L, false, false);
+    verify(eventConsumerMock, never()).consume("consumerTag", envelope, properties, body);
+  }
+
+  @Test
+  void deliverWithAckAsyncAfterReactivation() throws IOException {
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock);
+    BasicProperties properties = MessageProperties.BASIC;
+    byte[] body = "some body".getBytes();
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    Delivery message = new Delivery(envelope, properties, body);
+    CompletableFuture<Boolean> consumed = new CompletableFuture<>();
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock, otherChannelMock);
+    when(eventConsumerMock.isAsyncDelivery()).thenReturn(true);
+    when(eventConsumerMock.consumeAsync("consumerTag", envelope, properties, body))
+        .thenReturn(consumed);
+
+    sut.activate();
+    sut.deliverWithAck("consumerTag", message);
+    sut.deactivate();
+    sut.activate();
+
+    consumed.complete(Boolean.TRUE);
+    verify(channelMock, never()).basicAck(123L, false);
+    verify(otherChannelMock, never()).basicAck(123L, false);
+  }
+
+  @Test
+  void invokeAckActionClosedChannel() throws IOException {
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock);
+    AckAction action = mock(AckAction.class);
+
+    when(consumerChannelFactoryMock.createChannel()).thenReturn(channelMock);
+    when(channelMock.isOpen()).thenReturn(false);
+
+    sut.activate();
+    sut.invokeAckAction(channelMock, action);
+    sut.invokeAckAction(otherChannelMock, action);
+
+    verifyNoInteractions(action);
+  }
+
+  @Test
+  void dispatchFailingCallback() throws IOException {
+    sut = new ConsumerHolder(eventConsumerMock, "queue", false, PREFETCH_COUNT,
+        consumerChannelFactoryMock, declarationsListMock, declarerRepositoryMock, Runnable::run,
+        null);
+    DeliverCallback callback = mock(DeliverCallback.class);
+    Envelope envelope = new Envelope(123L, false, "exchange", "routingKey");
+    Delivery message = new Delivery(envelope, MessageProperties.BASIC, new byte[0]);
+
+    doThrow(new IOException("some error")).when(callback).handle("consumerTag", message);
+
+    assertDoesNotThrow(() -> sut.dispatch(callback, "consumerTag", message));
+    verify(callback).handle("consumerTag", message);
+  }
+
   @Test
   void deliverWithAckFailedAck() throws IOException {
     sut = new ConsumerHolder(eventConsumerMock, "queue", true, PREFETCH_COUNT,
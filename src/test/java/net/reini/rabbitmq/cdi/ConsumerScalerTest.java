@@ -0,0 +1,284 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Tests the {@link ConsumerScaler} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class ConsumerScalerTest {
+  @Mock
+  private EventConsumer<TestEvent> eventConsumer;
+  @Mock
+  private ConsumerChannelFactory consumerChannelFactory;
+  @Mock
+  private DeclarerRepository declarerRepository;
+  @Mock
+  private ConsumerHolder first;
+  @Mock
+  private ConsumerHolder second;
+  @Mock
+  private ConsumerHolder third;
+
+  private ConsumerScaler sut;
+
+  @BeforeEach
+  void prepare() {
+    lenient().when(first.isActive()).thenReturn(true);
+    lenient().when(second.isActive()).thenReturn(true);
+    lenient().when(third.isActive()).thenReturn(true);
+    sut = new ConsumerScaler(Arrays.asList(first, second, third), 1, Runnable::run);
+  }
+
+  @Test
+  void testInitiallySuspended() {
+    verify(first, never()).setSuspended(true);
+    verify(second).setSuspended(true);
+    verify(third).setSuspended(true);
+  }
+
+  @Test
+  void testScaleUp() throws IOException {
+    when(second.isSuspended()).thenReturn(true);
+    when(second.isActive()).thenReturn(false);
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getDeliveryCount()).thenReturn(5L);
+
+    sut.run();
+
+    verify(second).setSuspended(false);
+    verify(second).activate();
+    verify(third, never()).activate();
+  }
+
+  @Test
+  void testScaleUpWhileConsumingSlowMessage() throws IOException {
+    when(second.isSuspended()).thenReturn(true);
+    when(second.isActive()).thenReturn(false);
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getInFlightCount()).thenReturn(1L);
+
+    sut.run();
+
+    verify(second).setSuspended(false);
+    verify(second).activate();
+  }
+
+  @Test
+  void testScaleUpWaitsForDrainingConsumer() throws IOException {
+    when(second.isSuspended()).thenReturn(true);
+    when(second.getInFlightCount()).thenReturn(1L);
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getDeliveryCount()).thenReturn(5L);
+
+    sut.run();
+
+    verify(second, never()).setSuspended(false);
+    verify(second, never()).activate();
+    verify(second, never()).deactivate();
+  }
+
+  @Test
+  void testScaleUpFailed() throws IOException {
+    when(second.isSuspended()).thenReturn(true);
+    when(second.isActive()).thenReturn(false);
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getDeliveryCount()).thenReturn(5L);
+    doThrow(new IOException("no connection")).when(second).activate();
+
+    sut.run();
+
+    verify(second).setSuspended(false);
+    verify(second, times(2)).setSuspended(true);
+  }
+
+  @Test
+  void testScaleUpActivatesOnExecutor() throws IOException {
+    List<Runnable> activations = new ArrayList<>();
+    sut = new ConsumerScaler(Arrays.asList(first, second, third), 1, activations::add);
+    when(second.isSuspended()).thenReturn(true);
+    when(second.isActive()).thenReturn(false);
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getDeliveryCount()).thenReturn(5L);
+
+    sut.run();
+
+    verify(second).setSuspended(false);
+    verify(second, never()).activate();
+    assertEquals(1, activations.size());
+    activations.get(0).run();
+    verify(second).activate();
+  }
+
+  @Test
+  void testScaleUpActivationRejected() throws IOException {
+    sut = new ConsumerScaler(Arrays.asList(first, second, third), 1, runnable -> {
+      throw new RejectedExecutionException();
+    });
+    when(second.isSuspended()).thenReturn(true);
+    when(second.isActive()).thenReturn(false);
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getDeliveryCount()).thenReturn(5L);
+
+    sut.run();
+
+    verify(second, never()).activate();
+    verify(second, times(2)).setSuspended(true);
+  }
+
+  @Test
+  void testScaleDown() {
+    when(third.isSuspended()).thenReturn(true);
+    when(first.getDeliveryCount()).thenReturn(5L);
+
+    for (int i = 1; i < ConsumerScaler.IDLE_CHECKS; i++) {
+      sut.run();
+    }
+    verify(second, never()).deactivate();
+
+    sut.run();
+    verify(second).deactivate();
+    verify(first, never()).deactivate();
+  }
+
+  @Test
+  void testScaleDownDrainsMessagesInFlight() throws IOException {
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getDeliveryCount()).thenReturn(5L);
+    when(second.cancel()).thenReturn(true);
+
+    for (int i = 0; i < ConsumerScaler.IDLE_CHECKS; i++) {
+      sut.run();
+    }
+    verify(second).setSuspended(true);
+    verify(second).cancel();
+    verify(second, never()).deactivate();
+
+    when(second.isSuspended()).thenReturn(true);
+    when(second.getInFlightCount()).thenReturn(1L);
+    sut.run();
+    verify(second, never()).deactivate();
+
+    when(second.getInFlightCount()).thenReturn(0L);
+    sut.run();
+    verify(second).deactivate();
+  }
+
+  @Test
+  void testScaleDownDrainTimeout() throws IOException {
+    when(second.isSuspended()).thenReturn(true);
+    when(second.getInFlightCount()).thenReturn(1L);
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+
+    for (int i = 1; i < ConsumerScaler.IDLE_CHECKS; i++) {
+      sut.run();
+    }
+    verify(second, never()).deactivate();
+
+    sut.run();
+    verify(second).deactivate();
+  }
+
+  @Test
+  void testScaleDownCancelFailed() throws IOException {
+    when(third.isSuspended()).thenReturn(true);
+    when(third.isActive()).thenReturn(false);
+    when(first.getDeliveryCount()).thenReturn(5L);
+    doThrow(new IOException("closed")).when(second).cancel();
+
+    for (int i = 0; i < ConsumerScaler.IDLE_CHECKS; i++) {
+      sut.run();
+    }
+
+    verify(second).deactivate();
+  }
+
+  @Test
+  void testNoScaleDownWhileConsumingSlowMessages() throws IOException {
+    sut = new ConsumerScaler(Arrays.asList(first, second), 1, Runnable::run);
+    when(first.getInFlightCount()).thenReturn(1L);
+    when(second.getInFlightCount()).thenReturn(1L);
+
+    for (int i = 0; i < 2 * ConsumerScaler.IDLE_CHECKS; i++) {
+      sut.run();
+    }
+
+    verify(second, never()).cancel();
+    verify(second, never()).deactivate();
+  }
+
+  @Test
+  void testKeepMinimum() {
+    when(second.isSuspended()).thenReturn(true);
+    when(third.isSuspended()).thenReturn(true);
+
+    for (int i = 0; i < ConsumerScaler.IDLE_CHECKS; i++) {
+      sut.run();
+    }
+
+    verify(first, never()).deactivate();
+  }
+
+  @Test
+  void testGetRunningConsumers() {
+    ConsumerHolder consumerHolder = new ConsumerHolder(eventConsumer, "queue", false, 0,
+        consumerChannelFactory, null, declarerRepository);
+    ConsumerHolder scaledConsumerHolder = new ConsumerHolder(eventConsumer, "queue", false, 0,
+        consumerChannelFactory, null, declarerRepository);
+    ConsumerScaler scaler =
+        new ConsumerScaler(Arrays.asList(consumerHolder, scaledConsumerHolder), 1, Runnable::run);
+
+    assertEquals(1, scaler.getRunningConsumers());
+  }
+}
@@ -24,6 +24,7 @@
 package net.reini.rabbitmq.cdi;
 
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -66,6 +67,17 @@ public class ContainerConnectionListenerTest {
     verify(consumerContainerMock, Mockito.times(1)).deactivateAllConsumer();
   }
 
+  @Test
+  void testOnConnectionLostWithRemainingConnection() {
+    when(consumerContainerMock.isAnyConnectionEstablished()).thenReturn(true);
+    ContainerConnectionListener sut =
+        new ContainerConnectionListener(consumerContainerMock, lockMock, conditionMock);
+    sut.onConnectionLost(conectionMock);
+    verify(consumerContainerMock, Mockito.never()).setConnectionAvailable(false);
+    verify(consumerContainerMock, Mockito.times(1)).deactivateConsumers(conectionMock);
+    verify(conditionMock, Mockito.times(1)).signalAll();
+  }
+
   @Test
   void testOnConnectionEstablished() {
     ContainerConnectionListener sut =
@@ -23,7 +23,10 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -36,12 +39,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
 
 @ExtendWith(MockitoExtension.class)
 class DeclarerRepositoryTest {
   private static final String EXPECTED_QUEUE_NAME = "queue";
   @Mock
   private Channel channelMock;
+  @Mock
+  private Connection connectionMock;
 
   @Test
   void testRepository() throws IOException {
@@ -51,4 +57,77 @@ class DeclarerRepositoryTest {
     sut.declare(channelMock, declarations);
     verify(channelMock).queueDeclare(EXPECTED_QUEUE_NAME, false, false, false, new HashMap<>());
   }
+
+  @Test
+  void testDeclareOnce() throws IOException {
+    DeclarerRepository sut = new DeclarerRepository();
+    List<Declaration> declarations = new ArrayList<>();
+    declarations.add(new QueueDeclaration(EXPECTED_QUEUE_NAME));
+    when(channelMock.getConnection()).thenReturn(connectionMock);
+
+    sut.declareOnce(channelMock, declarations);
+    sut.declareOnce(channelMock, declarations);
+
+    verify(channelMock).queueDeclare(EXPECTED_QUEUE_NAME, false, false, false, new HashMap<>());
+  }
+
+  @Test
+  void testDeclareOnceAfterConnectionEstablished() throws IOException {
+    DeclarerRepository sut = new DeclarerRepository();
+    List<Declaration> declarations = new ArrayList<>();
+    declarations.add(new QueueDeclaration(EXPECTED_QUEUE_NAME));
+    when(channelMock.getConnection()).thenReturn(connectionMock);
+
+    sut.declareOnce(channelMock, declarations);
+    sut.onConnectionEstablished(connectionMock);
+    sut.declareOnce(channelMock, declarations);
+
+    verify(channelMock, times(2)).queueDeclare(EXPECTED_QUEUE_NAME, false, false, false,
+        new HashMap<>());
+  }
+
+  @Test
+  void testDeclareOnceAfterConnectionLost() throws IOException {
+    DeclarerRepository sut = new DeclarerRepository();
+    List<Declaration> declarations = new ArrayList<>();
+    declarations.add(new QueueDeclaration(EXPECTED_QUEUE_NAME));
+    when(channelMock.getConnection()).thenReturn(connectionMock);
+
+    sut.declareOnce(channelMock, declarations);
+    sut.onConnectionLost(connectionMock);
+    sut.onConnectionClosed(null);
+    sut.declareOnce(channelMock, declarations);
+
+    verify(channelMock, times(2)).queueDeclare(EXPECTED_QUEUE_NAME, false, false, false,
+        new HashMap<>());
+  }
+
+  @Test
+  void testDeclareOnceFailing() throws IOException {
+    DeclarerRepository sut = new DeclarerRepository();
+    List<Declaration> declarations = new ArrayList<>();
+    declarations.add(new QueueDeclaration(EXPECTED_QUEUE_NAME));
+    when(channelMock.getConnection()).thenReturn(connectionMock);
+    when(channelMock.queueDeclare(EXPECTED_QUEUE_NAME, false, false, false, new HashMap<>()))
+        .thenThrow(new IOException()).thenReturn(null);
+
+    assertThrows(IOException.class, () -> sut.declareOnce(channelMock, declarations));
+    sut.declareOnce(channelMock, declarations);
+
+    verify(channelMock, times(2)).queueDeclare(EXPECTED_QUEUE_NAME, false, false, false,
+        new HashMap<>());
+  }
+
+  @Test
+  void testDeclareOnceWithoutConnection() throws IOException {
+    DeclarerRepository sut = new DeclarerRepository();
+    List<Declaration> declarations = new ArrayList<>();
+    declarations.add(new QueueDeclaration(EXPECTED_QUEUE_NAME));
+
+    sut.declareOnce(channelMock, declarations);
+    sut.declareOnce(channelMock, declarations);
+
+    verify(channelMock, times(2)).queueDeclare(EXPECTED_QUEUE_NAME, false, false, false,
+        new HashMap<>());
+  }
 }
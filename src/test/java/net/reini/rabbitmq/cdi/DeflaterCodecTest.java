@@ -0,0 +1,220 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link DeflaterCodec} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+class DeflaterCodecTest {
+  private static final byte[] DATA = repeat("{\"name\":\"some event\",\"value\":42}", 200);
+
+  @Test
+  void testContentEncoding() {
+    assertEquals("gzip", CompressionCodec.gzip().contentEncoding());
+    assertEquals("deflate", CompressionCodec.deflate().contentEncoding());
+  }
+
+  @Test
+  void testInvalidLevel() {
+    assertThrows(IllegalArgumentException.class, () -> CompressionCodec.gzip(10));
+    assertThrows(IllegalArgumentException.class, () -> CompressionCodec.deflate(-2));
+  }
+
+  @Test
+  void testGzipRoundTrip() throws IOException {
+    CompressionCodec codec = CompressionCodec.gzip();
+
+    for (int i = 0; i < 3; i++) {
+      EncodeBuffer buffer = new EncodeBuffer();
+      codec.compress(DATA, 0, DATA.length, buffer);
+
+      assertTrue(buffer.size() < DATA.length);
+      assertArrayEquals(DATA, codec.decompress(buffer.toByteArray()));
+    }
+  }
+
+  @Test
+  void testDeflateRoundTrip() throws IOException {
+    CompressionCodec codec = CompressionCodec.deflate(1);
+    EncodeBuffer buffer = new EncodeBuffer();
+    buffer.write(1);
+
+    codec.compress(DATA, 0, DATA.length, buffer);
+
+    byte[] compressed = Arrays.copyOfRange(buffer.toByteArray(), 1, buffer.size());
+    assertArrayEquals(DATA, codec.decompress(compressed));
+  }
+
+  @Test
+  void testCompressPartOfArray() throws IOException {
+    CompressionCodec codec = CompressionCodec.gzip();
+    EncodeBuffer buffer = new EncodeBuffer();
+
+    codec.compress(DATA, 10, 100, buffer);
+
+    assertArrayEquals(Arrays.copyOfRange(DATA, 10, 110), codec.decompress(buffer.toByteArray()));
+  }
+
+  @Test
+  void testGzipCompatibility() throws IOException {
+    CompressionCodec codec = CompressionCodec.gzip();
+    EncodeBuffer buffer = new EncodeBuffer();
+    codec.compress(DATA, 0, DATA.length, buffer);
+
+    assertArrayEquals(DATA, readAll(new GZIPInputStream(
+        new ByteArrayInputStream(buffer.toByteArray()))));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(DATA);
+    }
+    assertArrayEquals(DATA, codec.decompress(out.toByteArray()));
+  }
+
+  @Test
+  void testDeflateCompatibility() throws IOException {
+    CompressionCodec codec = CompressionCodec.deflate();
+    EncodeBuffer buffer = new EncodeBuffer();
+    codec.compress(DATA, 0, DATA.length, buffer);
+
+    assertArrayEquals(DATA, readAll(new InflaterInputStream(
+        new ByteArrayInputStream(buffer.toByteArray()))));
+  }
+
+  @Test
+  void testDecompressInvalidData() {
+    byte[] invalid = "not compressed at all".getBytes(StandardCharsets.UTF_8);
+
+    assertThrows(IOException.class, () -> CompressionCodec.gzip().decompress(invalid));
+    assertThrows(IOException.class, () -> CompressionCodec.deflate().decompress(invalid));
+  }
+
+  @Test
+  void testDecompressTruncatedData() throws IOException {
+    CompressionCodec codec = CompressionCodec.gzip();
+    EncodeBuffer buffer = new EncodeBuffer();
+    codec.compress(DATA, 0, DATA.length, buffer);
+
+    byte[] truncated = Arrays.copyOf(buffer.toByteArray(), buffer.size() - 4);
+    assertThrows(IOException.class, () -> codec.decompress(truncated));
+    byte[] corrupted = buffer.toByteArray();
+    corrupted[corrupted.length - 8] ^= 1;
+    assertThrows(IOException.class, () -> codec.decompress(corrupted));
+  }
+
+  @Test
+  void testInvalidMaxDecompressedSize() {
+    assertThrows(IllegalArgumentException.class, () -> CompressionCodec.gzip(1, 0));
+    assertThrows(IllegalArgumentException.class, () -> CompressionCodec.deflate(1, -1));
+  }
+
+  @Test
+  void testDecompressExceedingMaxSize() throws IOException {
+    CompressionCodec codec = CompressionCodec.gzip(Deflater.DEFAULT_COMPRESSION, DATA.length - 1);
+    EncodeBuffer buffer = new EncodeBuffer();
+    codec.compress(DATA, 0, DATA.length, buffer);
+
+    IOException exception =
+        assertThrows(IOException.class, () -> codec.decompress(buffer.toByteArray()));
+    assertEquals("Decompressed gzip data exceeds maximum size of " + (DATA.length - 1) + " bytes",
+        exception.getMessage());
+    assertArrayEquals(DATA,
+        CompressionCodec.gzip(Deflater.DEFAULT_COMPRESSION, DATA.length)
+            .decompress(buffer.toByteArray()));
+  }
+
+  @Test
+  void testDefaultMaxDecompressedSize() {
+    assertEquals(DeflaterCodec.DEFAULT_MAX_DECOMPRESSED_SIZE,
+        new DeflaterCodec(DeflaterCodec.DEFLATE, 1).getMaxDecompressedSize());
+  }
+
+  @Test
+  void testInstancesPooled() throws Exception {
+    DeflaterCodec codec = new DeflaterCodec(DeflaterCodec.DEFLATE, 1);
+    ExecutorService executor = Executors.newFixedThreadPool(DeflaterCodec.POOL_SIZE * 2);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for (int i = 0; i < DeflaterCodec.POOL_SIZE * 8; i++) {
+        results.add(executor.submit(() -> {
+          EncodeBuffer buffer = new EncodeBuffer();
+          codec.compress(DATA, 0, DATA.length, buffer);
+          return codec.decompress(buffer.toByteArray());
+        }));
+      }
+      for (Future<byte[]> result : results) {
+        assertArrayEquals(DATA, result.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(codec.getPooledCount() <= DeflaterCodec.POOL_SIZE * 2);
+    assertTrue(codec.getPooledCount() >= 2);
+  }
+
+  @Test
+  void testKey() {
+    assertEquals("gzip", DeflaterCodec.key(" GZip "));
+  }
+
+  private static byte[] repeat(String value, int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.append(value);
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    try (InputStream input = in) {
+      return input.readAllBytes();
+    }
+  }
+}
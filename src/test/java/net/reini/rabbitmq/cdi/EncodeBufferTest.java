@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link EncodeBuffer} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+class EncodeBufferTest {
+  @Test
+  void testWriteAndGrow() {
+    EncodeBuffer sut = new EncodeBuffer(16);
+    byte[] bytes = new byte[40];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+
+    sut.write(bytes, 0, 20);
+    sut.write(bytes[20]);
+    sut.write(bytes, 21, 19);
+
+    assertEquals(40, sut.size());
+    assertTrue(sut.capacity() >= 40);
+    assertArrayEquals(bytes, sut.toByteArray());
+  }
+
+  @Test
+  void testResetKeepsCapacity() {
+    EncodeBuffer sut = new EncodeBuffer(16);
+    sut.write(new byte[100], 0, 100);
+    int capacity = sut.capacity();
+
+    sut.reset();
+
+    assertEquals(0, sut.size());
+    assertEquals(capacity, sut.capacity());
+    assertArrayEquals(new byte[0], sut.toByteArray());
+  }
+
+  @Test
+  void testResetShrinksHugeBuffer() {
+    EncodeBuffer sut = new EncodeBuffer();
+    sut.write(new byte[EncodeBuffer.MAX_RETAINED_CAPACITY + 1], 0,
+        EncodeBuffer.MAX_RETAINED_CAPACITY + 1);
+
+    sut.reset();
+
+    assertEquals(EncodeBuffer.INITIAL_CAPACITY, sut.capacity());
+  }
+}
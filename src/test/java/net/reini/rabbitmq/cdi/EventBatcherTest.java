@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.RecoverableChannel;
+
+/**
+ * Tests the {@link EventBatcher} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class EventBatcherTest {
+  private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(50);
+  private static final byte[] BODY = new byte[0];
+
+  @Mock
+  private EventConsumer<String> consumer;
+  @Mock
+  private BasicProperties properties;
+  @Mock
+  private ScheduledExecutorService scheduler;
+  @Mock
+  private ScheduledFuture<?> flushTask;
+  @Mock
+  private RecoverableChannel channel;
+
+  private EventBatcher<String> sut;
+
+  @BeforeEach
+  void prepare() {
+    lenient().when(consumer.getBatchSize()).thenReturn(3);
+    lenient().when(consumer.getBatchWindow()).thenReturn(WINDOW);
+    lenient().doReturn(flushTask).when(scheduler).schedule(any(Runnable.class), anyLong(),
+        eq(TimeUnit.NANOSECONDS));
+    sut = new EventBatcher<>(consumer, scheduler, Runnable::run,
+        action -> action.apply(channel));
+  }
+
+  @Test
+  void testFireFullBatch() throws IOException {
+    when(consumer.decodeEvent(properties, BODY)).thenReturn("a", "b", "c");
+    when(consumer.fireEventBatch(List.of("a", "b", "c"))).thenReturn(true);
+
+    sut.add(1, properties, BODY);
+    sut.add(2, properties, BODY);
+    assertEquals(2, sut.getPendingCount());
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+    sut.add(3, properties, BODY);
+    verify(channel).basicAck(3, true);
+    verify(scheduler).schedule(any(Runnable.class), eq(WINDOW), eq(TimeUnit.NANOSECONDS));
+    verify(flushTask).cancel(false);
+    assertEquals(0, sut.getPendingCount());
+  }
+
+  @Test
+  void testFlushAfterWindow() throws IOException {
+    ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+    when(consumer.decodeEvent(properties, BODY)).thenReturn("a");
+    when(consumer.fireEventBatch(List.of("a"))).thenReturn(true);
+
+    sut.add(1, properties, BODY);
+    verify(scheduler).schedule(taskCaptor.capture(), eq(WINDOW), eq(TimeUnit.NANOSECONDS));
+    taskCaptor.getValue().run();
+
+    verify(channel).basicAck(1, true);
+  }
+
+  @Test
+  void testTimedFlushUsesFlushExecutor() throws IOException {
+    Executor flushExecutor = mock(Executor.class);
+    ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Runnable> flushCaptor = ArgumentCaptor.forClass(Runnable.class);
+    sut = new EventBatcher<>(consumer, scheduler, flushExecutor,
+        action -> action.apply(channel));
+    when(consumer.decodeEvent(properties, BODY)).thenReturn("a");
+    when(consumer.fireEventBatch(List.of("a"))).thenReturn(true);
+
+    sut.add(1, properties, BODY);
+    verify(scheduler).schedule(taskCaptor.capture(), eq(WINDOW), eq(TimeUnit.NANOSECONDS));
+    taskCaptor.getValue().run();
+    verify(consumer, never()).fireEventBatch(any());
+
+    verify(flushExecutor).execute(flushCaptor.capture());
+    flushCaptor.getValue().run();
+    verify(channel).basicAck(1, true);
+  }
+
+  @Test
+  void testBatchFailureRejectsEachDelivery() throws IOException {
+    when(consumer.decodeEvent(properties, BODY)).thenReturn("a", "b");
+    when(consumer.fireEventBatch(List.of("a", "b"))).thenReturn(false);
+
+    sut.add(1, properties, BODY);
+    sut.add(2, properties, BODY);
+    sut.flush();
+
+    verify(channel).basicNack(1, false, false);
+    verify(channel).basicNack(2, false, false);
+    verify(channel, never()).basicAck(anyLong(), anyBoolean());
+  }
+
+  @Test
+  void testRejectUndecodableDelivery() throws IOException {
+    sut.add(1, properties, BODY);
+
+    verify(channel).basicNack(1, false, false);
+    assertEquals(0, sut.getPendingCount());
+    verifyNoInteractions(scheduler);
+  }
+
+  @Test
+  void testRecoverDiscardsBatch() throws IOException {
+    when(consumer.decodeEvent(properties, BODY)).thenReturn("a");
+
+    sut.add(1, properties, BODY);
+    sut.recover();
+    sut.flush();
+
+    assertEquals(0, sut.getPendingCount());
+    verify(flushTask).cancel(false);
+    verify(consumer, never()).fireEventBatch(any());
+    verifyNoInteractions(channel);
+  }
+
+  @Test
+  void testAutoAck() throws IOException {
+    sut = new EventBatcher<>(consumer, scheduler, Runnable::run, null);
+    when(consumer.decodeEvent(properties, BODY)).thenReturn("a", null);
+    when(consumer.fireEventBatch(List.of("a"))).thenReturn(true);
+
+    sut.add(1, properties, BODY);
+    sut.add(2, properties, BODY);
+    sut.recover();
+
+    verify(consumer).fireEventBatch(List.of("a"));
+    verifyNoInteractions(channel);
+  }
+}
@@ -112,6 +112,19 @@ class EventBinderTest {
     eventBinder.initialize();
   }
 
+  @Test
+  void testBindQueueWithAdaptivePrefetch() {
+    QueueBinding<TestEvent> queueBinding = new QueueBinding<>(TestEvent.class, "queue");
+    queueBinding.withAdaptivePrefetch(10, 500);
+
+    eventBinder.bindQueue(queueBinding);
+
+    verify(consumerContainerMock).addConsumer(Mockito.any(), Mockito.eq("queue"),
+        Mockito.eq(false), Mockito.eq(10), Mockito.eq(0), Mockito.eq(0L), Mockito.any());
+    verify(consumerContainerMock).tunePrefetch(Mockito.anyList(), Mockito.eq(10),
+        Mockito.eq(500));
+  }
+
   @Test
   void testBindExchange() throws IOException {
     ExchangeBinding<TestEvent> exchangeBinding = new ExchangeBinding<>(TestEvent.class, "exchange");
@@ -138,6 +151,18 @@ class EventBinderTest {
     verify(connectionRepository, Mockito.times(1)).registerConnectionListener( Mockito.any(), Mockito.eq(sut) );
   }
 
+  @Test
+  void testAddListenerSeparatePublisherConnection() throws IOException {
+    ContainerConnectionListener sut =
+            new ContainerConnectionListener(consumerContainerMock, lockMock, conditionMock);
+    eventBinder.configuration().setSeparatePublisherConnection(true);
+    eventBinder.registerConnectionListener( sut );
+    eventBinder.removeConnectionListener( sut );
+    verify(connectionRepository, Mockito.times(2)).registerConnectionListener( Mockito.any(), Mockito.eq(sut) );
+    verify(connectionRepository).registerConnectionListener( Mockito.any(PublisherConnectionConfig.class), Mockito.eq(sut) );
+    verify(connectionRepository).removeConnectionListener( Mockito.any(PublisherConnectionConfig.class), Mockito.eq(sut) );
+  }
+
   @Test
   void testDuplicateAddListener() throws IOException {
     ContainerConnectionListener sut =
@@ -23,20 +23,34 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
 import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
 import jakarta.enterprise.event.ObserverException;
+import jakarta.enterprise.util.TypeLiteral;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -50,6 +64,8 @@ public class EventConsumerTest {
   @Mock
   private Event<TestEvent> testEventSink;
   @Mock
+  private Event<EventBatch<TestEvent>> batchEventSink;
+  @Mock
   private Decoder<TestEvent> decoder;
 
   private EventConsumer<TestEvent> consumer;
@@ -80,6 +96,121 @@ public class EventConsumerTest {
     assertNull(eventObject);
   }
 
+  @Test
+  public void testDecompress() throws Exception {
+    byte[] body = "the message".getBytes();
+    EncodeBuffer compressed = new EncodeBuffer();
+    CompressionCodec.gzip().compress(body, 0, body.length, compressed);
+
+    assertSame(body, consumer.decompress(null, body));
+    assertSame(body, consumer.decompress("identity", body));
+    assertArrayEquals(body, consumer.decompress("GZIP", compressed.toByteArray()));
+    assertThrows(IOException.class, () -> consumer.decompress("deflate", body));
+  }
+
+  @Test
+  public void testHandleDelivery_compressed() throws Exception {
+    TestEvent event = new TestEvent();
+    byte[] body = "the message".getBytes();
+    EncodeBuffer compressed = new EncodeBuffer();
+    CompressionCodec.gzip().compress(body, 0, body.length, compressed);
+    Envelope envelope = new Envelope(123L, false, null, null);
+    BasicProperties properties = new BasicProperties.Builder().contentEncoding("gzip").build();
+
+    when(decoder.willDecode(null)).thenReturn(true);
+    when(decoder.decode(any())).thenReturn(event);
+    when(eventSink.select(TestEvent.class)).thenReturn(testEventSink);
+
+    assertTrue(consumer.consume("consumerTag", envelope, properties, compressed.toByteArray()));
+
+    ArgumentCaptor<byte[]> decoded = ArgumentCaptor.forClass(byte[].class);
+    verify(decoder).decode(decoded.capture());
+    assertArrayEquals(body, decoded.getValue());
+    verify(testEventSink).fire(event);
+  }
+
+  @Test
+  public void testHandleDelivery_corruptCompressed() throws Exception {
+    byte[] body = "the message".getBytes();
+    Envelope envelope = new Envelope(123L, false, null, null);
+    BasicProperties properties = new BasicProperties.Builder().contentEncoding("gzip").build();
+
+    when(decoder.willDecode(null)).thenReturn(true);
+
+    assertFalse(consumer.consume("consumerTag", envelope, properties, body));
+    verify(decoder, never()).decode(any());
+  }
+
+  @Test
+  public void testConsumeAsync() throws Exception {
+    TestEvent event = new TestEvent();
+    byte[] body = "the message".getBytes();
+    Envelope envelope = new Envelope(123L, false, null, null);
+    BasicProperties properties = new BasicProperties.Builder().build();
+    Executor executor = Runnable::run;
+    NotificationOptions options = NotificationOptions.ofExecutor(executor);
+    consumer = new EventConsumer<>(TestEvent.class, decoder, eventSink,
+        DeflaterCodec.defaultCodecs(), true, options);
+
+    when(decoder.willDecode(null)).thenReturn(true);
+    when(decoder.decode(body)).thenReturn(event);
+    when(eventSink.select(TestEvent.class)).thenReturn(testEventSink);
+    when(testEventSink.fireAsync(event, options))
+        .thenReturn(CompletableFuture.completedFuture(event));
+
+    assertTrue(consumer.isAsyncDelivery());
+    assertEquals(Boolean.TRUE, consumer
+        .consumeAsync("consumerTag", envelope, properties, body).toCompletableFuture().get());
+    verify(testEventSink, never()).fire(event);
+  }
+
+  @Test
+  public void testFireEventAsyncObserverFails() throws Exception {
+    TestEvent event = new TestEvent();
+    CompletableFuture<TestEvent> notification = new CompletableFuture<>();
+
+    when(eventSink.select(TestEvent.class)).thenReturn(testEventSink);
+    when(testEventSink.fireAsync(event)).thenReturn(notification);
+
+    CompletableFuture<Boolean> consumed = consumer.fireEventAsync(event).toCompletableFuture();
+    assertFalse(consumed.isDone());
+    notification.completeExceptionally(new CompletionException(new ObserverException("failed")));
+    assertEquals(Boolean.FALSE, consumed.get());
+  }
+
+  @Test
+  public void testFireEventAsyncNullEvent() throws Exception {
+    assertFalse(consumer.isAsyncDelivery());
+    assertEquals(Boolean.FALSE, consumer.fireEventAsync(null).toCompletableFuture().get());
+  }
+
+  @Test
+  public void testFireEventBatch() {
+    TypeLiteral<EventBatch<TestEvent>> batchType = new TypeLiteral<EventBatch<TestEvent>>() {};
+    TestEvent event = new TestEvent();
+    ArgumentCaptor<EventBatch<TestEvent>> batchCaptor = ArgumentCaptor.captor();
+    when(eventSink.select(batchType)).thenReturn(batchEventSink);
+
+    assertSame(consumer, consumer.withBatching(batchType, 10, 1000));
+    assertEquals(10, consumer.getBatchSize());
+    assertEquals(1000, consumer.getBatchWindow());
+    assertTrue(consumer.fireEventBatch(List.of(event)));
+
+    verify(batchEventSink).fire(batchCaptor.capture());
+    assertEquals(List.of(event), batchCaptor.getValue().getEvents());
+    assertEquals(1, batchCaptor.getValue().size());
+  }
+
+  @Test
+  public void testFireEventBatchObserverFails() {
+    TypeLiteral<EventBatch<TestEvent>> batchType = new TypeLiteral<EventBatch<TestEvent>>() {};
+    when(eventSink.select(batchType)).thenReturn(batchEventSink);
+    doThrow(new ObserverException()).when(batchEventSink).fire(any());
+
+    consumer.withBatching(batchType, 10, 1000);
+    assertFalse(consumer.fireEventBatch(List.of(new TestEvent())));
+  }
+
   @Test
   public void testFireEventNullEvent() {
     assertFalse(consumer.fireEvent(null));
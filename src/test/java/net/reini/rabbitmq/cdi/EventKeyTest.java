@@ -57,7 +57,10 @@ class EventKeyTest {
    */
   @Test
   void testHashCode() {
-    assertEquals(TestEvent.class.hashCode(), eventKey.hashCode());
+    assertEquals(31 * TestEvent.class.hashCode() + TransactionPhase.IN_PROGRESS.hashCode(),
+        eventKey.hashCode());
+    assertNotEquals(eventKey.hashCode(),
+        EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS).hashCode());
   }
 
   /**
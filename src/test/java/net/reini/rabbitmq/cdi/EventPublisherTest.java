@@ -23,9 +23,17 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,15 +41,22 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 import jakarta.enterprise.event.TransactionPhase;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -76,6 +91,8 @@ public class EventPublisherTest {
 
   @BeforeEach
   public void setUp() throws Exception {
+    lenient().when(connectionRepository.getChannelPool(config))
+        .thenReturn(new PublisherChannelPool(connectionRepository, config));
     publisher = new EventPublisher(connectionRepository);
     basicProperties = new BasicProperties.Builder();
     encoder = new JsonEncoder<>();
@@ -101,8 +118,7 @@ public class EventPublisherTest {
   @Test
   public void testPublishEvent() throws IOException, TimeoutException {
     EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
         basicProperties, null, encoder, errorHandler, declarations));
@@ -125,25 +141,25 @@ public class EventPublisherTest {
   public void testPublishEvent_failing() throws IOException, TimeoutException {
     EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_FAILURE);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
     doThrow(IOException.class).when(channel).basicPublish(eq("exchange"), eq("routingKey"), any(),
         any());
 
     publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
-        basicProperties, null, encoder, errorHandler, declarations));
+        basicProperties, null, encoder, errorHandler, declarations)
+            .withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS)));
     publisher.publishEvent(new TestEvent(), TransactionPhase.AFTER_FAILURE);
-    publisher.cleanUp();
 
+    verify(errorHandler, timeout(5000)).accept(any(), any());
     verify(channel, times(3)).close();
+    publisher.cleanUp();
   }
 
   @Test
   public void testOnEventInProgress() throws IOException, TimeoutException {
     EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.IN_PROGRESS);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
         basicProperties, null, encoder, errorHandler, declarations));
@@ -158,8 +174,7 @@ public class EventPublisherTest {
   public void testOnEventInBeforeCompletion() throws IOException, TimeoutException {
     EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.BEFORE_COMPLETION);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
         basicProperties, null, encoder, errorHandler, declarations));
@@ -174,8 +189,7 @@ public class EventPublisherTest {
   public void testOnEventAfterCompletion() throws IOException, TimeoutException {
     EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_COMPLETION);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
         basicProperties, null, encoder, errorHandler, declarations));
@@ -190,8 +204,7 @@ public class EventPublisherTest {
   public void testOnEventAfterFailure() throws IOException, TimeoutException {
     EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_FAILURE);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
         basicProperties, null, encoder, errorHandler, declarations));
@@ -206,8 +219,7 @@ public class EventPublisherTest {
   public void testOnEventAfterSuccess() throws IOException, TimeoutException {
     EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
         basicProperties, null, encoder, errorHandler, declarations));
@@ -217,4 +229,207 @@ public class EventPublisherTest {
     verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
     verify(channel).close();
   }
+
+  @Test
+  public void testPublishAsync() throws Exception {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.IN_PROGRESS);
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations));
+    publisher.publishAsync(new TestEvent()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+    publisher.cleanUp();
+
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testPublishAsync_no_configuration() {
+    CompletableFuture<Void> result =
+        publisher.publishAsync(new TestEvent(), TransactionPhase.AFTER_SUCCESS)
+            .toCompletableFuture();
+
+    ExecutionException e = assertThrows(ExecutionException.class, result::get);
+    assertInstanceOf(PublishException.class, e.getCause());
+  }
+
+  @Test
+  public void testPublishAsync_failing() throws Exception {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.IN_PROGRESS);
+    Encoder<TestEvent> failingEncoder = mock(Encoder.class);
+    TestEvent event = new TestEvent();
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    when(failingEncoder.encode(event)).thenThrow(new EncodeException(new IOException()));
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, failingEncoder, errorHandler, declarations));
+    CompletableFuture<Void> result = publisher.publishAsync(event).toCompletableFuture();
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(PublishException.class, e.getCause());
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
+  }
+
+  @Test
+  public void testPublishAsync_after_cleanUp() {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.IN_PROGRESS);
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations));
+    publisher.cleanUp();
+    CompletableFuture<Void> result = publisher.publishAsync(new TestEvent()).toCompletableFuture();
+
+    ExecutionException e = assertThrows(ExecutionException.class, result::get);
+    assertInstanceOf(PublishException.class, e.getCause());
+  }
+
+  @Test
+  public void testPublishEvent_batching() throws IOException, TimeoutException {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations).withBatching(10,
+            TimeUnit.HOURS.toNanos(1)));
+    publisher.publishEvent(new TestEvent(), TransactionPhase.AFTER_SUCCESS);
+    publisher.publishEvent(new TestEvent(), TransactionPhase.AFTER_SUCCESS);
+    verify(channel, never()).basicPublish(any(), any(), any(), any());
+    publisher.cleanUp();
+
+    verify(connectionRepository).createChannel(config);
+    verify(channel, times(2)).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testProvidePublisher_shared_across_threads() throws Exception {
+    EventKey<Object> key = EventKey.of(Object.class, TransactionPhase.AFTER_SUCCESS);
+    MessagePublisher<Object> messagePublisher =
+        publisher.providePublisher(key, TransactionPhase.AFTER_SUCCESS);
+
+    CompletableFuture<MessagePublisher<Object>> otherThreadPublisher = CompletableFuture
+        .supplyAsync(() -> publisher.providePublisher(key, TransactionPhase.AFTER_SUCCESS));
+
+    assertSame(messagePublisher, otherThreadPublisher.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCleanUp_closes_publishers_of_all_threads() throws Exception {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations).withBatching(10,
+            TimeUnit.HOURS.toNanos(1)));
+    CompletableFuture.runAsync(
+        () -> publisher.publishEvent(new TestEvent(), TransactionPhase.AFTER_SUCCESS))
+        .get(5, TimeUnit.SECONDS);
+    publisher.cleanUp();
+
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testPublishEvent_sub_type() throws IOException, TimeoutException {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations));
+    publisher.publishEvent(new TestEvent() {}, TransactionPhase.AFTER_SUCCESS);
+    publisher.publishEvent(new TestEvent(), TransactionPhase.AFTER_COMPLETION);
+    publisher.cleanUp();
+
+    verify(connectionRepository).createChannel(config);
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testOnEventAfterSuccess_transaction_batching() throws IOException, TimeoutException {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
+    TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+    ArgumentCaptor<TransactionBatch> batchCaptor = ArgumentCaptor.forClass(TransactionBatch.class);
+    publisher = new EventPublisher(connectionRepository,
+        batchedEvents -> new JtaTransactionBatcher(() -> registry, batchedEvents));
+    TestEvent event = new TestEvent();
+
+    when(registry.getTransactionStatus()).thenReturn(Integer.valueOf(Status.STATUS_ACTIVE));
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations).withTransactionBatching());
+    publisher.onEventInProgress(event);
+    verify(registry).registerInterposedSynchronization(batchCaptor.capture());
+    verify(registry).putResource(any(), eq(batchCaptor.getValue()));
+    publisher.onEventAfterSuccess(event);
+    verify(channel, never()).basicPublish(any(), any(), any(), any());
+
+    batchCaptor.getValue().afterCompletion(Status.STATUS_COMMITTED);
+    publisher.cleanUp();
+
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testOnEventAfterSuccess_transaction_batching_without_transaction()
+      throws IOException, TimeoutException {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
+    TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+    publisher = new EventPublisher(connectionRepository,
+        batchedEvents -> new JtaTransactionBatcher(() -> registry, batchedEvents));
+    TestEvent event = new TestEvent();
+
+    when(registry.getTransactionStatus())
+        .thenReturn(Integer.valueOf(Status.STATUS_NO_TRANSACTION));
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations).withTransactionBatching());
+    publisher.onEventInProgress(event);
+    publisher.onEventAfterSuccess(event);
+    publisher.cleanUp();
+
+    verify(registry, never()).registerInterposedSynchronization(any());
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testOnEventInProgress_transaction_batcher_created_lazily() {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
+    AtomicInteger created = new AtomicInteger();
+    publisher = new EventPublisher(connectionRepository, batchedEvents -> {
+      created.incrementAndGet();
+      return TransactionBatcher.NONE;
+    });
+
+    publisher.onEventInProgress(new TestEvent());
+    assertEquals(0, created.get());
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations).withTransactionBatching());
+    publisher.onEventInProgress(new TestEvent());
+    publisher.onEventInProgress(new TestEvent());
+    publisher.cleanUp();
+
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void testOnEventInProgress_transaction_registry_unavailable() {
+    EventKey<TestEvent> key = EventKey.of(TestEvent.class, TransactionPhase.AFTER_SUCCESS);
+    publisher = new EventPublisher(connectionRepository,
+        batchedEvents -> new JtaTransactionBatcher(() -> null, batchedEvents));
+
+    publisher.addEvent(key, new PublisherConfiguration(config, "exchange", routingKeyFunction,
+        basicProperties, null, encoder, errorHandler, declarations).withTransactionBatching());
+    publisher.onEventInProgress(new TestEvent());
+    publisher.cleanUp();
+
+    verify(connectionRepository, never()).getChannelPool(config);
+  }
 }
@@ -29,10 +29,13 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonMap;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
@@ -40,7 +43,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import jakarta.enterprise.event.TransactionPhase;
 
@@ -75,6 +80,110 @@ class ExchangeBindingTest {
     assertEquals(TestEvent.class, binding.getEventType());
   }
 
+  @Test
+  void testWithPublisherConfirms() {
+    assertSame(binding, binding.withPublisherConfirms());
+    assertEquals(true, binding.isPublisherConfirms());
+    assertEquals(ExchangeBinding.DEFAULT_CONFIRM_TIMEOUT, binding.getConfirmTimeout());
+  }
+
+  @Test
+  void testWithPublisherConfirmsTimeout() {
+    assertSame(binding, binding.withPublisherConfirms(500));
+    assertEquals(true, binding.isPublisherConfirms());
+    assertEquals(500, binding.getConfirmTimeout());
+  }
+
+  @Test
+  void testWithPublisherConfirmsInvalidTimeout() {
+    assertThrows(IllegalArgumentException.class, () -> binding.withPublisherConfirms(0));
+  }
+
+  @Test
+  void testWithBatching() {
+    assertSame(binding, binding.withBatching(100, 5, TimeUnit.MILLISECONDS));
+    assertEquals(true, binding.isBatching());
+    assertEquals(100, binding.getBatchSize());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(5), binding.getBatchWindow());
+  }
+
+  @Test
+  void testWithBatchingInvalid() {
+    assertThrows(IllegalArgumentException.class,
+        () -> binding.withBatching(0, 5, TimeUnit.MILLISECONDS));
+    assertThrows(IllegalArgumentException.class,
+        () -> binding.withBatching(10, 0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testWithRetryPolicy() {
+    RetryPolicy policy = RetryPolicy.of(5, 10, 100, TimeUnit.MILLISECONDS);
+    assertSame(RetryPolicy.DEFAULT, binding.getRetryPolicy());
+    assertSame(binding, binding.withRetryPolicy(policy));
+    assertSame(policy, binding.getRetryPolicy());
+    assertThrows(NullPointerException.class, () -> binding.withRetryPolicy(null));
+  }
+
+  @Test
+  void testWithDynamicFields() {
+    Function<Object, String> idFunction = Object::toString;
+    assertFalse(binding.hasDynamicFields());
+    assertSame(binding, binding.withMessageId(idFunction));
+    assertSame(binding, binding.withCorrelationId(idFunction));
+    assertSame(binding, binding.withTimestamp());
+    assertSame(binding, binding.withDynamicHeader("id", idFunction));
+    assertTrue(binding.hasDynamicFields());
+    assertSame(idFunction, binding.getMessageIdFunction());
+    assertSame(idFunction, binding.getCorrelationIdFunction());
+    assertTrue(binding.isTimestamp());
+    assertEquals(singletonMap("id", idFunction), binding.getDynamicHeaders());
+    assertThrows(NullPointerException.class, () -> binding.withDynamicHeader(null, idFunction));
+    assertThrows(NullPointerException.class, () -> binding.withDynamicHeader("id", null));
+    assertThrows(NullPointerException.class, () -> binding.withMessageId(null));
+    assertThrows(NullPointerException.class, () -> binding.withCorrelationId(null));
+  }
+
+  @Test
+  void testWithCompression() {
+    CompressionCodec codec = CompressionCodec.gzip();
+
+    assertNull(binding.getCompressionCodec());
+    assertSame(binding, binding.withCompression(codec));
+    assertSame(codec, binding.getCompressionCodec());
+    assertEquals(CompressingEncoder.DEFAULT_THRESHOLD, binding.getCompressionThreshold());
+    assertSame(binding, binding.withCompression(codec, 100));
+    assertEquals(100, binding.getCompressionThreshold());
+    assertThrows(IllegalArgumentException.class, () -> binding.withCompression(codec, -1));
+  }
+
+  @Test
+  void testWithDestination() {
+    TestEvent event = new TestEvent();
+
+    assertTrue(binding.getDestinations().isEmpty());
+    assertSame(binding, binding.withDestination("other", "key"));
+    assertSame(binding, binding.withDestination("other", e -> "calculatedkey"));
+    assertEquals(2, binding.getDestinations().size());
+    assertEquals("other", binding.getDestinations().get(0).getExchange());
+    assertEquals("key", binding.getDestinations().get(0).getRoutingKey(event));
+    assertEquals("calculatedkey", binding.getDestinations().get(1).getRoutingKey(event));
+    assertThrows(NullPointerException.class, () -> binding.withDestination(null, "key"));
+  }
+
+  @Test
+  void testMandatory() {
+    assertFalse(binding.isMandatory());
+    assertSame(binding, binding.mandatory());
+    assertTrue(binding.isMandatory());
+  }
+
+  @Test
+  void testWithTransactionBatching() {
+    assertFalse(binding.isTransactionBatching());
+    assertSame(binding, binding.withTransactionBatching());
+    assertTrue(binding.isTransactionBatching());
+  }
+
   @Test
   void testGetExchange() {
     assertEquals("exchange", binding.getExchange());
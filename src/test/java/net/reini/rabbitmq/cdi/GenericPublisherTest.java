@@ -24,9 +24,18 @@
 package net.reini.rabbitmq.cdi;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,9 +43,17 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -63,26 +80,37 @@ public class GenericPublisherTest {
   private Encoder<TestEvent> encoder;
   @Mock
   private BiConsumer<TestEvent, PublishException> errorHandler;
+  @Mock
+  private PublisherSpool spool;
 
   private List<ExchangeDeclaration> declarations = new ArrayList<>();
+  private PublisherChannelPool channelPool;
+  private ScheduledExecutorService retryScheduler;
+  private ExecutorService retryExecutor;
   private GenericPublisher<TestEvent> publisher;
   private TestEvent event;
   private Function<TestEvent, String> routingKeyFunction;
 
   @BeforeEach
   public void setUp() throws Exception {
-    publisher = new GenericPublisher<TestEvent>(connectionRepository) {
-      @Override
-      protected void sleepBeforeRetry() {
-        // no delay
-      }
-    };
+    channelPool = new PublisherChannelPool(connectionRepository, config);
+    lenient().when(connectionRepository.getChannelPool(config)).thenReturn(channelPool);
+    retryScheduler = Executors.newSingleThreadScheduledExecutor();
+    retryExecutor = Executors.newSingleThreadExecutor();
+    publisher =
+        new GenericPublisher<TestEvent>(connectionRepository, retryScheduler, retryExecutor);
     event = new TestEvent();
     event.id = "theId";
     event.booleanValue = true;
     routingKeyFunction = e -> "routingKey";
   }
 
+  @AfterEach
+  public void tearDown() {
+    retryScheduler.shutdownNow();
+    retryExecutor.shutdownNow();
+  }
+
   @Test
   public void testPublish() throws Exception {
     Builder builder = new Builder();
@@ -90,8 +118,7 @@ public class GenericPublisherTest {
         "exchange", routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations);
     ArgumentCaptor<BasicProperties> propsCaptor = ArgumentCaptor.forClass(BasicProperties.class);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.publish(event, publisherConfiguration);
 
@@ -101,23 +128,233 @@ public class GenericPublisherTest {
   }
 
   @Test
-  public void testPublish_with_error() throws Exception {
+  public void testPublishConfirmed() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(event, publisherConfiguration);
+
+    assertTrue(confirmation.isDone());
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testPublish_spooled_while_disconnected() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+    ArgumentCaptor<SpooledMessage> messageCaptor = ArgumentCaptor.forClass(SpooledMessage.class);
+    ArgumentCaptor<CompletableFuture<Void>> replayedCaptor = ArgumentCaptor.captor();
+
+    when(connectionRepository.getPublisherSpool(config)).thenReturn(spool);
+    when(spool.offer(messageCaptor.capture(), replayedCaptor.capture())).thenReturn(true);
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(event, publisherConfiguration);
+
+    assertFalse(confirmation.isDone());
+    assertEquals("exchange", messageCaptor.getValue().getExchange());
+    assertEquals("routingKey", messageCaptor.getValue().getRoutingKey());
+    verify(connectionRepository, never()).createChannel(config);
+    verify(spool, never()).replayAsync();
+
+    replayedCaptor.getValue().complete(null);
+    assertTrue(confirmation.isDone());
+    assertFalse(confirmation.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testPublish_spooled_replay_failed() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+    ArgumentCaptor<CompletableFuture<Void>> replayedCaptor = ArgumentCaptor.captor();
+    PublishException replayError = new PublishException("dropped", null);
+
+    when(connectionRepository.getPublisherSpool(config)).thenReturn(spool);
+    when(spool.offer(any(), replayedCaptor.capture())).thenReturn(true);
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(event, publisherConfiguration);
+    replayedCaptor.getValue().completeExceptionally(replayError);
+
+    assertTrue(confirmation.isCompletedExceptionally());
+    verify(errorHandler).accept(event, replayError);
+    verify(spool).registerDeclarations("exchange", publisherConfiguration.getDeclarations());
+  }
+
+  @Test
+  public void testPublish_spooled_while_replaying() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+
+    when(connectionRepository.getPublisherSpool(config)).thenReturn(spool);
+    when(connectionRepository.isConnected(config)).thenReturn(true);
+    when(spool.offer(any(), any())).thenReturn(true);
+
+    publisher.publish(event, publisherConfiguration);
+
+    verify(spool).replayAsync();
+    verify(connectionRepository, never()).createChannel(config);
+  }
+
+  @Test
+  public void testPublish_spool_empty_while_connected() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+
+    when(connectionRepository.getPublisherSpool(config)).thenReturn(spool);
+    when(connectionRepository.isConnected(config)).thenReturn(true);
+    when(spool.isEmpty()).thenReturn(true);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    publisher.publish(event, publisherConfiguration);
+
+    verify(spool, never()).offer(any(), any());
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testPublish_connection_blocked() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+    channelPool.onConnectionBlocked(connection, "low on memory");
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(event, publisherConfiguration);
+
+    assertTrue(confirmation.isCompletedExceptionally());
+    verify(errorHandler).accept(eq(event), any());
+    verify(connectionRepository, never()).createChannel(config);
+  }
+
+  @Test
+  public void testPublish_connection_blocked_spill() throws Exception {
+    when(config.getPublisherFlowControlPolicy()).thenReturn(FlowControlPolicy.SPILL);
+    channelPool = new PublisherChannelPool(connectionRepository, config);
+    when(connectionRepository.getChannelPool(config)).thenReturn(channelPool);
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+    channelPool.onConnectionBlocked(connection, "low on memory");
+
+    ArgumentCaptor<CompletableFuture<Void>> replayedCaptor = ArgumentCaptor.captor();
+    when(connectionRepository.getPublisherSpool(config)).thenReturn(null, spool);
+    when(spool.offer(any(), replayedCaptor.capture())).thenReturn(true);
+
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(event, publisherConfiguration);
+    replayedCaptor.getValue().complete(null);
+
+    assertTrue(confirmation.isDone());
+    verify(errorHandler, never()).accept(any(), any());
+    verify(connectionRepository, never()).createChannel(config);
+  }
+
+  @Test
+  public void testPublish_in_flight_limit_spill() throws Exception {
+    when(config.getPublisherFlowControlPolicy()).thenReturn(FlowControlPolicy.SPILL);
+    when(config.getPublisherInFlightLimit()).thenReturn(Integer.valueOf(1));
+    channelPool = new PublisherChannelPool(connectionRepository, config);
+    when(connectionRepository.getChannelPool(config)).thenReturn(channelPool);
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+    assertTrue(channelPool.getFlowControl().tryAcquire());
+
+    when(connectionRepository.getPublisherSpool(config)).thenReturn(null, spool);
+    when(connectionRepository.isConnected(config)).thenReturn(true);
+    when(spool.offer(any(), any())).thenReturn(true);
+
+    publisher.publishConfirmed(event, publisherConfiguration);
+
+    verify(spool).replayAsync();
+    verify(errorHandler, never()).accept(any(), any());
+    verify(connectionRepository, never()).createChannel(config);
+  }
+
+  @Test
+  public void testPublish_reuses_pooled_channel() throws Exception {
     Builder builder = new Builder();
     PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
         "exchange", routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations);
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    when(channel.isOpen()).thenReturn(true);
+
+    publisher.publish(event, publisherConfiguration);
+    publisher.publish(event, publisherConfiguration);
+
+    verify(connectionRepository).createChannel(config);
+    verify(channel, times(2)).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+    verify(channel, never()).close();
+    assertEquals(1, channelPool.getIdleCount());
+  }
+
+  @Test
+  public void testPublish_declares_once() throws Exception {
+    Builder builder = new Builder();
+    declarations.add(new ExchangeDeclaration("exchange"));
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations);
+
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    when(channel.getConnection()).thenReturn(connection);
+
+    publisher.publish(event, publisherConfiguration);
+    publisher.publish(event, publisherConfiguration);
+
+    verify(channel).exchangeDeclare(eq("exchange"), any(String.class), anyBoolean(), anyBoolean(),
+        any());
+    verify(channel, times(2)).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+  }
+
+  @Test
+  public void testPublish_with_error() throws Exception {
+    Builder builder = new Builder();
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations)
+            .withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS));
     ArgumentCaptor<BasicProperties> propsCaptor = ArgumentCaptor.forClass(BasicProperties.class);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
     doThrow(new IOException("someError")).when(channel).basicPublish(eq("exchange"),
         eq("routingKey"), propsCaptor.capture(),
         eq("{\"id\":\"theId\",\"booleanValue\":true}".getBytes()));
 
-    Throwable exception = assertThrows(PublishException.class, () -> {
-      publisher.publish(event, publisherConfiguration);
-    });
-    assertEquals("Unable to send message after 3 attempts", exception.getMessage());
+    CompletableFuture<Void> confirmation =
+        publisher.publishConfirmed(event, publisherConfiguration);
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> confirmation.get(5, TimeUnit.SECONDS));
+    assertEquals("Unable to send message after 3 attempts", exception.getCause().getMessage());
     assertEquals("application/json", propsCaptor.getValue().getContentType());
+    verify(channel, times(3)).close();
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
+    assertEquals(0, channelPool.getIdleCount());
+  }
+
+  @Test
+  public void testPublish_with_retry_succeeding() throws Exception {
+    Builder builder = new Builder();
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations)
+            .withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS));
+
+    when(connectionRepository.createChannel(config)).thenThrow(new IOException("not connected"))
+        .thenReturn(channel);
+
+    publisher.publishConfirmed(event, publisherConfiguration).get(5, TimeUnit.SECONDS);
+
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
+    verify(errorHandler, never()).accept(any(), any());
   }
 
   @Test
@@ -126,8 +363,7 @@ public class GenericPublisherTest {
     PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
         "exchange", routingKeyFunction, builder, null, encoder, errorHandler, declarations);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
     doThrow(new EncodeException(new RuntimeException("someError"))).when(encoder).encode(event);
 
     Throwable exception = assertThrows(PublishException.class, () -> {
@@ -137,32 +373,20 @@ public class GenericPublisherTest {
   }
 
   @Test
-  public void testPublish_withTooManyAttempts() throws Exception {
-    publisher = new GenericPublisher<TestEvent>(connectionRepository) {
-      @Override
-      protected void handleIoException(int attempt, Throwable cause) throws PublishException {
-        // do not throw to allow attempts to overrun DEFAULT_RETRY_ATTEMPTS
-      }
-
-      @Override
-      protected void sleepBeforeRetry() {
-        // no delay
-      }
-    };
-
+  public void testPublish_with_single_attempt() throws Exception {
     Builder builder = new Builder();
     PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
-        "exchange", routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations);
-    ArgumentCaptor<BasicProperties> propsCaptor = ArgumentCaptor.forClass(BasicProperties.class);
+        "exchange", routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations)
+            .withRetryPolicy(RetryPolicy.of(1, 0, 0, TimeUnit.MILLISECONDS));
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
     doThrow(new IOException("someError")).when(channel).basicPublish(eq("exchange"),
-        eq("routingKey"), propsCaptor.capture(),
-        eq("{\"id\":\"theId\",\"booleanValue\":true}".getBytes()));
+        eq("routingKey"), any(), any());
 
     publisher.publish(event, publisherConfiguration);
-    assertEquals("application/json", propsCaptor.getValue().getContentType());
+
+    verify(connectionRepository).createChannel(config);
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
   }
 
   @Test
@@ -170,19 +394,20 @@ public class GenericPublisherTest {
     Builder builder = new Builder();
     PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
         "exchange",
-        routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations);
+        routingKeyFunction, builder, null, new JsonEncoder<>(), errorHandler, declarations)
+            .withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS));
     ArgumentCaptor<BasicProperties> propsCaptor = ArgumentCaptor.forClass(BasicProperties.class);
+    ArgumentCaptor<PublishException> errorCaptor = ArgumentCaptor.forClass(PublishException.class);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
     doThrow(new IOException("someError")).when(channel).basicPublish(eq("exchange"),
         eq("routingKey"), propsCaptor.capture(),
         eq("{\"id\":\"theId\",\"booleanValue\":true}".getBytes()));
 
-    Throwable exception = assertThrows(PublishException.class, () -> {
-      publisher.publish(event, publisherConfiguration);
-    });
-    assertEquals("Unable to send message after 3 attempts", exception.getMessage());
+    publisher.publish(event, publisherConfiguration);
+
+    verify(errorHandler, timeout(5000)).accept(eq(event), errorCaptor.capture());
+    assertEquals("Unable to send message after 3 attempts", errorCaptor.getValue().getMessage());
     assertEquals("application/json", propsCaptor.getValue().getContentType());
   }
 
@@ -193,8 +418,7 @@ public class GenericPublisherTest {
         "exchange", routingKeyFunction, builder, null, new CustomEncoder(), errorHandler, declarations);
     ArgumentCaptor<BasicProperties> propsCaptor = ArgumentCaptor.forClass(BasicProperties.class);
 
-    when(connectionRepository.getConnection(config)).thenReturn(connection);
-    when(connection.createChannel()).thenReturn(channel);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
 
     publisher.publish(event, publisherConfiguration);
 
@@ -209,20 +433,70 @@ public class GenericPublisherTest {
   }
 
   @Test
-  public void testHandleIoException_channel_null() throws PublishException {
-    publisher.handleIoException(1, null);
+  public void testHandleIoException_scheduler_shut_down() {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations);
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    retryScheduler.shutdown();
+
+    publisher.handleIoException(event, publisherConfiguration, 1, new IOException(), confirmation);
+
+    assertTrue(confirmation.isCompletedExceptionally());
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
+  }
+
+  @Test
+  public void testHandleIoException_retry_executor_shut_down() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations).withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS));
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    retryExecutor.shutdown();
+
+    publisher.handleIoException(event, publisherConfiguration, 1, new IOException(), confirmation);
+
+    ExecutionException exception =
+        assertThrows(ExecutionException.class, () -> confirmation.get(5, TimeUnit.SECONDS));
+    assertEquals("Unable to execute attempt 2", exception.getCause().getMessage());
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
   }
 
   @Test
-  public void testSleepBeforeRetry_real_wait() {
-    publisher = new GenericPublisher<>(connectionRepository);
-    publisher.sleepBeforeRetry();
+  public void testPublish_retry_not_on_scheduler() throws Exception {
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations).withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS));
+    Thread schedulerThread = retryScheduler.submit(Thread::currentThread).get();
+    List<Thread> publishingThreads = new CopyOnWriteArrayList<>();
+
+    when(connectionRepository.createChannel(config)).thenAnswer(invocation -> {
+      publishingThreads.add(Thread.currentThread());
+      if (publishingThreads.size() == 1) {
+        throw new IOException("not connected");
+      }
+      return channel;
+    });
+
+    publisher.publishConfirmed(event, publisherConfiguration).get(5, TimeUnit.SECONDS);
+
+    assertEquals(2, publishingThreads.size());
+    assertNotSame(schedulerThread, publishingThreads.get(1));
   }
 
   @Test
-  public void testSleepBeforeRetry_InterruptedException() throws InterruptedException {
-    publisher = new GenericPublisher<>(connectionRepository);
-    call_SleepBeforeRetry_InAnotherThread_AndInterrupt();
+  public void testDefaultRetryExecutors() throws Exception {
+    GenericPublisher<TestEvent> defaultPublisher = new GenericPublisher<>(connectionRepository);
+    PublisherConfiguration<TestEvent> publisherConfiguration = new PublisherConfiguration(config,
+        "exchange", routingKeyFunction, new Builder(), null, new JsonEncoder<>(), errorHandler,
+        declarations).withRetryPolicy(RetryPolicy.of(3, 0, 0, TimeUnit.MILLISECONDS));
+
+    when(connectionRepository.createChannel(config)).thenThrow(new IOException("not connected"))
+        .thenReturn(channel);
+
+    defaultPublisher.publishConfirmed(event, publisherConfiguration).get(5, TimeUnit.SECONDS);
+
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), any());
   }
 
   public static class CustomEncoder implements Encoder<TestEvent> {
@@ -239,16 +513,4 @@ public class GenericPublisherTest {
       return str.getBytes();
     }
   }
-
-  private void call_SleepBeforeRetry_InAnotherThread_AndInterrupt() throws InterruptedException {
-    Thread sleeper = new Thread("sleeper") {
-      @Override
-      public void run() {
-        publisher.sleepBeforeRetry();
-      }
-    };
-    sleeper.start();
-    Thread.sleep(GenericPublisher.DEFAULT_RETRY_INTERVAL / 4);
-    sleeper.interrupt();
-  }
 }
@@ -63,6 +63,31 @@ public class JsonEncoderTest {
     });
   }
 
+  @Test
+  public void testEncode_buffer() throws EncodeException {
+    TestEvent eventObject = new TestEvent();
+    eventObject.setId("theId");
+    EncodeBuffer buffer = new EncodeBuffer(16);
+    buffer.write('x');
+    buffer.reset();
+
+    new JsonEncoder<TestEvent>().encode(eventObject, buffer);
+
+    assertEquals("{\"id\":\"theId\",\"booleanValue\":false}", new String(buffer.toByteArray()));
+  }
+
+  @Test
+  public void testEncode_buffer_with_error() {
+    TestEvent eventObject = new TestEvent() {
+      @Override
+      public String getId() {
+        throw new RuntimeException("some error");
+      }
+    };
+    assertThrows(EncodeException.class,
+        () -> new JsonEncoder<TestEvent>().encode(eventObject, new EncodeBuffer()));
+  }
+
   @Test
   public void testContentType() {
     assertEquals("application/json", encoder.contentType());
@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Tests the {@link PrefetchTuner} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class PrefetchTunerTest {
+  @Mock
+  private ConsumerHolder first;
+  @Mock
+  private ConsumerHolder second;
+
+  private PrefetchTuner sut;
+
+  @BeforeEach
+  void prepare() {
+    lenient().when(first.isActive()).thenReturn(true);
+    lenient().when(second.isActive()).thenReturn(true);
+    sut = new PrefetchTuner(Arrays.asList(first, second), 2, 50);
+  }
+
+  @Test
+  void testAdaptivePrefetchEnabled() {
+    verify(first).setAdaptivePrefetch(true);
+    verify(second).setAdaptivePrefetch(true);
+  }
+
+  @Test
+  void testTuneToBandwidthDelayProduct() throws IOException {
+    processed(first, 100, 500, 20);
+    when(first.getPrefetchCount()).thenReturn(10);
+
+    sut.run();
+
+    verify(first).updatePrefetchCount(5);
+    verify(second, never()).updatePrefetchCount(anyInt());
+  }
+
+  @Test
+  void testKeepUnchangedPrefetchCount() throws IOException {
+    processed(first, 100, 500, 20);
+    when(first.getPrefetchCount()).thenReturn(5);
+
+    sut.run();
+
+    verify(first, never()).updatePrefetchCount(anyInt());
+  }
+
+  @Test
+  void testTuneConcurrentConsumption() {
+    processed(first, 400, 4_000, 10);
+
+    assertEquals(8, sut.targetPrefetchCount(first, 400, millis(4_000)));
+  }
+
+  @Test
+  void testTuneWithinBounds() {
+    processed(first, 100, 100, 1_000);
+    processed(second, 10, 500, 0);
+
+    assertEquals(50, sut.targetPrefetchCount(first, 100, millis(100)));
+    assertEquals(2, sut.targetPrefetchCount(second, 10, millis(500)));
+  }
+
+  @Test
+  void testSkipIdleConsumers() throws IOException {
+    when(first.getProcessedCount()).thenReturn(Long.valueOf(100));
+    when(first.getProcessingTime()).thenReturn(Long.valueOf(millis(500)));
+    when(first.getRoundTripTime()).thenReturn(Long.valueOf(millis(20)));
+    when(second.getProcessedCount()).thenReturn(Long.valueOf(100));
+    when(second.isActive()).thenReturn(false);
+
+    sut.run();
+    sut.run();
+
+    verify(first).updatePrefetchCount(5);
+    verify(second, never()).updatePrefetchCount(anyInt());
+  }
+
+  @Test
+  void testUpdatePrefetchCountFails() throws IOException {
+    processed(first, 100, 500, 20);
+    doThrow(new IOException("closed")).when(first).updatePrefetchCount(5);
+
+    assertDoesNotThrow(sut::run);
+  }
+
+  private static void processed(ConsumerHolder consumerHolder, long count, long millis,
+      long roundTripMillis) {
+    lenient().when(consumerHolder.getProcessedCount()).thenReturn(Long.valueOf(count));
+    lenient().when(consumerHolder.getProcessingTime()).thenReturn(Long.valueOf(millis(millis)));
+    when(consumerHolder.getRoundTripTime()).thenReturn(Long.valueOf(millis(roundTripMillis)));
+  }
+
+  private static long millis(long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+}
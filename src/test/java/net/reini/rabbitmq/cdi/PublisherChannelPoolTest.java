@@ -0,0 +1,223 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+/**
+ * Tests the {@link PublisherChannelPool} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class PublisherChannelPoolTest {
+  @Mock
+  private ConnectionRepository connectionRepository;
+  @Mock
+  private ConnectionConfig config;
+  @Mock
+  private Connection connection;
+  @Mock
+  private Connection otherConnection;
+  @Mock
+  private Channel channel;
+  @Mock
+  private Channel otherChannel;
+
+  private PublisherChannelPool sut;
+
+  @BeforeEach
+  void prepare() {
+    when(config.getPublisherChannelPoolSize()).thenReturn(1);
+    sut = new PublisherChannelPool(connectionRepository, config);
+  }
+
+  @Test
+  void testBorrowAndReturn() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    when(channel.isOpen()).thenReturn(true);
+
+    PublisherChannel borrowed = sut.borrowChannel(false);
+    sut.returnChannel(borrowed);
+
+    assertEquals(1, sut.getIdleCount());
+    assertSame(borrowed, sut.borrowChannel(false));
+    assertEquals(0, sut.getIdleCount());
+    verify(connectionRepository).createChannel(config);
+    verify(channel, never()).close();
+  }
+
+  @Test
+  void testBorrowConfirmChannel() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel, otherChannel);
+    when(channel.isOpen()).thenReturn(true);
+
+    PublisherChannel confirmChannel = sut.borrowChannel(true);
+    sut.returnChannel(confirmChannel);
+
+    assertTrue(confirmChannel.isConfirmMode());
+    assertNotSame(confirmChannel, sut.borrowChannel(false));
+    assertSame(confirmChannel, sut.borrowChannel(true));
+    verify(channel).confirmSelect();
+    verify(otherChannel, never()).confirmSelect();
+  }
+
+  @Test
+  void testBorrowConfirmChannelFails() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    doThrow(new IOException()).when(channel).confirmSelect();
+
+    assertThrows(IOException.class, () -> sut.borrowChannel(true));
+    verify(channel).close();
+  }
+
+  @Test
+  void testReturnClosedChannel() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    sut.returnChannel(sut.borrowChannel(false));
+
+    assertEquals(0, sut.getIdleCount());
+    verify(channel).close();
+  }
+
+  @Test
+  void testReturnChannelPoolFull() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel, otherChannel);
+    when(channel.isOpen()).thenReturn(true);
+    when(otherChannel.isOpen()).thenReturn(true);
+
+    PublisherChannel first = sut.borrowChannel(false);
+    PublisherChannel second = sut.borrowChannel(false);
+    sut.returnChannel(first);
+    sut.returnChannel(second);
+
+    assertEquals(1, sut.getIdleCount());
+    verify(channel, never()).close();
+    verify(otherChannel).close();
+  }
+
+  @Test
+  void testDiscardChannel() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    sut.discardChannel(sut.borrowChannel(false));
+    sut.discardChannel(null);
+
+    verify(channel).close();
+  }
+
+  @Test
+  void testConnectionLostInvalidatesChannels() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel, otherChannel);
+    when(channel.isOpen()).thenReturn(true);
+    when(channel.getConnection()).thenReturn(connection);
+    when(otherChannel.getConnection()).thenReturn(connection);
+
+    PublisherChannel idle = sut.borrowChannel(false);
+    PublisherChannel borrowed = sut.borrowChannel(false);
+    sut.returnChannel(idle);
+    sut.onConnectionLost(connection);
+    sut.returnChannel(borrowed);
+
+    assertEquals(0, sut.getIdleCount());
+    verify(channel).close();
+    verify(otherChannel).close();
+  }
+
+  @Test
+  void testConnectionEstablishedInvalidatesChannels() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel, otherChannel);
+    when(channel.isOpen()).thenReturn(true);
+    when(channel.getConnection()).thenReturn(connection);
+
+    PublisherChannel first = sut.borrowChannel(false);
+    sut.returnChannel(first);
+    sut.onConnectionEstablished(connection);
+
+    assertNotSame(first, sut.borrowChannel(false));
+    verify(channel).close();
+  }
+
+  @Test
+  void testOtherConnectionLostKeepsChannels() throws Exception {
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+    when(channel.isOpen()).thenReturn(true);
+    when(channel.getConnection()).thenReturn(connection);
+
+    PublisherChannel borrowed = sut.borrowChannel(false);
+    sut.returnChannel(borrowed);
+    sut.onConnectionLost(otherConnection);
+    sut.onConnectionEstablished(otherConnection);
+
+    assertSame(borrowed, sut.borrowChannel(false));
+    verify(channel, never()).close();
+  }
+
+  @Test
+  void testConnectionClosed() throws Exception {
+    sut.onConnectionClosed(connection);
+
+    assertThrows(IOException.class, () -> sut.borrowChannel(false));
+  }
+
+  @Test
+  void testConnectionClosedKeepsPoolOfOtherConnections() throws Exception {
+    when(config.getConnectionCount()).thenReturn(2);
+    sut = new PublisherChannelPool(connectionRepository, config);
+    when(connectionRepository.createChannel(config)).thenReturn(channel);
+
+    sut.onConnectionClosed(null);
+    sut.borrowChannel(false);
+    sut.onConnectionClosed(null);
+
+    assertThrows(IOException.class, () -> sut.borrowChannel(false));
+  }
+
+  @Test
+  void testBorrowChannelWithoutConnection() throws Exception {
+    when(connectionRepository.createChannel(config)).thenThrow(new IOException("not connected"));
+
+    assertThrows(IOException.class, () -> sut.borrowChannel(false));
+  }
+}
@@ -23,24 +23,41 @@
  */
 package net.reini.rabbitmq.cdi;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.rabbitmq.client.AMQP.BasicProperties.Builder;
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
 import com.rabbitmq.client.MessageProperties;
+import com.rabbitmq.client.ReturnListener;
+
+import net.reini.rabbitmq.cdi.PublisherConfiguration.Destination;
 
 @ExtendWith(MockitoExtension.class)
 class PublisherConfigurationTest {
@@ -56,6 +73,8 @@ class PublisherConfigurationTest {
   private List<ExchangeDeclaration> declarationsMock;
   @Mock
   private BasicPropertiesCalculator basicPropertiesCalculator;
+  @Mock
+  private PublisherSpool spool;
 
   private Builder propertiesBuilder;
   private Object event;
@@ -77,12 +96,57 @@ class PublisherConfigurationTest {
         new PublisherConfiguration(config, "exchange",
             e -> "routingKey", propertiesBuilder, null, encoder, errorHandler, declarationsMock);
 
-    publisherConfig.publish(channel, event);
+    publisherConfig.publish(new PublisherChannel(channel, 0), event);
 
     verify(channel).basicPublish("exchange", "routingKey",
         propertiesBuilder.contentType("application/sometype").build(), expectedData);
   }
 
+  @Test
+  void testPublishWithBufferedEncoder() throws EncodeException, IOException {
+    BufferedEncoder<Object> bufferedEncoder = new BufferedEncoder<>() {
+      @Override
+      public void encode(Object object, EncodeBuffer buffer) {
+        byte[] data = "buffered".getBytes();
+        buffer.write(data, 0, data.length);
+      }
+
+      @Override
+      public String contentType() {
+        return "text/plain";
+      }
+    };
+    PublisherConfiguration<Object> publisherConfig = new PublisherConfiguration(config,
+        "exchange", e -> "routingKey", propertiesBuilder, null, bufferedEncoder, errorHandler,
+        declarationsMock);
+    PublisherChannel publisherChannel = new PublisherChannel(channel, 0);
+
+    publisherConfig.publish(publisherChannel, event);
+    publisherConfig.publish(publisherChannel, event);
+
+    verify(channel, times(2)).basicPublish(eq("exchange"), eq("routingKey"), any(),
+        eq("buffered".getBytes()));
+  }
+
+  @Test
+  void testPublishCompressed() throws Exception {
+    byte[] data = new byte[100];
+    when(encoder.encode(event)).thenReturn(data);
+    CompressionCodec codec = CompressionCodec.gzip();
+    PublisherConfiguration<Object> publisherConfig = new PublisherConfiguration(config,
+        "exchange", e -> "routingKey", propertiesBuilder, null,
+        new CompressingEncoder<>(encoder, codec, 10), errorHandler, declarationsMock);
+
+    publisherConfig.publish(new PublisherChannel(channel, 0), event);
+
+    ArgumentCaptor<BasicProperties> properties = ArgumentCaptor.forClass(BasicProperties.class);
+    ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), properties.capture(),
+        body.capture());
+    assertEquals("gzip", properties.getValue().getContentEncoding());
+    assertArrayEquals(data, codec.decompress(body.getValue()));
+  }
+
   @Test
   void testPublisherConfigurationWithBasicPropertiesCalculator() throws EncodeException, IOException {
     byte[] expectedData = "somedata".getBytes();
@@ -99,12 +163,196 @@ class PublisherConfigurationTest {
         new PublisherConfiguration(config, "exchange",
             e -> "routingKey", propertiesBuilder, basicPropertiesCalculator, encoder, errorHandler, declarationsMock);
 
-    publisherConfig.publish(channel, event);
+    publisherConfig.publish(new PublisherChannel(channel, 0), event);
 
     verify(channel).basicPublish("exchange", "routingKey",
         expectedProperties, expectedData);
   }
 
+  @Test
+  void testPublishWithCalculatorModifyingHeaders() throws EncodeException, IOException {
+    byte[] expectedData = "somedata".getBytes();
+    when(encoder.encode(any())).thenReturn(expectedData);
+    PublisherConfiguration<Object> publisherConfig = new PublisherConfiguration(config, "exchange",
+        e -> "routingKey", propertiesBuilder.headers(Collections.singletonMap("static", "value")),
+        (properties, e) -> {
+          properties.getHeaders().put("calculated", e);
+          return properties;
+        }, encoder, errorHandler, declarationsMock);
+
+    publisherConfig.publish(new PublisherChannel(channel, 0), event);
+    publisherConfig.publish(new PublisherChannel(channel, 0), "other");
+
+    ArgumentCaptor<BasicProperties> properties = ArgumentCaptor.forClass(BasicProperties.class);
+    verify(channel, times(2)).basicPublish(eq("exchange"), eq("routingKey"), properties.capture(),
+        any());
+    assertEquals(event, properties.getAllValues().get(0).getHeaders().get("calculated"));
+    assertEquals("other", properties.getAllValues().get(1).getHeaders().get("calculated"));
+    assertEquals("value", properties.getAllValues().get(1).getHeaders().get("static"));
+    verify(errorHandler, never()).accept(any(), any());
+  }
+
+  @Test
+  void testPublishWithPublisherConfirmsNack() throws EncodeException, IOException {
+    byte[] expectedData = "somedata".getBytes();
+
+    when(encoder.contentType()).thenReturn("application/sometype");
+    when(encoder.encode(event)).thenReturn(expectedData);
+    when(channel.getNextPublishSeqNo()).thenReturn(Long.valueOf(1));
+
+    PublisherChannel publisherChannel = new PublisherChannel(channel, 0);
+    publisherChannel.enablePublisherConfirms();
+    PublisherConfiguration<Object> publisherConfig =
+        new PublisherConfiguration(config, "exchange", e -> "routingKey", propertiesBuilder, null,
+            encoder, errorHandler, declarationsMock).withPublisherConfirms(10_000);
+
+    CompletableFuture<Void> confirmation = publisherConfig.publish(publisherChannel, event);
+    ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+    verify(channel).addConfirmListener(listener.capture());
+    listener.getValue().handleNack(1, false);
+
+    assertTrue(confirmation.isCompletedExceptionally());
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
+  }
+
+  @Test
+  void testPublishToMultipleDestinations() throws EncodeException, IOException {
+    byte[] expectedData = "somedata".getBytes();
+    when(encoder.encode(event)).thenReturn(expectedData);
+
+    PublisherConfiguration<Object> publisherConfig = new PublisherConfiguration(config, "exchange",
+        e -> "routingKey", propertiesBuilder, null, encoder, errorHandler, declarationsMock)
+            .withDestination(new Destination<>("other", e -> "otherKey"));
+
+    publisherConfig.publish(new PublisherChannel(channel, 0), event);
+
+    assertEquals(2, publisherConfig.getDestinations().size());
+    verify(encoder).encode(event);
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), any(), same(expectedData));
+    verify(channel).basicPublish(eq("other"), eq("otherKey"), any(), same(expectedData));
+  }
+
+  @Test
+  void testSpoolToMultipleDestinations() throws EncodeException, IOException {
+    when(encoder.encode(event)).thenReturn("somedata".getBytes());
+    ArgumentCaptor<List<SpooledMessage>> messages = ArgumentCaptor.captor();
+    ArgumentCaptor<List<CompletableFuture<Void>>> confirmations = ArgumentCaptor.captor();
+    when(spool.offerAll(messages.capture(), confirmations.capture())).thenReturn(true);
+    PublisherConfiguration<Object> publisherConfig = new PublisherConfiguration(config, "exchange",
+        e -> "routingKey", propertiesBuilder, null, encoder, errorHandler, declarationsMock)
+            .withDestination(new Destination<>("other", e -> "otherKey"));
+
+    CompletableFuture<Void> replayed = publisherConfig.spool(spool, event);
+
+    assertEquals(2, messages.getValue().size());
+    assertEquals("exchange", messages.getValue().get(0).getExchange());
+    assertEquals("other", messages.getValue().get(1).getExchange());
+    confirmations.getValue().get(0).complete(null);
+    assertFalse(replayed.isDone());
+    confirmations.getValue().get(1).complete(null);
+    assertTrue(replayed.isDone());
+    verify(spool, never()).offer(any(), any());
+  }
+
+  @Test
+  void testSpoolToMultipleDestinationsFull() throws EncodeException, IOException {
+    when(encoder.encode(event)).thenReturn("somedata".getBytes());
+    when(spool.offerAll(any(), any())).thenReturn(false);
+    PublisherConfiguration<Object> publisherConfig = new PublisherConfiguration(config, "exchange",
+        e -> "routingKey", propertiesBuilder, null, encoder, errorHandler, declarationsMock)
+            .withDestination(new Destination<>("other", e -> "otherKey"));
+
+    assertNull(publisherConfig.spool(spool, event));
+    verify(spool, never()).offer(any(), any());
+  }
+
+  @Test
+  void testPublishToMultipleDestinationsNack() throws EncodeException, IOException {
+    when(encoder.encode(event)).thenReturn("somedata".getBytes());
+    when(channel.getNextPublishSeqNo()).thenReturn(Long.valueOf(1), Long.valueOf(2));
+
+    PublisherChannel publisherChannel = new PublisherChannel(channel, 0);
+    publisherChannel.enablePublisherConfirms();
+    PublisherConfiguration<Object> publisherConfig = new PublisherConfiguration(config, "exchange",
+        e -> "routingKey", propertiesBuilder, null, encoder, errorHandler, declarationsMock)
+            .withDestination(new Destination<>("other", e -> "otherKey"))
+            .withPublisherConfirms(10_000);
+
+    CompletableFuture<Void> confirmation = publisherConfig.publish(publisherChannel, event);
+    ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+    verify(channel).addConfirmListener(listener.capture());
+    listener.getValue().handleAck(1, false);
+    assertFalse(confirmation.isDone());
+    listener.getValue().handleNack(2, false);
+
+    assertTrue(confirmation.isCompletedExceptionally());
+    verify(errorHandler).accept(eq(event), any(PublishException.class));
+  }
+
+  @Test
+  void testPublishWithPublisherConfirmsTimeout() throws EncodeException, IOException {
+    when(encoder.contentType()).thenReturn("application/sometype");
+    when(encoder.encode(event)).thenReturn("somedata".getBytes());
+    when(channel.getNextPublishSeqNo()).thenReturn(Long.valueOf(1));
+
+    PublisherChannel publisherChannel = new PublisherChannel(channel, 0);
+    publisherChannel.enablePublisherConfirms();
+    PublisherConfiguration<Object> publisherConfig =
+        new PublisherConfiguration(config, "exchange", e -> "routingKey", propertiesBuilder, null,
+            encoder, errorHandler, declarationsMock).withPublisherConfirms(10);
+
+    publisherConfig.publish(publisherChannel, event);
+
+    verify(errorHandler, timeout(1000)).accept(eq(event), any(PublishException.class));
+  }
+
+  @Test
+  void testPublishMandatoryReturned() throws EncodeException, IOException {
+    when(encoder.encode(event)).thenReturn("somedata".getBytes());
+    when(channel.getNextPublishSeqNo()).thenReturn(Long.valueOf(7));
+
+    PublisherChannel publisherChannel = new PublisherChannel(channel, 0);
+    publisherChannel.enablePublisherConfirms();
+    PublisherConfiguration<Object> publisherConfig =
+        new PublisherConfiguration(config, "exchange", e -> "routingKey", propertiesBuilder, null,
+            encoder, errorHandler, declarationsMock).withMandatory();
+
+    CompletableFuture<Void> confirmation = publisherConfig.publish(publisherChannel, event);
+    ArgumentCaptor<BasicProperties> properties = ArgumentCaptor.forClass(BasicProperties.class);
+    verify(channel).basicPublish(eq("exchange"), eq("routingKey"), eq(true),
+        properties.capture(), any());
+    assertNull(properties.getValue().getHeaders());
+    ArgumentCaptor<ReturnListener> listener = ArgumentCaptor.forClass(ReturnListener.class);
+    verify(channel).addReturnListener(listener.capture());
+    listener.getValue().handleReturn(312, "NO_ROUTE", "exchange", "routingKey",
+        properties.getValue(), "somedata".getBytes());
+
+    assertTrue(publisherConfig.isConfirmChannelRequired());
+    assertTrue(confirmation.isCompletedExceptionally());
+    verify(errorHandler).accept(eq(event), any(MessageReturnedException.class));
+  }
+
+  @Test
+  void testPublishMandatoryNackIgnored() throws EncodeException, IOException {
+    when(encoder.encode(event)).thenReturn("somedata".getBytes());
+    when(channel.getNextPublishSeqNo()).thenReturn(Long.valueOf(1));
+
+    PublisherChannel publisherChannel = new PublisherChannel(channel, 0);
+    publisherChannel.enablePublisherConfirms();
+    PublisherConfiguration<Object> publisherConfig =
+        new PublisherConfiguration(config, "exchange", e -> "routingKey", propertiesBuilder, null,
+            encoder, errorHandler, declarationsMock).withMandatory();
+
+    CompletableFuture<Void> confirmation = publisherConfig.publish(publisherChannel, event);
+    ArgumentCaptor<ConfirmListener> listener = ArgumentCaptor.forClass(ConfirmListener.class);
+    verify(channel).addConfirmListener(listener.capture());
+    listener.getValue().handleNack(1, false);
+
+    assertTrue(confirmation.isDone());
+    assertFalse(confirmation.isCompletedExceptionally());
+    verify(errorHandler, never()).accept(any(), any());
+  }
+
   @Test
   void testAcceptError() {
     PublishException publishError = new PublishException("some error", null);
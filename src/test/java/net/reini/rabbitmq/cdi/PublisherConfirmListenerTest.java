@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+class PublisherConfirmListenerTest {
+  private ReturnedMessageCounter returnedMessages;
+  private PublisherConfirmListener listener;
+
+  @BeforeEach
+  void prepare() {
+    returnedMessages = new ReturnedMessageCounter();
+    listener = new PublisherConfirmListener(returnedMessages);
+  }
+
+  @Test
+  void testHandleAck() {
+    CompletableFuture<Void> first = listener.register(1, 10_000);
+    CompletableFuture<Void> second = listener.register(2, 10_000);
+
+    listener.handleAck(2, false);
+
+    assertFalse(first.isDone());
+    assertTrue(second.isDone());
+    assertFalse(second.isCompletedExceptionally());
+    assertEquals(1, listener.getPendingCount());
+  }
+
+  @Test
+  void testHandleAckMultiple() {
+    CompletableFuture<Void> first = listener.register(1, 10_000);
+    CompletableFuture<Void> second = listener.register(2, 10_000);
+    CompletableFuture<Void> third = listener.register(3, 10_000);
+
+    listener.handleAck(2, true);
+
+    assertTrue(first.isDone());
+    assertTrue(second.isDone());
+    assertFalse(third.isDone());
+    assertEquals(1, listener.getPendingCount());
+  }
+
+  @Test
+  void testHandleNack() {
+    CompletableFuture<Void> confirmation = listener.register(1, 10_000);
+
+    listener.handleNack(1, false);
+
+    ExecutionException e = assertThrows(ExecutionException.class, confirmation::get);
+    assertInstanceOf(PublishException.class, e.getCause());
+    assertEquals(0, listener.getPendingCount());
+  }
+
+  @Test
+  void testHandleNackMultiple() {
+    CompletableFuture<Void> first = listener.register(1, 10_000);
+    CompletableFuture<Void> second = listener.register(2, 10_000);
+
+    listener.handleNack(2, true);
+
+    assertTrue(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+    assertEquals(0, listener.getPendingCount());
+  }
+
+  @Test
+  void testHandleReturn() throws Exception {
+    BasicProperties properties = new BasicProperties.Builder().messageId("id-1").build();
+    CompletableFuture<Void> returned =
+        listener.registerMandatory(1, 10_000, "exchange", "key", properties);
+    CompletableFuture<Void> other = listener.registerMandatory(2, 10_000, "exchange", "key",
+        new BasicProperties.Builder().messageId("id-2").build());
+
+    listener.handleReturn(312, "NO_ROUTE", "exchange", "key", properties, new byte[0]);
+    listener.handleAck(2, true);
+
+    ExecutionException error = assertThrows(ExecutionException.class, returned::get);
+    MessageReturnedException cause =
+        assertInstanceOf(MessageReturnedException.class, error.getCause());
+    assertEquals(312, cause.getReplyCode());
+    assertEquals("NO_ROUTE", cause.getReplyText());
+    assertEquals("exchange", cause.getExchange());
+    assertEquals("key", cause.getRoutingKey());
+    assertFalse(other.isCompletedExceptionally());
+    assertEquals(1, returnedMessages.getCount("exchange", "key"));
+    assertEquals(Collections.singletonMap("exchange/key", Long.valueOf(1)),
+        returnedMessages.snapshot());
+  }
+
+  @Test
+  void testHandleReturnByCorrelationId() {
+    CompletableFuture<Void> other = listener.registerMandatory(1, 10_000, "exchange", "key",
+        new BasicProperties.Builder().correlationId("other").build());
+    CompletableFuture<Void> returned = listener.registerMandatory(2, 10_000, "exchange", "key",
+        new BasicProperties.Builder().correlationId("returned").build());
+
+    listener.handleReturn(312, "NO_ROUTE", "exchange", "key",
+        new BasicProperties.Builder().correlationId("returned").build(), new byte[0]);
+
+    assertTrue(returned.isCompletedExceptionally());
+    assertFalse(other.isDone());
+    assertEquals(1, listener.getMandatoryCount());
+  }
+
+  @Test
+  void testHandleReturnWithoutIds() {
+    BasicProperties properties = new BasicProperties.Builder().build();
+    CompletableFuture<Void> returned =
+        listener.registerMandatory(1, 10_000, "exchange", "key", properties);
+    CompletableFuture<Void> otherKey =
+        listener.registerMandatory(2, 10_000, "exchange", "other", properties);
+    CompletableFuture<Void> next =
+        listener.registerMandatory(3, 10_000, "exchange", "key", properties);
+
+    listener.handleReturn(312, "NO_ROUTE", "exchange", "key", properties, new byte[0]);
+
+    assertTrue(returned.isCompletedExceptionally());
+    assertFalse(otherKey.isDone());
+    assertFalse(next.isDone());
+    assertEquals(2, listener.getMandatoryCount());
+  }
+
+  @Test
+  void testMandatoryRemovedWhenConfirmed() {
+    BasicProperties properties = new BasicProperties.Builder().messageId("id").build();
+    listener.registerMandatory(1, 10_000, "exchange", "key", properties);
+    listener.registerMandatory(2, 10_000, "exchange", "key", properties);
+
+    listener.handleAck(2, true);
+
+    assertEquals(0, listener.getMandatoryCount());
+    listener.handleReturn(312, "NO_ROUTE", "exchange", "key", properties, new byte[0]);
+    assertEquals(0, listener.getPendingCount());
+  }
+
+  @Test
+  void testHandleReturnUncorrelated() {
+    CompletableFuture<Void> pending = listener.register(1, 10_000);
+
+    listener.handleReturn(312, "NO_ROUTE", "exchange", "key",
+        new BasicProperties.Builder().build(), new byte[0]);
+
+    assertFalse(pending.isDone());
+    assertEquals(1, returnedMessages.getCount("exchange", "key"));
+    assertEquals(0, returnedMessages.getCount("exchange", "other"));
+  }
+
+  @Test
+  void testTimeout() {
+    CompletableFuture<Void> confirmation = listener.register(1, 10);
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> confirmation.get(1, TimeUnit.SECONDS));
+    assertInstanceOf(TimeoutException.class, e.getCause());
+    assertEquals(0, listener.getPendingCount());
+  }
+
+  @Test
+  void testCancel() {
+    CompletableFuture<Void> confirmation = listener.register(1, 10_000);
+
+    listener.cancel(1);
+
+    assertTrue(confirmation.isCancelled());
+    assertEquals(0, listener.getPendingCount());
+  }
+
+  @Test
+  void testFailAll() {
+    PublishException cause = new PublishException("closed", null);
+    CompletableFuture<Void> first = listener.register(1, 10_000);
+    CompletableFuture<Void> second = listener.register(2, 10_000);
+
+    listener.failAll(cause);
+
+    assertTrue(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+    assertEquals(0, listener.getPendingCount());
+  }
+
+  @Test
+  void testToPublishException() {
+    PublishException publishException = new PublishException("failed", null);
+    assertSame(publishException, PublisherConfirmListener.toPublishException(publishException));
+    assertInstanceOf(TimeoutException.class,
+        PublisherConfirmListener.toPublishException(new TimeoutException()).getCause());
+    assertEquals("Message not confirmed by the broker",
+        PublisherConfirmListener.toPublishException(new IllegalStateException()).getMessage());
+    assertSame(publishException, PublisherConfirmListener
+        .toPublishException(new CompletionException(publishException)));
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * Tests the {@link PublisherConnectionConfig} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class PublisherConnectionConfigTest {
+  @Mock
+  private ConnectionConfig delegate;
+  @Mock
+  private ConnectionFactory connectionFactory;
+  @Mock
+  private Connection connection;
+
+  private PublisherConnectionConfig sut;
+
+  @BeforeEach
+  void prepare() {
+    sut = new PublisherConnectionConfig(delegate);
+  }
+
+  @Test
+  void testCreateConnection() throws Exception {
+    when(delegate.createConnection(connectionFactory)).thenReturn(connection);
+
+    assertSame(connection, sut.createConnection(connectionFactory));
+  }
+
+  @Test
+  void testSettings() {
+    Path spoolDirectory = Paths.get("spool");
+    when(delegate.getConnectRetryWaitTime()).thenReturn(1L);
+    when(delegate.getFailedConsumerActivationRetryTime()).thenReturn(2L);
+    when(delegate.getPublisherChannelPoolSize()).thenReturn(3);
+    when(delegate.getPublisherSpoolDirectory()).thenReturn(spoolDirectory);
+    when(delegate.getPublisherSpoolSize()).thenReturn(4L);
+    when(delegate.getPublisherFlowControlPolicy()).thenReturn(FlowControlPolicy.FAIL);
+    when(delegate.getPublisherInFlightLimit()).thenReturn(5);
+    when(delegate.getPublisherFlowControlTimeout()).thenReturn(6L);
+    when(delegate.getConnectionCount()).thenReturn(7);
+    when(delegate.getConsumerDeliveryExecutor()).thenReturn(Runnable::run);
+
+    assertEquals(1L, sut.getConnectRetryWaitTime());
+    assertEquals(2L, sut.getFailedConsumerActivationRetryTime());
+    assertEquals(3, sut.getPublisherChannelPoolSize());
+    assertSame(spoolDirectory, sut.getPublisherSpoolDirectory());
+    assertEquals(4L, sut.getPublisherSpoolSize());
+    assertEquals(FlowControlPolicy.FAIL, sut.getPublisherFlowControlPolicy());
+    assertEquals(5, sut.getPublisherInFlightLimit());
+    assertEquals(6L, sut.getPublisherFlowControlTimeout());
+    assertEquals(7, sut.getConnectionCount());
+    assertNotNull(sut.getConsumerDeliveryExecutor());
+    assertSame(sut, sut.getPublisherConnectionConfig());
+  }
+
+  @Test
+  void testEqualsAndHashCode() {
+    PublisherConnectionConfig other = new PublisherConnectionConfig(delegate);
+
+    assertEquals(sut, sut);
+    assertEquals(sut, other);
+    assertEquals(sut.hashCode(), other.hashCode());
+    assertNotEquals(sut, delegate);
+    assertNotEquals(delegate, sut);
+    assertNotEquals(sut, new PublisherConnectionConfig(connectionConfig()));
+  }
+
+  private static ConnectionConfig connectionConfig() {
+    return new ConnectionConfiguration();
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.rabbitmq.client.Connection;
+
+/**
+ * Tests the {@link PublisherFlowControl} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class PublisherFlowControlTest {
+  @Mock
+  private ConnectionConfig config;
+  @Mock
+  private Connection connection;
+
+  @Test
+  void testDefaults() {
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+
+    assertSame(FlowControlPolicy.BLOCK, sut.getPolicy());
+    assertEquals(Integer.MAX_VALUE, sut.getAvailable());
+    assertTrue(sut.acquire());
+    assertFalse(sut.isBlocked());
+  }
+
+  @Test
+  void testInFlightLimit() {
+    when(config.getPublisherFlowControlPolicy()).thenReturn(FlowControlPolicy.FAIL);
+    when(config.getPublisherInFlightLimit()).thenReturn(Integer.valueOf(2));
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+
+    assertTrue(sut.acquire());
+    assertTrue(sut.acquire());
+    assertFalse(sut.acquire());
+    sut.release();
+    assertEquals(1, sut.getAvailable());
+    assertTrue(sut.acquire());
+  }
+
+  @Test
+  void testReleaseListener() {
+    when(config.getPublisherInFlightLimit()).thenReturn(Integer.valueOf(1));
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+    AtomicInteger released = new AtomicInteger();
+    sut.setReleaseListener(released::incrementAndGet);
+
+    assertTrue(sut.tryAcquire());
+    assertFalse(sut.tryAcquire());
+    sut.release();
+    assertEquals(1, released.get());
+    assertTrue(sut.tryAcquire());
+  }
+
+  @Test
+  void testFailWhileBlocked() {
+    when(config.getPublisherFlowControlPolicy()).thenReturn(FlowControlPolicy.FAIL);
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+
+    sut.onConnectionBlocked(connection, "alarm");
+    assertTrue(sut.isBlocked());
+    assertFalse(sut.acquire());
+    sut.onConnectionUnblocked(connection);
+    assertTrue(sut.acquire());
+  }
+
+  @Test
+  void testBlockTimeout() {
+    when(config.getPublisherFlowControlTimeout()).thenReturn(Long.valueOf(20));
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+
+    sut.onConnectionBlocked(connection, "alarm");
+
+    long start = System.nanoTime();
+    assertFalse(sut.acquire());
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+  }
+
+  @Test
+  void testBlockUntilUnblocked() throws Exception {
+    lenient().when(config.getPublisherFlowControlTimeout()).thenReturn(Long.valueOf(10_000));
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+    sut.onConnectionBlocked(connection, "alarm");
+
+    CompletableFuture<Boolean> acquired =
+        CompletableFuture.supplyAsync(() -> Boolean.valueOf(sut.acquire()));
+    Thread.sleep(50);
+    assertFalse(acquired.isDone());
+    sut.onConnectionUnblocked(connection);
+
+    assertTrue(acquired.get(5, TimeUnit.SECONDS).booleanValue());
+  }
+
+  @Test
+  void testBlockedByAnyConnection() {
+    Connection otherConnection = mock(Connection.class);
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+
+    sut.onConnectionBlocked(connection, "alarm");
+    sut.onConnectionBlocked(otherConnection, "alarm");
+    sut.onConnectionUnblocked(connection);
+    assertTrue(sut.isBlocked());
+    sut.onConnectionUnblocked(otherConnection);
+    assertFalse(sut.isBlocked());
+    sut.onConnectionBlocked(connection, "alarm");
+    sut.onConnectionClosed(null);
+    assertFalse(sut.isBlocked());
+  }
+
+  @Test
+  void testConnectionLostUnblocks() {
+    PublisherFlowControl sut = new PublisherFlowControl(config);
+
+    sut.onConnectionBlocked(connection, "alarm");
+    sut.onConnectionLost(connection);
+
+    assertFalse(sut.isBlocked());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static jakarta.enterprise.event.TransactionPhase.AFTER_SUCCESS;
+import static jakarta.enterprise.event.TransactionPhase.IN_PROGRESS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import net.reini.rabbitmq.cdi.PublisherRoutingTable.Route;
+
+/**
+ * Tests the {@link PublisherRoutingTable} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class PublisherRoutingTableTest {
+  @Mock
+  private PublisherConfiguration<BaseEvent> baseConfiguration;
+  @Mock
+  private PublisherConfiguration<SubEvent> subConfiguration;
+  @Mock
+  private PublisherConfiguration<Marker> markerConfiguration;
+
+  @Test
+  void testEmpty() {
+    assertNull(PublisherRoutingTable.EMPTY.resolve(BaseEvent.class, IN_PROGRESS));
+  }
+
+  @Test
+  void testResolveExactType() {
+    PublisherRoutingTable table = PublisherRoutingTable.EMPTY
+        .with(EventKey.of(BaseEvent.class, IN_PROGRESS), baseConfiguration);
+
+    Route<Object> route = table.resolve(BaseEvent.class, IN_PROGRESS);
+
+    assertEquals(EventKey.of(BaseEvent.class, IN_PROGRESS), route.getEventKey());
+    assertSame(baseConfiguration, route.getConfiguration());
+    assertSame(route, table.resolve(BaseEvent.class, IN_PROGRESS));
+  }
+
+  @Test
+  void testResolveOtherPhase() {
+    PublisherRoutingTable table = PublisherRoutingTable.EMPTY
+        .with(EventKey.of(BaseEvent.class, IN_PROGRESS), baseConfiguration);
+
+    assertNull(table.resolve(BaseEvent.class, AFTER_SUCCESS));
+    assertNull(table.resolve(Object.class, IN_PROGRESS));
+  }
+
+  @Test
+  void testResolveSuperClass() {
+    PublisherRoutingTable table = PublisherRoutingTable.EMPTY
+        .with(EventKey.of(BaseEvent.class, IN_PROGRESS), baseConfiguration)
+        .with(EventKey.of(Marker.class, IN_PROGRESS), markerConfiguration);
+
+    Route<Object> route = table.resolve(SubSubEvent.class, IN_PROGRESS);
+
+    assertEquals(EventKey.of(BaseEvent.class, IN_PROGRESS), route.getEventKey());
+    assertSame(baseConfiguration, route.getConfiguration());
+  }
+
+  @Test
+  void testResolveNearestSuperClass() {
+    PublisherRoutingTable table = PublisherRoutingTable.EMPTY
+        .with(EventKey.of(BaseEvent.class, IN_PROGRESS), baseConfiguration)
+        .with(EventKey.of(SubEvent.class, IN_PROGRESS), subConfiguration);
+
+    assertSame(subConfiguration, table.resolve(SubSubEvent.class, IN_PROGRESS).getConfiguration());
+    assertSame(baseConfiguration, table.resolve(BaseEvent.class, IN_PROGRESS).getConfiguration());
+  }
+
+  @Test
+  void testResolveInterface() {
+    PublisherRoutingTable table = PublisherRoutingTable.EMPTY
+        .with(EventKey.of(Marker.class, IN_PROGRESS), markerConfiguration);
+
+    assertSame(markerConfiguration, table.resolve(SubSubEvent.class, IN_PROGRESS).getConfiguration());
+    assertSame(markerConfiguration, table.resolve(SubEvent.class, IN_PROGRESS).getConfiguration());
+    assertNull(table.resolve(BaseEvent.class, IN_PROGRESS));
+  }
+
+  @Test
+  void testWith() {
+    PublisherRoutingTable table = PublisherRoutingTable.EMPTY
+        .with(EventKey.of(BaseEvent.class, IN_PROGRESS), baseConfiguration);
+    assertSame(baseConfiguration, table.resolve(SubEvent.class, IN_PROGRESS).getConfiguration());
+
+    PublisherRoutingTable newTable =
+        table.with(EventKey.of(SubEvent.class, IN_PROGRESS), subConfiguration);
+
+    assertNotSame(table, newTable);
+    assertSame(baseConfiguration, table.resolve(SubEvent.class, IN_PROGRESS).getConfiguration());
+    assertSame(subConfiguration, newTable.resolve(SubEvent.class, IN_PROGRESS).getConfiguration());
+    assertSame(subConfiguration,
+        newTable.getConfiguration(EventKey.of(SubEvent.class, IN_PROGRESS)));
+    assertNull(newTable.getConfiguration(EventKey.of(SubSubEvent.class, IN_PROGRESS)));
+  }
+
+  interface Marker {
+  }
+
+  static class BaseEvent {
+  }
+
+  static class SubEvent extends BaseEvent implements Marker {
+  }
+
+  static class SubSubEvent extends SubEvent {
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Tests the {@link PublisherSpool} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class PublisherSpoolTest {
+  @TempDir
+  Path spoolDirectory;
+
+  @Mock
+  private ConnectionRepository connectionRepository;
+  @Mock
+  private ConnectionConfig config;
+  @Mock
+  private PublisherChannelPool channelPool;
+  @Mock
+  private PublisherChannel channel;
+  @Mock
+  private PublisherFlowControl flowControl;
+  @Mock
+  private DeclarerRepository declarerRepository;
+
+  private PublisherSpool sut;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    lenient().when(config.getPublisherSpoolDirectory()).thenReturn(spoolDirectory);
+    lenient().when(config.getPublisherSpoolSize()).thenReturn(Long.valueOf(1024 * 1024));
+    lenient().when(connectionRepository.getChannelPool(config)).thenReturn(channelPool);
+    lenient().when(channelPool.getFlowControl()).thenReturn(flowControl);
+    lenient().when(flowControl.tryAcquire()).thenReturn(true);
+    sut = new PublisherSpool(connectionRepository, config);
+  }
+
+  @AfterEach
+  void tearDown() {
+    sut.close();
+  }
+
+  @Test
+  void testReplayInOrder() throws IOException {
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channel.publish(any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    assertTrue(sut.isEmpty());
+    assertTrue(sut.offer(message("first"), confirmation));
+    assertTrue(sut.offer(message("second")));
+    assertFalse(sut.isEmpty());
+    assertFalse(confirmation.isDone());
+
+    assertTrue(sut.replay());
+    assertTrue(confirmation.isDone());
+    assertFalse(confirmation.isCompletedExceptionally());
+
+    InOrder inOrder = inOrder(channel);
+    inOrder.verify(channel).publish(eq("exchange"), eq("first"), any(), any(), anyLong());
+    inOrder.verify(channel).publish(eq("exchange"), eq("second"), any(), any(), anyLong());
+    verify(channelPool).returnChannel(channel);
+    assertTrue(sut.isEmpty());
+  }
+
+  @Test
+  void testReplayFailureKeepsMessages() throws IOException {
+    when(channelPool.borrowChannel(true)).thenThrow(new IOException("not connected"));
+
+    assertTrue(sut.offer(message("first")));
+
+    assertFalse(sut.replay());
+    assertFalse(sut.isEmpty());
+    verify(channelPool).discardChannel(null);
+  }
+
+  @Test
+  void testReplayRetriesNotConfirmedMessage() throws IOException {
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channel.publish(any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.failedFuture(new IOException("nack")),
+            CompletableFuture.completedFuture(null));
+
+    assertTrue(sut.offer(message("first"), confirmation));
+
+    assertTrue(sut.replay());
+    assertTrue(sut.isEmpty());
+    assertFalse(confirmation.isCompletedExceptionally());
+    verify(channel, times(2)).publish(eq("exchange"), eq("first"), any(), any(), anyLong());
+  }
+
+  @Test
+  void testReplayDropsMessageNotConfirmed() throws IOException {
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    CompletableFuture<Void> nextConfirmation = new CompletableFuture<>();
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channel.publish(eq("exchange"), eq("first"), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.failedFuture(new IOException("nack")));
+    when(channel.publish(eq("exchange"), eq("second"), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    assertTrue(sut.offer(message("first"), confirmation));
+    assertTrue(sut.offer(message("second"), nextConfirmation));
+
+    assertTrue(sut.replay());
+    assertTrue(sut.isEmpty());
+    verify(channel, times(PublisherSpool.MAX_REPLAY_ATTEMPTS)).publish(eq("exchange"),
+        eq("first"), any(), any(), anyLong());
+    ExecutionException error = assertThrows(ExecutionException.class, confirmation::get);
+    assertInstanceOf(PublishException.class, error.getCause());
+    assertFalse(nextConfirmation.isCompletedExceptionally());
+    assertTrue(nextConfirmation.isDone());
+  }
+
+  @Test
+  void testReplayAppliesDeclarations() throws IOException {
+    List<Declaration> declarations = List.of(new ExchangeDeclaration("exchange"));
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channelPool.getDeclarerRepository()).thenReturn(declarerRepository);
+    when(channel.publish(any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    sut.registerDeclarations("exchange", declarations);
+    sut.registerDeclarations("exchange", declarations);
+    assertTrue(sut.offer(message("first")));
+    assertTrue(sut.offer(new SpooledMessage("other", "key", null, new byte[16])));
+
+    assertTrue(sut.replay());
+
+    InOrder inOrder = inOrder(declarerRepository, channel);
+    inOrder.verify(declarerRepository).declareOnce(isNull(), eq(declarations));
+    inOrder.verify(channel).publish(eq("exchange"), eq("first"), any(), any(), anyLong());
+    inOrder.verify(channel).publish(eq("other"), eq("key"), any(), any(), anyLong());
+    verify(declarerRepository).declareOnce(any(), any());
+  }
+
+  @Test
+  void testReplayDropsMessageFailingDeclarations() throws IOException {
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    List<Declaration> declarations = List.of(new ExchangeDeclaration("exchange"));
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channelPool.getDeclarerRepository()).thenReturn(declarerRepository);
+    doThrow(new IOException("precondition failed")).when(declarerRepository)
+        .declareOnce(isNull(), eq(declarations));
+
+    sut.registerDeclarations("exchange", declarations);
+    assertTrue(sut.offer(message("first"), confirmation));
+
+    assertTrue(sut.replay());
+    assertTrue(sut.isEmpty());
+    assertTrue(confirmation.isCompletedExceptionally());
+    verify(channel, never()).publish(any(), any(), any(), any(), anyLong());
+    verify(channelPool, times(PublisherSpool.MAX_REPLAY_ATTEMPTS)).discardChannel(channel);
+  }
+
+  @Test
+  void testCloseFailsPendingConfirmations() throws IOException {
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    assertTrue(sut.offer(message("first"), confirmation));
+
+    sut.close();
+
+    assertTrue(confirmation.isCompletedExceptionally());
+  }
+
+  @Test
+  void testReplaySuspendedWhileBlocked() throws IOException {
+    when(flowControl.isBlocked()).thenReturn(true);
+
+    assertTrue(sut.offer(message("first")));
+
+    assertFalse(sut.replay());
+    assertFalse(sut.isEmpty());
+    verify(channelPool, never()).borrowChannel(true);
+  }
+
+  @Test
+  void testReplaySuspendedAtInFlightLimit() throws IOException {
+    when(flowControl.tryAcquire()).thenReturn(true, false);
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channel.publish(any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    assertTrue(sut.offer(message("first")));
+    assertTrue(sut.offer(message("second")));
+
+    assertFalse(sut.replay());
+    verify(channel).publish(eq("exchange"), eq("first"), any(), any(), anyLong());
+    verify(flowControl).release();
+    assertFalse(sut.isEmpty());
+  }
+
+  @Test
+  void testInFlightReleasedResumesReplay() throws IOException {
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channel.publish(any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    assertTrue(sut.offer(message("first")));
+    sut.onInFlightReleased();
+
+    verify(channel, timeout(1000)).publish(eq("exchange"), eq("first"), any(), any(),
+        anyLong());
+  }
+
+  @Test
+  void testRecoverAfterReopen() throws IOException {
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channel.publish(any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    assertTrue(sut.offer(message("first")));
+    sut.close();
+    sut = new PublisherSpool(connectionRepository, config);
+
+    assertFalse(sut.isEmpty());
+    assertTrue(sut.replay());
+    verify(channel).publish(eq("exchange"), eq("first"), any(), any(), anyLong());
+    assertTrue(sut.isEmpty());
+  }
+
+  @Test
+  void testSpoolFull() throws IOException {
+    when(config.getPublisherSpoolSize()).thenReturn(Long.valueOf(256));
+    sut.close();
+    sut = new PublisherSpool(connectionRepository, config);
+
+    int spooled = 0;
+    while (sut.offer(message("key")) && spooled < 100) {
+      spooled++;
+    }
+
+    assertTrue(spooled > 0);
+    assertTrue(spooled < 100);
+  }
+
+  @Test
+  void testOfferAllOrNothing() throws IOException {
+    when(config.getPublisherSpoolSize()).thenReturn(Long.valueOf(256));
+    sut.close();
+    sut = new PublisherSpool(connectionRepository, config);
+    List<SpooledMessage> messages = new ArrayList<>();
+    List<CompletableFuture<Void>> confirmations = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      messages.add(message("key" + i));
+      confirmations.add(new CompletableFuture<>());
+    }
+
+    assertFalse(sut.offerAll(messages, confirmations));
+    assertTrue(sut.isEmpty());
+    assertEquals(0, segmentCount());
+
+    assertTrue(sut.offerAll(messages.subList(0, 2), confirmations.subList(0, 2)));
+    assertFalse(sut.isEmpty());
+  }
+
+  @Test
+  void testMessageTooLarge() throws IOException {
+    when(config.getPublisherSpoolSize()).thenReturn(Long.valueOf(256));
+    sut.close();
+    sut = new PublisherSpool(connectionRepository, config);
+
+    assertFalse(sut.offer(new SpooledMessage("exchange", "key", null, new byte[512])));
+    assertTrue(sut.isEmpty());
+  }
+
+  @Test
+  void testReplayedSegmentsRemoved() throws IOException {
+    when(channelPool.borrowChannel(true)).thenReturn(channel);
+    when(channel.publish(any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    assertTrue(sut.offer(message("first")));
+    assertTrue(sut.replay());
+
+    assertEquals(0, segmentCount());
+  }
+
+  @Test
+  void testOfferAfterClose() throws IOException {
+    sut.close();
+
+    assertFalse(sut.offer(message("first")));
+    verify(connectionRepository, never()).getChannelPool(config);
+  }
+
+  private long segmentCount() throws IOException {
+    try (Stream<Path> files = Files.list(spoolDirectory)) {
+      return files.count();
+    }
+  }
+
+  private static SpooledMessage message(String routingKey) {
+    return new SpooledMessage("exchange", routingKey, null, new byte[16]);
+  }
+}
@@ -27,12 +27,18 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.enterprise.util.TypeLiteral;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -71,6 +77,16 @@ class QueueBindingTest {
     assertTrue(binding.isAutoAck());
   }
 
+  @Test
+  void testWithCompressionCodec() {
+    CompressionCodec codec = CompressionCodec.gzip(1);
+
+    assertEquals(2, binding.getCompressionCodecs().size());
+    assertSame(binding, binding.withCompressionCodec(codec));
+    assertSame(codec, binding.getCompressionCodecs().get("gzip"));
+    assertThrows(NullPointerException.class, () -> binding.withCompressionCodec(null));
+  }
+
   @Test
   void testWithPrefetchCount() {
     assertEquals(0, binding.getPrefetchCount());
@@ -78,6 +94,82 @@ class QueueBindingTest {
     assertEquals(5,binding.getPrefetchCount());
   }
 
+  @Test
+  void testWithAsyncDelivery() {
+    Executor executor = Runnable::run;
+    assertFalse(binding.isAsyncDelivery());
+    assertSame(binding, binding.withAsyncDelivery());
+    assertTrue(binding.isAsyncDelivery());
+    assertNull(binding.getAsyncDeliveryExecutor());
+    assertSame(binding, binding.withAsyncDelivery(executor));
+    assertSame(executor, binding.getAsyncDeliveryExecutor());
+    assertThrows(NullPointerException.class, () -> binding.withAsyncDelivery(null));
+  }
+
+  @Test
+  void testAsBatch() {
+    TypeLiteral<EventBatch<TestEvent>> batchType = new TypeLiteral<EventBatch<TestEvent>>() {};
+    assertNull(binding.getBatchType());
+    assertEquals(0, binding.getBatchSize());
+    assertSame(binding, binding.asBatch(batchType, 100, 50, TimeUnit.MILLISECONDS));
+    assertSame(batchType, binding.getBatchType());
+    assertEquals(100, binding.getBatchSize());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(50), binding.getBatchWindow());
+    assertThrows(IllegalArgumentException.class,
+        () -> binding.asBatch(batchType, 0, 50, TimeUnit.MILLISECONDS));
+    assertThrows(IllegalArgumentException.class,
+        () -> binding.asBatch(batchType, 100, 0, TimeUnit.MILLISECONDS));
+    assertThrows(NullPointerException.class,
+        () -> binding.asBatch(null, 100, 50, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testWithAdaptivePrefetch() {
+    assertEquals(0, binding.getMinPrefetchCount());
+    assertEquals(0, binding.getMaxPrefetchCount());
+    assertSame(binding, binding.withAdaptivePrefetch(10, 500));
+    assertEquals(10, binding.getMinPrefetchCount());
+    assertEquals(500, binding.getMaxPrefetchCount());
+    assertThrows(IllegalArgumentException.class, () -> binding.withAdaptivePrefetch(0, 500));
+    assertThrows(IllegalArgumentException.class, () -> binding.withAdaptivePrefetch(10, 5));
+    assertThrows(IllegalStateException.class,
+        () -> binding.asBatch(new TypeLiteral<EventBatch<TestEvent>>() {}, 100, 50,
+            TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testAdaptivePrefetchWithBatch() {
+    binding.asBatch(new TypeLiteral<EventBatch<TestEvent>>() {}, 100, 50, TimeUnit.MILLISECONDS);
+    assertThrows(IllegalStateException.class, () -> binding.withAdaptivePrefetch(10, 500));
+    assertEquals(0, binding.getMaxPrefetchCount());
+  }
+
+  @Test
+  void testWithConcurrency() {
+    assertEquals(1, binding.getMinConcurrency());
+    assertEquals(1, binding.getMaxConcurrency());
+    assertSame(binding, binding.withConcurrency(4));
+    assertEquals(4, binding.getMinConcurrency());
+    assertEquals(4, binding.getMaxConcurrency());
+    assertSame(binding, binding.withConcurrency(2, 8));
+    assertEquals(2, binding.getMinConcurrency());
+    assertEquals(8, binding.getMaxConcurrency());
+    assertThrows(IllegalArgumentException.class, () -> binding.withConcurrency(0));
+    assertThrows(IllegalArgumentException.class, () -> binding.withConcurrency(3, 2));
+  }
+
+  @Test
+  void testWithAckBatching() {
+    assertEquals(0, binding.getAckBatchSize());
+    assertSame(binding, binding.withAckBatching(10, 50, TimeUnit.MILLISECONDS));
+    assertEquals(10, binding.getAckBatchSize());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(50), binding.getAckBatchWindow());
+    assertThrows(IllegalArgumentException.class,
+        () -> binding.withAckBatching(0, 50, TimeUnit.MILLISECONDS));
+    assertThrows(IllegalArgumentException.class,
+        () -> binding.withAckBatching(10, 0, TimeUnit.MILLISECONDS));
+  }
+
   @Test
   void testGetDecoder() {
     assertEquals(JsonDecoder.class, binding.getDecoder().getClass());
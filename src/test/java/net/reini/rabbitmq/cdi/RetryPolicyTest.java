@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+  @Test
+  void testDefault() {
+    RetryPolicy policy = RetryPolicy.DEFAULT;
+    assertEquals(GenericPublisher.DEFAULT_RETRY_ATTEMPTS, policy.getAttempts());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(GenericPublisher.DEFAULT_RETRY_INTERVAL),
+        policy.getDelay(1));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(GenericPublisher.DEFAULT_RETRY_INTERVAL),
+        policy.getDelay(2));
+  }
+
+  @Test
+  void testExponentialBackoff() {
+    RetryPolicy policy = RetryPolicy.of(10, 100, 1000, TimeUnit.NANOSECONDS);
+    assertEquals(100, policy.getDelay(1));
+    assertEquals(200, policy.getDelay(2));
+    assertEquals(400, policy.getDelay(3));
+    assertEquals(800, policy.getDelay(4));
+    assertEquals(1000, policy.getDelay(5));
+    assertEquals(1000, policy.getDelay(10));
+  }
+
+  @Test
+  void testNoOverflow() {
+    RetryPolicy policy = RetryPolicy.of(100, 1, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    assertEquals(Long.MAX_VALUE, policy.getDelay(100));
+  }
+
+  @Test
+  void testJitter() {
+    RetryPolicy policy = RetryPolicy.of(3, 1000, 1000, TimeUnit.NANOSECONDS);
+    RetryPolicy jittered = policy.withJitter(0.5);
+    assertNotSame(policy, jittered);
+    assertEquals(0.5, jittered.getJitter());
+    for (int i = 0; i < 100; i++) {
+      long delay = jittered.getDelay(1);
+      assertTrue(delay > 500 && delay <= 1000, "unexpected delay " + delay);
+    }
+  }
+
+  @Test
+  void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class,
+        () -> RetryPolicy.of(0, 1, 1, TimeUnit.SECONDS));
+    assertThrows(IllegalArgumentException.class,
+        () -> RetryPolicy.of(1, -1, 1, TimeUnit.SECONDS));
+    assertThrows(IllegalArgumentException.class,
+        () -> RetryPolicy.of(1, 2, 1, TimeUnit.SECONDS));
+    assertThrows(IllegalArgumentException.class, () -> RetryPolicy.DEFAULT.withJitter(1.5));
+  }
+}
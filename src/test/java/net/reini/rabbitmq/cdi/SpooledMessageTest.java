@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+
+/**
+ * Tests the {@link SpooledMessage} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+class SpooledMessageTest {
+  @Test
+  void testRoundTrip() throws IOException {
+    Map<String, Object> nested = new HashMap<>();
+    nested.put("level", Integer.valueOf(2));
+    Map<String, Object> headers = new HashMap<>();
+    headers.put("string", "value");
+    headers.put("long", Long.valueOf(42));
+    headers.put("flag", Boolean.TRUE);
+    headers.put("decimal", new BigDecimal("1.25"));
+    headers.put("list", Arrays.asList("a", Integer.valueOf(1)));
+    headers.put("nested", nested);
+    headers.put("none", null);
+    BasicProperties properties = new BasicProperties.Builder().contentType("application/json")
+        .deliveryMode(Integer.valueOf(2)).headers(headers).messageId("id")
+        .timestamp(new Date(1000)).build();
+    byte[] body = "body".getBytes(StandardCharsets.UTF_8);
+
+    SpooledMessage message = SpooledMessage
+        .fromBytes(new SpooledMessage("exchange", "routingKey", properties, body).toBytes());
+
+    assertEquals("exchange", message.getExchange());
+    assertEquals("routingKey", message.getRoutingKey());
+    assertArrayEquals(body, message.getBody());
+    assertEquals(properties, message.getProperties());
+  }
+
+  @Test
+  void testRoundTrip_without_properties() throws IOException {
+    SpooledMessage message =
+        SpooledMessage.fromBytes(new SpooledMessage(null, "key", null, new byte[0]).toBytes());
+
+    assertNull(message.getExchange());
+    assertEquals("key", message.getRoutingKey());
+    assertNull(message.getProperties());
+    assertArrayEquals(new byte[0], message.getBody());
+  }
+
+  @Test
+  void testFromBytes_truncated() {
+    assertThrows(IOException.class, () -> SpooledMessage.fromBytes(new byte[3]));
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015-2026 Patrick Reinhart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package net.reini.rabbitmq.cdi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import jakarta.transaction.Status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Tests the {@link TransactionBatch} implementation.
+ *
+ * @author Patrick Reinhart
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchTest {
+  @Mock
+  private MessagePublisher<TestEvent> publisher;
+  @Mock
+  private PublisherConfiguration<TestEvent> configuration;
+
+  private Set<Object> batchedEvents;
+  private TransactionBatch sut;
+
+  @BeforeEach
+  void setUp() {
+    batchedEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+    sut = new TransactionBatch(batchedEvents);
+  }
+
+  @Test
+  void testAfterCompletion_committed() throws PublishException {
+    TestEvent first = new TestEvent();
+    TestEvent second = new TestEvent();
+    when(publisher.publishConfirmed(first, configuration))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    when(publisher.publishConfirmed(second, configuration))
+        .thenReturn(CompletableFuture.failedFuture(new PublishException("nack", null)));
+
+    sut.add(first, publisher, configuration);
+    sut.add(second, publisher, configuration);
+    sut.beforeCompletion();
+    sut.afterCompletion(Status.STATUS_COMMITTED);
+
+    InOrder inOrder = inOrder(publisher);
+    inOrder.verify(publisher).publishConfirmed(first, configuration);
+    inOrder.verify(publisher).publishConfirmed(second, configuration);
+    assertEquals(0, sut.size());
+    assertEquals(2, batchedEvents.size());
+  }
+
+  @Test
+  void testAfterCompletion_does_not_wait_for_confirmation() throws PublishException {
+    TestEvent event = new TestEvent();
+    CompletableFuture<Void> confirmation = new CompletableFuture<>();
+    when(publisher.publishConfirmed(event, configuration)).thenReturn(confirmation);
+
+    sut.add(event, publisher, configuration);
+    sut.afterCompletion(Status.STATUS_COMMITTED);
+
+    assertFalse(confirmation.isDone());
+    assertEquals(0, sut.size());
+  }
+
+  @Test
+  void testAfterCompletion_publish_failing() throws PublishException {
+    TestEvent event = new TestEvent();
+    PublishException error = new PublishException("failed", null);
+    when(publisher.publishConfirmed(event, configuration)).thenThrow(error);
+
+    sut.add(event, publisher, configuration);
+    sut.afterCompletion(Status.STATUS_COMMITTED);
+
+    verify(configuration).accept(event, error);
+  }
+
+  @Test
+  void testAfterCompletion_rolled_back() throws PublishException {
+    TestEvent event = new TestEvent();
+
+    sut.add(event, publisher, configuration);
+    assertEquals(1, sut.size());
+    assertTrue(batchedEvents.contains(event));
+    sut.afterCompletion(Status.STATUS_ROLLEDBACK);
+
+    verify(publisher, never()).publishConfirmed(event, configuration);
+    assertTrue(batchedEvents.isEmpty());
+  }
+}